@@ -0,0 +1,101 @@
+package loginsystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// AccountService register/login against registries holding 10k to 10M users.
+// PBKDF2 is pinned to one iteration so these measure the registry and the verifier pool hand-off rather than
+// the KDF; PasswordHashBenchmark measures the KDF itself. Every login comes from the one local source, so the
+// service is built without a login throttle; LoginFloodTest measures it.
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "-Dloginsystem.pbkdf2.iterations=1"})
+public class AuthBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Registered {
+        @Param({"10000", "1000000", "10000000"})
+        public int users;
+
+        AccountService accounts;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            accounts = unthrottled(users);
+        }
+
+        String randomUser() {
+            return BenchmarkData.username(ThreadLocalRandom.current().nextInt(users));
+        }
+    }
+
+    // Fresh registry per iteration so every registration inserts a new name.
+    @State(Scope.Thread)
+    public static class Registering {
+        @Param({"10000", "1000000", "10000000"})
+        public int users;
+
+        AccountService accounts;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            accounts = unthrottled(users);
+            next = users;
+        }
+    }
+
+    static AccountService unthrottled(int users) {
+        AccountService accounts = new AccountService(new UserRegistry(), new PasswordHasher(), new CredentialVerifier(), null);
+        BenchmarkData.addUsers(accounts, users);
+        return accounts;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public boolean loginExistingUser(Registered state) {
+        return state.accounts.login(state.randomUser(), BenchmarkData.PASSWORD);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public boolean loginWrongPassword(Registered state) {
+        return state.accounts.login(state.randomUser(), "Wrong123!@");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public String registerDuplicate(Registered state) {
+        return state.accounts.register(state.randomUser(), BenchmarkData.PASSWORD, BenchmarkData.PHONE);
+    }
+
+    // Each measured batch registers 100k new users on top of the pre-populated registry.
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2, batchSize = 100_000)
+    @Measurement(iterations = 5, batchSize = 100_000)
+    public String registerNewUser(Registering state) {
+        return state.accounts.register(BenchmarkData.username(state.next++), BenchmarkData.PASSWORD, BenchmarkData.PHONE);
+    }
+}
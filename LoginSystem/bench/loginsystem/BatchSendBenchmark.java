@@ -0,0 +1,62 @@
+package loginsystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// One send() per message against a single sendBatch() call for the same items.
+// Scores are batches per second; multiply by batchSize for messages per second.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Thread)
+public class BatchSendBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int batchSize;
+
+    private List<MessageService.OutgoingMessage> batch;
+    private MessageService service;
+
+    @Setup(Level.Trial)
+    public void prepareBatch() {
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new MessageService.OutgoingMessage(BenchmarkData.recipient(i % 500), BenchmarkData.text(i)));
+        }
+    }
+
+    // A fresh store per iteration keeps the heap from growing without bound
+    @Setup(Level.Iteration)
+    public void setUp() {
+        service = new MessageService(new MessageStore(), new MessageIdGenerator());
+    }
+
+    @Benchmark
+    public void oneAtATime(Blackhole bh) {
+        for (MessageService.OutgoingMessage item : batch) {
+            bh.consume(service.send(item.recipient(), item.text()));
+        }
+    }
+
+    @Benchmark
+    public List<MessageService.SendResult> batched() {
+        return service.sendBatch(batch);
+    }
+}
@@ -0,0 +1,70 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+
+// Deterministic fixtures shared by the benchmarks.
+final class BenchmarkData {
+
+    static final String PASSWORD = "Pass123!@";
+    static final String PHONE = "+27612345678";
+
+    private static final String ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final String[] TEXTS = {
+        "Did you get the cake?",
+        "Where are you? You are late! I have asked you to be on time.",
+        "Yahooo, I am at your gate.",
+        "It is dinner time!",
+        "Ok, I am leaving without you."
+    };
+
+    private BenchmarkData() {
+    }
+
+    // The i-th valid username: '_' plus four base-62 characters, so up to 62^4 (~14.7M) distinct names.
+    static String username(int i) {
+        char[] name = new char[5];
+        name[0] = '_';
+        for (int pos = 4; pos >= 1; pos--) {
+            name[pos] = ALPHABET.charAt(i % ALPHABET.length());
+            i /= ALPHABET.length();
+        }
+        return new String(name);
+    }
+
+    // Seeds the registry directly with one shared credential: hashing millions of passwords would take hours.
+    static ChatApp appWithUsers(int users) {
+        ChatApp app = new ChatApp();
+        addUsers(app.getAccountService(), users);
+        return app;
+    }
+
+    static void addUsers(AccountService accounts, int users) {
+        String credential = accounts.getHasher().hash(PASSWORD);
+        for (int i = 0; i < users; i++) {
+            accounts.getRegistry().register(new ChatApp.User(username(i), credential, PHONE));
+        }
+    }
+
+    static String recipient(int i) {
+        return "+2783" + String.format("%07d", i);
+    }
+
+    static String text(int i) {
+        return TEXTS[i % TEXTS.length];
+    }
+
+    // Fills the app's store with messages spread over messages / perRecipient recipients; returns them in insertion order.
+    static Message[] fillMessages(ChatApp app, int messages, int perRecipient) {
+        Message[] sent = new Message[messages];
+        int recipients = Math.max(1, messages / perRecipient);
+        for (int i = 0; i < messages; i++) {
+            String id = String.format("%010d", i);
+            String recipient = recipient(i % recipients);
+            String text = text(i);
+            String hash = app.generateMessageHash(id, i + 1, recipient, text);
+            sent[i] = new Message(id, i + 1, recipient, text, hash, "Sent");
+            app.getMessageStore().add(sent[i]);
+        }
+        return sent;
+    }
+}
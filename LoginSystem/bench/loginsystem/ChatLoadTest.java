@@ -0,0 +1,192 @@
+package loginsystem;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Load-test client for the chat server: opens every connection first so they are all live at once, then each
+// client registers, logs in and alternates SEND and RECENT requests, one virtual thread per client.
+// Prints throughput and request latency percentiles.
+//
+//   ant load-test -Dload.args="--clients 20000 --requests 50"
+//   ant load-test -Dload.args="--host 10.0.0.5 --port 7000 --user-offset 20000"
+// Without --port an embedded server is started on a free loopback port, hashing passwords with --iterations
+// PBKDF2 rounds (default 1000, to load the sessions rather than the KDF). Busy replies to REGISTER and LOGIN
+// are retried after a short pause and counted. The embedded server does not throttle logins, since every client
+// connects from one address. Every connection needs a file descriptor on each side, so raise the open-file
+// limit (ulimit -n) above twice the client count.
+public class ChatLoadTest {
+
+    private static final class Client {
+        final Socket socket;
+        final LineReader in;
+        final OutputStream out;
+        final long[] latencies;
+        int recorded;
+
+        Client(Socket socket, int requests) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            this.in = new LineReader(socket.getInputStream(), 1024, 1 << 20);
+            this.out = socket.getOutputStream();
+            this.latencies = new long[requests + 3];
+        }
+
+        // Sends one request and reads its reply, skipping the body of multi-line replies.
+        String call(String request) throws IOException {
+            long start = System.nanoTime();
+            out.write((request + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            String reply = in.readLine();
+            if (reply == null) throw new IOException("Server closed the connection");
+            if (request.startsWith("RECENT") && reply.startsWith("OK")) {
+                String line;
+                while ((line = in.readLine()) != null && !line.equals(".")) {
+                    // Body lines are not checked
+                }
+            }
+            latencies[recorded++] = System.nanoTime() - start;
+            return reply;
+        }
+
+        // Retries while the server's credential pool is saturated; each attempt is timed separately.
+        String callUntilNotBusy(String request, AtomicInteger busy) throws IOException, InterruptedException {
+            while (true) {
+                String reply = call(request);
+                if (!reply.equals("ERR " + AccountService.BUSY)) return reply;
+                busy.incrementAndGet();
+                recorded--;
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = "127.0.0.1";
+        int port = -1;
+        int clients = 10_000;
+        int requests = 20;
+        int userOffset = 0;
+        int iterations = 1000;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host" -> host = args[++i];
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--clients" -> clients = Integer.parseInt(args[++i]);
+                case "--requests" -> requests = Integer.parseInt(args[++i]);
+                case "--user-offset" -> userOffset = Integer.parseInt(args[++i]);
+                case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+                default -> {
+                    System.err.println("Usage: ChatLoadTest [--host <host>] [--port <port>] [--clients <n>] [--requests <n>]"
+                            + " [--user-offset <n>] [--iterations <n>]");
+                    return;
+                }
+            }
+        }
+
+        ChatServer embedded = null;
+        AccountService accounts = null;
+        if (port < 0) {
+            MessageService messages = new MessageService(new MessageStore(), new MessageIdGenerator());
+            accounts = new AccountService(new UserRegistry(clients), new PasswordHasher(iterations), new CredentialVerifier(), null);
+            embedded = ChatServer.start(new InetSocketAddress("127.0.0.1", 0), accounts, messages);
+            port = embedded.getPort();
+            System.out.println("Embedded chat server on port " + port);
+        }
+
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            run(pool, new InetSocketAddress(host, port), clients, requests, userOffset, embedded);
+        } finally {
+            if (embedded != null) {
+                embedded.close();
+                CredentialVerifier.Stats stats = accounts.verifierStats();
+                System.out.printf("Credential pool: wait p99 %d us, verify p50 %d us, p99 %d us, rejected %d%n",
+                        stats.waitP99() / 1000, stats.runP50() / 1000, stats.runP99() / 1000, stats.rejected());
+                accounts.close();
+            }
+        }
+    }
+
+    private static void run(ExecutorService pool, InetSocketAddress address, int clients, int requests, int userOffset,
+                            ChatServer embedded) throws Exception {
+        CountDownLatch connected = new CountDownLatch(clients);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger errors = new AtomicInteger();
+        AtomicInteger busy = new AtomicInteger();
+        List<Future<Client>> futures = new ArrayList<>(clients);
+
+        long connectStart = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            int user = userOffset + c;
+            futures.add(pool.submit(() -> {
+                Client client;
+                try {
+                    client = new Client(new Socket(address.getHostString(), address.getPort()), requests);
+                } finally {
+                    connected.countDown();
+                }
+                try (client.socket) {
+                    go.await();
+                    String username = BenchmarkData.username(user);
+                    String registered = client.callUntilNotBusy("REGISTER " + username + " " + BenchmarkData.PASSWORD + " " + BenchmarkData.PHONE, busy);
+                    if (!registered.startsWith("OK") && !registered.contains(AccountService.USERNAME_TAKEN)) errors.incrementAndGet();
+                    if (!client.callUntilNotBusy("LOGIN " + username + " " + BenchmarkData.PASSWORD, busy).startsWith("OK")) errors.incrementAndGet();
+                    for (int r = 0; r < requests; r++) {
+                        String request = r % 2 == 0
+                                ? "SEND " + BenchmarkData.recipient(user) + " " + BenchmarkData.text(r)
+                                : "RECENT 5";
+                        if (!client.call(request).startsWith("OK")) errors.incrementAndGet();
+                    }
+                    client.call("QUIT");
+                }
+                return client;
+            }));
+        }
+        connected.await();
+        long connectNanos = System.nanoTime() - connectStart;
+        if (embedded != null) {
+            System.out.printf("Connected %d clients in %d ms; %d sessions open on the server%n",
+                    clients, connectNanos / 1_000_000, embedded.activeSessions());
+        } else {
+            System.out.printf("Connected %d clients in %d ms%n", clients, connectNanos / 1_000_000);
+        }
+
+        long start = System.nanoTime();
+        go.countDown();
+        long[] all = new long[clients * (requests + 3)];
+        int count = 0;
+        int failedClients = 0;
+        for (Future<Client> future : futures) {
+            try {
+                Client client = future.get();
+                System.arraycopy(client.latencies, 0, all, count, client.recorded);
+                count += client.recorded;
+            } catch (Exception e) {
+                if (failedClients++ == 0) System.err.println("Client failed: " + e.getCause());
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(all, 0, count);
+        System.out.printf("%d requests in %d ms: %.0f requests/s%n", count, elapsed / 1_000_000, count * 1e9 / elapsed);
+        if (count > 0) {
+            System.out.printf("Latency (us): p50 %d, p99 %d, p99.9 %d, max %d%n", percentile(all, count, 0.50) / 1000,
+                    percentile(all, count, 0.99) / 1000, percentile(all, count, 0.999) / 1000, all[count - 1] / 1000);
+        }
+        System.out.printf("Error replies: %d, busy retries: %d, failed clients: %d%n", errors.get(), busy.get(), failedClients);
+    }
+
+    private static long percentile(long[] sorted, int count, double p) {
+        return sorted[Math.min(count - 1, (int) Math.ceil(p * count) - 1)];
+    }
+}
@@ -0,0 +1,69 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Deletes and compaction on a MessageStore of 100k to 1M messages over 1000 recipients, rebuilt before every
+// invocation with every other message removed. slice is the longest a reader waits on the compactor, one
+// MessageCompactor.DEFAULT slice; fullPass unlinks every tombstone; removeRecipient removes one recipient's
+// messages, a thousandth of the store, without visiting any other message.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class CompactionBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int messages;
+
+    private MessageStore store;
+
+    @Setup(Level.Invocation)
+    public void halfRemoved() {
+        store = new MessageStore();
+        for (int i = 0; i < messages; i++) {
+            String id = MessageIdGenerator.format(i + 1);
+            String recipient = "+2783" + String.format("%07d", i % 1_000);
+            String text = BenchmarkData.text(i);
+            store.add(new Message(id, i, recipient, text, MessageHasher.hash(id, i, recipient, text), "Sent"));
+        }
+        for (int i = 0; i < messages; i += 2) {
+            store.removeById(MessageIdGenerator.format(i + 1));
+        }
+    }
+
+    @Benchmark
+    public int slice() {
+        return store.compact(MessageCompactor.DEFAULT.sliceSize());
+    }
+
+    @Benchmark
+    public int fullPass() {
+        int slice = MessageCompactor.DEFAULT.sliceSize();
+        while (store.compact(slice) == slice) {
+            // next slice
+        }
+        return store.tombstones();
+    }
+
+    @Benchmark
+    public List<Message> removeRecipient() {
+        return store.removeByRecipient("+27830000001");
+    }
+}
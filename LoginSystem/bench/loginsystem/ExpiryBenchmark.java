@@ -0,0 +1,68 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// The time index against a store of 100k to 1M Disregarded messages, ten a second: a page of the last hour,
+// and an expiry sweep. Each sweep invocation first adds back 1000 messages that are already a day old, so it
+// measures removing one batch through every index, not finding nothing to do.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ExpiryBenchmark {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long DAY = 24 * 60 * 60_000L;
+
+    @Param({"100000", "1000000"})
+    public int messages;
+
+    private MessageStore store;
+    private MessageExpiry expiry;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        store = new MessageStore();
+        for (next = 0; next < messages; next++) {
+            store.add(message(next, NOW - (messages - next) * 100L));
+        }
+        expiry = new MessageExpiry(store, new MessageExpiry.Config(Map.of("Disregarded", 7 * DAY), 1_000, 60_000), () -> NOW);
+    }
+
+    private static Message message(int i, long createdAt) {
+        String id = MessageIdGenerator.format(i + 1);
+        return new Message(id, i + 1, BenchmarkData.recipient(i), BenchmarkData.text(i), "x" + id, "Disregarded", createdAt);
+    }
+
+    @Benchmark
+    public List<Message> lastHour() {
+        return store.pageByTime("Disregarded", NOW - 60 * 60_000, NOW, null, 100, true);
+    }
+
+    @Benchmark
+    public int sweepOneBatch() {
+        for (int i = 0; i < 1_000; i++, next++) {
+            store.add(message(next, NOW - 30 * DAY));
+        }
+        return expiry.sweep();
+    }
+}
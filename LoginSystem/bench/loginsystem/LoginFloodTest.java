@@ -0,0 +1,104 @@
+package loginsystem;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Credential-stuffing load on AccountService.authenticate: --threads virtual-thread callers replay bogus logins
+// at --rate attempts per second in total (0 for as fast as they can) for --seconds, against a registry of users
+// hashed with --iterations PBKDF2 rounds (default the production cost). An attempt the throttle lets through
+// blocks its caller on the verifier, as it would a connection's session, hence the many callers. Prints achieved
+// throughput, per-attempt latency percentiles, results by kind, how many attempts reached the credential
+// verifier and how many buckets the throttle holds.
+//
+//   ant login-flood -Dlogin-flood.args="--rate 100000 --sources 1"
+//   ant login-flood -Dlogin-flood.args="--rate 100000 --sources 1000000"
+// --sources 1 is one address spraying usernames, turned away by the throttle. A large count spreads the flood
+// over spoofed addresses, which exercises eviction; most of those attempts are new to the throttle and are
+// answered BUSY by the verifier's bounded queue instead.
+public class LoginFloodTest {
+
+    public static void main(String[] args) throws Exception {
+        int threads = 1000;
+        long rate = 100_000;
+        int seconds = 10;
+        int sources = 1;
+        int users = 10_000;
+        int iterations = PasswordHasher.DEFAULT_ITERATIONS;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--rate" -> rate = Long.parseLong(args[++i]);
+                case "--seconds" -> seconds = Integer.parseInt(args[++i]);
+                case "--sources" -> sources = Integer.parseInt(args[++i]);
+                case "--users" -> users = Integer.parseInt(args[++i]);
+                case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        // Every user shares one credential so setup does not take users x PBKDF2
+        PasswordHasher hasher = new PasswordHasher(iterations);
+        UserRegistry registry = new UserRegistry(users);
+        String credential = hasher.hash(BenchmarkData.PASSWORD);
+        for (int i = 0; i < users; i++) {
+            registry.register(new ChatApp.User(BenchmarkData.username(i), credential, BenchmarkData.PHONE));
+        }
+        LoginThrottle throttle = new LoginThrottle();
+        AccountService accounts = new AccountService(registry, hasher, new CredentialVerifier(), throttle);
+
+        LatencyHistogram latency = new LatencyHistogram();
+        Map<AccountService.LoginResult, LongAdder> results = new EnumMap<>(AccountService.LoginResult.class);
+        for (AccountService.LoginResult result : AccountService.LoginResult.values()) {
+            results.put(result, new LongAdder());
+        }
+        long perThread = rate / threads;
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        int userCount = users;
+        int sourceCount = sources;
+        List<Thread> callers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            callers.add(Thread.ofVirtual().name("flood-" + t).start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long interval = perThread > 0 ? 1_000_000_000L / perThread : 0;
+                long next = System.nanoTime();
+                for (long now = next; now < deadline; now = System.nanoTime()) {
+                    if (interval > 0) {
+                        // Paced against the schedule, not the last call, so slow calls do not lower the offered rate
+                        if (now < next) {
+                            LockSupport.parkNanos(next - now);
+                            continue;
+                        }
+                        next += interval;
+                    }
+                    String username = BenchmarkData.username(random.nextInt(userCount));
+                    String source = "10." + random.nextInt(sourceCount);
+                    long begin = System.nanoTime();
+                    AccountService.LoginResult result = accounts.authenticate(username, "Wrong123!@", source);
+                    latency.record(System.nanoTime() - begin);
+                    results.get(result).increment();
+                }
+            }));
+        }
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        // Attempts still inside the verifier at the deadline finish afterwards; rates are over the flood window
+        double drain = (System.nanoTime() - deadline) / 1e9;
+
+        CredentialVerifier.Stats stats = accounts.verifierStats();
+        System.out.printf("threads=%d sources=%d offered=%d/s achieved=%.0f/s over %d s, drained in %.1f s%n",
+                threads, sources, rate, (double) latency.count() / seconds, seconds, drain);
+        System.out.printf("latency p50=%.2f us p99=%.2f us p99.9=%.2f us max=%.2f ms%n",
+                latency.percentile(0.50) / 1e3, latency.percentile(0.99) / 1e3, latency.percentile(0.999) / 1e3,
+                latency.max() / 1e6);
+        System.out.printf("results %s%n", results);
+        System.out.printf("verifier completed=%d rejected=%d; throttle buckets=%d evicted=%d%n",
+                stats.completed(), stats.rejected(), throttle.size(), throttle.evicted());
+        accounts.close();
+    }
+}
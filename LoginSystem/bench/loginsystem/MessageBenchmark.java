@@ -0,0 +1,88 @@
+package loginsystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Per-message work on the send path: ID generation and hashing.
+// Run with -prof gc to see allocation per operation.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageBenchmark {
+
+    private final ChatApp app = new ChatApp();
+    private final String messageID = "1234567890";
+    private final String recipient = "+27834567896";
+    private final String text = "Where are you? You are late! I have asked you to be on time.";
+    private int messageNumber;
+
+    // One generator shared by every benchmark thread
+    @State(Scope.Benchmark)
+    public static class SharedGenerator {
+        final MessageIdGenerator generator = new MessageIdGenerator();
+    }
+
+    @Benchmark
+    public String generateUniqueMessageID() {
+        return app.generateUniqueMessageID();
+    }
+
+    // Baseline: the original new Random per call and StringBuilder of 10 digits
+    @Benchmark
+    public String generateUniqueMessageIDLegacy() {
+        Random random = new Random();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            sb.append(random.nextInt(10));
+        }
+        return sb.toString();
+    }
+
+    // Scaling check: every hardware thread draws from one generator; compare with the single-thread score
+    // (or sweep -t 1,2,4,...) to see how throughput grows with sender threads
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long generateUniqueMessageIDContended(SharedGenerator shared) {
+        return shared.generator.nextLong();
+    }
+
+    @Benchmark
+    public long generateUniqueMessageIDSingleThread(SharedGenerator shared) {
+        return shared.generator.nextLong();
+    }
+
+    @Benchmark
+    public String generateMessageHash() {
+        return app.generateMessageHash(messageID, ++messageNumber, recipient, text);
+    }
+
+    // Baseline: the original concatenate, getInstance per call and String.format per byte implementation
+    @Benchmark
+    public String generateMessageHashLegacy() throws NoSuchAlgorithmException {
+        String input = messageID + ++messageNumber + recipient + text;
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[] hashBytes = md.digest(input.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hexString = new StringBuilder();
+        for (byte b : hashBytes) {
+            hexString.append(String.format("%02x", b));
+        }
+        return hexString.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Cost of persistence on the send path, and recovery time for large logs.
+// For 50M records use -p records=50000000 with a heap large enough to hold them (-jvmArgsAppend -Xmx24g).
+public class MessageLogBenchmark {
+
+    @State(Scope.Thread)
+    public static class Appending {
+        // Same fsync settings as --fsync-ms: 0 fsyncs every group commit, -1 never
+        @Param({"none", "0", "-1"})
+        public String fsyncMillis;
+
+        Path dir;
+        MessageStore store;
+        MessageLog log;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException {
+            store = new MessageStore();
+            if (!fsyncMillis.equals("none")) {
+                dir = Files.createTempDirectory("message-log-bench");
+                MessageLog.Config defaults = MessageLog.Config.defaults();
+                log = MessageLog.open(dir, new MessageLog.Config(defaults.segmentBytes(), Long.parseLong(fsyncMillis),
+                        defaults.queueCapacity()), store);
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            if (log != null) {
+                log.close();
+                delete(dir);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recovering {
+        @Param({"1000000", "10000000"})
+        public int records;
+
+        Path dir;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("message-log-recovery-bench");
+            try (MessageLog log = MessageLog.open(dir, new MessageLog.Config(256L << 20, -1, 65_536), new MessageStore())) {
+                // Append straight to the log so the writer's heap stays flat
+                for (int i = 1; i <= records; i++) {
+                    log.onAdd(message(i));
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            delete(dir);
+        }
+    }
+
+    private static Message message(int i) {
+        String id = MessageIdGenerator.format(i);
+        String recipient = BenchmarkData.recipient(i % 10_000);
+        String text = BenchmarkData.text(i);
+        return new Message(id, i, recipient, text, MessageHasher.hash(id, i, recipient, text), "Sent");
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+    public boolean sendWithLog(Appending state) {
+        return state.store.add(message(++state.next));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+    public MessageStore recover(Recovering state) throws IOException {
+        MessageStore store = new MessageStore();
+        MessageLog.open(state.dir, MessageLog.Config.defaults(), store).close();
+        return store;
+    }
+}
@@ -0,0 +1,94 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Cost of the Metrics instrumentation on the hot paths. Each operation runs twice: as shipped, and in a fork
+// started with -Dloginsystem.metrics=false, where recording compiles away. The overhead is
+// (instrumented - baseline) / baseline per pair and should stay under 1%; recordOnly is the raw price of a
+// sampled start/stop pair, for reading the pairs against.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 3)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    private static final String RECIPIENT = "+27834567896";
+    private static final String TEXT = "Where are you? You are late! I have asked you to be on time.";
+
+    private MessageService service;
+    private MessageStore store;
+    private MessageSearchIndex searchIndex;
+    private final Metrics metrics = new Metrics();
+    private int number;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ChatApp app = new ChatApp();
+        BenchmarkData.fillMessages(app, 100_000, 100);
+        store = app.getMessageStore();
+        searchIndex = app.getSearchIndex();
+        service = new MessageService(store, new MessageIdGenerator());
+        service.advanceMessageCounter(1_000_000);
+    }
+
+    @Benchmark
+    public String messageHash() {
+        return MessageHasher.hash("1234567890", ++number, RECIPIENT, TEXT);
+    }
+
+    @Benchmark
+    @Fork(value = 3, jvmArgsAppend = "-Dloginsystem.metrics=false")
+    public String messageHashBaseline() {
+        return messageHash();
+    }
+
+    // Sends a message and deletes it again, so the store does not grow over the run.
+    @Benchmark
+    public Message sendAndDelete() {
+        Message msg = service.send(RECIPIENT, TEXT).message();
+        return store.removeByHash(msg.messageHash);
+    }
+
+    @Benchmark
+    @Fork(value = 3, jvmArgsAppend = "-Dloginsystem.metrics=false")
+    public Message sendAndDeleteBaseline() {
+        return sendAndDelete();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Message> search() {
+        return searchIndex.search("you late time", "Sent", 50);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Fork(value = 3, jvmArgsAppend = "-Dloginsystem.metrics=false")
+    public List<Message> searchBaseline() {
+        return search();
+    }
+
+    // Contention check: every hardware thread records into the same series.
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void recordOnly() {
+        metrics.stop(Metrics.Operation.SEND, metrics.start(Metrics.Operation.SEND));
+    }
+}
@@ -0,0 +1,97 @@
+package loginsystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Picks the PBKDF2 cost: time per hash and verify for candidate iteration counts, and login latency through the
+// bounded verifier pool under a burst of 32 concurrent callers (SampleTime reports p99 and p99.9).
+// Choose the largest count whose login p99 fits the latency budget and pass it as
+// -Dloginsystem.pbkdf2.iterations=<n>.
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class PasswordHashBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Cost {
+        @Param({"100000", "210000", "600000"})
+        public int iterations;
+
+        PasswordHasher hasher;
+        String credential;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            hasher = new PasswordHasher(iterations);
+            credential = hasher.hash(BenchmarkData.PASSWORD);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Burst {
+        @Param({"100000", "210000", "600000"})
+        public int iterations;
+
+        static final int USERS = 1000;
+
+        AccountService accounts;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            PasswordHasher hasher = new PasswordHasher(iterations);
+            // Unthrottled: the burst is one source hammering the verifier pool
+            accounts = new AccountService(new UserRegistry(USERS), hasher, new CredentialVerifier(), null);
+            String credential = hasher.hash(BenchmarkData.PASSWORD);
+            for (int i = 0; i < USERS; i++) {
+                accounts.getRegistry().register(new ChatApp.User(BenchmarkData.username(i), credential, BenchmarkData.PHONE));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            CredentialVerifier.Stats stats = accounts.verifierStats();
+            System.out.printf("%nverifier: completed %d, rejected %d, wait p99 %.1f ms, run p50 %.1f ms, run p99 %.1f ms%n",
+                    stats.completed(), stats.rejected(), stats.waitP99() / 1e6, stats.runP50() / 1e6, stats.runP99() / 1e6);
+            accounts.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String hash(Cost state) {
+        return state.hasher.hash(BenchmarkData.PASSWORD);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean verify(Cost state) {
+        return state.hasher.verify(BenchmarkData.PASSWORD, state.credential);
+    }
+
+    // BUSY answers count as completed operations; the teardown line reports how many were rejected.
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Threads(32)
+    public AccountService.LoginResult loginBurst(Burst state) {
+        String user = BenchmarkData.username(ThreadLocalRandom.current().nextInt(Burst.USERS));
+        return state.accounts.authenticate(user, BenchmarkData.PASSWORD);
+    }
+}
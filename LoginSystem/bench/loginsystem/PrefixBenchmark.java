@@ -0,0 +1,65 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Prefix queries over a store of 1M messages to 100k recipients, "+2783" plus seven digits, with skewed traffic
+// so some recipients are much busier than others. count, top and page go through RecipientIndex; scan is the
+// exact-match-over-every-message approach they replace, here counting the prefix's messages.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PrefixBenchmark {
+
+    private static final int MESSAGES = 1_000_000;
+    private static final int RECIPIENTS = 100_000;
+
+    private MessageStore store;
+
+    @Setup
+    public void fill() {
+        store = new MessageStore();
+        for (int i = 0; i < MESSAGES; i++) {
+            // Squaring a uniform draw skews traffic towards low-numbered recipients
+            double u = (i * 0.6180339887) % 1;
+            int r = (int) (u * u * RECIPIENTS);
+            String id = MessageIdGenerator.format(i + 1);
+            store.add(new Message(id, i + 1, BenchmarkData.recipient(r), BenchmarkData.text(i), "p" + id, "Sent"));
+        }
+    }
+
+    @Benchmark
+    public RecipientIndex.PrefixCount count() {
+        return store.recipients().count("+278300001");
+    }
+
+    @Benchmark
+    public List<RecipientIndex.RecipientCount> top() {
+        return store.recipients().top("+27830", 10);
+    }
+
+    @Benchmark
+    public List<Message> page() {
+        return store.findByRecipientPrefix("+278300005", "Sent", 100);
+    }
+
+    @Benchmark
+    public long scan() {
+        return store.messages("Sent").stream().filter(m -> m.recipient.startsWith("+278300001")).count();
+    }
+}
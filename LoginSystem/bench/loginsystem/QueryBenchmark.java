@@ -0,0 +1,118 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// The lookups behind the menu's search, delete and report actions at realistic message counts.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    @Param({"10000", "1000000", "5000000"})
+    public int messages;
+
+    // Average number of messages per recipient
+    @Param({"100"})
+    public int perRecipient;
+
+    private ChatApp app;
+    private MessageStore store;
+    private MessageSearchIndex searchIndex;
+    private Message[] sent;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        app = new ChatApp();
+        sent = BenchmarkData.fillMessages(app, messages, perRecipient);
+        store = app.getMessageStore();
+        searchIndex = app.getSearchIndex();
+    }
+
+    private Message randomMessage() {
+        return sent[ThreadLocalRandom.current().nextInt(sent.length)];
+    }
+
+    @Benchmark
+    public Message searchByMessageID() {
+        return store.findById(randomMessage().messageID);
+    }
+
+    @Benchmark
+    public void searchByRecipient(Blackhole bh) {
+        for (Message msg : store.findByRecipient(randomMessage().recipient)) {
+            bh.consume(msg.message);
+        }
+    }
+
+    // Deletes a message by hash and puts it back so the store size stays constant.
+    @Benchmark
+    public boolean deleteByHash() {
+        Message msg = randomMessage();
+        store.removeByHash(msg.messageHash);
+        return store.add(msg);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long displayReport() throws IOException {
+        return app.writeReport(Writer.nullWriter());
+    }
+
+    // Dashboard figures, maintained incrementally: constant time at any store size.
+    @Benchmark
+    public Message longestMessage() {
+        return store.longest("Sent");
+    }
+
+    @Benchmark
+    public int recipientCount() {
+        return store.stats().count("Sent", randomMessage().recipient);
+    }
+
+    // What the Recent Messages dialog loads before the user scrolls: independent of the store size.
+    @Benchmark
+    public MessageReport.Page recentMessagesFirstPage() {
+        return new MessageReport(store, "Sent", MessageReport.Order.NEWEST_FIRST, 200).first();
+    }
+
+    // Content search returns the newest 50 matches. The fixture texts repeat, so every term matches a fifth or
+    // more of the store: the worst case for the index.
+    @Benchmark
+    public List<Message> searchByContentTerm() {
+        return searchIndex.search("cake", "Sent", 50);
+    }
+
+    @Benchmark
+    public List<Message> searchByContentAnd() {
+        return searchIndex.search("you late time", "Sent", 50);
+    }
+
+    // Ranked OR: every match is scored, so this grows with the number of matches.
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Message> searchByContentOrPrefix() {
+        return searchIndex.search("din* OR gat*", "Sent", 50);
+    }
+}
@@ -0,0 +1,69 @@
+package loginsystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Price of idempotent sends against plain ones, with the deduplicator already holding a full window of keys
+// (SendDeduplicator.DEFAULT, a million). sendOnceNew is the common case, a key the Bloom filters turn away;
+// sendOnceRetry replays a remembered key and stores nothing. The store is replaced every iteration so it does
+// not grow without bound.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SendOnceBenchmark {
+
+    private static final String RECIPIENT = "+27834567896";
+    private static final String TEXT = "Where are you? You are late! I have asked you to be on time.";
+
+    private SendDeduplicator deduplicator;
+    private MessageService service;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void fillWindow() {
+        deduplicator = new SendDeduplicator();
+        MessageService filler = new MessageService(new MessageStore(), new MessageIdGenerator(), deduplicator);
+        for (int i = 0; i < SendDeduplicator.DEFAULT.maxEntries(); i++) {
+            filler.sendOnce("ky_1", "fill-" + i, RECIPIENT, TEXT);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void freshStore() {
+        service = new MessageService(new MessageStore(), new MessageIdGenerator(), deduplicator);
+    }
+
+    @Benchmark
+    public MessageService.SendResult send() {
+        return service.send(RECIPIENT, TEXT + ++next);
+    }
+
+    @Benchmark
+    public MessageService.SendResult sendOnceNew() {
+        return service.sendOnce("ky_1", null, RECIPIENT, TEXT + ++next);
+    }
+
+    @Benchmark
+    public MessageService.SendResult sendOnceRetry() {
+        return service.sendOnce("ky_1", "fill-" + (SendDeduplicator.DEFAULT.maxEntries() - 1), RECIPIENT, TEXT);
+    }
+
+    @Benchmark
+    public SendDeduplicator.Fingerprint fingerprint() {
+        return SendDeduplicator.contentKey("ky_1", RECIPIENT, TEXT);
+    }
+}
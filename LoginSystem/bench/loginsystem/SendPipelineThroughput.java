@@ -0,0 +1,109 @@
+package loginsystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Scaling of SendPipeline with partitions: --producers threads submit --messages sends in total over
+// --recipients recipients, once per partition count in --partitions, each into a fresh store. The baseline is
+// the same sends made with MessageService.send() on one thread. Prints messages per second, the speedup over
+// the baseline, store appends per run and the deepest queue seen per stage, sampled every 10 ms.
+//
+//   ant send-pipeline -Dsend-pipeline.args="--partitions 1,2,4,8,16 --messages 4000000"
+// Expect near-linear gains up to the core count while hashing dominates; the single appender caps it after that.
+public class SendPipelineThroughput {
+
+    public static void main(String[] args) throws Exception {
+        int messages = 2_000_000;
+        int producers = Runtime.getRuntime().availableProcessors();
+        int recipients = 100_000;
+        String partitionCounts = "1,2,4,8";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--messages" -> messages = Integer.parseInt(args[++i]);
+                case "--producers" -> producers = Integer.parseInt(args[++i]);
+                case "--recipients" -> recipients = Integer.parseInt(args[++i]);
+                case "--partitions" -> partitionCounts = args[++i];
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        // Warm the send path before any measured run
+        MessageService warmup = new MessageService(new MessageStore(), new MessageIdGenerator());
+        for (int i = 0; i < Math.min(messages, 200_000); i++) {
+            warmup.send(BenchmarkData.recipient(i % recipients), BenchmarkData.text(i));
+        }
+        double baseline = run(0, producers, messages, recipients);
+        for (String count : partitionCounts.split(",")) {
+            double rate = run(Integer.parseInt(count.trim()), producers, messages, recipients);
+            System.out.printf("  speedup over direct send: %.2fx%n", rate / baseline);
+        }
+    }
+
+    // partitions 0 sends directly on one thread. Returns messages per second.
+    private static double run(int partitions, int producers, int messages, int recipients) throws Exception {
+        MessageService service = new MessageService(new MessageStore(), new MessageIdGenerator());
+        if (partitions == 0) {
+            long begin = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                service.send(BenchmarkData.recipient(i % recipients), BenchmarkData.text(i));
+            }
+            double rate = messages / ((System.nanoTime() - begin) / 1e9);
+            System.out.printf("direct      %,12.0f messages/s%n", rate);
+            return rate;
+        }
+
+        SendPipeline pipeline = new SendPipeline(service, new SendPipeline.Config(partitions, 4096, 256));
+        int[] peaks = new int[partitions + 1];
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread sampler = Thread.ofPlatform().daemon().start(() -> {
+            while (running.get()) {
+                List<SendPipeline.Stage> stages = pipeline.stats().stages();
+                for (int s = 0; s < stages.size(); s++) {
+                    peaks[s] = Math.max(peaks[s], stages.get(s).depth());
+                }
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        long begin = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        int perProducer = messages / producers;
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            threads.add(Thread.ofPlatform().start(() -> {
+                CompletableFuture<MessageService.SendResult> last = null;
+                try {
+                    for (int i = first; i < first + perProducer; i++) {
+                        last = pipeline.submit(BenchmarkData.recipient(i % recipients), BenchmarkData.text(i));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (last != null) last.join();
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        pipeline.close();
+        double rate = (double) perProducer * producers / ((System.nanoTime() - begin) / 1e9);
+        running.set(false);
+        sampler.join();
+
+        SendPipeline.Stats stats = pipeline.stats();
+        System.out.printf("partitions=%-3d %,12.0f messages/s  %,d appends  stored=%,d%n", partitions, rate,
+                stats.appends(), service.getStore().size());
+        StringBuilder depths = new StringBuilder("  peak depth");
+        for (int s = 0; s < peaks.length; s++) {
+            depths.append(' ').append(stats.stages().get(s).name()).append('=').append(peaks[s]);
+        }
+        System.out.println(depths);
+        return rate;
+    }
+}
@@ -0,0 +1,72 @@
+package loginsystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// SessionCache against a cache holding 1k to 100k sessions: checking a token, the per-request cost a logged-in
+// client pays instead of AuthBenchmark.loginExistingUser, and issuing one, paid once per login on top of it.
+// validateShared runs four threads so concurrent checks of live sessions are measured too.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1)
+@State(Scope.Benchmark)
+public class SessionBenchmark {
+
+    @Param({"1000", "100000"})
+    public int sessions;
+
+    private SessionCache cache;
+    private String[] tokens;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cache = new SessionCache(new SessionCache.Config(30 * 60_000, 12 * 60 * 60_000, sessions));
+        tokens = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            tokens[i] = cache.issue(BenchmarkData.username(i));
+        }
+    }
+
+    private String randomToken() {
+        return tokens[ThreadLocalRandom.current().nextInt(sessions)];
+    }
+
+    @Benchmark
+    public String validate() {
+        return cache.validate(randomToken());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String validateShared() {
+        return cache.validate(randomToken());
+    }
+
+    @Benchmark
+    public String validateUnknown() {
+        return cache.validate("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+    }
+
+    // The cache is full, so every issue also evicts the least recently used session.
+    @Benchmark
+    public String issue() {
+        return cache.issue(BenchmarkData.username(next++ % sessions));
+    }
+}
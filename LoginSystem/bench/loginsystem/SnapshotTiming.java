@@ -0,0 +1,102 @@
+package loginsystem;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Wall-clock cost of StateSnapshot at scale: fills a store with --messages messages (default 10M) and --users
+// users, writes a snapshot while --senders threads keep sending, restores it into an empty app with parallel
+// decoding, and scans it once more through the mapped Reader without building a store. Prints each phase's
+// time and rate, how many sends ran during the write and the file size.
+//
+//   ant snapshot-timing -Dsnapshot-timing.args="--messages 10000000" -Dsnapshot-timing.heap=12g
+// Pass --dir to put the file on the disk under test; the default is the temp directory.
+public class SnapshotTiming {
+
+    public static void main(String[] args) throws Exception {
+        int messages = 10_000_000;
+        int users = 100_000;
+        int senders = 2;
+        Path dir = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--messages" -> messages = Integer.parseInt(args[++i]);
+                case "--users" -> users = Integer.parseInt(args[++i]);
+                case "--senders" -> senders = Integer.parseInt(args[++i]);
+                case "--dir" -> dir = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        Path file = (dir == null ? Files.createTempDirectory("snapshot") : dir).resolve("state.snap");
+
+        writeWhileSending(file, messages, users, senders);
+        // The source app is unreachable now, so the heap only has to hold one full copy during the restore
+        System.gc();
+
+        ChatApp restored = new ChatApp();
+        long begin = System.nanoTime();
+        StateSnapshot.Stats read = restored.restoreSnapshot(file);
+        report("restore", begin, read);
+
+        begin = System.nanoTime();
+        long textBytes = 0;
+        try (StateSnapshot.Reader reader = StateSnapshot.open(file)) {
+            for (int b = 0; b < reader.messageBlocks(); b++) {
+                for (ChatApp.Message msg : reader.messageBlock(b)) {
+                    textBytes += msg.message.length();
+                }
+            }
+        }
+        report("scan", begin, read);
+        System.out.printf("  %d text chars scanned; restored store holds %d messages%n", textBytes,
+                restored.getMessageStore().size());
+        Files.delete(file);
+    }
+
+    private static void writeWhileSending(Path file, int messages, int users, int senders) throws Exception {
+        ChatApp app = BenchmarkData.appWithUsers(users);
+        BenchmarkData.fillMessages(app, messages, 100);
+        MessageStore store = app.getMessageStore();
+        UserRegistry registry = app.getAccountService().getRegistry();
+        // Live sends continue past the fixture's IDs and numbers
+        MessageService service = new MessageService(store, new MessageIdGenerator(messages + 1L, 1024));
+        service.advanceMessageCounter(messages);
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        LongAdder sentDuring = new LongAdder();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < senders; t++) {
+            int offset = t;
+            threads.add(Thread.ofPlatform().name("sender-" + t).start(() -> {
+                for (int i = offset; writing.get(); i += 1000) {
+                    if (service.send(BenchmarkData.recipient(i % 100_000), BenchmarkData.text(i)).isSent()) {
+                        sentDuring.increment();
+                    }
+                }
+            }));
+        }
+        long begin = System.nanoTime();
+        StateSnapshot.Stats written;
+        try {
+            written = StateSnapshot.write(file, registry, store, service);
+        } finally {
+            writing.set(false);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        report("write", begin, written);
+        System.out.printf("  %d sends completed during the write; store now holds %d messages%n",
+                sentDuring.sum(), store.size());
+    }
+
+    private static void report(String phase, long begin, StateSnapshot.Stats stats) {
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.printf("%-8s %.2f s  %,d users  %,d messages  %.0f messages/s  %.1f MB/s  (%,d bytes)%n", phase,
+                seconds, stats.users(), stats.messages(), stats.messages() / seconds, stats.bytes() / seconds / 1e6,
+                stats.bytes());
+    }
+}
@@ -0,0 +1,74 @@
+package loginsystem;
+
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Event dispatch thread responsiveness while the chat window's table loads a large report: fills a store with
+// --messages messages (default 1M), streams the Report view into a MessageTableModel behind a JTable with
+// MessageLoader, and meanwhile posts a probe to the event dispatch thread every millisecond. Prints the time to
+// the first rows and to the last, and percentiles of how long probes waited, which is how long a click or
+// repaint would have waited. Runs headless, so the table is laid out but never painted.
+//
+//   ant ui-load -Dui-load.args="--messages 1000000"
+public class UiLoadTiming {
+
+    public static void main(String[] args) throws Exception {
+        int messages = 1_000_000;
+        int pageSize = MessageReport.DEFAULT_PAGE_SIZE;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--messages" -> messages = Integer.parseInt(args[++i]);
+                case "--page" -> pageSize = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        System.setProperty("java.awt.headless", "true");
+        ChatApp app = new ChatApp();
+        BenchmarkData.fillMessages(app, messages, 100);
+        MessageReport report = new MessageReport(app.getMessageStore(), "Sent", MessageReport.Order.OLDEST_FIRST, pageSize);
+
+        MessageTableModel model = new MessageTableModel();
+        SwingUtilities.invokeAndWait(() -> new JTable(model));
+        LatencyHistogram probeDelay = new LatencyHistogram();
+        AtomicBoolean loading = new AtomicBoolean(true);
+        Thread prober = Thread.ofPlatform().daemon().start(() -> {
+            while (loading.get()) {
+                long posted = System.nanoTime();
+                try {
+                    SwingUtilities.invokeAndWait(() -> probeDelay.record(System.nanoTime() - posted));
+                    Thread.sleep(1);
+                } catch (Exception e) {
+                    return;
+                }
+            }
+        });
+
+        long[] firstRows = {-1};
+        long begin = System.nanoTime();
+        MessageLoader loader = MessageLoader.of(model, report, l -> {
+            if (firstRows[0] < 0 && model.getRowCount() > 0) firstRows[0] = System.nanoTime() - begin;
+        });
+        loader.execute();
+        long fetched = loader.get();
+        // The last rows may still be on their way to the event dispatch thread
+        while (rowCount(model) < fetched) {
+            Thread.sleep(1);
+        }
+        long total = System.nanoTime() - begin;
+        loading.set(false);
+        prober.join();
+
+        System.out.printf("rows=%,d page=%d first rows after %.1f ms, all rows after %.0f ms%n", fetched, pageSize,
+                firstRows[0] / 1e6, total / 1e6);
+        System.out.printf("event dispatch delay over %,d probes: p50=%.2f ms p99=%.2f ms max=%.2f ms%n",
+                probeDelay.count(), probeDelay.percentile(0.50) / 1e6, probeDelay.percentile(0.99) / 1e6,
+                probeDelay.max() / 1e6);
+    }
+
+    private static int rowCount(MessageTableModel model) throws Exception {
+        int[] rows = new int[1];
+        SwingUtilities.invokeAndWait(() -> rows[0] = model.getRowCount());
+        return rows[0];
+    }
+}
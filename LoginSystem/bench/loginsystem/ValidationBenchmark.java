@@ -0,0 +1,61 @@
+package loginsystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Regex-based validation (as ChatApp did it) against the single-pass Validators.
+// Run with -prof gc to see the per-call allocation of the regex path.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidationBenchmark {
+
+    @Param({"Pass123!@", "password-without-classes", "Ab1@56789xyzXYZ"})
+    public String password;
+
+    @Param({"+27834567896"})
+    public String recipient;
+
+    @Benchmark
+    public boolean passwordRegex() {
+        return password.length() >= 8 &&
+                password.matches(".*[A-Z].*") &&
+                password.matches(".*[a-z].*") &&
+                password.matches(".*\\d.*") &&
+                password.matches(".*[!@#$%^&*(),.?\":{}|<>].*");
+    }
+
+    @Benchmark
+    public boolean passwordSinglePass() {
+        return Validators.checkPasswordComplexity(password);
+    }
+
+    @Benchmark
+    public Validators.Result passwordStructured() {
+        return Validators.validatePassword(password);
+    }
+
+    @Benchmark
+    public boolean recipientRegex() {
+        return recipient.startsWith("+") && recipient.length() <= 15 && recipient.length() > 1
+                && recipient.substring(1).matches("\\d+");
+    }
+
+    @Benchmark
+    public boolean recipientSinglePass() {
+        return Validators.checkRecipient(recipient);
+    }
+}
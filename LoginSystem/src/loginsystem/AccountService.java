@@ -0,0 +1,192 @@
+package loginsystem;
+
+import loginsystem.ChatApp.User;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+// Headless registration and login rules, shared by the Swing flow and the chat server.
+// Passwords are stored as PBKDF2 credentials. Hashing runs on a bounded CredentialVerifier pool; when its
+// queue is full, registration and login answer "busy" at once instead of queueing without limit.
+// Records still holding a plaintext password, or a hash weaker than the current cost, are rehashed on the
+// next successful login.
+// Logins are rate limited per (username, source) and per source by a LoginThrottle, checked before the
+// credentials are even validated, so a flood of guesses is turned away for the cost of a map lookup.
+// A client making many requests can exchange a successful login for a SessionCache token and present that
+// instead, which costs a map lookup rather than a credential check.
+public class AccountService implements Closeable {
+
+    public static final String REGISTERED = "User is successfully registered.";
+    public static final String USERNAME_TAKEN = "Username already exists!";
+    public static final String REGISTRATION_FAILED = "User registration failed!";
+    public static final String BUSY = "Server busy, please try again.";
+    public static final String THROTTLED = "Too many login attempts. Please try again later.";
+    // Source of logins made without one, such as the Swing dialog
+    public static final String LOCAL = "local";
+
+    public enum LoginResult {
+        SUCCESS, FAILED, BUSY, THROTTLED
+    }
+
+    private final UserRegistry registry;
+    private final PasswordHasher hasher;
+    private final CredentialVerifier verifier;
+    private final LoginThrottle throttle;
+    private final SessionCache sessions;
+    // Verified when the username is unknown, so a miss costs as much as a wrong password; made on first use
+    private volatile String decoy;
+
+    public AccountService(UserRegistry registry) {
+        this(registry, new PasswordHasher(), new CredentialVerifier());
+    }
+
+    public AccountService(UserRegistry registry, PasswordHasher hasher, CredentialVerifier verifier) {
+        this(registry, hasher, verifier, new LoginThrottle());
+    }
+
+    // throttle may be null, in which case logins are not rate limited.
+    public AccountService(UserRegistry registry, PasswordHasher hasher, CredentialVerifier verifier, LoginThrottle throttle) {
+        this(registry, hasher, verifier, throttle, new SessionCache());
+    }
+
+    public AccountService(UserRegistry registry, PasswordHasher hasher, CredentialVerifier verifier, LoginThrottle throttle,
+                          SessionCache sessions) {
+        this.registry = registry;
+        this.hasher = hasher;
+        this.verifier = verifier;
+        this.throttle = throttle;
+        this.sessions = sessions;
+    }
+
+    public UserRegistry getRegistry() {
+        return registry;
+    }
+
+    public PasswordHasher getHasher() {
+        return hasher;
+    }
+
+    public LoginThrottle getThrottle() {
+        return throttle;
+    }
+
+    public SessionCache getSessions() {
+        return sessions;
+    }
+
+    public CredentialVerifier.Stats verifierStats() {
+        return verifier.stats();
+    }
+
+    // Returns REGISTERED, USERNAME_TAKEN, REGISTRATION_FAILED (some field failed validation) or BUSY.
+    public String register(String username, String password, String phone) {
+        long started = Metrics.global().start(Metrics.Operation.REGISTER);
+        try {
+            return registerTimed(username, password, phone);
+        } finally {
+            Metrics.global().stop(Metrics.Operation.REGISTER, started);
+        }
+    }
+
+    private String registerTimed(String username, String password, String phone) {
+        boolean validatePhone = Validators.checkCellPhoneNumber(phone);
+        boolean validateUsername = Validators.checkUserName(username);
+        boolean validatePassword = Validators.checkPasswordComplexity(password);
+
+        if (validatePhone && validateUsername && validatePassword) {
+            // Cheap check first so duplicates do not cost a hash
+            if (registry.contains(username)) {
+                return USERNAME_TAKEN;
+            }
+            String credential;
+            try {
+                credential = verifier.submit(() -> hasher.hash(password)).join();
+            } catch (CompletionException e) {
+                return busyOrThrow(e, BUSY);
+            }
+            if (!registry.register(new User(username, credential, phone))) {
+                return USERNAME_TAKEN;
+            }
+            return REGISTERED;
+        } else {
+            return REGISTRATION_FAILED;
+        }
+    }
+
+    public boolean login(String username, String password) {
+        return authenticate(username, password) == LoginResult.SUCCESS;
+    }
+
+    public LoginResult authenticate(String username, String password) {
+        return authenticate(username, password, LOCAL);
+    }
+
+    // source identifies where the attempt came from, e.g. the client's address.
+    public LoginResult authenticate(String username, String password, String source) {
+        long started = Metrics.global().start(Metrics.Operation.LOGIN);
+        try {
+            return authenticateTimed(username, password, source);
+        } finally {
+            Metrics.global().stop(Metrics.Operation.LOGIN, started);
+        }
+    }
+
+    private LoginResult authenticateTimed(String username, String password, String source) {
+        if (throttle != null && !throttle.tryAcquire(username, source)) {
+            return LoginResult.THROTTLED;
+        }
+        boolean validateUsername = Validators.checkUserName(username);
+        boolean validatePassword = Validators.checkPasswordComplexity(password);
+
+        if (validateUsername && validatePassword) {
+            try {
+                if (verifier.submit(() -> verify(username, password)).join()) {
+                    if (throttle != null) throttle.reset(username, source);
+                    return LoginResult.SUCCESS;
+                }
+                return LoginResult.FAILED;
+            } catch (CompletionException e) {
+                return busyOrThrow(e, LoginResult.BUSY);
+            }
+        }
+        return LoginResult.FAILED;
+    }
+
+    // Runs on the verifier pool.
+    private boolean verify(String username, String password) {
+        User user = registry.find(username);
+        if (user == null) {
+            hasher.verify(password, decoy());
+            return false;
+        }
+        if (!hasher.verify(password, user.password)) {
+            return false;
+        }
+        if (hasher.needsRehash(user.password)) {
+            // Losing the race to a concurrent rehash is fine; either record is valid
+            registry.replace(user, new User(user.username, hasher.hash(password), user.phone));
+        }
+        return true;
+    }
+
+    private String decoy() {
+        String hash = decoy;
+        if (hash == null) {
+            decoy = hash = hasher.hash("decoy");
+        }
+        return hash;
+    }
+
+    private static <T> T busyOrThrow(CompletionException e, T busy) {
+        if (e.getCause() instanceof RejectedExecutionException) {
+            return busy;
+        }
+        throw e;
+    }
+
+    @Override
+    public void close() {
+        verifier.close();
+    }
+}
@@ -1,33 +1,39 @@
 package loginsystem;
 
 import javax.swing.*;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 public class ChatApp {
 
     // User Information
-    private final ArrayList<User> users = new ArrayList<>();
+    private final UserRegistry userRegistry = new UserRegistry();
+    private final AccountService accountService = new AccountService(userRegistry);
     private String firstname, lastname, username, password, phone;
     
+    // Session opened by the login dialog; null until then
+    private String sessionToken;
+
     // Message Information
-    private boolean loggedIn = false;
-    private final List<Message> sentMessages = new ArrayList<>();
-    private final List<Message> disregardedMessages = new ArrayList<>();
-    private final List<Message> storedMessages = new ArrayList<>();
-    private final List<String> messageHashes = new ArrayList<>();
-    private final List<String> messageIDs = new ArrayList<>();
-    private int messageCounter = 0;
+    private final MessageStore messageStore = new MessageStore();
+    private final MessageIdGenerator idGenerator = new MessageIdGenerator();
+    private MessageLog messageLog;
+    private final MessageService messageService = new MessageService(messageStore, idGenerator);
+    private final MessageSearchIndex searchIndex = new MessageSearchIndex(messageStore);
 
     // User class to store user details
     public static class User {
         String username;
-        String password;
+        String password; // PBKDF2 credential, or a legacy plaintext password until its next login
         String phone;
 
         public User(String username, String password, String phone) {
@@ -49,14 +55,22 @@ public class ChatApp {
         String message;
         String messageHash;
         String flag;
+        long createdAt; // epoch milliseconds
 
+        // Created now.
         public Message(String messageID, int messageNumber, String recipient, String message, String messageHash, String flag) {
+            this(messageID, messageNumber, recipient, message, messageHash, flag, System.currentTimeMillis());
+        }
+
+        public Message(String messageID, int messageNumber, String recipient, String message, String messageHash, String flag,
+                       long createdAt) {
             this.messageID = messageID;
             this.messageNumber = messageNumber;
             this.recipient = recipient;
             this.message = message;
             this.messageHash = messageHash;
             this.flag = flag;
+            this.createdAt = createdAt;
         }
 
         @Override
@@ -66,11 +80,198 @@ public class ChatApp {
         }
     }
 
+    private static final long METRICS_PERIOD_MILLIS = 10_000;
+
     @SuppressWarnings("empty-statement")
     public static void main(String[] args) {
         ; // Use default look and feel if system look and feel fails
         ChatApp app = new ChatApp();
-        app.runApplication();
+
+        // Optional persistence: --data-dir <dir> [--fsync-ms <n>] (0 = fsync every commit, -1 = never)
+        // --export-report <file> writes the report of sent messages to file and exits without the UI
+        // --server [host:]port serves the chat protocol over TCP instead of showing the UI
+        // --metrics-file <file> rewrites Prometheus metrics to file every 10 s; --metrics-port [host:]port serves them
+        // --restore-snapshot <file> loads users and messages from a snapshot before anything else runs; with
+        // --data-dir the log is opened first so restored messages are persisted, and must not hold messages yet
+        // --write-snapshot <file> writes a snapshot of the loaded state to file and exits without the UI
+        // --ttl Flag=duration[,...] drops messages with the flag once older than the duration (d, h, m or s),
+        // e.g. --ttl Disregarded=7d; swept in the background by the UI and the server
+        Path dataDir = null;
+        Path restoreFile = null;
+        Path snapshotFile = null;
+        Path exportFile = null;
+        InetSocketAddress serverAddress = null;
+        Path metricsFile = null;
+        InetSocketAddress metricsAddress = null;
+        MessageExpiry.Config retention = null;
+        long fsyncMillis = MessageLog.Config.defaults().fsyncIntervalMillis();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--data-dir" -> dataDir = Path.of(args[++i]);
+                case "--fsync-ms" -> fsyncMillis = Long.parseLong(args[++i]);
+                case "--export-report" -> exportFile = Path.of(args[++i]);
+                case "--server" -> serverAddress = parseAddress(args[++i]);
+                case "--metrics-file" -> metricsFile = Path.of(args[++i]);
+                case "--metrics-port" -> metricsAddress = parseAddress(args[++i]);
+                case "--restore-snapshot" -> restoreFile = Path.of(args[++i]);
+                case "--write-snapshot" -> snapshotFile = Path.of(args[++i]);
+                case "--ttl" -> {
+                    try {
+                        retention = MessageExpiry.Config.parse(args[++i]);
+                    } catch (IllegalArgumentException e) {
+                        System.err.println("Bad --ttl: " + e.getMessage());
+                        return;
+                    }
+                }
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.err.println("Usage: ChatApp [--data-dir <dir>] [--fsync-ms <n>] [--export-report <file>] [--server [host:]port]"
+                            + " [--metrics-file <file>] [--metrics-port [host:]port] [--restore-snapshot <file>] [--write-snapshot <file>]"
+                            + " [--ttl Flag=duration[,...]]");
+                    return;
+                }
+            }
+        }
+        // Always visible to jconsole and other JMX clients
+        Metrics.global().registerMBean();
+        List<MetricsExporter> exporters = new ArrayList<>();
+        try {
+            if (metricsFile != null) exporters.add(MetricsExporter.toFile(Metrics.global(), metricsFile, METRICS_PERIOD_MILLIS));
+            if (metricsAddress != null) exporters.add(MetricsExporter.onPort(Metrics.global(), metricsAddress));
+        } catch (IOException e) {
+            System.err.println("Could not export metrics: " + e.getMessage());
+            exporters.forEach(MetricsExporter::close);
+            return;
+        }
+        try {
+            run(app, restoreFile, dataDir, fsyncMillis, exportFile, snapshotFile, serverAddress, retention);
+        } finally {
+            // The HTTP exporter's threads would otherwise keep the JVM alive
+            exporters.forEach(MetricsExporter::close);
+        }
+    }
+
+    private static void run(ChatApp app, Path restoreFile, Path dataDir, long fsyncMillis, Path exportFile, Path snapshotFile,
+                            InetSocketAddress serverAddress, MessageExpiry.Config retention) {
+        if (dataDir != null) {
+            MessageLog.Config defaults = MessageLog.Config.defaults();
+            try {
+                app.openMessageLog(dataDir, new MessageLog.Config(defaults.segmentBytes(), fsyncMillis, defaults.queueCapacity()));
+            } catch (IOException e) {
+                System.err.println("Could not open message log in " + dataDir + ": " + e.getMessage());
+                return;
+            }
+        }
+        if (restoreFile != null) {
+            try {
+                StateSnapshot.Stats stats = app.restoreSnapshot(restoreFile);
+                System.out.println("Restored " + stats.users() + " users and " + stats.messages() + " messages from " + restoreFile);
+            } catch (IOException e) {
+                System.err.println("Could not restore snapshot " + restoreFile + ": " + e.getMessage());
+                app.closeMessageLog();
+                return;
+            }
+        }
+        if (exportFile != null) {
+            try (OutputStream out = Files.newOutputStream(exportFile)) {
+                System.out.println("Exported " + app.writeReport(out) + " messages to " + exportFile);
+            } catch (IOException e) {
+                System.err.println("Could not export report to " + exportFile + ": " + e.getMessage());
+            }
+            app.closeMessageLog();
+            return;
+        }
+        if (snapshotFile != null) {
+            try {
+                StateSnapshot.Stats stats = app.writeSnapshot(snapshotFile);
+                System.out.println("Wrote " + stats.users() + " users and " + stats.messages() + " messages to " + snapshotFile);
+            } catch (IOException e) {
+                System.err.println("Could not write snapshot " + snapshotFile + ": " + e.getMessage());
+            }
+            app.closeMessageLog();
+            return;
+        }
+        MessageExpiry expiry = retention == null ? null : MessageExpiry.start(app.messageStore, retention);
+        // Deletes leave tombstones in the store; this unlinks them in the background
+        MessageCompactor compactor = MessageCompactor.start(app.messageStore, MessageCompactor.DEFAULT);
+        try {
+            if (serverAddress != null) {
+                app.runServer(serverAddress);
+            } else {
+                app.runApplication();
+            }
+        } finally {
+            compactor.close();
+            if (expiry != null) expiry.close();
+        }
+        app.closeMessageLog();
+    }
+
+    // Restores messages from the log in dataDir and persists every later change there.
+    void openMessageLog(Path dataDir, MessageLog.Config config) throws IOException {
+        messageLog = MessageLog.open(dataDir, config, messageStore);
+        MessageLog.RecoveryStats stats = messageLog.getRecoveryStats();
+        messageService.advanceMessageCounter(stats.maxMessageNumber());
+        if (stats.maxMessageID() >= 0) {
+            idGenerator.advancePast(stats.maxMessageID());
+        }
+        // Flush on System.exit() paths too, e.g. cancelling the message limit prompt
+        Runtime.getRuntime().addShutdownHook(new Thread(this::closeMessageLog, "message-log-shutdown"));
+    }
+
+    // Point-in-time copy of users and messages; sends may continue while it is written.
+    StateSnapshot.Stats writeSnapshot(Path file) throws IOException {
+        return StateSnapshot.write(file, userRegistry, messageStore, messageService);
+    }
+
+    // Restores into an empty store only. Opened first, the message log persists the restored messages.
+    StateSnapshot.Stats restoreSnapshot(Path file) throws IOException {
+        if (messageStore.size() > 0) {
+            throw new IOException("the store already holds " + messageStore.size() + " messages");
+        }
+        return StateSnapshot.restore(file, userRegistry, messageStore, messageService, idGenerator);
+    }
+
+    static InetSocketAddress parseAddress(String hostPort) {
+        int colon = hostPort.lastIndexOf(':');
+        if (colon < 0) return new InetSocketAddress(Integer.parseInt(hostPort));
+        return new InetSocketAddress(hostPort.substring(0, colon), Integer.parseInt(hostPort.substring(colon + 1)));
+    }
+
+    // Serves the chat protocol until the process is interrupted. Sessions send through one shared SendPipeline.
+    private void runServer(InetSocketAddress address) {
+        SendPipeline pipeline = new SendPipeline(messageService);
+        ChatServer server;
+        try {
+            server = ChatServer.start(address, accountService, messageService, searchIndex, pipeline);
+        } catch (IOException e) {
+            System.err.println("Could not start chat server on " + address + ": " + e.getMessage());
+            pipeline.close();
+            return;
+        }
+        System.out.println("Chat server listening on port " + server.getPort());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                System.err.println("Could not stop chat server: " + e.getMessage());
+            }
+            pipeline.close();
+        }, "chat-server-shutdown"));
+        try {
+            server.awaitClose();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void closeMessageLog() {
+        if (messageLog == null) return;
+        try {
+            messageLog.close();
+        } catch (IOException e) {
+            System.err.println("Could not flush message log: " + e.getMessage());
+        }
     }
 
     private void runApplication() {
@@ -96,10 +297,12 @@ public class ChatApp {
             return;
         }
 
-        if (loggedIn) {
+        if (accountService.getSessions().validate(sessionToken) != null) {
             JOptionPane.showMessageDialog(null, "Welcome to the ChatApp.", "Welcome", JOptionPane.INFORMATION_MESSAGE);
             int maxMessages = promptForMaxMessages();
-            populateTestData(); // Populate test data
+            if (messageStore.size() == 0) {
+                populateTestData(); // Populate test data unless messages were recovered from the log
+            }
             runChatInterface(maxMessages);
         }
     }
@@ -130,9 +333,9 @@ public class ChatApp {
         phone = getValidInput("Enter Phone Number (format: +27xxxxxxxxx):", "Phone Number", false);
         if (phone == null) return;
 
-        boolean validatePhone = checkCellPhoneNumber(phone);
-        boolean validateUsername = checkUserName(username);
-        boolean validatePassword = checkPasswordComplexity(password);
+        boolean validatePhone = Validators.checkCellPhoneNumber(phone);
+        boolean validateUsername = Validators.checkUserName(username);
+        boolean validatePassword = Validators.checkPasswordComplexity(password);
 
         StringBuilder validationResults = new StringBuilder("Validation Results:\n\n");
         if (validateUsername) validationResults.append("✓ Username: Valid\n");
@@ -147,12 +350,12 @@ public class ChatApp {
 
         if (validateUsername && validatePassword && validatePhone) {
             String registrationResult = registerUser(username, password, phone);
-            if (registrationResult.equals("User is successfully registered.")) {
+            if (registrationResult.equals(AccountService.REGISTERED)) {
                 JOptionPane.showMessageDialog(null,
                         """
                         \ud83c\udf89 Registration Successful! \ud83c\udf89
                         
-                        User: """ + firstname + " " + lastname + "\n" +
+                        User:\s""" + firstname + " " + lastname + "\n" +
                                 "Username: " + username + "\n" +
                                 "Phone: " + phone + "\n\n" +
                                 "You can now proceed to login.",
@@ -186,13 +389,19 @@ public class ChatApp {
             String loginPassword = getValidInput("Enter password:", "Login - Password", false);
             if (loginPassword == null) return;
 
-            if (loginUser(loginUsername, loginPassword)) {
-                loggedIn = true;
+            AccountService.LoginResult result = accountService.authenticate(loginUsername, loginPassword);
+            if (result == AccountService.LoginResult.THROTTLED) {
+                // The throttle outlives this dialog, so retrying here would only be refused again
+                JOptionPane.showMessageDialog(null, AccountService.THROTTLED, "Login Locked", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            if (result == AccountService.LoginResult.SUCCESS) {
+                sessionToken = accountService.getSessions().issue(loginUsername);
                 JOptionPane.showMessageDialog(null,
                         """
                         \ud83c\udf89 Login Successful! \ud83c\udf89
                         
-                        Welcome back, """ + firstname + " " + lastname + "!\n" +
+                        Welcome back,\s""" + firstname + " " + lastname + "!\n" +
                                 "It's great to see you again.\n\n" +
                                 "Login Time: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")),
                         "Login Success", JOptionPane.INFORMATION_MESSAGE);
@@ -206,7 +415,7 @@ public class ChatApp {
                             Login Failed!
                             
                             Invalid username or password.
-                            Attempts remaining: """ + remaining,
+                            Attempts remaining:\s""" + remaining,
                             "Login Failed", JOptionPane.ERROR_MESSAGE);
                 } else {
                     JOptionPane.showMessageDialog(null, """
@@ -220,111 +429,21 @@ public class ChatApp {
         }
     }
 
+    // Blocks until the user closes the chat window.
     private void runChatInterface(int maxMessages) {
-        boolean running = true;
-        while (running) {
-            String menu = """
-                          Please choose an option:
-                          1) Send Messages
-                          2) Show recently sent messages
-                          3) Display sender and recipient of all sent messages
-                          4) Display the longest sent message
-                          5) Search for a message ID
-                          6) Search for all messages sent to a recipient
-                          7) Delete a message using message hash
-                          8) Display a report of all sent messages
-                          9) Quit""";
-            String choice = JOptionPane.showInputDialog(null, menu, "Main Menu", JOptionPane.QUESTION_MESSAGE);
-
-            if (choice == null) {
-                running = false;
-                continue;
-            }
-
-            switch (choice.trim()) {
-                case "1" -> {
-                    if (!loggedIn) {
-                        JOptionPane.showMessageDialog(null, "You must be logged in to send messages.", "Error", JOptionPane.ERROR_MESSAGE);
-                    } else {
-                        sendMessages(maxMessages);
-                    }
-                }
-                case "2" -> showRecentMessages();
-                case "3" -> displaySenderRecipient();
-                case "4" -> displayLongestMessage();
-                case "5" -> searchByMessageID();
-                case "6" -> searchByRecipient();
-                case "7" -> deleteMessageByHash();
-                case "8" -> displayReport();
-                case "9" -> {
-                    JOptionPane.showMessageDialog(null, "Goodbye!", "Exit", JOptionPane.INFORMATION_MESSAGE);
-                    running = false;
-                }
-                default -> JOptionPane.showMessageDialog(null, "Invalid option. Please enter 1-9.", "Error", JOptionPane.ERROR_MESSAGE);
-            }
+        try {
+            new ChatWindow(messageStore, messageService, searchIndex, username, maxMessages).showAndWait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    // Validation Methods
-    private boolean checkUserName(String username) {
-        return username != null && username.contains("_") && username.length() <= 5;
+    String registerUser(String username, String password, String phone) {
+        return accountService.register(username, password, phone);
     }
 
-    private boolean checkPasswordComplexity(String password) {
-        if (password == null) return false;
-        String capital = ".*[A-Z].*";
-        String small = ".*[a-z].*";
-        String digit = ".*\\d.*";
-        String special = ".*[!@#$%^&*(),.?\":{}|<>].*";
-        return password.length() >= 8 &&
-                password.matches(capital) &&
-                password.matches(small) &&
-                password.matches(digit) &&
-                password.matches(special);
-    }
-
-    private boolean checkCellPhoneNumber(String phone) {
-        if (phone == null) return false;
-        String saCode = "+27";
-        if (phone.length() == 12 && phone.startsWith(saCode)) {
-            char fourthDigitChar = phone.charAt(3);
-            if (!Character.isDigit(fourthDigitChar)) return false;
-            int fourthDigit = Character.getNumericValue(fourthDigitChar);
-            return fourthDigit >= 6 && fourthDigit <= 8;
-        }
-        return false;
-    }
-
-    private String registerUser(String username, String password, String phone) {
-        boolean validatePhone = checkCellPhoneNumber(phone);
-        boolean validateUsername = checkUserName(username);
-        boolean validatePassword = checkPasswordComplexity(password);
-
-        if (validatePhone && validateUsername && validatePassword) {
-            for (User user : users) {
-                if (user.username.equals(username)) {
-                    return "Username already exists!";
-                }
-            }
-            users.add(new User(username, password, phone));
-            return "User is successfully registered.";
-        } else {
-            return "User registration failed!";
-        }
-    }
-
-    private boolean loginUser(String username, String password) {
-        boolean validateUsername = checkUserName(username);
-        boolean validatePassword = checkPasswordComplexity(password);
-
-        if (validateUsername && validatePassword) {
-            for (User user : users) {
-                if (user.username.equals(username) && user.password.equals(password)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    boolean loginUser(String username, String password) {
+        return accountService.login(username, password);
     }
 
     private int promptForMaxMessages() {
@@ -346,118 +465,12 @@ public class ChatApp {
         return maxMessages;
     }
 
-    private void sendMessages(int maxMessages) {
-        int messagesSent = 0;
-        while (messagesSent < maxMessages) {
-            String recipient = null;
-            while (true) {
-                recipient = JOptionPane.showInputDialog(null,
-                        String.format("Enter recipient number (must start with '+' and max 15 characters)\nMessage %d of %d",
-                                messagesSent + 1, maxMessages),
-                        "Recipient Input", JOptionPane.QUESTION_MESSAGE);
-                if (recipient == null) {
-                    return;
-                }
-                recipient = recipient.trim();
-                if (validateRecipient(recipient)) {
-                    break;
-                } else {
-                    JOptionPane.showMessageDialog(null, "Invalid recipient number. Please try again.", "Error", JOptionPane.ERROR_MESSAGE);
-                }
-            }
-
-            String messageText = null;
-            while (true) {
-                messageText = JOptionPane.showInputDialog(null,
-                        "Enter your message (max 250 characters):",
-                        "Message Input", JOptionPane.QUESTION_MESSAGE);
-                if (messageText == null) {
-                    return;
-                }
-                if (messageText.length() <= 250) {
-                    break;
-                } else {
-                    JOptionPane.showMessageDialog(null, "Please enter a message of 250 characters or less.", "Error", JOptionPane.ERROR_MESSAGE);
-                }
-            }
-
-            String messageID = generateUniqueMessageID();
-            messageCounter++;
-
-            String messageHash = generateMessageHash(messageID, messageCounter, recipient, messageText);
-
-            Message msg = new Message(messageID, messageCounter, recipient, messageText, messageHash, "Sent");
-            sentMessages.add(msg);
-            messageHashes.add(messageHash);
-            messageIDs.add(messageID);
-
-            JOptionPane.showMessageDialog(null, "Message sent successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-
-            messagesSent++;
-        }
-
-        JOptionPane.showMessageDialog(null,
-                String.format("All %d messages have been sent successfully!", maxMessages),
-                "Batch Complete", JOptionPane.INFORMATION_MESSAGE);
-    }
-
-    private void showRecentMessages() {
-        if (sentMessages.isEmpty()) {
-            JOptionPane.showMessageDialog(null, "No messages sent yet.", "Recent Messages", JOptionPane.INFORMATION_MESSAGE);
-        } else {
-            StringBuilder sb = new StringBuilder();
-            sb.append("Recent Messages (").append(sentMessages.size()).append(" total):\n\n");
-
-            for (int i = sentMessages.size() - 1; i >= 0; i--) {
-                Message msg = sentMessages.get(i);
-                sb.append("Message #").append(msg.messageNumber).append(":\n");
-                sb.append("  To: ").append(msg.recipient).append("\n");
-                sb.append("  Text: ").append(msg.message).append("\n");
-                sb.append("  ID: ").append(msg.messageID).append("\n");
-                sb.append("  Hash: ").append(msg.messageHash.substring(0, 16)).append("...\n\n");
-            }
-
-            JTextArea textArea = new JTextArea(sb.toString());
-            textArea.setEditable(false);
-            textArea.setRows(15);
-            textArea.setColumns(50);
-            JScrollPane scrollPane = new JScrollPane(textArea);
-
-            JOptionPane.showMessageDialog(null, scrollPane, "Recent Messages", JOptionPane.INFORMATION_MESSAGE);
-        }
-    }
-
-    private boolean validateRecipient(String recipient) {
-        if (recipient == null) return false;
-        if (recipient.startsWith("+") && recipient.length() <= 15 && recipient.length() > 1) {
-            String numberPart = recipient.substring(1);
-            return numberPart.matches("\\d+");
-        }
-        return false;
-    }
-
-    private String generateUniqueMessageID() {
-        Random random = new Random();
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < 10; i++) {
-            sb.append(random.nextInt(10));
-        }
-        return sb.toString();
+    String generateUniqueMessageID() {
+        return idGenerator.next();
     }
 
-    private String generateMessageHash(String messageID, int msgNumber, String recipient, String message) {
-        String input = messageID + msgNumber + recipient + message;
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hashBytes = md.digest(input.getBytes());
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hashBytes) {
-                hexString.append(String.format("%02x", b));
-            }
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            return "hash_error_" + System.currentTimeMillis();
-        }
+    String generateMessageHash(String messageID, int msgNumber, String recipient, String message) {
+        return MessageHasher.hash(messageID, msgNumber, recipient, message);
     }
 
     private String getValidInput(String message, String title, boolean allowEmpty) {
@@ -475,8 +488,24 @@ public class ChatApp {
         return input;
     }
 
+    MessageStore getMessageStore() {
+        return messageStore;
+    }
+
+    MessageService getMessageService() {
+        return messageService;
+    }
+
+    MessageSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    AccountService getAccountService() {
+        return accountService;
+    }
+
     private boolean isUserRegistered() {
-        return !users.isEmpty();
+        return !userRegistry.isEmpty();
     }
 
     // Populate test data
@@ -493,100 +522,20 @@ public class ChatApp {
             String recipient = testData[i][0];
             String message = testData[i][1];
             String flag = testData[i][2];
-            String messageID = generateUniqueMessageID();
-            messageCounter++;
-            String messageHash = generateMessageHash(messageID, messageCounter, recipient, message);
-
-            Message msg = new Message(messageID, messageCounter, recipient, message, messageHash, flag);
-            if ("Sent".equals(flag)) sentMessages.add(msg);
-            else if ("Disregarded".equals(flag)) disregardedMessages.add(msg);
-            else if ("Stored".equals(flag)) storedMessages.add(msg);
-            messageHashes.add(messageHash);
-            messageIDs.add(messageID);
-        }
-    }
-
-    // Implement required functions
-    private void displaySenderRecipient() {
-        if (sentMessages.isEmpty()) {
-            JOptionPane.showMessageDialog(null, "No sent messages to display.", "Error", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-        StringBuilder sb = new StringBuilder("Sender and Recipient of Sent Messages:\n\n");
-        for (Message msg : sentMessages) {
-            sb.append("Sender: ").append(username).append(" | Recipient: ").append(msg.recipient).append("\n");
-        }
-        JOptionPane.showMessageDialog(null, sb.toString(), "Sender/Recipient", JOptionPane.INFORMATION_MESSAGE);
-    }
-
-    private void displayLongestMessage() {
-        if (sentMessages.isEmpty()) {
-            JOptionPane.showMessageDialog(null, "No sent messages to display.", "Error", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-        Message longest = sentMessages.get(0);
-        for (Message msg : sentMessages) {
-            if (msg.message.length() > longest.message.length()) {
-                longest = msg;
-            }
+            messageStore.add(messageService.compose(recipient, message, flag));
         }
-        JOptionPane.showMessageDialog(null, "Longest Message:\n\nRecipient: " + longest.recipient + "\nMessage: " + longest.message,
-                "Longest Message", JOptionPane.INFORMATION_MESSAGE);
     }
 
-    private void searchByMessageID() {
-        String id = getValidInput("Enter Message ID to search:", "Search by ID", false);
-        if (id == null) return;
-        for (Message msg : sentMessages) {
-            if (msg.messageID.equals(id)) {
-                JOptionPane.showMessageDialog(null, "Found:\nRecipient: " + msg.recipient + "\nMessage: " + msg.message,
-                        "Search Result", JOptionPane.INFORMATION_MESSAGE);
-                return;
-            }
-        }
-        JOptionPane.showMessageDialog(null, "Message ID not found.", "Search Result", JOptionPane.WARNING_MESSAGE);
-    }
+    private static final String REPORT_HEADER = "Full Report of Sent Messages:\n\n";
 
-    private void searchByRecipient() {
-        String recipient = getValidInput("Enter Recipient to search:", "Search by Recipient", false);
-        if (recipient == null) return;
-        StringBuilder sb = new StringBuilder("Messages for Recipient " + recipient + ":\n\n");
-        boolean found = false;
-        for (Message msg : sentMessages) {
-            if (msg.recipient.equals(recipient)) {
-                sb.append("Message: ").append(msg.message).append("\n");
-                found = true;
-            }
-        }
-        if (!found) sb.append("No messages found for this recipient.");
-        JOptionPane.showMessageDialog(null, sb.toString(), "Search Result", JOptionPane.INFORMATION_MESSAGE);
+    // Streams the full report of sent messages page by page; returns the number of messages written.
+    long writeReport(Writer out) throws IOException {
+        out.write(REPORT_HEADER);
+        return new MessageReport(messageStore, "Sent", MessageReport.Order.OLDEST_FIRST).writeTo(out, MessageReport.FULL);
     }
 
-    private void deleteMessageByHash() {
-        String hash = getValidInput("Enter Message Hash to delete:", "Delete by Hash", false);
-        if (hash == null) return;
-        for (int i = 0; i < sentMessages.size(); i++) {
-            if (sentMessages.get(i).messageHash.equals(hash)) {
-                sentMessages.remove(i);
-                messageHashes.remove(hash);
-                JOptionPane.showMessageDialog(null, "Message with hash " + hash + " deleted successfully.", "Delete Result", JOptionPane.INFORMATION_MESSAGE);
-                return;
-            }
-        }
-        JOptionPane.showMessageDialog(null, "Message hash not found.", "Delete Result", JOptionPane.WARNING_MESSAGE);
-    }
-
-    private void displayReport() {
-        if (sentMessages.isEmpty()) {
-            JOptionPane.showMessageDialog(null, "No sent messages to report.", "Report", JOptionPane.WARNING_MESSAGE);
-            return;
-        }
-        StringBuilder sb = new StringBuilder("Full Report of Sent Messages:\n\n");
-        for (Message msg : sentMessages) {
-            sb.append("Message Hash: ").append(msg.messageHash).append("\n");
-            sb.append("Recipient: ").append(msg.recipient).append("\n");
-            sb.append("Message: ").append(msg.message).append("\n\n");
-        }
-        JOptionPane.showMessageDialog(null, sb.toString(), "Report", JOptionPane.INFORMATION_MESSAGE);
+    long writeReport(OutputStream out) throws IOException {
+        out.write(REPORT_HEADER.getBytes(StandardCharsets.UTF_8));
+        return new MessageReport(messageStore, "Sent", MessageReport.Order.OLDEST_FIRST).writeTo(out, MessageReport.FULL);
     }
 }
\ No newline at end of file
@@ -0,0 +1,179 @@
+package loginsystem;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Headless TCP front end for the chat operations; see ChatSession for the line protocol.
+// Each connection runs its own ChatSession on a virtual thread with blocking socket I/O, so tens of thousands
+// of mostly idle sessions cost a few KiB each instead of a platform thread stack. Replies are flushed once no
+// further request is already buffered, so clients may pipeline requests.
+public class ChatServer implements Closeable {
+
+    public static final int MAX_LINE_BYTES = 4096;
+
+    private static final int BACKLOG = 4096;
+    private static final int READ_BUFFER = 1024;
+    private static final int WRITE_BUFFER = 2048;
+
+    private final AccountService accounts;
+    private final MessageService messages;
+    private final MessageSearchIndex search;
+    private final SendPipeline pipeline;
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong accepted = new AtomicLong();
+    private final Thread acceptor;
+
+    private ChatServer(ServerSocket serverSocket, AccountService accounts, MessageService messages, MessageSearchIndex search,
+                       SendPipeline pipeline) {
+        this.serverSocket = serverSocket;
+        this.accounts = accounts;
+        this.messages = messages;
+        this.search = search;
+        this.pipeline = pipeline;
+        this.acceptor = Thread.ofPlatform().name("chat-server-acceptor").unstarted(this::acceptLoop);
+    }
+
+    // Binds to address (port 0 picks a free port) and starts accepting connections, with SEARCH disabled.
+    public static ChatServer start(InetSocketAddress address, AccountService accounts, MessageService messages) throws IOException {
+        return start(address, accounts, messages, null);
+    }
+
+    // As above, answering SEARCH from the given index (null disables it).
+    public static ChatServer start(InetSocketAddress address, AccountService accounts, MessageService messages,
+                                   MessageSearchIndex search) throws IOException {
+        return start(address, accounts, messages, search, null);
+    }
+
+    // As above, sending through the given pipeline (null sends directly). The caller closes the pipeline after
+    // the server.
+    public static ChatServer start(InetSocketAddress address, AccountService accounts, MessageService messages,
+                                   MessageSearchIndex search, SendPipeline pipeline) throws IOException {
+        ServerSocket serverSocket = new ServerSocket();
+        try {
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(address, BACKLOG);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+        ChatServer server = new ChatServer(serverSocket, accounts, messages, search, pipeline);
+        server.acceptor.start();
+        return server;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int activeSessions() {
+        return connections.size();
+    }
+
+    public long acceptedSessions() {
+        return accepted.get();
+    }
+
+    // Blocks until the server is closed.
+    public void awaitClose() throws InterruptedException {
+        acceptor.join();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) return;
+                System.err.println("Chat server accept failed: " + e.getMessage());
+                continue;
+            }
+            accepted.incrementAndGet();
+            connections.add(socket);
+            try {
+                sessions.execute(() -> serve(socket));
+            } catch (RejectedExecutionException e) {
+                // Closed between accept() and here
+                connections.remove(socket);
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // Nothing more to release
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            LineReader in = new LineReader(socket.getInputStream(), READ_BUFFER, MAX_LINE_BYTES);
+            Writer out = new OutputStreamWriter(new BufferedOutputStream(socket.getOutputStream(), WRITE_BUFFER), StandardCharsets.UTF_8);
+            ChatSession session = new ChatSession(accounts, messages, search, socket.getInetAddress().getHostAddress(), pipeline);
+            boolean open = true;
+            while (open) {
+                String line;
+                try {
+                    line = in.readLine();
+                } catch (LineReader.LineTooLongException e) {
+                    out.write("ERR " + e.getMessage() + "\n");
+                    out.flush();
+                    return;
+                }
+                if (line == null) return;
+                open = session.handle(line, out);
+                if (!open || !in.hasBuffered()) {
+                    out.flush();
+                }
+            }
+        } catch (SocketException e) {
+            // Client reset the connection or the server is closing
+        } catch (IOException e) {
+            System.err.println("Chat session failed: " + e.getMessage());
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    // Stops accepting, disconnects every client and waits briefly for their sessions to finish.
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        try {
+            // No connection can be added once the acceptor has exited
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Socket socket : connections) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closing
+            }
+        }
+        sessions.shutdown();
+        try {
+            sessions.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
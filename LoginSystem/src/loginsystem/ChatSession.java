@@ -0,0 +1,390 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+
+// One client's conversation with the chat server: the same register, login, send and query operations as the
+// Swing menu, driven by request lines instead of dialogs. Not thread-safe; each connection owns one session.
+//
+// Requests are single lines: a command word, then space-separated arguments. SEND's text is the rest of the line.
+//   PING | QUIT | REGISTER <username> <password> <phone> | LOGIN <username> <password> | RESUME <token>
+//   TOKEN | LOGOUT [ALL]
+//   SEND <recipient> <text> | SENDONCE <key|-> <recipient> <text> | FIND <messageID> | RECIPIENT <recipient>
+//   RECENT [count] | SINCE <minutes> [count] | LONGEST | DELETE <hash> | DELETE ID <messageID>
+//   DELETE RECIPIENT <recipient> | REPORT | STATS [recipient]
+//   SEARCH <query> | FLUSH <recipient> | PREFIX <prefix> [count] | TOP <prefix> [count]
+// SEARCH takes MessageSearchIndex query syntax (words, "prefix*", OR) and lists up to MAX_SEARCH sent messages.
+// SINCE lists the sent messages created in the last <minutes>, newest first, up to count (default DEFAULT_RECENT).
+// FLUSH sends every Stored message for the recipient and replies "OK <count>".
+// DELETE <hash> and DELETE ID <messageID> delete one sent message. DELETE RECIPIENT deletes every message to the
+// recipient, whatever its flag, and replies "OK <count>".
+// PREFIX lists up to count sent messages to numbers starting with the prefix, e.g. "+2783", in number order.
+// TOP replies "OK messages=<m> recipients=<r>" for the prefix's traffic under every flag, then its count busiest
+// recipients one per line as "<recipient>\t<messages>", and a final ".".
+// LOGIN attempts are throttled per username and per source address (see LoginThrottle).
+// A login opens a SessionCache session, and every later command checks it, so a session can expire or be ended
+// from elsewhere. TOKEN replies "OK <token>"; RESUME <token> logs a new connection in without the password.
+// LOGOUT ends this session; LOGOUT ALL ends every session of the user and replies "OK <count>".
+// SENDONCE is an idempotent SEND (see MessageService.sendOnce): a repeat of the key, or with "-" of the same
+// recipient and text, within the deduplication window gets the first send's reply and stores nothing.
+// Given a SendPipeline, SEND goes through it and waits for the result, so concurrent sessions share its batches.
+// Every command except PING, QUIT, REGISTER, LOGIN and RESUME needs a logged-in session.
+// Replies are "OK[ <detail>]" or "ERR <reason>" on one line. FIND, RECIPIENT, PREFIX, RECENT, SINCE, LONGEST, SEARCH
+// and REPORT follow their OK line with one line per message, "<id>\t<number>\t<recipient>\t<hash>\t<text>", and
+// a final ".".
+public class ChatSession {
+
+    public static final int DEFAULT_RECENT = 10;
+    public static final int MAX_RECENT = 1000;
+    public static final int MAX_SEARCH = 50;
+    public static final long MAX_SINCE_MINUTES = 366L * 24 * 60;
+
+    private final AccountService accounts;
+    private final MessageService messages;
+    private final MessageStore store;
+    private final MessageSearchIndex search;
+    private final String source;
+    private final SendPipeline pipeline;
+    private final SessionCache sessions;
+    private String username;
+    private String token;
+
+    public ChatSession(AccountService accounts, MessageService messages) {
+        this(accounts, messages, null);
+    }
+
+    // search may be null, in which case SEARCH replies with an error.
+    public ChatSession(AccountService accounts, MessageService messages, MessageSearchIndex search) {
+        this(accounts, messages, search, AccountService.LOCAL);
+    }
+
+    // source names the client for login throttling, normally its IP address.
+    public ChatSession(AccountService accounts, MessageService messages, MessageSearchIndex search, String source) {
+        this(accounts, messages, search, source, null);
+    }
+
+    // pipeline may be null, in which case SEND calls the service directly.
+    public ChatSession(AccountService accounts, MessageService messages, MessageSearchIndex search, String source,
+                       SendPipeline pipeline) {
+        this.accounts = accounts;
+        this.messages = messages;
+        this.store = messages.getStore();
+        this.search = search;
+        this.source = source;
+        this.pipeline = pipeline;
+        this.sessions = accounts.getSessions();
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    // Runs one request and writes its reply. Returns false once the client has asked to end the session.
+    public boolean handle(String line, Writer out) throws IOException {
+        int space = line.indexOf(' ');
+        String command = (space < 0 ? line : line.substring(0, space)).toUpperCase(Locale.ROOT);
+        String args = space < 0 ? "" : line.substring(space + 1);
+
+        switch (command) {
+            case "PING" -> ok(out, "PONG");
+            case "QUIT" -> {
+                ok(out, "Goodbye!");
+                return false;
+            }
+            case "REGISTER" -> register(args, out);
+            case "LOGIN" -> login(args, out);
+            case "RESUME" -> resume(args.trim(), out);
+            case "TOKEN", "LOGOUT", "SEND", "SENDONCE", "FIND", "RECIPIENT", "RECENT", "SINCE", "LONGEST", "DELETE", "REPORT", "STATS",
+                 "SEARCH", "FLUSH", "PREFIX", "TOP" -> {
+                if (username == null) {
+                    error(out, "You must be logged in.");
+                } else if (sessions.validate(token) == null) {
+                    username = null;
+                    token = null;
+                    error(out, "Session expired. Please log in again.");
+                } else {
+                    loggedIn(command, args, out);
+                }
+            }
+            default -> error(out, "Unknown command: " + command);
+        }
+        return true;
+    }
+
+    private void loggedIn(String command, String args, Writer out) throws IOException {
+        switch (command) {
+            case "TOKEN" -> ok(out, token);
+            case "LOGOUT" -> {
+                if (args.trim().equalsIgnoreCase("ALL")) {
+                    ok(out, String.valueOf(sessions.invalidateUser(username)));
+                } else {
+                    sessions.invalidate(token);
+                    ok(out, "Logged out.");
+                }
+                username = null;
+                token = null;
+            }
+            case "SEND" -> send(args, out);
+            case "SENDONCE" -> sendOnce(args, out);
+            case "FIND" -> {
+                Message msg = store.findById(args.trim());
+                if (msg != null && "Sent".equals(msg.flag)) {
+                    list(out, List.of(msg));
+                } else {
+                    error(out, "Message ID not found.");
+                }
+            }
+            case "RECIPIENT" -> list(out, store.findByRecipient(args.trim()).stream().filter(m -> "Sent".equals(m.flag)).toList());
+            case "PREFIX" -> prefix(args, out);
+            case "TOP" -> top(args, out);
+            case "RECENT" -> recent(args, out);
+            case "SINCE" -> since(args, out);
+            case "LONGEST" -> {
+                Message longest = store.longest("Sent");
+                if (longest == null) {
+                    error(out, "No sent messages to display.");
+                } else {
+                    list(out, List.of(longest));
+                }
+            }
+            case "DELETE" -> delete(args.trim(), out);
+            case "REPORT" -> {
+                out.write("OK\n");
+                new MessageReport(store, "Sent", MessageReport.Order.OLDEST_FIRST).writeTo(out, LINE);
+                out.write(".\n");
+            }
+            case "STATS" -> stats(args.trim(), out);
+            case "FLUSH" -> ok(out, String.valueOf(messages.flushStored(args.trim()).size()));
+            case "SEARCH" -> {
+                if (search == null) {
+                    error(out, "Search is not enabled.");
+                } else if (args.isBlank()) {
+                    error(out, "Usage: SEARCH <query>");
+                } else {
+                    list(out, search.search(args, "Sent", MAX_SEARCH));
+                }
+            }
+            default -> throw new IllegalArgumentException(command);
+        }
+    }
+
+    private void delete(String args, Writer out) throws IOException {
+        String[] fields = args.split(" +", 2);
+        String by = fields.length == 2 ? fields[0].toUpperCase(Locale.ROOT) : "";
+        switch (by) {
+            case "ID" -> {
+                String id = fields[1];
+                Message msg = store.findById(id);
+                if (msg != null && "Sent".equals(msg.flag) && store.removeById(id) != null) {
+                    ok(out, "Message " + id + " deleted successfully.");
+                } else {
+                    error(out, "Message ID not found.");
+                }
+            }
+            case "RECIPIENT" -> ok(out, String.valueOf(store.removeByRecipient(fields[1]).size()));
+            default -> {
+                Message msg = store.findByHash(args);
+                if (msg != null && "Sent".equals(msg.flag) && store.removeByHash(args) != null) {
+                    ok(out, "Message with hash " + args + " deleted successfully.");
+                } else {
+                    error(out, "Message hash not found.");
+                }
+            }
+        }
+    }
+
+    private void register(String args, Writer out) throws IOException {
+        String[] fields = args.trim().split(" +");
+        if (fields.length != 3) {
+            error(out, "Usage: REGISTER <username> <password> <phone>");
+            return;
+        }
+        String result = accounts.register(fields[0], fields[1], fields[2]);
+        if (result.equals(AccountService.REGISTERED)) {
+            ok(out, result);
+        } else {
+            error(out, result);
+        }
+    }
+
+    private void login(String args, Writer out) throws IOException {
+        String[] fields = args.trim().split(" +");
+        AccountService.LoginResult result = fields.length == 2
+                ? accounts.authenticate(fields[0], fields[1], source) : AccountService.LoginResult.FAILED;
+        switch (result) {
+            case SUCCESS -> {
+                sessions.invalidate(token);
+                username = fields[0];
+                token = sessions.issue(username);
+                ok(out, "Login successful!");
+            }
+            case FAILED -> error(out, "Login failed! Invalid credentials.");
+            case BUSY -> error(out, AccountService.BUSY);
+            case THROTTLED -> error(out, AccountService.THROTTLED);
+        }
+    }
+
+    private void resume(String presented, Writer out) throws IOException {
+        String user = sessions.validate(presented);
+        if (user == null) {
+            error(out, "Session expired or unknown.");
+            return;
+        }
+        if (!presented.equals(token)) sessions.invalidate(token);
+        username = user;
+        token = presented;
+        ok(out, "Session resumed.");
+    }
+
+    private void send(String args, Writer out) throws IOException {
+        int space = args.indexOf(' ');
+        String recipient = space < 0 ? args : args.substring(0, space);
+        String text = space < 0 ? "" : args.substring(space + 1);
+        reply(pipeline == null ? messages.send(recipient, text) : sendThroughPipeline(recipient, text), out);
+    }
+
+    private void sendOnce(String args, Writer out) throws IOException {
+        int space = args.indexOf(' ');
+        if (space <= 0) {
+            error(out, "Usage: SENDONCE <key|-> <recipient> <text>");
+            return;
+        }
+        String key = args.substring(0, space);
+        args = args.substring(space + 1);
+        space = args.indexOf(' ');
+        String recipient = space < 0 ? args : args.substring(0, space);
+        String text = space < 0 ? "" : args.substring(space + 1);
+        reply(messages.sendOnce(username, key.equals("-") ? null : key, recipient, text), out);
+    }
+
+    private void reply(MessageService.SendResult result, Writer out) throws IOException {
+        switch (result.status()) {
+            case SENT, REPLAYED -> {
+                Message msg = result.message();
+                ok(out, msg.messageID + " " + msg.messageNumber + " " + msg.messageHash);
+            }
+            case INVALID_RECIPIENT -> error(out, "Invalid recipient number.");
+            case MESSAGE_TOO_LONG -> error(out, "Please enter a message of " + MessageService.MAX_MESSAGE_LENGTH + " characters or less.");
+            case DUPLICATE -> error(out, "Duplicate message.");
+        }
+    }
+
+    private MessageService.SendResult sendThroughPipeline(String recipient, String text) throws IOException {
+        try {
+            return pipeline.submit(recipient, text).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while sending");
+        } catch (ExecutionException e) {
+            throw new IOException("Send failed", e.getCause());
+        }
+    }
+
+    // "OK sent=<n> stored=<n> disregarded=<n> characters=<n> longest=<messageID|->", or the Sent count for one recipient.
+    private void stats(String recipient, Writer out) throws IOException {
+        MessageStats stats = store.stats();
+        if (!recipient.isEmpty()) {
+            ok(out, "sent=" + stats.count("Sent", recipient));
+            return;
+        }
+        Message longest = stats.longest("Sent");
+        ok(out, "sent=" + stats.count("Sent") + " stored=" + stats.count("Stored") + " disregarded=" + stats.count("Disregarded")
+                + " characters=" + stats.characters("Sent") + " longest=" + (longest == null ? "-" : longest.messageID));
+    }
+
+    private void prefix(String args, Writer out) throws IOException {
+        String[] fields = args.trim().split(" +", 2);
+        if (fields[0].isEmpty() || fields[0].charAt(0) != '+') {
+            error(out, "Usage: PREFIX <prefix> [count]");
+            return;
+        }
+        int count = count(fields.length > 1 ? fields[1] : "", out);
+        if (count > 0) list(out, store.findByRecipientPrefix(fields[0], "Sent", count));
+    }
+
+    private void top(String args, Writer out) throws IOException {
+        String[] fields = args.trim().split(" +", 2);
+        if (fields[0].isEmpty() || fields[0].charAt(0) != '+') {
+            error(out, "Usage: TOP <prefix> [count]");
+            return;
+        }
+        int count = count(fields.length > 1 ? fields[1] : "", out);
+        if (count == 0) return;
+        RecipientIndex index = store.recipients();
+        RecipientIndex.PrefixCount total = index.count(fields[0]);
+        ok(out, "messages=" + total.messages() + " recipients=" + total.recipients());
+        for (RecipientIndex.RecipientCount recipient : index.top(fields[0], count)) {
+            out.write(recipient.recipient() + "\t" + recipient.messages() + "\n");
+        }
+        out.write(".\n");
+    }
+
+    private void recent(String args, Writer out) throws IOException {
+        int count = count(args, out);
+        if (count > 0) list(out, new MessageReport(store, "Sent", MessageReport.Order.NEWEST_FIRST, count).first().messages());
+    }
+
+    private void since(String args, Writer out) throws IOException {
+        String[] fields = args.trim().split(" +", 2);
+        long minutes;
+        try {
+            minutes = Long.parseLong(fields[0]);
+        } catch (NumberFormatException e) {
+            minutes = 0;
+        }
+        if (minutes < 1 || minutes > MAX_SINCE_MINUTES) {
+            error(out, "Usage: SINCE <minutes> [count], minutes between 1 and " + MAX_SINCE_MINUTES + ".");
+            return;
+        }
+        int count = count(fields.length > 1 ? fields[1] : "", out);
+        if (count <= 0) return;
+        long now = System.currentTimeMillis();
+        list(out, store.pageByTime("Sent", now - minutes * 60_000, now + 1, null, count, true));
+    }
+
+    // RECENT and SINCE's optional count; writes the error and returns 0 if it is out of range.
+    private static int count(String args, Writer out) throws IOException {
+        if (args.isBlank()) return DEFAULT_RECENT;
+        int count;
+        try {
+            count = Integer.parseInt(args.trim());
+        } catch (NumberFormatException e) {
+            count = 0;
+        }
+        if (count < 1 || count > MAX_RECENT) {
+            error(out, "Count must be between 1 and " + MAX_RECENT + ".");
+            return 0;
+        }
+        return count;
+    }
+
+    // One message per line; the text goes last so it may contain tabs.
+    static final MessageReport.Format LINE = (msg, out) -> out
+            .append(msg.messageID).append('\t')
+            .append(msg.messageNumber).append('\t')
+            .append(msg.recipient).append('\t')
+            .append(msg.messageHash).append('\t')
+            .append(msg.message).append('\n');
+
+    private static void list(Writer out, List<Message> found) throws IOException {
+        StringBuilder sb = new StringBuilder("OK ").append(found.size()).append('\n');
+        for (Message msg : found) {
+            LINE.append(msg, sb);
+        }
+        out.append(sb).append(".\n");
+    }
+
+    private static void ok(Writer out, String detail) throws IOException {
+        out.write("OK " + detail + "\n");
+    }
+
+    private static void error(Writer out, String reason) throws IOException {
+        out.write("ERR " + reason + "\n");
+    }
+}
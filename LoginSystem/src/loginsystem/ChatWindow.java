@@ -0,0 +1,313 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+
+import javax.swing.*;
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+// The chat interface after login: one window instead of the old chain of modal menus. Every send, delete,
+// search and report runs on a SwingWorker; results stream into a JTable, which only paints the visible rows,
+// so a report over a million messages starts showing at once and can be cancelled part way. Only one view
+// loads at a time: starting another, or pressing Cancel, stops the current one.
+final class ChatWindow {
+
+    private static final int SEARCH_RESULTS = 50;
+
+    private final MessageStore store;
+    private final MessageService messages;
+    private final MessageSearchIndex search;
+    private final String username;
+    private final int maxMessages;
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    // Event dispatch thread only
+    private final MessageTableModel model = new MessageTableModel();
+    private JFrame frame;
+    private JLabel status;
+    private JButton sendButton;
+    private JButton cancelButton;
+    private MessageLoader loader;
+    private String view = "";
+    private int sent;
+
+    ChatWindow(MessageStore store, MessageService messages, MessageSearchIndex search, String username, int maxMessages) {
+        this.store = store;
+        this.messages = messages;
+        this.search = search;
+        this.username = username;
+        this.maxMessages = maxMessages;
+    }
+
+    // Opens the window and blocks the calling thread, which must not be the event dispatch thread, until the
+    // user closes it.
+    void showAndWait() throws InterruptedException {
+        SwingUtilities.invokeLater(this::build);
+        closed.await();
+    }
+
+    private void build() {
+        frame = new JFrame("ChatApp - " + username);
+        frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                if (loader != null) loader.cancel(false);
+                closed.countDown();
+            }
+        });
+
+        JTextField recipient = new JTextField(14);
+        JTextField text = new JTextField(30);
+        sendButton = new JButton("Send");
+        sendButton.addActionListener(e -> send(recipient.getText().trim(), text));
+        JPanel sendRow = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        sendRow.add(new JLabel("Recipient:"));
+        sendRow.add(recipient);
+        sendRow.add(new JLabel("Message:"));
+        sendRow.add(text);
+        sendRow.add(sendButton);
+
+        JTextField query = new JTextField(20);
+        JPanel findRow = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        findRow.add(query);
+        findRow.add(button("Search text", () -> {
+            String words = query.getText().trim();
+            if (!words.isEmpty()) load("Messages matching \"" + words + "\"", () -> search.search(words, "Sent", SEARCH_RESULTS));
+        }));
+        findRow.add(button("By recipient", () -> {
+            String who = query.getText().trim();
+            if (!who.isEmpty()) load("Messages for " + who, () -> store.findByRecipient(who, "Sent"));
+        }));
+        findRow.add(button("By ID", () -> {
+            String id = query.getText().trim();
+            load("Message " + id, () -> {
+                Message msg = store.findById(id);
+                return msg != null && "Sent".equals(msg.flag) ? List.of(msg) : List.of();
+            });
+        }));
+        findRow.add(button("Delete ID", () -> deleteById(query.getText().trim())));
+        findRow.add(button("Delete recipient", () -> deleteRecipient(query.getText().trim())));
+        findRow.add(new JSeparator(SwingConstants.VERTICAL));
+        findRow.add(button("Recent", () -> load("Recent messages",
+                new MessageReport(store, "Sent", MessageReport.Order.NEWEST_FIRST))));
+        findRow.add(button("Report", () -> load("Sent by " + username,
+                new MessageReport(store, "Sent", MessageReport.Order.OLDEST_FIRST))));
+        findRow.add(button("Longest", () -> load("Longest message", () -> {
+            Message longest = store.longest("Sent");
+            return longest == null ? List.of() : List.of(longest);
+        })));
+
+        JPanel north = new JPanel();
+        north.setLayout(new BoxLayout(north, BoxLayout.Y_AXIS));
+        north.add(sendRow);
+        north.add(findRow);
+
+        JTable table = new JTable(model);
+        // No row sorter: sorting a million rows would run on the event dispatch thread
+        table.setFillsViewportHeight(true);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getColumnModel().getColumn(3).setPreferredWidth(320);
+        table.getColumnModel().getColumn(4).setPreferredWidth(260);
+
+        status = new JLabel(" ");
+        cancelButton = button("Cancel", () -> {
+            if (loader != null) loader.cancel(false);
+        });
+        cancelButton.setEnabled(false);
+        JPanel south = new JPanel(new BorderLayout());
+        south.add(status, BorderLayout.CENTER);
+        JPanel actions = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        actions.add(button("Delete selected", () -> delete(table)));
+        actions.add(cancelButton);
+        south.add(actions, BorderLayout.EAST);
+
+        frame.add(north, BorderLayout.NORTH);
+        frame.add(new JScrollPane(table), BorderLayout.CENTER);
+        frame.add(south, BorderLayout.SOUTH);
+        frame.setSize(1000, 600);
+        frame.setLocationRelativeTo(null);
+        frame.setVisible(true);
+        load("Recent messages", new MessageReport(store, "Sent", MessageReport.Order.NEWEST_FIRST));
+    }
+
+    private static JButton button(String label, Runnable action) {
+        JButton button = new JButton(label);
+        button.addActionListener(e -> action.run());
+        return button;
+    }
+
+    private void load(String title, MessageReport report) {
+        start(title, MessageLoader.of(model, report, this::showProgress));
+    }
+
+    private void load(String title, Supplier<List<Message>> result) {
+        start(title, MessageLoader.of(model, result, this::showProgress));
+    }
+
+    private void start(String title, MessageLoader next) {
+        if (loader != null) loader.cancel(false);
+        model.clear();
+        view = title;
+        loader = next;
+        cancelButton.setEnabled(true);
+        status.setText(view + ": loading...");
+        loader.execute();
+    }
+
+    // Called for every batch a loader shows; stale loaders are ignored.
+    private void showProgress(MessageLoader source) {
+        if (source != loader) return;
+        if (!source.isDone()) {
+            status.setText(String.format("%s: %,d loaded...", view, source.shown()));
+            return;
+        }
+        cancelButton.setEnabled(false);
+        try {
+            source.get();
+            status.setText(String.format("%s: %,d message%s", view, source.shown(), source.shown() == 1 ? "" : "s"));
+        } catch (CancellationException e) {
+            status.setText(String.format("%s: cancelled after %,d", view, source.shown()));
+        } catch (ExecutionException e) {
+            status.setText(view + ": failed - " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(String recipient, JTextField text) {
+        if (sent >= maxMessages) return;
+        String body = text.getText();
+        sendButton.setEnabled(false);
+        status.setText("Sending...");
+        new SwingWorker<MessageService.SendResult, Void>() {
+            @Override
+            protected MessageService.SendResult doInBackground() {
+                return messages.send(recipient, body);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    MessageService.SendResult result = get();
+                    switch (result.status()) {
+                        case SENT -> {
+                            sent++;
+                            text.setText("");
+                            status.setText(String.format("Message %s sent (%d of %d).", result.message().messageID, sent,
+                                    maxMessages));
+                        }
+                        case INVALID_RECIPIENT -> status.setText("Invalid recipient number. Please try again.");
+                        case MESSAGE_TOO_LONG -> status.setText("Please enter a message of "
+                                + MessageService.MAX_MESSAGE_LENGTH + " characters or less.");
+                        case DUPLICATE -> status.setText("Duplicate message.");
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    status.setText("Send failed: " + e.getMessage());
+                }
+                if (sent < maxMessages) {
+                    sendButton.setEnabled(true);
+                } else {
+                    JOptionPane.showMessageDialog(frame,
+                            String.format("All %d messages have been sent successfully!", maxMessages),
+                            "Batch Complete", JOptionPane.INFORMATION_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private void delete(JTable table) {
+        int row = table.getSelectedRow();
+        if (row < 0) {
+            status.setText("Select a message to delete.");
+            return;
+        }
+        Message msg = model.messageAt(row);
+        String hash = msg.messageHash;
+        new SwingWorker<Message, Void>() {
+            @Override
+            protected Message doInBackground() {
+                Message current = store.findByHash(hash);
+                return current != null && "Sent".equals(current.flag) ? store.removeByHash(hash) : null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    if (get() != null) {
+                        model.remove(msg, row);
+                        status.setText("Message with hash " + hash + " deleted successfully.");
+                    } else {
+                        status.setText("Message hash not found.");
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    status.setText("Delete failed: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    // Deletes the sent message with the ID typed into the search field.
+    private void deleteById(String id) {
+        if (id.isEmpty()) {
+            status.setText("Enter a message ID to delete.");
+            return;
+        }
+        new SwingWorker<Message, Void>() {
+            @Override
+            protected Message doInBackground() {
+                Message current = store.findById(id);
+                return current != null && "Sent".equals(current.flag) ? store.removeById(id) : null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    Message removed = get();
+                    if (removed != null) {
+                        model.remove(removed, -1);
+                        status.setText("Message " + id + " deleted successfully.");
+                    } else {
+                        status.setText("Message ID not found.");
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    status.setText("Delete failed: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    // Deletes every message to the recipient typed into the search field, whatever its flag, after asking.
+    private void deleteRecipient(String recipient) {
+        if (recipient.isEmpty()) {
+            status.setText("Enter a recipient to delete.");
+            return;
+        }
+        if (JOptionPane.showConfirmDialog(frame, "Delete every message to " + recipient + "?", "Delete Recipient",
+                JOptionPane.OK_CANCEL_OPTION) != JOptionPane.OK_OPTION) return;
+        new SwingWorker<List<Message>, Void>() {
+            @Override
+            protected List<Message> doInBackground() {
+                return store.removeByRecipient(recipient);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    List<Message> removed = get();
+                    model.removeAll(removed);
+                    status.setText(String.format("Deleted %,d message%s to %s.", removed.size(), removed.size() == 1 ? "" : "s", recipient));
+                } catch (InterruptedException | ExecutionException e) {
+                    status.setText("Delete failed: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+}
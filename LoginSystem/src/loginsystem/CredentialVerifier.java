@@ -0,0 +1,96 @@
+package loginsystem;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Dedicated, bounded pool for password hashing, so slow KDF work never runs on request threads and a burst
+// of logins queues up to a fixed depth instead of piling up unbounded work. Once the queue is full, submit()
+// fails fast with RejectedExecutionException and the caller reports the server as busy.
+// Records how long tasks wait in the queue and how long they run, so login p99 can be watched under load.
+public class CredentialVerifier implements Closeable {
+
+    // threads: pool size, normally one per core; queueCapacity: tasks allowed to wait for a thread.
+    public record Config(int threads, int queueCapacity) {
+        public static Config defaults() {
+            int cores = Runtime.getRuntime().availableProcessors();
+            return new Config(cores, 64 * cores);
+        }
+    }
+
+    // Latencies are in nanoseconds.
+    public record Stats(long completed, long rejected, int queued, long waitP50, long waitP99, long runP50, long runP99,
+                        long runMax) {
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final LatencyHistogram waitTimes = new LatencyHistogram();
+    private final LatencyHistogram runTimes = new LatencyHistogram();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public CredentialVerifier() {
+        this(Config.defaults());
+    }
+
+    public CredentialVerifier(Config config) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(config.threads(), config.threads(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.queueCapacity()),
+                r -> {
+                    // Daemon threads, so an idle verifier never keeps the app from exiting
+                    Thread t = new Thread(r, "credential-verifier-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Runs the task on the pool. The future fails with RejectedExecutionException if the queue is full.
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                waitTimes.record(startedAt - queuedAt);
+                T value = null;
+                RuntimeException failure = null;
+                try {
+                    value = task.get();
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+                // Stats first, so a caller woken by the future already sees its task counted
+                runTimes.record(System.nanoTime() - startedAt);
+                completed.increment();
+                if (failure == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(failure);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    public Stats stats() {
+        return new Stats(completed.sum(), rejected.sum(), executor.getQueue().size(),
+                waitTimes.percentile(0.50), waitTimes.percentile(0.99),
+                runTimes.percentile(0.50), runTimes.percentile(0.99), runTimes.max());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,68 @@
+package loginsystem;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free log-linear histogram of durations in nanoseconds.
+// Each power of two is split into 8 linear sub-buckets, so any reported percentile is within 12.5% of the
+// true value, over the whole range of long, in a fixed 4 KiB of counters. record() is one atomic increment.
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucket(nanos));
+        long seen = max.get();
+        while (nanos > seen && !max.compareAndSet(seen, nanos)) {
+            seen = max.get();
+        }
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    // The smallest recorded bucket bound at or above the given fraction (0..1] of samples; 0 if empty.
+    public long percentile(double fraction) {
+        long total = count();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    // Values below 2^SUB_BUCKET_BITS map one-to-one; above that, by exponent and the next 3 bits.
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long lower = (1L << exponent) | (sub << (exponent - SUB_BUCKET_BITS));
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return lower + width - 1;
+    }
+}
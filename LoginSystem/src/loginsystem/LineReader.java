@@ -0,0 +1,94 @@
+package loginsystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Reads '\n'-terminated UTF-8 lines through a small buffer, dropping a trailing '\r'.
+// Cheaper per connection than an InputStreamReader plus BufferedReader (about 24 KiB of buffers), and
+// bounded: a line longer than maxLineBytes fails instead of growing the heap.
+final class LineReader {
+
+    static final class LineTooLongException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        LineTooLongException(int maxLineBytes) {
+            super("Line longer than " + maxLineBytes + " bytes");
+        }
+    }
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private final int maxLineBytes;
+    private int pos, limit;
+    // Holds a line that spans buffer refills
+    private byte[] pending = new byte[0];
+    private int pendingLength;
+
+    LineReader(InputStream in, int bufferSize, int maxLineBytes) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+        this.maxLineBytes = maxLineBytes;
+    }
+
+    // The next line without its terminator, or null at end of stream.
+    String readLine() throws IOException {
+        while (true) {
+            if (pos == limit) {
+                int n = in.read(buffer);
+                if (n < 0) {
+                    if (pendingLength == 0) return null;
+                    return takePending();
+                }
+                pos = 0;
+                limit = n;
+            }
+            for (int i = pos; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    int start = pos;
+                    pos = i + 1;
+                    if (pendingLength == 0) {
+                        checkLength(i - start);
+                        return decode(buffer, start, i);
+                    }
+                    append(start, i);
+                    return takePending();
+                }
+            }
+            append(pos, limit);
+            pos = limit;
+        }
+    }
+
+    // Whether a complete or partial request is already buffered, i.e. the client is pipelining.
+    boolean hasBuffered() {
+        return pos < limit;
+    }
+
+    private void append(int from, int to) throws LineTooLongException {
+        int length = pendingLength + to - from;
+        checkLength(length);
+        if (length > pending.length) {
+            pending = Arrays.copyOf(pending, Math.min(maxLineBytes + 1, Math.max(length, 2 * pending.length)));
+        }
+        System.arraycopy(buffer, from, pending, pendingLength, to - from);
+        pendingLength = length;
+    }
+
+    private String takePending() {
+        String line = decode(pending, 0, pendingLength);
+        pendingLength = 0;
+        return line;
+    }
+
+    private void checkLength(int length) throws LineTooLongException {
+        // One extra byte for a '\r' before the '\n'
+        if (length > maxLineBytes + 1) throw new LineTooLongException(maxLineBytes);
+    }
+
+    private static String decode(byte[] bytes, int from, int to) {
+        if (to > from && bytes[to - 1] == '\r') to--;
+        return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,175 @@
+package loginsystem;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Login rate limiting shared by every caller of AccountService, checked before any credential work.
+// Each attempt draws from two token buckets: one per (username, source), which locks a guessed account out of
+// that source, and one per source, which caps credential stuffing spread across many usernames. Buckets are
+// GCRA cells, a single "theoretical arrival time" each, so checking one is a compare and an add.
+//
+// Buckets live in STRIPES access-ordered maps, each capped at maxEntries / STRIPES. A full stripe evicts, from
+// its least recently used end, a bucket with attempts left before one that is locked out, so a flood of fresh
+// keys cannot wipe out the lockouts it is trying to escape; memory stays bounded either way.
+// Rejected attempts never create a user bucket, so spraying usernames from a locked-out source stores nothing.
+public class LoginThrottle {
+
+    public record Config(int attemptsPerUser, long userRefillMillis, int attemptsPerSource, long sourceRefillMillis,
+                         int maxEntries) {
+
+        public Config {
+            if (attemptsPerUser < 1 || attemptsPerSource < 1 || userRefillMillis < 1 || sourceRefillMillis < 1
+                    || maxEntries < STRIPES) {
+                throw new IllegalArgumentException("Throttle limits must be positive and maxEntries at least " + STRIPES);
+            }
+        }
+    }
+
+    // 5 guesses per account and source, then one a minute; 100 attempts per source, then ten a second.
+    public static final Config DEFAULT = new Config(5, 60_000, 100, 100, 100_000);
+
+    private static final int STRIPES = 64;
+    // How far a full stripe looks from its eldest end for a bucket that is not locked out
+    private static final int EVICTION_SCAN = 8;
+
+    private record UserKey(String username, String source) {
+    }
+
+    private static final class Bucket {
+        final long tolerance;
+        long tat;
+
+        Bucket(long tolerance, long now) {
+            this.tolerance = tolerance;
+            this.tat = now;
+        }
+
+        // Would reject an attempt made now
+        boolean lockedOut(long now) {
+            return tat - now > tolerance;
+        }
+    }
+
+    private static final class Stripe extends LinkedHashMap<Object, Bucket> {
+        private static final long serialVersionUID = 1L;
+
+        Stripe() {
+            super(16, 0.75f, true);
+        }
+    }
+
+    private final Config config;
+    private final LongSupplier clock;
+    private final long userInterval;
+    private final long userTolerance;
+    private final long sourceInterval;
+    private final long sourceTolerance;
+    private final int stripeCapacity;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public LoginThrottle() {
+        this(DEFAULT);
+    }
+
+    public LoginThrottle(Config config) {
+        this(config, System::nanoTime);
+    }
+
+    LoginThrottle(Config config, LongSupplier nanoClock) {
+        this.config = config;
+        this.clock = nanoClock;
+        this.userInterval = config.userRefillMillis() * 1_000_000;
+        this.userTolerance = userInterval * (config.attemptsPerUser() - 1);
+        this.sourceInterval = config.sourceRefillMillis() * 1_000_000;
+        this.sourceTolerance = sourceInterval * (config.attemptsPerSource() - 1);
+        this.stripeCapacity = config.maxEntries() / STRIPES;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public Config config() {
+        return config;
+    }
+
+    // Takes one attempt from the source bucket, then the (username, source) bucket; false if either is empty.
+    // A rejection by the user bucket still spends the source's attempt.
+    public boolean tryAcquire(String username, String source) {
+        long now = clock.getAsLong();
+        if (take(source, now, sourceInterval, sourceTolerance) && take(new UserKey(username, source), now, userInterval, userTolerance)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    // Called after a successful login: the account's failures from this source no longer count.
+    public void reset(String username, String source) {
+        UserKey key = new UserKey(username, source);
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.remove(key);
+        }
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public long evicted() {
+        return evicted.sum();
+    }
+
+    // Buckets currently held, across all stripes; never more than maxEntries.
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private boolean take(Object key, long now, long interval, long tolerance) {
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Bucket bucket = stripe.get(key);
+            if (bucket == null) {
+                if (stripe.size() >= stripeCapacity) evict(stripe, now);
+                bucket = new Bucket(tolerance, now);
+                stripe.put(key, bucket);
+            }
+            // GCRA: allowed while the arrival time is no more than the burst tolerance ahead of now
+            if (bucket.lockedOut(now)) return false;
+            bucket.tat = Math.max(bucket.tat, now) + interval;
+            return true;
+        }
+    }
+
+    // Drops the first bucket near the eldest end that is not locked out, or the eldest if all scanned are.
+    private void evict(Stripe stripe, long now) {
+        Iterator<Bucket> it = stripe.values().iterator();
+        for (int i = 0; i < EVICTION_SCAN && it.hasNext(); i++) {
+            if (!it.next().lockedOut(now)) {
+                it.remove();
+                evicted.increment();
+                return;
+            }
+        }
+        Iterator<Map.Entry<Object, Bucket>> eldest = stripe.entrySet().iterator();
+        eldest.next();
+        eldest.remove();
+        evicted.increment();
+    }
+
+    private Stripe stripe(Object key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+}
@@ -0,0 +1,95 @@
+package loginsystem;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Reclaims the tombstones MessageStore leaves behind on delete. Once tombstones reach deadFraction of the
+// messages the store links, live and dead, a pass runs compact() slice by slice, sliceSize tombstones per slice,
+// releasing the write lock and yielding between slices, so readers and writers wait for one slice at most,
+// never for the whole pass.
+// start() checks on a daemon thread every periodMillis.
+public final class MessageCompactor implements Closeable {
+
+    public record Config(int sliceSize, double deadFraction, long periodMillis) {
+
+        public Config {
+            if (sliceSize < 1 || periodMillis < 1) throw new IllegalArgumentException("sliceSize and periodMillis must be positive");
+            if (!(deadFraction > 0 && deadFraction <= 1)) throw new IllegalArgumentException("deadFraction must be in (0, 1]");
+        }
+    }
+
+    // Slices of 256 tombstones, about half a millisecond each (see bench/CompactionBenchmark); compact once a
+    // quarter of the messages are dead, checked every ten seconds.
+    public static final Config DEFAULT = new Config(256, 0.25, 10_000);
+
+    private final MessageStore store;
+    private final Config config;
+    private final LongAdder passes = new LongAdder();
+    private final LongAdder slices = new LongAdder();
+    private final LongAdder reclaimed = new LongAdder();
+    private ScheduledExecutorService scheduler;
+
+    public MessageCompactor(MessageStore store, Config config) {
+        this.store = store;
+        this.config = config;
+    }
+
+    public static MessageCompactor start(MessageStore store, Config config) {
+        MessageCompactor compactor = new MessageCompactor(store, config);
+        compactor.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "message-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                compactor.runOnce();
+            } catch (RuntimeException e) {
+                // A failed pass is picked up again on the next check
+                System.err.println("Message compaction failed: " + e);
+            }
+        }, config.periodMillis(), config.periodMillis(), TimeUnit.MILLISECONDS);
+        return compactor;
+    }
+
+    public Config config() {
+        return config;
+    }
+
+    // Runs a pass if one is due, until no tombstones are left; returns how many it reclaimed.
+    public int runOnce() {
+        int dead = store.tombstones();
+        if (dead == 0 || dead < config.deadFraction() * (dead + store.size())) return 0;
+        passes.increment();
+        int freed = 0;
+        int unlinked;
+        do {
+            unlinked = store.compact(config.sliceSize());
+            freed += unlinked;
+            slices.increment();
+            if (unlinked == config.sliceSize()) Thread.yield();
+        } while (unlinked == config.sliceSize());
+        reclaimed.add(freed);
+        return freed;
+    }
+
+    public long passes() {
+        return passes.sum();
+    }
+
+    public long slices() {
+        return slices.sum();
+    }
+
+    public long reclaimed() {
+        return reclaimed.sum();
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+}
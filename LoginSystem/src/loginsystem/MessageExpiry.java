@@ -0,0 +1,125 @@
+package loginsystem;
+
+import java.io.Closeable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Retention: drops messages older than a time-to-live set per flag, e.g. Disregarded after seven days, so the
+// store stops growing until restart. Flags without a TTL are kept forever.
+//
+// A sweep takes each flag's expired messages from the old end of the store's time index, batchSize at a time,
+// each batch removed under one write lock and the lock released between batches, so readers and senders are
+// held up for one batch at most. Only expired messages are visited; nothing is scanned. Removals reach store
+// listeners like any delete, so the message log, search index and stats follow.
+// start() runs sweeps on a daemon thread every periodMillis.
+public final class MessageExpiry implements Closeable {
+
+    public record Config(Map<String, Long> ttlMillis, int batchSize, long periodMillis) {
+
+        public Config {
+            if (batchSize < 1 || periodMillis < 1) throw new IllegalArgumentException("batchSize and periodMillis must be positive");
+            for (Map.Entry<String, Long> ttl : ttlMillis.entrySet()) {
+                if (ttl.getValue() < 1) throw new IllegalArgumentException("TTL for " + ttl.getKey() + " must be positive");
+            }
+            ttlMillis = Map.copyOf(ttlMillis);
+        }
+
+        // The given TTLs, removed 1000 at a time, swept every minute.
+        public static Config of(Map<String, Long> ttlMillis) {
+            return new Config(ttlMillis, 1_000, 60_000);
+        }
+
+        // Parses "Flag=duration[,Flag=duration...]" where a duration is a number followed by d, h, m or s,
+        // e.g. "Disregarded=7d,Stored=12h".
+        public static Config parse(String spec) {
+            Map<String, Long> ttls = new LinkedHashMap<>();
+            for (String entry : spec.split(",")) {
+                int eq = entry.indexOf('=');
+                if (eq <= 0 || eq == entry.length() - 1) throw new IllegalArgumentException("Expected Flag=duration: " + entry);
+                ttls.put(entry.substring(0, eq).trim(), parseDuration(entry.substring(eq + 1).trim()));
+            }
+            return of(ttls);
+        }
+
+        private static long parseDuration(String duration) {
+            long unit = switch (duration.charAt(duration.length() - 1)) {
+                case 'd' -> TimeUnit.DAYS.toMillis(1);
+                case 'h' -> TimeUnit.HOURS.toMillis(1);
+                case 'm' -> TimeUnit.MINUTES.toMillis(1);
+                case 's' -> TimeUnit.SECONDS.toMillis(1);
+                default -> throw new IllegalArgumentException("Duration needs a unit of d, h, m or s: " + duration);
+            };
+            return Math.multiplyExact(Long.parseLong(duration.substring(0, duration.length() - 1)), unit);
+        }
+    }
+
+    private final MessageStore store;
+    private final Config config;
+    private final LongSupplier clock;
+    private final LongAdder expired = new LongAdder();
+    private ScheduledExecutorService scheduler;
+
+    public MessageExpiry(MessageStore store, Config config) {
+        this(store, config, System::currentTimeMillis);
+    }
+
+    // clock returns epoch milliseconds.
+    MessageExpiry(MessageStore store, Config config, LongSupplier clock) {
+        this.store = store;
+        this.config = config;
+        this.clock = clock;
+    }
+
+    public static MessageExpiry start(MessageStore store, Config config) {
+        MessageExpiry expiry = new MessageExpiry(store, config);
+        expiry.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "message-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+        expiry.scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                expiry.sweep();
+            } catch (RuntimeException e) {
+                // A failed sweep is retried on the next tick; stopping would let the store grow again
+                System.err.println("Message expiry failed: " + e);
+            }
+        }, 0, config.periodMillis(), TimeUnit.MILLISECONDS);
+        return expiry;
+    }
+
+    public Config config() {
+        return config;
+    }
+
+    // Removes every message past its flag's TTL; returns how many.
+    public int sweep() {
+        long now = clock.getAsLong();
+        int removed = 0;
+        for (Map.Entry<String, Long> ttl : config.ttlMillis().entrySet()) {
+            long cutoff = now - ttl.getValue();
+            int batch;
+            do {
+                batch = store.removeOlderThan(ttl.getKey(), cutoff, config.batchSize()).size();
+                removed += batch;
+            } while (batch == config.batchSize());
+        }
+        expired.add(removed);
+        return removed;
+    }
+
+    // Messages removed since this expiry was made.
+    public long expired() {
+        return expired.sum();
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+}
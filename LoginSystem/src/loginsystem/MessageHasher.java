@@ -0,0 +1,140 @@
+package loginsystem;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// SHA-256 message hashes, bit-for-bit identical to hashing (messageID + msgNumber + recipient + message).getBytes(UTF-8).
+// Each thread reuses one digest and scratch buffer; fields are encoded to UTF-8 straight into the buffer,
+// so neither the concatenated string nor its byte[] is ever built, and hex output comes from a lookup table.
+public final class MessageHasher {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final int BUFFER_SIZE = 512;
+
+    private static final ThreadLocal<MessageHasher> LOCAL = ThreadLocal.withInitial(MessageHasher::new);
+
+    private final MessageDigest digest;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final byte[] hex = new byte[64];
+    private int pos;
+
+    private MessageHasher() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static String hash(String messageID, int msgNumber, String recipient, String message) {
+        long started = Metrics.global().start(Metrics.Operation.MESSAGE_HASH);
+        String hash = LOCAL.get().compute(messageID, msgNumber, recipient, message);
+        Metrics.global().stop(Metrics.Operation.MESSAGE_HASH, started);
+        return hash;
+    }
+
+    public static String toHex(byte[] hash) {
+        return LOCAL.get().encodeHex(hash);
+    }
+
+    // Inverse of toHex for a 32-byte digest: null unless the string is exactly 64 lowercase hex digits,
+    // so the round trip always reproduces the original string.
+    public static byte[] fromHex(String hex) {
+        if (hex == null || hex.length() != 64) return null;
+        byte[] hash = new byte[32];
+        for (int i = 0; i < 32; i++) {
+            int high = hexValue(hex.charAt(2 * i));
+            int low = hexValue(hex.charAt(2 * i + 1));
+            if (high < 0 || low < 0) return null;
+            hash[i] = (byte) (high << 4 | low);
+        }
+        return hash;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        return -1;
+    }
+
+    private String compute(String messageID, int msgNumber, String recipient, String message) {
+        feed(messageID, msgNumber, recipient, message);
+        return encodeHex(digest.digest());
+    }
+
+    private void feed(String messageID, int msgNumber, String recipient, String message) {
+        pos = 0;
+        writeUtf8(String.valueOf((Object) messageID));
+        writeInt(msgNumber);
+        writeUtf8(String.valueOf((Object) recipient));
+        writeUtf8(String.valueOf((Object) message));
+        digest.update(buffer, 0, pos);
+    }
+
+    private String encodeHex(byte[] hash) {
+        byte[] out = hash.length == 32 ? hex : new byte[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            out[2 * i] = HEX[(hash[i] >> 4) & 0xf];
+            out[2 * i + 1] = HEX[hash[i] & 0xf];
+        }
+        return new String(out, 0, hash.length * 2, StandardCharsets.ISO_8859_1);
+    }
+
+    // Makes room for at least n more bytes by flushing the buffer into the digest.
+    private void reserve(int n) {
+        if (pos + n > buffer.length) {
+            digest.update(buffer, 0, pos);
+            pos = 0;
+        }
+    }
+
+    private void writeInt(int value) {
+        reserve(11);
+        long v = value;
+        if (v < 0) {
+            buffer[pos++] = '-';
+            v = -v;
+        }
+        int start = pos;
+        do {
+            buffer[pos++] = (byte) ('0' + (v % 10));
+            v /= 10;
+        } while (v != 0);
+        for (int i = start, j = pos - 1; i < j; i++, j--) {
+            byte tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+    }
+
+    // Same output as String.getBytes(UTF_8), including '?' for unpaired surrogates.
+    private void writeUtf8(String s) {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            reserve(4);
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[pos++] = (byte) (0xc0 | (c >> 6));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buffer[pos++] = (byte) (0xf0 | (cp >> 18));
+                    buffer[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                    buffer[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                    buffer[pos++] = (byte) (0x80 | (cp & 0x3f));
+                } else {
+                    buffer[pos++] = '?';
+                }
+            } else {
+                buffer[pos++] = (byte) (0xe0 | (c >> 12));
+                buffer[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package loginsystem;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Unique 10-digit numeric message IDs without locks or a shared Random.
+// IDs are handed out in blocks: a global counter reserves whole blocks, and each thread draws IDs from the
+// block of its stripe with a single CAS. Stripes are picked by thread ID, so sender threads rarely touch the
+// same cache line and throughput scales with threads. A block belongs to exactly one stripe, so an ID is
+// never issued twice; the only cost of a lost race is an unused block.
+public final class MessageIdGenerator {
+
+    public static final int ID_LENGTH = 10;
+    public static final long MAX_ID = 9_999_999_999L;
+
+    private static final int DEFAULT_BLOCK_SIZE = 1024;
+    // Stripes are spaced 16 longs (128 bytes) apart to keep them on separate cache lines
+    private static final int STRIPE_SPACING = 16;
+
+    private final AtomicLong nextBlock = new AtomicLong();
+    private final AtomicLongArray stripes;
+    private final int stripeMask;
+    private final int blockSize;
+    private volatile long firstId;
+
+    public MessageIdGenerator() {
+        this(1, DEFAULT_BLOCK_SIZE);
+    }
+
+    public MessageIdGenerator(long firstId, int blockSize) {
+        if (firstId < 0 || firstId > MAX_ID) throw new IllegalArgumentException("firstId out of range: " + firstId);
+        if (blockSize < 1) throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+        this.firstId = firstId;
+        this.blockSize = blockSize;
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) << 1;
+        this.stripeMask = stripeCount - 1;
+        // Each stripe holds the offset (relative to firstId) of its next ID; an offset on a block boundary
+        // means the stripe's block is used up, which is also true of the initial 0
+        this.stripes = new AtomicLongArray(stripeCount * STRIPE_SPACING);
+    }
+
+    public String next() {
+        return format(nextLong());
+    }
+
+    public long nextLong() {
+        int slot = (int) (mix(Thread.currentThread().threadId()) & stripeMask) * STRIPE_SPACING;
+        while (true) {
+            long offset = stripes.get(slot);
+            long id;
+            long updated;
+            if (offset % blockSize == 0) {
+                id = nextBlock.getAndIncrement() * blockSize;
+                updated = id + 1;
+            } else {
+                id = offset;
+                updated = offset + 1;
+            }
+            if (stripes.compareAndSet(slot, offset, updated)) {
+                long result = firstId + id;
+                if (result > MAX_ID) throw new IllegalStateException("Message ID space exhausted");
+                return result;
+            }
+        }
+    }
+
+    // Ensures every ID issued from now on is greater than the given one, e.g. after recovering stored messages.
+    // Call before IDs are handed out concurrently: blocks already held by stripes are discarded.
+    public synchronized void advancePast(long id) {
+        // Unclaimed blocks already start past every issued ID, so only a higher ID moves the base
+        if (id >= firstId + nextBlock.get() * blockSize) {
+            firstId = id + 1;
+            nextBlock.set(0);
+        }
+        for (int i = 0; i < stripes.length(); i += STRIPE_SPACING) {
+            stripes.set(i, 0);
+        }
+    }
+
+    // Zero-padded 10-digit form, e.g. 42 -> "0000000042".
+    public static String format(long id) {
+        if (id < 0 || id > MAX_ID) throw new IllegalArgumentException("Message ID out of range: " + id);
+        byte[] digits = new byte[ID_LENGTH];
+        for (int i = ID_LENGTH - 1; i >= 0; i--) {
+            digits[i] = (byte) ('0' + (id % 10));
+            id /= 10;
+        }
+        return new String(digits, StandardCharsets.ISO_8859_1);
+    }
+
+    // Numeric value of a 10-digit ID, or -1 if the string is not one.
+    public static long parse(String id) {
+        if (id == null || id.length() != ID_LENGTH) return -1;
+        long value = 0;
+        for (int i = 0; i < ID_LENGTH; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    // Spreads sequential thread IDs across stripes
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        return x;
+    }
+}
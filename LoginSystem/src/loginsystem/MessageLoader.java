@@ -0,0 +1,75 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+
+import javax.swing.SwingWorker;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Fills a MessageTableModel off the event dispatch thread. Pages are fetched on a worker thread and appended
+// as they arrive, so the first rows show at once and the window stays responsive while the rest stream in.
+// cancel() stops it between pages; pages already fetched but not yet shown are dropped, so a cancelled
+// loader never touches the model again and the next view can reuse it.
+public final class MessageLoader extends SwingWorker<Long, List<Message>> {
+
+    private final MessageTableModel model;
+    private final Function<Integer, MessageReport.Page> pages;
+    private final Consumer<MessageLoader> onUpdate;
+    private long shown;
+
+    // pages returns the page after a cursor, null meaning the first; onUpdate gets this loader on the event
+    // dispatch thread after each batch of rows is shown and once more when loading ends.
+    public MessageLoader(MessageTableModel model, Function<Integer, MessageReport.Page> pages,
+                         Consumer<MessageLoader> onUpdate) {
+        this.model = model;
+        this.pages = pages;
+        this.onUpdate = onUpdate;
+    }
+
+    // Streams a whole report.
+    public static MessageLoader of(MessageTableModel model, MessageReport report, Consumer<MessageLoader> onUpdate) {
+        return new MessageLoader(model, report::page, onUpdate);
+    }
+
+    // Shows a result computed in one go, such as a search, still computed off the event dispatch thread.
+    public static MessageLoader of(MessageTableModel model, Supplier<List<Message>> result,
+                                   Consumer<MessageLoader> onUpdate) {
+        return new MessageLoader(model, cursor -> new MessageReport.Page(result.get(), null), onUpdate);
+    }
+
+    @Override
+    protected Long doInBackground() {
+        long fetched = 0;
+        Integer cursor = null;
+        while (!isCancelled()) {
+            MessageReport.Page page = pages.apply(cursor);
+            fetched += page.messages().size();
+            publish(page.messages());
+            if (!page.hasMore()) break;
+            cursor = page.next();
+        }
+        return fetched;
+    }
+
+    @Override
+    protected void process(List<List<Message>> batches) {
+        if (isCancelled()) return;
+        for (List<Message> batch : batches) {
+            model.append(batch);
+            shown += batch.size();
+        }
+        onUpdate.accept(this);
+    }
+
+    @Override
+    protected void done() {
+        onUpdate.accept(this);
+    }
+
+    // Rows this loader has added to the model so far. Event dispatch thread only.
+    public long shown() {
+        return shown;
+    }
+}
@@ -0,0 +1,491 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Durable, append-only log of every change to a MessageStore, split into fixed-size segment files.
+//
+// Record layout: [int payload length][int CRC32C of payload][payload], where the payload is a type byte
+// followed by the message fields (ADD), the message hash (REMOVE) or the hash and new flag (FLAG). Callers
+// only encode the record and enqueue it; a single writer thread drains whatever has queued up and writes it
+// with one call (group commit), then fsyncs according to Config.fsyncIntervalMillis. Recovery memory-maps the
+// segments, decodes them in parallel, applies them in order and truncates a torn tail left by a crash.
+//
+// Records are enqueued from the store listener, so under the store's write lock. While the queue holds fewer
+// than queueCapacity records that costs nothing, but once a slow disk lets it fill, the enqueue waits for the
+// writer with the lock still held: every sender and reader of the store stalls until the writer catches up.
+// That backpressure is deliberate, since not waiting would mean an unbounded queue or losing records the
+// store has already applied. Size queueCapacity for the longest write stall the disk may take at peak rate.
+public class MessageLog implements MessageStore.Listener, Closeable {
+
+    // fsyncIntervalMillis: 0 fsyncs every group commit, > 0 at most once per interval, < 0 leaves it to the OS.
+    public record Config(long segmentBytes, long fsyncIntervalMillis, int queueCapacity) {
+        public Config {
+            if (segmentBytes < 1024 || segmentBytes > MAX_SEGMENT_BYTES) {
+                throw new IllegalArgumentException("segmentBytes must be between 1 KiB and 1 GiB: " + segmentBytes);
+            }
+            if (queueCapacity < 1) throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+        }
+
+        public static Config defaults() {
+            return new Config(64L << 20, 0, 65_536);
+        }
+    }
+
+    public record RecoveryStats(long records, int maxMessageNumber, long maxMessageID, long truncatedBytes) {
+    }
+
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final int HEADER_BYTES = 8;
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte FLAG = 3;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path dir;
+    private final Config config;
+
+    // Hand-off between appending threads and the writer, guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition written = lock.newCondition();
+    private ArrayDeque<byte[]> pending = new ArrayDeque<>();
+    private long appendedSeq;
+    private long writtenSeq;
+    private boolean syncRequested;
+    private boolean closed;
+    private IOException failure;
+
+    // Writer thread state
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(1 << 20);
+    private FileChannel channel;
+    private long segmentIndex;
+    private long segmentSize;
+    private long lastSyncNanos;
+    private boolean dirty;
+    private Thread writer;
+
+    private RecoveryStats recoveryStats;
+
+    private MessageLog(Path dir, Config config) {
+        this.dir = dir;
+        this.config = config;
+    }
+
+    // Replays the log in dir into the store, then logs every later change made to it.
+    public static MessageLog open(Path dir, Config config, MessageStore store) throws IOException {
+        MessageLog log = new MessageLog(dir, config);
+        Files.createDirectories(dir);
+        log.recoveryStats = log.recover(store);
+        log.writer = new Thread(log::writeLoop, "message-log-writer");
+        log.writer.setDaemon(true);
+        log.writer.start();
+        store.addListener(log);
+        return log;
+    }
+
+    public RecoveryStats getRecoveryStats() {
+        return recoveryStats;
+    }
+
+    @Override
+    public void onAdd(Message msg) {
+        append(encodeAdd(msg));
+    }
+
+    @Override
+    public void onRemove(Message msg) {
+        append(encodeRemove(msg.messageHash));
+    }
+
+    @Override
+    public void onFlagChange(Message msg, String from) {
+        append(encodeFlag(msg.messageHash, msg.flag));
+    }
+
+    // Blocks until every record appended so far is written and fsynced, regardless of the fsync policy.
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            long target = appendedSeq;
+            syncRequested = true;
+            notEmpty.signal();
+            awaitWritten(target);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Drains and fsyncs outstanding records, then stops the writer.
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            notEmpty.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing message log", e);
+        }
+        if (failure != null) throw failure;
+    }
+
+    // Runs under the store's write lock; waits while the queue is full (see the class comment).
+    private void append(byte[] record) {
+        lock.lock();
+        try {
+            while (pending.size() >= config.queueCapacity() && !closed && failure == null) {
+                notFull.awaitUninterruptibly();
+            }
+            if (failure != null) throw new UncheckedIOException("Message log write failed", failure);
+            if (closed) throw new IllegalStateException("Message log is closed");
+            pending.add(record);
+            appendedSeq++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitWritten(long seq) throws IOException {
+        while (writtenSeq < seq && failure == null) {
+            written.awaitUninterruptibly();
+        }
+        if (failure != null) throw failure;
+    }
+
+    // Record encoding
+
+    private static byte[] encodeAdd(Message msg) {
+        byte[] flag = msg.flag.getBytes(StandardCharsets.UTF_8);
+        byte[] id = msg.messageID.getBytes(StandardCharsets.UTF_8);
+        byte[] hash = msg.messageHash.getBytes(StandardCharsets.UTF_8);
+        byte[] recipient = msg.recipient.getBytes(StandardCharsets.UTF_8);
+        byte[] text = msg.message.getBytes(StandardCharsets.UTF_8);
+        int payload = 1 + 4 + 8 + 5 * 4 + flag.length + id.length + hash.length + recipient.length + text.length;
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + payload);
+        buf.position(HEADER_BYTES);
+        buf.put(ADD).putInt(msg.messageNumber).putLong(msg.createdAt);
+        putBytes(buf, flag);
+        putBytes(buf, id);
+        putBytes(buf, hash);
+        putBytes(buf, recipient);
+        putBytes(buf, text);
+        return seal(buf);
+    }
+
+    private static byte[] encodeRemove(String messageHash) {
+        byte[] hash = messageHash.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + 1 + 4 + hash.length);
+        buf.position(HEADER_BYTES);
+        buf.put(REMOVE);
+        putBytes(buf, hash);
+        return seal(buf);
+    }
+
+    private static byte[] encodeFlag(String messageHash, String flag) {
+        byte[] hash = messageHash.getBytes(StandardCharsets.UTF_8);
+        byte[] flagBytes = flag.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + 1 + 8 + hash.length + flagBytes.length);
+        buf.position(HEADER_BYTES);
+        buf.put(FLAG);
+        putBytes(buf, hash);
+        putBytes(buf, flagBytes);
+        return seal(buf);
+    }
+
+    private static void putBytes(ByteBuffer buf, byte[] bytes) {
+        buf.putInt(bytes.length).put(bytes);
+    }
+
+    private static byte[] seal(ByteBuffer buf) {
+        byte[] record = buf.array();
+        CRC32C crc = new CRC32C();
+        crc.update(record, HEADER_BYTES, record.length - HEADER_BYTES);
+        buf.putInt(0, record.length - HEADER_BYTES).putInt(4, (int) crc.getValue());
+        return record;
+    }
+
+    // Writer thread
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                ArrayDeque<byte[]> batch;
+                long batchEnd;
+                boolean forceSync;
+                lock.lock();
+                try {
+                    while (pending.isEmpty() && !closed && !syncRequested) {
+                        if (dirty && config.fsyncIntervalMillis() > 0) {
+                            // Idle with unsynced data: wake up in time to honour the interval
+                            if (notEmpty.awaitNanos(TimeUnit.MILLISECONDS.toNanos(config.fsyncIntervalMillis())) <= 0) break;
+                        } else {
+                            notEmpty.awaitUninterruptibly();
+                        }
+                    }
+                    if (pending.isEmpty() && closed) break;
+                    batch = pending;
+                    pending = new ArrayDeque<>();
+                    batchEnd = appendedSeq;
+                    forceSync = syncRequested;
+                    syncRequested = false;
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+
+                writeBatch(batch);
+                maybeSync(forceSync);
+
+                lock.lock();
+                try {
+                    writtenSeq = batchEnd;
+                    written.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+            }
+        } catch (IOException | InterruptedException e) {
+            lock.lock();
+            try {
+                failure = e instanceof IOException io ? io : new IOException("Message log writer interrupted", e);
+                notFull.signalAll();
+                written.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void writeBatch(ArrayDeque<byte[]> batch) throws IOException {
+        for (byte[] record : batch) {
+            if (segmentSize > 0 && segmentSize + writeBuffer.position() + record.length > config.segmentBytes()) {
+                flushBuffer();
+                rollSegment();
+            }
+            if (record.length > writeBuffer.remaining()) {
+                flushBuffer();
+                if (record.length > writeBuffer.capacity()) {
+                    writeFully(ByteBuffer.wrap(record));
+                    continue;
+                }
+            }
+            writeBuffer.put(record);
+        }
+        flushBuffer();
+    }
+
+    private void flushBuffer() throws IOException {
+        if (writeBuffer.position() == 0) return;
+        writeBuffer.flip();
+        writeFully(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            segmentSize += channel.write(buf);
+        }
+        dirty = true;
+    }
+
+    private void maybeSync(boolean force) throws IOException {
+        long interval = config.fsyncIntervalMillis();
+        long now = System.nanoTime();
+        boolean due = interval == 0 || (interval > 0 && now - lastSyncNanos >= TimeUnit.MILLISECONDS.toNanos(interval));
+        if (dirty && (force || due)) {
+            channel.force(false);
+            dirty = false;
+            lastSyncNanos = now;
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        channel.force(false);
+        channel.close();
+        segmentIndex++;
+        channel = FileChannel.open(segmentPath(segmentIndex), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentSize = 0;
+    }
+
+    private Path segmentPath(long index) {
+        return dir.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    // Recovery
+
+    private record FlagChange(String messageHash, String flag) {
+    }
+
+    // One decoded segment: ADD records as Message, REMOVE records as the hash String, FLAG records as FlagChange
+    private record Segment(Path path, List<Object> operations, long validBytes, long fileBytes) {
+    }
+
+    private RecoveryStats recover(MessageStore store) throws IOException {
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(dir)) {
+            segments = files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+
+        long records = 0;
+        int maxNumber = 0;
+        long maxId = -1;
+        long truncated = 0;
+        int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors());
+        ExecutorService decoders = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "message-log-recovery");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            // Decode up to `parallelism` segments ahead of the one being applied to bound memory
+            ArrayDeque<Future<Segment>> window = new ArrayDeque<>();
+            int next = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                while (next < segments.size() && window.size() < parallelism) {
+                    Path path = segments.get(next++);
+                    window.add(decoders.submit(() -> decode(path)));
+                }
+                Segment segment = await(window.poll());
+                boolean last = i == segments.size() - 1;
+                if (segment.validBytes() < segment.fileBytes()) {
+                    if (!last) throw new IOException("Corrupt record in " + segment.path() + " at byte " + segment.validBytes());
+                    truncated = segment.fileBytes() - segment.validBytes();
+                }
+                for (Object op : segment.operations()) {
+                    if (op instanceof Message msg) {
+                        store.add(msg);
+                        maxNumber = Math.max(maxNumber, msg.messageNumber);
+                        maxId = Math.max(maxId, MessageIdGenerator.parse(msg.messageID));
+                    } else if (op instanceof FlagChange change) {
+                        Message msg = store.findByHash(change.messageHash());
+                        if (msg != null) store.changeFlag(change.messageHash(), msg.flag, change.flag());
+                    } else {
+                        store.removeByHash((String) op);
+                    }
+                    records++;
+                }
+                if (last) {
+                    segmentSize = segment.validBytes();
+                }
+            }
+        } finally {
+            decoders.shutdownNow();
+        }
+
+        if (segments.isEmpty()) {
+            channel = FileChannel.open(segmentPath(0), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } else {
+            channel = FileChannel.open(segments.get(segments.size() - 1), StandardOpenOption.WRITE);
+            channel.truncate(segmentSize);
+            channel.position(segmentSize);
+            segmentIndex = parseSegmentIndex(segments.get(segments.size() - 1));
+        }
+        lastSyncNanos = System.nanoTime();
+        return new RecoveryStats(records, maxNumber, maxId, truncated);
+    }
+
+    private static long parseSegmentIndex(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static Segment await(Future<Segment> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during recovery", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException("Failed to decode message log", e.getCause());
+        }
+    }
+
+    // Decodes records until the end of the file or the first torn or corrupt record.
+    private static Segment decode(Path path) throws IOException {
+        List<Object> operations = new ArrayList<>();
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32C crc = new CRC32C();
+            byte[] scratch = new byte[256];
+            int pos = 0;
+            while (size - pos >= HEADER_BYTES) {
+                int length = buf.getInt(pos);
+                int checksum = buf.getInt(pos + 4);
+                if (length <= 0 || length > size - pos - HEADER_BYTES) break;
+                crc.reset();
+                crc.update(buf.slice(pos + HEADER_BYTES, length));
+                if ((int) crc.getValue() != checksum) break;
+
+                buf.position(pos + HEADER_BYTES);
+                byte type = buf.get();
+                if (type == ADD) {
+                    int number = buf.getInt();
+                    long createdAt = buf.getLong();
+                    String flag = getString(buf, scratch);
+                    String id = getString(buf, scratch);
+                    String hash = getString(buf, scratch);
+                    String recipient = getString(buf, scratch);
+                    String text = getString(buf, scratch);
+                    operations.add(new Message(id, number, recipient, text, hash, flag, createdAt));
+                } else if (type == REMOVE) {
+                    operations.add(getString(buf, scratch));
+                } else if (type == FLAG) {
+                    operations.add(new FlagChange(getString(buf, scratch), getString(buf, scratch)));
+                } else {
+                    break;
+                }
+                pos += HEADER_BYTES + length;
+            }
+            return new Segment(path, operations, pos, size);
+        }
+    }
+
+    private static String getString(ByteBuffer buf, byte[] scratch) {
+        int length = buf.getInt();
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buf.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
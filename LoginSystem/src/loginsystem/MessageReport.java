@@ -0,0 +1,110 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// Cursor-based, paginated view of the messages carrying one flag.
+// Each page is fetched under the store's read lock and only one page is held at a time, so a report over
+// millions of messages streams in constant memory. The cursor is the last message number returned: sends
+// and deletes between pages never make a page repeat or skip a message that was present throughout.
+public class MessageReport {
+
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+
+    public enum Order {
+        OLDEST_FIRST, NEWEST_FIRST
+    }
+
+    // Renders one message; the report appends each page's output to a shared buffer before writing it.
+    @FunctionalInterface
+    public interface Format {
+        void append(Message msg, StringBuilder out);
+    }
+
+    // The Report dialog's layout
+    public static final Format FULL = (msg, out) -> out
+            .append("Message Hash: ").append(msg.messageHash).append('\n')
+            .append("Recipient: ").append(msg.recipient).append('\n')
+            .append("Message: ").append(msg.message).append("\n\n");
+
+    // The Recent Messages dialog's layout
+    public static final Format SUMMARY = (msg, out) -> out
+            .append("Message #").append(msg.messageNumber).append(":\n")
+            .append("  To: ").append(msg.recipient).append('\n')
+            .append("  Text: ").append(msg.message).append('\n')
+            .append("  ID: ").append(msg.messageID).append('\n')
+            .append("  Hash: ").append(msg.messageHash, 0, Math.min(16, msg.messageHash.length())).append("...\n\n");
+
+    // next is the cursor for the following page, or null when this is the last page.
+    public record Page(List<Message> messages, Integer next) {
+        public boolean hasMore() {
+            return next != null;
+        }
+    }
+
+    private final MessageStore store;
+    private final String flag;
+    private final Order order;
+    private final int pageSize;
+
+    public MessageReport(MessageStore store, String flag, Order order, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+        this.store = store;
+        this.flag = flag;
+        this.order = order;
+        this.pageSize = pageSize;
+    }
+
+    public MessageReport(MessageStore store, String flag, Order order) {
+        this(store, flag, order, DEFAULT_PAGE_SIZE);
+    }
+
+    public Page first() {
+        return page(null);
+    }
+
+    // The page after the given cursor; null starts from the beginning.
+    public Page page(Integer cursor) {
+        // One extra message tells us whether another page follows without an empty final fetch
+        List<Message> messages = store.page(flag, cursor, pageSize + 1, order == Order.NEWEST_FIRST);
+        if (messages.size() <= pageSize) {
+            return new Page(messages, null);
+        }
+        List<Message> page = messages.subList(0, pageSize);
+        return new Page(page, page.get(pageSize - 1).messageNumber);
+    }
+
+    // Streams every page to out and returns the number of messages written. Does not close out.
+    public long writeTo(Writer out, Format format) throws IOException {
+        StringBuilder buffer = new StringBuilder();
+        long written = 0;
+        Page page = first();
+        while (true) {
+            buffer.setLength(0);
+            for (Message msg : page.messages()) {
+                format.append(msg, buffer);
+            }
+            out.append(buffer);
+            written += page.messages().size();
+            if (!page.hasMore()) return written;
+            page = page(page.next());
+        }
+    }
+
+    // Streams every page to out as UTF-8. Flushes but does not close out.
+    public long writeTo(OutputStream out, Format format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        long written = writeTo(writer, format);
+        writer.flush();
+        return written;
+    }
+}
@@ -0,0 +1,371 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-process inverted index over message text, kept up to date as messages are sent and deleted.
+// Text splits into lowercase runs of letters and digits; each term maps to a PostingList of message numbers.
+// Queries are whitespace-separated words that must all match, "word*" for a prefix and OR between alternatives:
+//   "dinner tonight", "din*", "cake OR pie", "birthday cake OR party*"
+// Each AND clause starts from its rarest term and probes the others, so selective queries never decode the
+// postings of common words. Results rank by the number of OR clauses matched, then newest first.
+// Thread-safe: updates arrive through MessageStore.Listener under the store's write lock and take this index's
+// write lock; queries take its read lock, then resolve message numbers through the store.
+public final class MessageSearchIndex implements MessageStore.Listener {
+
+    private static final int[] NONE = new int[0];
+
+    private final MessageStore store;
+    private final NavigableMap<String, PostingList> terms = new TreeMap<>();
+    private final Map<String, PostingList> flags = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int documents;
+
+    // Indexes the store's current messages, then follows every later add and remove.
+    public MessageSearchIndex(MessageStore store) {
+        this.store = store;
+        store.subscribe(this);
+    }
+
+    @Override
+    public void onAdd(Message msg) {
+        Set<String> distinct = new LinkedHashSet<>(tokenize(msg.message));
+        lock.writeLock().lock();
+        try {
+            for (String term : distinct) {
+                terms.computeIfAbsent(term, k -> new PostingList()).add(msg.messageNumber);
+            }
+            if (flags.computeIfAbsent(msg.flag, k -> new PostingList()).add(msg.messageNumber)) documents++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onRemove(Message msg) {
+        Set<String> distinct = new LinkedHashSet<>(tokenize(msg.message));
+        lock.writeLock().lock();
+        try {
+            for (String term : distinct) {
+                unlink(terms, term, msg.messageNumber);
+            }
+            if (unlink(flags, msg.flag, msg.messageNumber)) documents--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onFlagChange(Message msg, String from) {
+        lock.writeLock().lock();
+        try {
+            unlink(flags, from, msg.messageNumber);
+            flags.computeIfAbsent(msg.flag, k -> new PostingList()).add(msg.messageNumber);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean unlink(Map<String, PostingList> index, String key, int messageNumber) {
+        PostingList postings = index.get(key);
+        if (postings == null || !postings.remove(messageNumber)) return false;
+        if (postings.isEmpty()) index.remove(key);
+        return true;
+    }
+
+    // Lowercase runs of letters and digits, in order of appearance: "Dinner at 8?" -> [dinner, at, 8].
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (Character.isLetterOrDigit(cp)) {
+                token.appendCodePoint(Character.toLowerCase(cp));
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (!token.isEmpty()) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    // The best limit matches of any flag.
+    public List<Message> search(String query, int limit) {
+        return search(query, null, limit);
+    }
+
+    // The best limit matches among messages with the flag (any flag if null).
+    public List<Message> search(String query, String flag, int limit) {
+        long started = Metrics.global().start(Metrics.Operation.SEARCH);
+        try {
+            List<int[]> clauses = match(query, flag, limit);
+            int[] numbers = clauses.size() == 1 ? clauses.get(0) : ranked(clauses, limit);
+            List<Message> results = new ArrayList<>(numbers.length);
+            for (int number : numbers) {
+                Message msg = store.findByNumber(number);
+                // A message deleted since the match was taken is skipped
+                if (msg != null && (flag == null || flag.equals(msg.flag))) {
+                    results.add(msg);
+                }
+            }
+            return results;
+        } finally {
+            Metrics.global().stop(Metrics.Operation.SEARCH, started);
+        }
+    }
+
+    // Number of messages matching the query, among those with the flag (any flag if null).
+    public int count(String query, String flag) {
+        List<int[]> clauses = match(query, flag, Integer.MAX_VALUE);
+        return clauses.size() == 1 ? clauses.get(0).length : union(clauses).length;
+    }
+
+    // Distinct terms currently indexed.
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Approximate heap bytes held by term postings, excluding the term strings themselves.
+    public long postingBytes() {
+        lock.readLock().lock();
+        try {
+            long total = 0;
+            for (PostingList postings : terms.values()) {
+                total += postings.bytes();
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Splits a query into OR clauses of AND operands; a prefix operand keeps its trailing '*'.
+    // "Birthday cake OR part*" -> [[birthday, cake], [part*]]. Punctuation splits words as it does in messages.
+    static List<List<String>> parse(String query) {
+        List<List<String>> clauses = new ArrayList<>();
+        List<String> clause = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")) {
+            if (word.equals("OR")) {
+                if (!clause.isEmpty()) clauses.add(clause);
+                clause = new ArrayList<>();
+                continue;
+            }
+            boolean prefix = word.endsWith("*");
+            List<String> tokens = tokenize(word);
+            for (int i = 0; i < tokens.size(); i++) {
+                clause.add(prefix && i == tokens.size() - 1 ? tokens.get(i) + "*" : tokens.get(i));
+            }
+        }
+        if (!clause.isEmpty()) clauses.add(clause);
+        return clauses;
+    }
+
+    // Matching message numbers, newest first, one array per OR clause. A single clause stops after limit
+    // matches; ranking several needs every match of each.
+    private List<int[]> match(String query, String flag, int limit) {
+        List<List<String>> clauses = parse(query);
+        if (clauses.size() > 1) limit = Integer.MAX_VALUE;
+        List<int[]> matches = new ArrayList<>(clauses.size());
+        lock.readLock().lock();
+        try {
+            for (List<String> clause : clauses) {
+                matches.add(matchAll(clause, flag, limit));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (matches.isEmpty()) matches.add(NONE);
+        return matches;
+    }
+
+    // Sorted set of message numbers behind one query operand, readable in ascending blocks.
+    private interface Matches {
+        int size();
+
+        boolean contains(int number);
+
+        int blocks();
+
+        int[] block(int b);
+    }
+
+    private record Postings(PostingList list) implements Matches {
+        public int size() {
+            return list.size();
+        }
+
+        public boolean contains(int number) {
+            return list.contains(number);
+        }
+
+        public int blocks() {
+            return list.blocks();
+        }
+
+        public int[] block(int b) {
+            return list.block(b);
+        }
+    }
+
+    private record Sorted(int[] numbers) implements Matches {
+        public int size() {
+            return numbers.length;
+        }
+
+        public boolean contains(int number) {
+            return Arrays.binarySearch(numbers, number) >= 0;
+        }
+
+        public int blocks() {
+            return 1;
+        }
+
+        public int[] block(int b) {
+            return numbers;
+        }
+    }
+
+    private static final Matches EMPTY = new Sorted(NONE);
+
+    // Intersection of the operands, newest first: the rarest one is walked from its newest block down and each
+    // other one only probed, stopping after limit matches.
+    private int[] matchAll(List<String> operands, String flag, int limit) {
+        List<Matches> sets = new ArrayList<>(operands.size() + 1);
+        for (String operand : operands) {
+            sets.add(operand.endsWith("*") ? prefix(operand.substring(0, operand.length() - 1)) : postings(terms.get(operand)));
+        }
+        // A flag every message carries filters nothing, so it is not probed
+        if (flag != null && postings(flags.get(flag)).size() < documents) {
+            sets.add(postings(flags.get(flag)));
+        }
+        sets.sort(Comparator.comparingInt(Matches::size));
+        Matches rarest = sets.get(0);
+        int[] found = new int[Math.max(0, Math.min(limit, rarest.size()))];
+        int n = 0;
+        for (int b = rarest.blocks() - 1; b >= 0 && n < found.length; b--) {
+            int[] numbers = rarest.block(b);
+            for (int i = numbers.length - 1; i >= 0 && n < found.length; i--) {
+                if (containsAll(sets, numbers[i])) found[n++] = numbers[i];
+            }
+        }
+        return n == found.length ? found : Arrays.copyOf(found, n);
+    }
+
+    private static boolean containsAll(List<Matches> sets, int number) {
+        for (int i = 1; i < sets.size(); i++) {
+            if (!sets.get(i).contains(number)) return false;
+        }
+        return true;
+    }
+
+    private static Matches postings(PostingList list) {
+        return list == null ? EMPTY : new Postings(list);
+    }
+
+    // Union of the postings of every term starting with the prefix; the term dictionary is sorted, so the
+    // expansions are one contiguous range.
+    private Matches prefix(String prefix) {
+        List<PostingList> expansions = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<String, PostingList> entry : terms.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) break;
+            expansions.add(entry.getValue());
+            total += entry.getValue().size();
+        }
+        if (expansions.size() <= 1) {
+            return expansions.isEmpty() ? EMPTY : new Postings(expansions.get(0));
+        }
+        int[] all = new int[total];
+        int n = 0;
+        for (PostingList list : expansions) {
+            int[] numbers = list.toArray();
+            System.arraycopy(numbers, 0, all, n, numbers.length);
+            n += numbers.length;
+        }
+        return new Sorted(distinct(all));
+    }
+
+    // Sorts in place and drops repeats.
+    private static int[] distinct(int[] numbers) {
+        Arrays.sort(numbers);
+        int n = 0;
+        for (int i = 0; i < numbers.length; i++) {
+            if (n == 0 || numbers[i] != numbers[n - 1]) numbers[n++] = numbers[i];
+        }
+        return n == numbers.length ? numbers : Arrays.copyOf(numbers, n);
+    }
+
+    private static int[] union(List<int[]> clauses) {
+        int total = 0;
+        for (int[] clause : clauses) total += clause.length;
+        int[] all = new int[total];
+        int n = 0;
+        for (int[] clause : clauses) {
+            System.arraycopy(clause, 0, all, n, clause.length);
+            n += clause.length;
+        }
+        return distinct(all);
+    }
+
+    // Top limit numbers by clauses matched, then newest first: the clauses' newest-first arrays are merged,
+    // scoring each number once, into a bounded min-heap.
+    // Each candidate packs (score, number) into one long; flipping the number's sign bit keeps negatives ordered.
+    private static int[] ranked(List<int[]> clauses, int limit) {
+        int[] next = new int[clauses.size()];
+        PriorityQueue<Long> best = new PriorityQueue<>();
+        while (limit > 0) {
+            boolean any = false;
+            int number = Integer.MIN_VALUE;
+            for (int c = 0; c < next.length; c++) {
+                int[] clause = clauses.get(c);
+                if (next[c] < clause.length && (!any || clause[next[c]] > number)) {
+                    number = clause[next[c]];
+                    any = true;
+                }
+            }
+            if (!any) break;
+            int score = 0;
+            for (int c = 0; c < next.length; c++) {
+                int[] clause = clauses.get(c);
+                if (next[c] < clause.length && clause[next[c]] == number) {
+                    next[c]++;
+                    score++;
+                }
+            }
+            long key = (long) score << 32 | ((number ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+            if (best.size() < limit) {
+                best.add(key);
+            } else if (key > best.peek()) {
+                best.poll();
+                best.add(key);
+            }
+        }
+        int[] top = new int[best.size()];
+        for (int i = top.length - 1; i >= 0; i--) {
+            top[i] = (int) best.poll().longValue() ^ Integer.MIN_VALUE;
+        }
+        return top;
+    }
+}
@@ -0,0 +1,225 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Headless send path: validates, numbers, identifies, hashes and stores messages.
+// send() handles one message as the chat dialog does; sendBatch() ingests many at once, assigning message
+// numbers as one contiguous block, hashing in parallel for large batches, and publishing the whole batch to
+// the store under a single write lock.
+// sendOnce() is the idempotent form for clients that retry: a SendDeduplicator remembers what each key sent,
+// and a repeat within its window gets the original message back instead of storing another.
+// It also owns the message lifecycle: Stored messages may be sent or disregarded, disregarded ones stored
+// again, and Sent is final.
+public class MessageService {
+
+    public static final int MAX_MESSAGE_LENGTH = 250;
+
+    // Batches at least this large are hashed on the common fork-join pool
+    private static final int PARALLEL_THRESHOLD = 1024;
+
+    public record OutgoingMessage(String recipient, String text) {
+    }
+
+    public enum Status {
+        SENT, INVALID_RECIPIENT, MESSAGE_TOO_LONG, DUPLICATE,
+        // sendOnce() only: the key was already used, message is the one sent then and nothing was stored
+        REPLAYED
+    }
+
+    // Outcome for one item of a batch; message is null unless status is SENT or REPLAYED.
+    public record SendResult(Status status, Message message) {
+        public boolean isSent() {
+            return status == Status.SENT;
+        }
+    }
+
+    public enum Transition {
+        MOVED, NOT_FOUND, NOT_ALLOWED
+    }
+
+    // Allowed flag changes, from -> to
+    private static final Map<String, Set<String>> TRANSITIONS = Map.of(
+            "Stored", Set.of("Sent", "Disregarded"),
+            "Disregarded", Set.of("Stored"),
+            "Sent", Set.of());
+
+    private final MessageStore store;
+    private final MessageIdGenerator idGenerator;
+    private final SendDeduplicator deduplicator;
+    private final AtomicInteger messageCounter = new AtomicInteger();
+
+    public MessageService(MessageStore store, MessageIdGenerator idGenerator) {
+        this(store, idGenerator, new SendDeduplicator());
+    }
+
+    public MessageService(MessageStore store, MessageIdGenerator idGenerator, SendDeduplicator deduplicator) {
+        this.store = store;
+        this.idGenerator = idGenerator;
+        this.deduplicator = deduplicator;
+    }
+
+    public MessageStore getStore() {
+        return store;
+    }
+
+    public SendDeduplicator getDeduplicator() {
+        return deduplicator;
+    }
+
+    public int getMessageCounter() {
+        return messageCounter.get();
+    }
+
+    // Moves the counter forward, e.g. to the highest message number recovered from disk.
+    public void advanceMessageCounter(int atLeast) {
+        messageCounter.accumulateAndGet(atLeast, Math::max);
+    }
+
+    public static Status validate(String recipient, String text) {
+        if (!Validators.checkRecipient(recipient)) return Status.INVALID_RECIPIENT;
+        if (text == null || text.length() > MAX_MESSAGE_LENGTH) return Status.MESSAGE_TOO_LONG;
+        return Status.SENT;
+    }
+
+    // Builds a numbered, hashed message without validating or storing it.
+    public Message compose(String recipient, String text, String flag) {
+        String messageID = idGenerator.next();
+        int messageNumber = messageCounter.incrementAndGet();
+        return new Message(messageID, messageNumber, recipient, text,
+                MessageHasher.hash(messageID, messageNumber, recipient, text), flag);
+    }
+
+    public SendResult send(String recipient, String text) {
+        long started = Metrics.global().start(Metrics.Operation.SEND);
+        try {
+            Status status = validate(recipient, text);
+            if (status != Status.SENT) return new SendResult(status, null);
+            Message msg = compose(recipient, text, "Sent");
+            return store.add(msg) ? new SendResult(Status.SENT, msg) : new SendResult(Status.DUPLICATE, null);
+        } finally {
+            Metrics.global().stop(Metrics.Operation.SEND, started);
+        }
+    }
+
+    // Sends unless the sender already sent under the same key within the deduplication window, in which case the
+    // result is REPLAYED with the message sent then. key is the client's idempotency key; if null, the recipient
+    // and text are the key, so resending identical text to the same recipient is taken for a retry.
+    // Invalid messages are refused as by send() and use up no key.
+    public SendResult sendOnce(String sender, String key, String recipient, String text) {
+        long started = Metrics.global().start(Metrics.Operation.SEND);
+        try {
+            Status status = validate(recipient, text);
+            if (status != Status.SENT) return new SendResult(status, null);
+            SendDeduplicator.Fingerprint fingerprint = key == null
+                    ? SendDeduplicator.contentKey(sender, recipient, text) : SendDeduplicator.clientKey(sender, key);
+            Message[] composed = new Message[1];
+            Message msg = deduplicator.claim(fingerprint, () -> composed[0] = compose(recipient, text, "Sent"));
+            if (msg != composed[0]) return new SendResult(Status.REPLAYED, msg);
+            if (!store.add(msg)) {
+                deduplicator.forget(fingerprint, msg);
+                return new SendResult(Status.DUPLICATE, null);
+            }
+            return new SendResult(Status.SENT, msg);
+        } finally {
+            Metrics.global().stop(Metrics.Operation.SEND, started);
+        }
+    }
+
+    public List<SendResult> sendBatch(Stream<OutgoingMessage> batch) {
+        return sendBatch(batch.toList());
+    }
+
+    // Results are in the same order as the batch. Valid items get consecutive message numbers in batch order.
+    // Every item counts as a send in Metrics; the call is timed once as a whole.
+    public List<SendResult> sendBatch(List<OutgoingMessage> batch) {
+        long started = Metrics.global().time(Metrics.Operation.SEND);
+        try {
+            Status[] statuses = new Status[batch.size()];
+            Message[] messages = composeBatch(batch, statuses);
+            return results(statuses, messages, store.addAll(List.of(messages)), 0);
+        } finally {
+            Metrics.global().stop(Metrics.Operation.SEND, started);
+        }
+    }
+
+    // The first half of sendBatch(): validates every item into statuses and returns the numbered, hashed
+    // messages of the valid ones in batch order, without storing them. Counts each item as a send in Metrics,
+    // so batches and the SendPipeline are counted alike; callers time the sends themselves.
+    Message[] composeBatch(List<OutgoingMessage> batch, Status[] statuses) {
+        int size = batch.size();
+        Metrics.global().count(Metrics.Operation.SEND, size);
+        int valid = 0;
+        for (int i = 0; i < size; i++) {
+            OutgoingMessage item = batch.get(i);
+            statuses[i] = validate(item.recipient(), item.text());
+            if (statuses[i] == Status.SENT) valid++;
+        }
+
+        int[] positions = new int[valid];
+        long[] ids = new long[valid];
+        int firstNumber = messageCounter.getAndAdd(valid) + 1;
+        for (int i = 0, v = 0; i < size; i++) {
+            if (statuses[i] == Status.SENT) {
+                positions[v] = i;
+                ids[v++] = idGenerator.nextLong();
+            }
+        }
+
+        Message[] messages = new Message[valid];
+        long createdAt = System.currentTimeMillis();
+        IntStream range = IntStream.range(0, valid);
+        if (valid >= PARALLEL_THRESHOLD) range = range.parallel();
+        range.forEach(v -> {
+            OutgoingMessage item = batch.get(positions[v]);
+            String messageID = MessageIdGenerator.format(ids[v]);
+            int messageNumber = firstNumber + v;
+            messages[v] = new Message(messageID, messageNumber, item.recipient(), item.text(),
+                    MessageHasher.hash(messageID, messageNumber, item.recipient(), item.text()), "Sent", createdAt);
+        });
+        return messages;
+    }
+
+    // The second half: one result per item, given the store's addAll() verdicts for the batch's messages,
+    // which start at index offset of added.
+    static List<SendResult> results(Status[] statuses, Message[] messages, boolean[] added, int offset) {
+        List<SendResult> results = new ArrayList<>(statuses.length);
+        for (int i = 0, v = 0; i < statuses.length; i++) {
+            if (statuses[i] != Status.SENT) {
+                results.add(new SendResult(statuses[i], null));
+            } else {
+                Message msg = messages[v];
+                results.add(added[offset + v++] ? new SendResult(Status.SENT, msg) : new SendResult(Status.DUPLICATE, null));
+            }
+        }
+        return results;
+    }
+
+    public static boolean canTransition(String from, String to) {
+        return TRANSITIONS.getOrDefault(from, Set.of()).contains(to);
+    }
+
+    // Moves one message to a new flag if the lifecycle allows it.
+    public Transition transition(String messageHash, String to) {
+        while (true) {
+            Message msg = store.findByHash(messageHash);
+            if (msg == null) return Transition.NOT_FOUND;
+            String from = msg.flag;
+            if (!canTransition(from, to)) return Transition.NOT_ALLOWED;
+            // Fails only if the message was moved or removed since the lookup; classify it again
+            if (store.changeFlag(messageHash, from, to)) return Transition.MOVED;
+        }
+    }
+
+    // Sends every Stored message for the recipient in one pass; returns them in the order they were stored.
+    public List<Message> flushStored(String recipient) {
+        return store.changeFlags(recipient, "Stored", "Sent");
+    }
+}
@@ -0,0 +1,110 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Aggregates over the store, maintained on every add and remove so dashboards can poll them in O(1):
+// per flag, the message count, total characters, longest message and count per recipient.
+// Updates arrive through MessageStore.Listener under the store's write lock; reads take no lock and may see
+// one flag's figures a single update apart from another's.
+public class MessageStats implements MessageStore.Listener {
+
+    private static final class FlagStats {
+        volatile long count;
+        volatile long characters;
+        volatile Message longest;
+        final ConcurrentMap<String, Integer> recipients = new ConcurrentHashMap<>();
+        // Length -> messages of that length by message number; only touched by the writer
+        final NavigableMap<Integer, NavigableMap<Integer, Message>> byLength = new TreeMap<>();
+    }
+
+    private final ConcurrentMap<String, FlagStats> flags = new ConcurrentHashMap<>();
+
+    @Override
+    public void onAdd(Message msg) {
+        add(msg, msg.flag);
+    }
+
+    @Override
+    public void onRemove(Message msg) {
+        remove(msg, msg.flag);
+    }
+
+    @Override
+    public void onFlagChange(Message msg, String from) {
+        remove(msg, from);
+        add(msg, msg.flag);
+    }
+
+    private void add(Message msg, String flag) {
+        FlagStats stats = flags.computeIfAbsent(flag, k -> new FlagStats());
+        stats.count++;
+        stats.characters += msg.message.length();
+        stats.recipients.merge(msg.recipient, 1, Integer::sum);
+        stats.byLength.computeIfAbsent(msg.message.length(), k -> new TreeMap<>()).put(msg.messageNumber, msg);
+        if (isLonger(msg, stats.longest)) {
+            stats.longest = msg;
+        }
+    }
+
+    private void remove(Message msg, String flag) {
+        FlagStats stats = flags.get(flag);
+        if (stats == null) return;
+        stats.count--;
+        stats.characters -= msg.message.length();
+        stats.recipients.computeIfPresent(msg.recipient, (k, n) -> n == 1 ? null : n - 1);
+        NavigableMap<Integer, Message> sameLength = stats.byLength.get(msg.message.length());
+        if (sameLength != null) {
+            sameLength.remove(msg.messageNumber);
+            if (sameLength.isEmpty()) {
+                stats.byLength.remove(msg.message.length());
+            }
+        }
+        if (stats.longest == msg) {
+            // Next longest: earliest message of the greatest remaining length, in O(log n)
+            Map.Entry<Integer, NavigableMap<Integer, Message>> last = stats.byLength.lastEntry();
+            stats.longest = last == null ? null : last.getValue().firstEntry().getValue();
+        }
+    }
+
+    // Longer text wins; on a tie the lower message number does, matching a scan in message number order.
+    private static boolean isLonger(Message msg, Message current) {
+        if (current == null) return true;
+        int diff = msg.message.length() - current.message.length();
+        return diff > 0 || diff == 0 && msg.messageNumber < current.messageNumber;
+    }
+
+    public long count(String flag) {
+        FlagStats stats = flags.get(flag);
+        return stats == null ? 0 : stats.count;
+    }
+
+    // Total characters of message text across the flag's messages.
+    public long characters(String flag) {
+        FlagStats stats = flags.get(flag);
+        return stats == null ? 0 : stats.characters;
+    }
+
+    // Longest message with the flag (lowest message number on a tie), or null if there are none.
+    public Message longest(String flag) {
+        FlagStats stats = flags.get(flag);
+        return stats == null ? null : stats.longest;
+    }
+
+    public int count(String flag, String recipient) {
+        FlagStats stats = flags.get(flag);
+        return stats == null ? 0 : stats.recipients.getOrDefault(recipient, 0);
+    }
+
+    // Copy of the per-recipient counts for the flag; O(recipients).
+    public Map<String, Integer> recipientCounts(String flag) {
+        FlagStats stats = flags.get(flag);
+        return stats == null ? Map.of() : new HashMap<>(stats.recipients);
+    }
+}
@@ -0,0 +1,585 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Headless, indexed store for every message the app knows about (Sent, Stored and Disregarded).
+// ID, hash and message number lookups are O(1); recipient and flag queries are O(k) in the number of matches.
+// Lookups by ID, recipient, number prefix and time range are recorded as Metrics SEARCH, deletes as DELETE.
+// Each flag keeps its messages ordered by message number, so pages can resume from any cursor in O(log n).
+// A message's flag is its state: changeFlag moves the same Message object between states in place, so the ID,
+// hash and number indexes never change; per-state, per-recipient linked sets make a move O(1) apart from the
+// O(log n) re-insert into the flag's number order, and let a recipient's whole state be moved in one pass.
+// Each flag also keeps its messages in creation time order, for time range pages in either direction and for
+// expiring the oldest without a scan (see MessageExpiry).
+// Recipients are also kept in a digit trie, for traffic to a number prefix (see RecipientIndex).
+// A removed message leaves the ID, hash and number indexes and is reported to listeners at once, but stays
+// linked from the recipient, flag, time and state indexes as a tombstone that every query skips. compact()
+// unlinks tombstones a slice at a time, so a large delete costs O(1) per message under the write lock instead
+// of O(log n) (see MessageCompactor).
+// Thread-safe: readers share a read lock, and each add, addAll or remove publishes under one write lock.
+public class MessageStore {
+
+    // Notified after a message is added to or removed from the indexes, e.g. to persist the change.
+    // Called while the store's write lock is held, so listeners see changes in the order they were made.
+    public interface Listener {
+        void onAdd(Message msg);
+
+        void onRemove(Message msg);
+
+        // msg.flag already holds the new flag.
+        void onFlagChange(Message msg, String from);
+    }
+
+    private final Map<String, Message> byId = new HashMap<>();
+    private final Map<String, Message> byHash = new HashMap<>();
+    private final Map<String, Set<Message>> byRecipient = new HashMap<>();
+    private final Map<String, NavigableMap<Integer, Message>> byFlag = new HashMap<>();
+    // Flag -> its messages ordered by creation time, ties by message number
+    private final Map<String, NavigableSet<Message>> byTime = new HashMap<>();
+    // Flag -> recipient -> that recipient's messages with the flag, in the order they entered the state
+    private final Map<String, Map<String, Set<Message>>> byState = new HashMap<>();
+    private final Map<Integer, Message> byNumber = new HashMap<>();
+    // Message number -> removed message still linked from the indexes above, in the order they were removed
+    private final Map<Integer, Message> tombstones = new LinkedHashMap<>();
+    // Flag -> how many of its messages are tombstones
+    private final Map<String, Integer> deadByFlag = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final MessageStats stats = new MessageStats();
+    private final RecipientIndex recipients = new RecipientIndex();
+
+    private static final Comparator<Message> BY_TIME =
+            Comparator.<Message>comparingLong(m -> m.createdAt).thenComparingInt(m -> m.messageNumber);
+
+    public MessageStore() {
+        listeners.add(stats);
+        listeners.add(recipients);
+    }
+
+    // Counts, characters, longest message and per-recipient counts per flag, kept up to date on every change.
+    public MessageStats stats() {
+        return stats;
+    }
+
+    // Message and recipient counts and the busiest recipients per number prefix, kept up to date on every change.
+    public RecipientIndex recipients() {
+        return recipients;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    // Replays every stored message to the listener in message number order, then registers it, under one
+    // write lock, so an index built after messages were loaded sees each message exactly once.
+    public void subscribe(Listener listener) {
+        lock.writeLock().lock();
+        try {
+            List<Message> existing = new ArrayList<>(byNumber.values());
+            existing.sort(Comparator.comparingInt(m -> m.messageNumber));
+            for (Message msg : existing) {
+                listener.onAdd(msg);
+            }
+            listeners.add(listener);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Adds a message to every index. Returns false if its ID, hash or message number is already stored.
+    public boolean add(Message msg) {
+        lock.writeLock().lock();
+        try {
+            return insert(msg);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Adds a batch under a single write lock, so readers see all of it or none of it.
+    // Returns, per message, whether it was added (false for a duplicate ID, hash or message number).
+    public boolean[] addAll(List<Message> messages) {
+        boolean[] added = new boolean[messages.size()];
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < added.length; i++) {
+                added[i] = insert(messages.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return added;
+    }
+
+    private boolean insert(Message msg) {
+        if (byId.containsKey(msg.messageID) || byHash.containsKey(msg.messageHash) || byNumber.containsKey(msg.messageNumber)) {
+            return false;
+        }
+        // A tombstone with the same number would collide with msg in the flag and time indexes
+        Message dead = tombstones.remove(msg.messageNumber);
+        if (dead != null) unlinkDead(dead);
+        byNumber.put(msg.messageNumber, msg);
+        byId.put(msg.messageID, msg);
+        byHash.put(msg.messageHash, msg);
+        byRecipient.computeIfAbsent(msg.recipient, k -> new LinkedHashSet<>()).add(msg);
+        byFlag.computeIfAbsent(msg.flag, k -> new TreeMap<>()).put(msg.messageNumber, msg);
+        byTime.computeIfAbsent(msg.flag, k -> new TreeSet<>(BY_TIME)).add(msg);
+        byState.computeIfAbsent(msg.flag, k -> new HashMap<>()).computeIfAbsent(msg.recipient, k -> new LinkedHashSet<>()).add(msg);
+        for (Listener listener : listeners) {
+            listener.onAdd(msg);
+        }
+        return true;
+    }
+
+    public Message findById(String messageID) {
+        long started = Metrics.global().start(Metrics.Operation.SEARCH);
+        lock.readLock().lock();
+        try {
+            return byId.get(messageID);
+        } finally {
+            lock.readLock().unlock();
+            Metrics.global().stop(Metrics.Operation.SEARCH, started);
+        }
+    }
+
+    public Message findByHash(String messageHash) {
+        lock.readLock().lock();
+        try {
+            return byHash.get(messageHash);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Message findByNumber(int messageNumber) {
+        lock.readLock().lock();
+        try {
+            return byNumber.get(messageNumber);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean containsId(String messageID) {
+        return findById(messageID) != null;
+    }
+
+    public boolean containsHash(String messageHash) {
+        return findByHash(messageHash) != null;
+    }
+
+    // All messages to a recipient regardless of flag, in insertion order.
+    public List<Message> findByRecipient(String recipient) {
+        long started = Metrics.global().start(Metrics.Operation.SEARCH);
+        try {
+            return copyOf(byRecipient, recipient);
+        } finally {
+            Metrics.global().stop(Metrics.Operation.SEARCH, started);
+        }
+    }
+
+    // The recipient's messages with the flag, in the order they were added or moved to it.
+    public List<Message> findByRecipient(String recipient, String flag) {
+        long started = Metrics.global().start(Metrics.Operation.SEARCH);
+        lock.readLock().lock();
+        try {
+            Map<String, Set<Message>> recipients = byState.get(flag);
+            Set<Message> messages = recipients == null ? null : recipients.get(recipient);
+            return messages == null ? List.of() : live(messages);
+        } finally {
+            lock.readLock().unlock();
+            Metrics.global().stop(Metrics.Operation.SEARCH, started);
+        }
+    }
+
+    // Up to limit messages to recipients under the number prefix, e.g. "+2783", with the flag, or with any flag
+    // if flag is null. Recipients come in number order, each one's messages in the order they were added.
+    // O(limit) past the prefix, apart from recipients under it with no message with the flag.
+    public List<Message> findByRecipientPrefix(String prefix, String flag, int limit) {
+        long started = Metrics.global().start(Metrics.Operation.SEARCH);
+        lock.readLock().lock();
+        try {
+            List<Message> found = new ArrayList<>();
+            if (limit < 1) return found;
+            Map<String, Set<Message>> index = flag == null ? byRecipient : byState.getOrDefault(flag, Map.of());
+            recipients.forEach(prefix, recipient -> {
+                for (Message msg : index.getOrDefault(recipient, Set.of())) {
+                    if (isDead(msg)) continue;
+                    found.add(msg);
+                    if (found.size() == limit) return false;
+                }
+                return true;
+            });
+            return found;
+        } finally {
+            lock.readLock().unlock();
+            Metrics.global().stop(Metrics.Operation.SEARCH, started);
+        }
+    }
+
+    // All messages carrying the given flag ("Sent", "Stored" or "Disregarded"), in message number order.
+    public List<Message> messages(String flag) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<Integer, Message> messages = byFlag.get(flag);
+            return messages == null ? List.of() : live(messages.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Up to limit messages with the flag, strictly after the cursor message number in the given direction.
+    // A null cursor starts from the oldest (or newest) message; the cursor message itself need not still exist.
+    public List<Message> page(String flag, Integer cursor, int limit, boolean newestFirst) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<Integer, Message> messages = byFlag.get(flag);
+            if (messages == null) return List.of();
+            NavigableMap<Integer, Message> view;
+            if (newestFirst) {
+                view = (cursor == null ? messages : messages.headMap(cursor, false)).descendingMap();
+            } else {
+                view = cursor == null ? messages : messages.tailMap(cursor, false);
+            }
+            // Sized from the whole flag: size() of a tail or head view walks it
+            List<Message> page = new ArrayList<>(Math.min(limit, messages.size()));
+            for (Message msg : view.values()) {
+                if (page.size() == limit) break;
+                if (!isDead(msg)) page.add(msg);
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Up to limit messages with the flag created in [fromMillis, toMillis), oldest or newest first, strictly past
+    // the cursor in that direction. A null cursor starts at the range's oldest (or newest) end; otherwise pass the
+    // last message of the previous page, which need not still exist. O(log n + limit).
+    public List<Message> pageByTime(String flag, long fromMillis, long toMillis, Message cursor, int limit, boolean newestFirst) {
+        Message from = probe(fromMillis);
+        boolean fromInclusive = true;
+        Message to = probe(toMillis);
+        if (cursor != null) {
+            if (newestFirst && BY_TIME.compare(cursor, to) < 0) {
+                to = cursor;
+            } else if (!newestFirst && BY_TIME.compare(cursor, from) >= 0) {
+                from = cursor;
+                fromInclusive = false;
+            }
+        }
+        long started = Metrics.global().start(Metrics.Operation.SEARCH);
+        lock.readLock().lock();
+        try {
+            NavigableSet<Message> messages = byTime.get(flag);
+            if (messages == null || BY_TIME.compare(from, to) >= 0) return List.of();
+            NavigableSet<Message> range = messages.subSet(from, fromInclusive, to, false);
+            List<Message> page = new ArrayList<>(Math.min(limit, messages.size()));
+            for (Message msg : newestFirst ? range.descendingSet() : range) {
+                if (page.size() == limit) break;
+                if (!isDead(msg)) page.add(msg);
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+            Metrics.global().stop(Metrics.Operation.SEARCH, started);
+        }
+    }
+
+    // Stands for a point in time in the time index: before every message created at that millisecond.
+    private static Message probe(long createdAt) {
+        return new Message(null, Integer.MIN_VALUE, null, null, null, null, createdAt);
+    }
+
+    // The message with the longest text among those with the flag (the earliest on a tie), or null if none. O(1).
+    public Message longest(String flag) {
+        return stats.longest(flag);
+    }
+
+    // Removes a message (see remove()). Returns the removed message or null if the hash is unknown.
+    public Message removeByHash(String messageHash) {
+        long started = Metrics.global().start(Metrics.Operation.DELETE);
+        lock.writeLock().lock();
+        try {
+            Message msg = byHash.get(messageHash);
+            if (msg != null) remove(msg);
+            return msg;
+        } finally {
+            lock.writeLock().unlock();
+            Metrics.global().stop(Metrics.Operation.DELETE, started);
+        }
+    }
+
+    // Removes a message (see remove()). Returns the removed message or null if the ID is unknown.
+    public Message removeById(String messageID) {
+        long started = Metrics.global().start(Metrics.Operation.DELETE);
+        lock.writeLock().lock();
+        try {
+            Message msg = byId.get(messageID);
+            if (msg != null) remove(msg);
+            return msg;
+        } finally {
+            lock.writeLock().unlock();
+            Metrics.global().stop(Metrics.Operation.DELETE, started);
+        }
+    }
+
+    // Removes every message to the recipient, whatever its flag, under one write lock and returns them in the
+    // order they were added. O(k) in the number removed.
+    public List<Message> removeByRecipient(String recipient) {
+        long started = Metrics.global().start(Metrics.Operation.DELETE);
+        lock.writeLock().lock();
+        try {
+            Set<Message> messages = byRecipient.get(recipient);
+            if (messages == null) return List.of();
+            List<Message> removed = live(messages);
+            for (Message msg : removed) {
+                remove(msg);
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+            Metrics.global().stop(Metrics.Operation.DELETE, started);
+        }
+    }
+
+    // Removes up to limit messages with the flag created before cutoffMillis, oldest first, under one write lock,
+    // and returns them. Costs O(limit log n) however many messages the store holds.
+    public List<Message> removeOlderThan(String flag, long cutoffMillis, int limit) {
+        lock.writeLock().lock();
+        try {
+            NavigableSet<Message> messages = byTime.get(flag);
+            if (messages == null) return List.of();
+            List<Message> removed = new ArrayList<>(Math.min(limit, messages.size()));
+            for (Message msg : messages.headSet(probe(cutoffMillis), false)) {
+                if (removed.size() == limit) break;
+                if (!isDead(msg)) removed.add(msg);
+            }
+            for (Message msg : removed) {
+                remove(msg);
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Drops the message from the ID, hash and number indexes and tells listeners; it stays in the others as a
+    // tombstone until compact() reaches it.
+    private void remove(Message msg) {
+        byHash.remove(msg.messageHash);
+        byId.remove(msg.messageID);
+        byNumber.remove(msg.messageNumber);
+        tombstones.put(msg.messageNumber, msg);
+        deadByFlag.merge(msg.flag, 1, Integer::sum);
+        for (Listener listener : listeners) {
+            listener.onRemove(msg);
+        }
+    }
+
+    // Unlinks up to max tombstones from the remaining indexes, oldest removal first, under one write lock.
+    // Returns how many it unlinked; fewer than max means none are left. O(max log n).
+    public int compact(int max) {
+        lock.writeLock().lock();
+        try {
+            int unlinked = 0;
+            Iterator<Message> dead = tombstones.values().iterator();
+            while (unlinked < max && dead.hasNext()) {
+                Message msg = dead.next();
+                dead.remove();
+                unlinkDead(msg);
+                unlinked++;
+            }
+            return unlinked;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Removed messages compact() has yet to unlink.
+    public int tombstones() {
+        lock.readLock().lock();
+        try {
+            return tombstones.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // A tombstone never changes flag, but changeFlags() may already have taken it out of its state.
+    private void unlinkDead(Message msg) {
+        unlink(byRecipient, msg.recipient, msg);
+        unlinkFlag(msg);
+        Map<String, Set<Message>> recipients = byState.get(msg.flag);
+        if (recipients != null) unlinkState(msg.flag, msg);
+        deadByFlag.computeIfPresent(msg.flag, (flag, dead) -> dead == 1 ? null : dead - 1);
+    }
+
+    private boolean isDead(Message msg) {
+        return !tombstones.isEmpty() && tombstones.get(msg.messageNumber) == msg;
+    }
+
+    private List<Message> live(Collection<Message> messages) {
+        List<Message> found = new ArrayList<>(messages.size());
+        for (Message msg : messages) {
+            if (!isDead(msg)) found.add(msg);
+        }
+        return found;
+    }
+
+    // Moves the message to flag `to` if it currently has flag `from`. Returns false if the hash is unknown or
+    // the message has another flag, so callers can check a transition and apply it without racing other moves.
+    public boolean changeFlag(String messageHash, String from, String to) {
+        lock.writeLock().lock();
+        try {
+            Message msg = byHash.get(messageHash);
+            if (msg == null || !msg.flag.equals(from)) return false;
+            if (!from.equals(to)) {
+                unlinkState(from, msg);
+                move(msg, to);
+                byState.computeIfAbsent(to, k -> new HashMap<>()).computeIfAbsent(msg.recipient, k -> new LinkedHashSet<>()).add(msg);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Moves every message to the recipient with flag `from` to flag `to` in one pass under one write lock,
+    // e.g. to release everything Stored for a recipient. Returns the moved messages in their former order.
+    public List<Message> changeFlags(String recipient, String from, String to) {
+        lock.writeLock().lock();
+        try {
+            Map<String, Set<Message>> recipients = byState.get(from);
+            if (from.equals(to) || recipients == null || !recipients.containsKey(recipient)) return List.of();
+            // The whole per-recipient set leaves the old state at once instead of message by message
+            Set<Message> moving = recipients.remove(recipient);
+            if (recipients.isEmpty()) byState.remove(from);
+            Set<Message> target = byState.computeIfAbsent(to, k -> new HashMap<>()).computeIfAbsent(recipient, k -> new LinkedHashSet<>());
+            List<Message> moved = new ArrayList<>(moving.size());
+            for (Message msg : moving) {
+                // Tombstones leave the old state with the set and are unlinked from the rest by compact()
+                if (isDead(msg)) continue;
+                move(msg, to);
+                target.add(msg);
+                moved.add(msg);
+            }
+            return moved;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Re-files the message under its new flag and tells listeners; byState is left to the caller.
+    private void move(Message msg, String to) {
+        String from = msg.flag;
+        unlinkFlag(msg);
+        msg.flag = to;
+        byFlag.computeIfAbsent(to, k -> new TreeMap<>()).put(msg.messageNumber, msg);
+        byTime.computeIfAbsent(to, k -> new TreeSet<>(BY_TIME)).add(msg);
+        for (Listener listener : listeners) {
+            listener.onFlagChange(msg, from);
+        }
+    }
+
+    private void unlinkFlag(Message msg) {
+        NavigableMap<Integer, Message> flagged = byFlag.get(msg.flag);
+        flagged.remove(msg.messageNumber);
+        if (flagged.isEmpty()) {
+            byFlag.remove(msg.flag);
+        }
+        NavigableSet<Message> timed = byTime.get(msg.flag);
+        timed.remove(msg);
+        if (timed.isEmpty()) {
+            byTime.remove(msg.flag);
+        }
+    }
+
+    private void unlinkState(String flag, Message msg) {
+        Map<String, Set<Message>> recipients = byState.get(flag);
+        unlink(recipients, msg.recipient, msg);
+        if (recipients.isEmpty()) {
+            byState.remove(flag);
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size(String flag) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<Integer, Message> messages = byFlag.get(flag);
+            return messages == null ? 0 : messages.size() - deadByFlag.getOrDefault(flag, 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isEmpty(String flag) {
+        return size(flag) == 0;
+    }
+
+    // The flags that currently have at least one message, in no particular order.
+    public List<String> flags() {
+        lock.readLock().lock();
+        try {
+            List<String> flags = new ArrayList<>(byFlag.size());
+            for (Map.Entry<String, NavigableMap<Integer, Message>> flag : byFlag.entrySet()) {
+                if (flag.getValue().size() > deadByFlag.getOrDefault(flag.getKey(), 0)) flags.add(flag.getKey());
+            }
+            return flags;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Snapshot of one bucket of an index, taken under the read lock.
+    private List<Message> copyOf(Map<String, Set<Message>> index, String key) {
+        lock.readLock().lock();
+        try {
+            Set<Message> messages = index.get(key);
+            return messages == null ? List.of() : live(messages);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void unlink(Map<String, Set<Message>> index, String key, Message msg) {
+        Set<Message> messages = index.get(key);
+        if (messages != null) {
+            messages.remove(msg);
+            if (messages.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Table model over a growing list of messages, for showing a million rows without freezing the window.
+// Rows are the Message objects themselves and cells are read straight from their fields when the table paints
+// them, so only visible rows cost any formatting. MessageLoader appends rows a page at a time.
+// Like every Swing model it must only be used on the event dispatch thread.
+public final class MessageTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String[] COLUMNS = {"Message ID", "Number", "Recipient", "Message", "Hash"};
+
+    private final transient List<Message> rows = new ArrayList<>();
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 1 ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Message msg = rows.get(row);
+        return switch (column) {
+            case 0 -> msg.messageID;
+            case 1 -> msg.messageNumber;
+            case 2 -> msg.recipient;
+            case 3 -> msg.message;
+            default -> msg.messageHash;
+        };
+    }
+
+    public Message messageAt(int row) {
+        return rows.get(row);
+    }
+
+    public void append(List<Message> messages) {
+        if (messages.isEmpty()) return;
+        int first = rows.size();
+        rows.addAll(messages);
+        fireTableRowsInserted(first, rows.size() - 1);
+    }
+
+    public void clear() {
+        if (rows.isEmpty()) return;
+        int last = rows.size() - 1;
+        rows.clear();
+        fireTableRowsDeleted(0, last);
+    }
+
+    // Removes the message's row; row is where the caller last saw it and is checked before a search.
+    public boolean remove(Message msg, int row) {
+        if (row < 0 || row >= rows.size() || rows.get(row) != msg) row = rows.indexOf(msg);
+        if (row < 0) return false;
+        rows.remove(row);
+        fireTableRowsDeleted(row, row);
+        return true;
+    }
+
+    // Removes the rows of every given message in one pass; returns how many rows went.
+    public int removeAll(Collection<Message> messages) {
+        Set<Message> gone = new HashSet<>(messages);
+        int before = rows.size();
+        if (gone.isEmpty() || !rows.removeIf(gone::contains)) return 0;
+        fireTableDataChanged();
+        return before - rows.size();
+    }
+}
@@ -0,0 +1,214 @@
+package loginsystem;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+// Call counts and latency histograms for each app operation, cheap enough to leave on in production.
+// Every call is counted in a LongAdder. Timing costs two clock reads and a histogram update, so operations that
+// take well under a microsecond time only one call in SAMPLE_EVERY, picked at random; the percentiles and sum
+// then describe the sampled calls.
+//
+// The services report to global(); read it with snapshot(), over JMX as loginsystem:type=Metrics once
+// registerMBean() has run, or as Prometheus text via writePrometheus() and MetricsExporter.
+// -Dloginsystem.metrics=false turns recording off entirely, for measuring what it costs.
+public final class Metrics implements MetricsMXBean {
+
+    public enum Operation {
+        REGISTER("register", false),
+        LOGIN("login", false),
+        MESSAGE_HASH("message_hash", true),
+        SEND("send", true),
+        SEARCH("search", false),
+        DELETE("delete", true);
+
+        private final String label;
+        private final boolean sampled;
+
+        Operation(String label, boolean sampled) {
+            this.label = label;
+            this.sampled = sampled;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    // Latencies are in nanoseconds, over the timed calls; calls counts every call.
+    public record Snapshot(Operation operation, long calls, long timed, long sumNanos, long p50, long p90, long p99,
+                           long max) {
+
+        public long meanNanos() {
+            return timed == 0 ? 0 : sumNanos / timed;
+        }
+    }
+
+    public static final int SAMPLE_EVERY = 16;
+    // start() result for a call that is counted but not timed
+    public static final long UNTIMED = Long.MIN_VALUE;
+    public static final String OBJECT_NAME = "loginsystem:type=Metrics";
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("loginsystem.metrics", "true"));
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final Metrics GLOBAL = new Metrics();
+
+    private static final class Series {
+        final LongAdder calls = new LongAdder();
+        final LongAdder sum = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+    }
+
+    private final Series[] series = new Series[OPERATIONS.length];
+
+    public Metrics() {
+        for (int i = 0; i < series.length; i++) {
+            series[i] = new Series();
+        }
+    }
+
+    public static Metrics global() {
+        return GLOBAL;
+    }
+
+    // Counts a call and returns its start time, or UNTIMED; pass the result to stop() when the call returns.
+    public long start(Operation op) {
+        count(op, 1);
+        return time(op);
+    }
+
+    // Counts calls without timing them, e.g. each item of a batch timed once as a whole.
+    public void count(Operation op, int calls) {
+        if (ENABLED) series[op.ordinal()].calls.add(calls);
+    }
+
+    // Returns a start time for stop(), or UNTIMED, without counting a call: for work counted where it is done
+    // but timed from somewhere else, such as a queued send timed from when it was submitted.
+    public long time(Operation op) {
+        if (!ENABLED) return UNTIMED;
+        if (op.sampled && (ThreadLocalRandom.current().nextInt() & (SAMPLE_EVERY - 1)) != 0) return UNTIMED;
+        return System.nanoTime();
+    }
+
+    public void stop(Operation op, long started) {
+        if (started == UNTIMED) return;
+        long nanos = System.nanoTime() - started;
+        Series s = series[op.ordinal()];
+        s.latency.record(nanos);
+        s.sum.add(nanos);
+    }
+
+    public Snapshot snapshot(Operation op) {
+        Series s = series[op.ordinal()];
+        LatencyHistogram latency = s.latency;
+        return new Snapshot(op, s.calls.sum(), latency.count(), s.sum.sum(), latency.percentile(0.50),
+                latency.percentile(0.90), latency.percentile(0.99), latency.max());
+    }
+
+    public List<Snapshot> snapshot() {
+        List<Snapshot> all = new ArrayList<>(OPERATIONS.length);
+        for (Operation op : OPERATIONS) {
+            all.add(snapshot(op));
+        }
+        return all;
+    }
+
+    // Prometheus text exposition format 0.0.4: a counter of calls and a summary of sampled latencies in seconds.
+    public void writePrometheus(Writer out) throws IOException {
+        List<Snapshot> all = snapshot();
+        out.write("# HELP loginsystem_operations_total Calls per operation.\n");
+        out.write("# TYPE loginsystem_operations_total counter\n");
+        for (Snapshot s : all) {
+            out.write("loginsystem_operations_total{operation=\"" + s.operation().label() + "\"} " + s.calls() + "\n");
+        }
+        out.write("# HELP loginsystem_operation_duration_seconds Latency of timed calls per operation.\n");
+        out.write("# TYPE loginsystem_operation_duration_seconds summary\n");
+        for (Snapshot s : all) {
+            String label = "operation=\"" + s.operation().label() + "\"";
+            quantile(out, label, "0.5", s.p50());
+            quantile(out, label, "0.9", s.p90());
+            quantile(out, label, "0.99", s.p99());
+            out.write("loginsystem_operation_duration_seconds_sum{" + label + "} " + seconds(s.sumNanos()) + "\n");
+            out.write("loginsystem_operation_duration_seconds_count{" + label + "} " + s.timed() + "\n");
+        }
+    }
+
+    private static void quantile(Writer out, String label, String quantile, long nanos) throws IOException {
+        out.write("loginsystem_operation_duration_seconds{" + label + ",quantile=\"" + quantile + "\"} "
+                + seconds(nanos) + "\n");
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    // Registers this instance with the platform MBean server. Returns false if the name is already taken.
+    public boolean registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+            return true;
+        } catch (InstanceAlreadyExistsException e) {
+            return false;
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+        }
+    }
+
+    // MetricsMXBean attributes, keyed by operation label.
+
+    @Override
+    public Map<String, Long> getCalls() {
+        return attribute(Snapshot::calls);
+    }
+
+    @Override
+    public Map<String, Long> getMeanNanos() {
+        return attribute(Snapshot::meanNanos);
+    }
+
+    @Override
+    public Map<String, Long> getP50Nanos() {
+        return attribute(Snapshot::p50);
+    }
+
+    @Override
+    public Map<String, Long> getP99Nanos() {
+        return attribute(Snapshot::p99);
+    }
+
+    @Override
+    public Map<String, Long> getMaxNanos() {
+        return attribute(Snapshot::max);
+    }
+
+    @Override
+    public String prometheusText() {
+        StringWriter out = new StringWriter();
+        try {
+            writePrometheus(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("StringWriter does not throw", e);
+        }
+        return out.toString();
+    }
+
+    private Map<String, Long> attribute(ToLongFunction<Snapshot> field) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Snapshot s : snapshot()) {
+            values.put(s.operation().label(), field.applyAsLong(s));
+        }
+        return values;
+    }
+}
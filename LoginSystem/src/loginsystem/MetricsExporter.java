@@ -0,0 +1,85 @@
+package loginsystem;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Publishes Metrics in Prometheus text format, either rewritten to a file on a fixed period (for the node
+// exporter's textfile collector) or served at /metrics over HTTP. Each file write goes to a temporary sibling
+// that is then moved over the target, so a scraper never reads a half-written file.
+public final class MetricsExporter implements Closeable {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final ScheduledExecutorService scheduler;
+    private final HttpServer http;
+
+    private MetricsExporter(ScheduledExecutorService scheduler, HttpServer http) {
+        this.scheduler = scheduler;
+        this.http = http;
+    }
+
+    public static MetricsExporter toFile(Metrics metrics, Path file, long periodMillis) throws IOException {
+        writeFile(metrics, file);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-exporter");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                writeFile(metrics, file);
+            } catch (IOException e) {
+                // Keep trying on later ticks; the last good file stays in place
+                System.err.println("Could not write metrics to " + file + ": " + e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return new MetricsExporter(scheduler, null);
+    }
+
+    // Serves GET /metrics on address (port 0 picks a free port; see port()).
+    public static MetricsExporter onPort(Metrics metrics, InetSocketAddress address) throws IOException {
+        HttpServer http = HttpServer.create(address, 0);
+        http.createContext("/metrics", exchange -> {
+            try (exchange) {
+                byte[] body = metrics.prometheusText().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        http.start();
+        return new MetricsExporter(null, http);
+    }
+
+    public int port() {
+        return http == null ? -1 : http.getAddress().getPort();
+    }
+
+    static void writeFile(Metrics metrics, Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            metrics.writePrometheus(out);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) scheduler.shutdownNow();
+        if (http != null) http.stop(0);
+    }
+}
@@ -0,0 +1,21 @@
+package loginsystem;
+
+import java.util.Map;
+
+// JMX view of Metrics, registered as loginsystem:type=Metrics. Each attribute maps an operation label to its
+// value; latencies are in nanoseconds.
+public interface MetricsMXBean {
+
+    Map<String, Long> getCalls();
+
+    Map<String, Long> getMeanNanos();
+
+    Map<String, Long> getP50Nanos();
+
+    Map<String, Long> getP99Nanos();
+
+    Map<String, Long> getMaxNanos();
+
+    // The same figures in Prometheus text format
+    String prometheusText();
+}
@@ -0,0 +1,103 @@
+package loginsystem;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// Salted PBKDF2-HMAC-SHA512 password credentials, stored as "pbkdf2-sha512$<iterations>$<salt>$<hash>"
+// (unpadded Base64). verify() also accepts legacy plaintext records so they can be rehashed on next login.
+// Iterations is the cost knob: PasswordHashBenchmark reports the time per hash for candidate values, and the
+// default can be overridden with -Dloginsystem.pbkdf2.iterations=<n>.
+public class PasswordHasher {
+
+    public static final int DEFAULT_ITERATIONS = Integer.getInteger("loginsystem.pbkdf2.iterations", 210_000);
+
+    private static final String PREFIX = "pbkdf2-sha512$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 512;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getDecoder();
+
+    // SecretKeyFactory lookups go through the provider list, so each thread keeps its own instance
+    private static final ThreadLocal<SecretKeyFactory> FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2WithHmacSHA512 is not available", e);
+        }
+    });
+
+    private final int iterations;
+
+    public PasswordHasher() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    public PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be positive: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        return PREFIX + iterations + '$' + ENCODER.encodeToString(salt) + '$'
+                + ENCODER.encodeToString(derive(password, salt, iterations));
+    }
+
+    // Checks a password against a stored credential, in time independent of where they differ.
+    public boolean verify(String password, String stored) {
+        if (password == null || stored == null) return false;
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) return false;
+        try {
+            int cost = Integer.parseInt(parts[1]);
+            byte[] salt = DECODER.decode(parts[2]);
+            byte[] expected = DECODER.decode(parts[3]);
+            return cost > 0 && MessageDigest.isEqual(expected, derive(password, salt, cost));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // True for plaintext records and for hashes made with fewer iterations than this hasher uses.
+    public boolean needsRehash(String stored) {
+        if (!isHashed(stored)) return true;
+        int end = stored.indexOf('$', PREFIX.length());
+        try {
+            return end < 0 || Integer.parseInt(stored, PREFIX.length(), end, 10) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return FACTORY.get().generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 failed", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package loginsystem;
+
+import java.util.Arrays;
+
+// Sorted set of ints (message numbers) stored compactly: blocks of up to BLOCK values, each block keeping its
+// first and last value plus varint-encoded deltas for the rest, so postings cost about one or two bytes each.
+// Appending a value above the current maximum writes a few bytes; any other add, remove or lookup finds its
+// block by binary search and decodes at most 2 * BLOCK values. Not thread-safe.
+final class PostingList {
+
+    static final int BLOCK = 128;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private int size;
+    private int blocks;
+    private int[] first = new int[1];
+    private int[] last = new int[1];
+    private int[] counts = new int[1];
+    private int[] used = new int[1];
+    private byte[][] deltas = new byte[1][];
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Returns false if the value was already present.
+    boolean add(int value) {
+        if (blocks == 0 || (value > last[blocks - 1] && counts[blocks - 1] >= BLOCK)) {
+            insertBlock(blocks, new int[] {value}, 1);
+        } else if (value > last[blocks - 1]) {
+            int b = blocks - 1;
+            appendDelta(b, value - last[b]);
+            last[b] = value;
+            counts[b]++;
+        } else {
+            int b = Math.max(0, blockFor(value));
+            int[] values = decode(b, 1);
+            int count = counts[b];
+            int pos = Arrays.binarySearch(values, 0, count, value);
+            if (pos >= 0) return false;
+            pos = -pos - 1;
+            System.arraycopy(values, pos, values, pos + 1, count - pos);
+            values[pos] = value;
+            count++;
+            if (count > 2 * BLOCK) {
+                int half = count / 2;
+                encode(b, values, 0, half);
+                insertBlock(b + 1, Arrays.copyOfRange(values, half, count), count - half);
+            } else {
+                encode(b, values, 0, count);
+            }
+        }
+        size++;
+        return true;
+    }
+
+    // Returns false if the value was not present.
+    boolean remove(int value) {
+        int b = blockFor(value);
+        if (b < 0 || value > last[b]) return false;
+        int[] values = decode(b, 0);
+        int count = counts[b];
+        int pos = Arrays.binarySearch(values, 0, count, value);
+        if (pos < 0) return false;
+        if (count == 1) {
+            removeBlock(b);
+        } else {
+            System.arraycopy(values, pos + 1, values, pos, count - pos - 1);
+            encode(b, values, 0, count - 1);
+        }
+        size--;
+        return true;
+    }
+
+    boolean contains(int value) {
+        int b = blockFor(value);
+        if (b < 0 || value > last[b]) return false;
+        if (value == first[b] || value == last[b]) return true;
+        byte[] bytes = deltas[b];
+        int current = first[b];
+        for (int i = 0, end = used[b]; i < end; ) {
+            int delta = 0;
+            int shift = 0;
+            byte x;
+            do {
+                x = bytes[i++];
+                delta |= (x & 0x7F) << shift;
+                shift += 7;
+            } while (x < 0);
+            current += delta;
+            if (current >= value) return current == value;
+        }
+        return false;
+    }
+
+    // All values in ascending order.
+    int[] toArray() {
+        int[] out = new int[size];
+        int n = 0;
+        for (int b = 0; b < blocks; b++) {
+            n = decodeInto(b, out, n);
+        }
+        return out;
+    }
+
+    int blocks() {
+        return blocks;
+    }
+
+    // Values of block b in ascending order; blocks are ordered too, so walking them backwards yields the
+    // largest values first without decoding the rest.
+    int[] block(int b) {
+        return decode(b, 0);
+    }
+
+    // Approximate heap bytes held by the posting data, for capacity planning.
+    long bytes() {
+        long total = 16L + 4L * 4 * first.length + 8L * deltas.length;
+        for (int b = 0; b < blocks; b++) {
+            total += 16 + deltas[b].length;
+        }
+        return total;
+    }
+
+    // Index of the last block whose first value is <= value, or -1 if value precedes every block.
+    private int blockFor(int value) {
+        int lo = 0;
+        int hi = blocks - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (first[mid] <= value) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return hi;
+    }
+
+    // Decodes block b into a new array with room for extra more values.
+    private int[] decode(int b, int extra) {
+        int[] values = new int[counts[b] + extra];
+        decodeInto(b, values, 0);
+        return values;
+    }
+
+    private int decodeInto(int b, int[] out, int n) {
+        byte[] bytes = deltas[b];
+        int current = first[b];
+        out[n++] = current;
+        for (int i = 0, end = used[b]; i < end; ) {
+            int delta = 0;
+            int shift = 0;
+            byte x;
+            do {
+                x = bytes[i++];
+                delta |= (x & 0x7F) << shift;
+                shift += 7;
+            } while (x < 0);
+            current += delta;
+            out[n++] = current;
+        }
+        return n;
+    }
+
+    private void encode(int b, int[] values, int from, int to) {
+        first[b] = values[from];
+        last[b] = values[to - 1];
+        counts[b] = to - from;
+        used[b] = 0;
+        deltas[b] = to - from == 1 ? EMPTY : new byte[5 * (to - from - 1)];
+        for (int i = from + 1; i < to; i++) {
+            appendDelta(b, values[i] - values[i - 1]);
+        }
+        if (used[b] < deltas[b].length) {
+            deltas[b] = Arrays.copyOf(deltas[b], used[b]);
+        }
+    }
+
+    // Deltas are written as unsigned varints, so the full int range sorts correctly.
+    private void appendDelta(int b, int delta) {
+        if (used[b] + 5 > deltas[b].length) {
+            deltas[b] = Arrays.copyOf(deltas[b], Math.max(8, Math.min(deltas[b].length * 2, 5 * BLOCK)));
+        }
+        byte[] bytes = deltas[b];
+        int i = used[b];
+        while ((delta & ~0x7F) != 0) {
+            bytes[i++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        bytes[i++] = (byte) delta;
+        used[b] = i;
+    }
+
+    private void insertBlock(int b, int[] values, int count) {
+        if (blocks == first.length) {
+            int capacity = blocks * 2;
+            first = Arrays.copyOf(first, capacity);
+            last = Arrays.copyOf(last, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            used = Arrays.copyOf(used, capacity);
+            deltas = Arrays.copyOf(deltas, capacity);
+        }
+        int move = blocks - b;
+        System.arraycopy(first, b, first, b + 1, move);
+        System.arraycopy(last, b, last, b + 1, move);
+        System.arraycopy(counts, b, counts, b + 1, move);
+        System.arraycopy(used, b, used, b + 1, move);
+        System.arraycopy(deltas, b, deltas, b + 1, move);
+        blocks++;
+        encode(b, values, 0, count);
+    }
+
+    private void removeBlock(int b) {
+        int move = blocks - b - 1;
+        System.arraycopy(first, b + 1, first, b, move);
+        System.arraycopy(last, b + 1, last, b, move);
+        System.arraycopy(counts, b + 1, counts, b, move);
+        System.arraycopy(used, b + 1, used, b, move);
+        System.arraycopy(deltas, b + 1, deltas, b, move);
+        blocks--;
+        deltas[blocks] = null;
+    }
+}
@@ -0,0 +1,302 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+// Digit trie over recipient numbers, for traffic to a number prefix such as "+2783": which recipients fall under
+// it, how many messages and recipients it holds, and its busiest recipients. Counts cover every flag.
+// Recipients are '+' and up to 14 digits (Validators.checkRecipient); any other recipient is not indexed.
+//
+// The trie is path-compressed: a node stands for a run of digits, so a number costs at most two nodes however
+// long it is, and a node's digits are read from any number below it instead of being stored. Every node keeps
+// its subtree's message and recipient counts and the largest count of any one recipient in it, maintained along
+// the path on every add and remove. So a prefix's counts cost O(prefix length), listing its recipients costs
+// O(k) in the number listed, and top-N walks best-first from the prefix, opening only subtrees that can still
+// hold one of the N instead of scanning the prefix.
+// Thread-safe: updates arrive through MessageStore.Listener under the store's write lock and take this index's
+// write lock; queries take its read lock.
+public final class RecipientIndex implements MessageStore.Listener {
+
+    public record PrefixCount(long messages, int recipients) {
+    }
+
+    public record RecipientCount(String recipient, int messages) {
+    }
+
+    private static final int MAX_LENGTH = 15;
+
+    private static final class Node {
+        // Length of the prefix this node ends, '+' included, and a number below it that spells that prefix
+        final int depth;
+        final String key;
+        Node[] children;
+        // Messages to exactly key.substring(0, depth); zero unless a recipient ends here
+        int own;
+        long messages;
+        int recipients;
+        int busiest;
+
+        Node(int depth, String key) {
+            this.depth = depth;
+            this.key = key;
+        }
+
+        Node child(int digit) {
+            return children == null ? null : children[digit];
+        }
+
+        void setChild(int digit, Node child) {
+            if (children == null) children = new Node[10];
+            children[digit] = child;
+        }
+
+        int childCount() {
+            int count = 0;
+            if (children != null) {
+                for (Node child : children) {
+                    if (child != null) count++;
+                }
+            }
+            return count;
+        }
+
+        void recomputeBusiest() {
+            int max = own;
+            if (children != null) {
+                for (Node child : children) {
+                    if (child != null && child.busiest > max) max = child.busiest;
+                }
+            }
+            busiest = max;
+        }
+
+        String recipient() {
+            return key.substring(0, depth);
+        }
+    }
+
+    // The root ends the prefix "+"
+    private final Node root = new Node(1, "+");
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void onAdd(Message msg) {
+        if (!indexable(msg.recipient)) return;
+        lock.writeLock().lock();
+        try {
+            add(msg.recipient);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onRemove(Message msg) {
+        if (!indexable(msg.recipient)) return;
+        lock.writeLock().lock();
+        try {
+            remove(msg.recipient);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onFlagChange(Message msg, String from) {
+        // The recipient is unchanged
+    }
+
+    // Messages and distinct recipients under the prefix, which must start with '+'. O(prefix length).
+    public PrefixCount count(String prefix) {
+        lock.readLock().lock();
+        try {
+            Node node = find(prefix);
+            return node == null ? new PrefixCount(0, 0) : new PrefixCount(node.messages, node.recipients);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Up to limit recipients under the prefix in number order. O(limit) past finding the prefix.
+    public List<String> recipients(String prefix, int limit) {
+        List<String> found = new ArrayList<>();
+        if (limit > 0) forEach(prefix, recipient -> found.add(recipient) && found.size() < limit);
+        return found;
+    }
+
+    // Calls action with each recipient under the prefix in number order until it returns false.
+    public void forEach(String prefix, Predicate<String> action) {
+        lock.readLock().lock();
+        try {
+            Node start = find(prefix);
+            if (start == null) return;
+            Deque<Node> pending = new ArrayDeque<>();
+            pending.push(start);
+            while (!pending.isEmpty()) {
+                Node node = pending.pop();
+                if (node.own > 0 && !action.test(node.recipient())) return;
+                for (int digit = 9; digit >= 0; digit--) {
+                    Node child = node.child(digit);
+                    if (child != null) pending.push(child);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The n recipients under the prefix with the most messages, most first, ties in number order.
+    public List<RecipientCount> top(String prefix, int n) {
+        lock.readLock().lock();
+        try {
+            List<RecipientCount> top = new ArrayList<>();
+            Node start = find(prefix);
+            if (start == null) return top;
+            // A node entry stands for its whole subtree, ranked by the best count in it; a recipient entry for
+            // one number. Every number in a subtree sorts after the subtree's own prefix, so on equal counts a
+            // subtree is opened before any recipient that sorts after it and ties come out in number order.
+            PriorityQueue<Candidate> queue = new PriorityQueue<>(Candidate.ORDER);
+            queue.add(new Candidate(start, start.busiest, start.recipient(), false));
+            while (!queue.isEmpty() && top.size() < n) {
+                Candidate best = queue.poll();
+                if (best.leaf) {
+                    top.add(new RecipientCount(best.prefix, best.count));
+                    continue;
+                }
+                Node node = best.node;
+                if (node.own > 0) queue.add(new Candidate(node, node.own, node.recipient(), true));
+                if (node.children != null) {
+                    for (Node child : node.children) {
+                        if (child != null) queue.add(new Candidate(child, child.busiest, child.recipient(), false));
+                    }
+                }
+            }
+            return top;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record Candidate(Node node, int count, String prefix, boolean leaf) {
+
+        static final Comparator<Candidate> ORDER = Comparator.comparingInt((Candidate c) -> -c.count)
+                .thenComparing(Candidate::prefix)
+                .thenComparing(c -> !c.leaf);
+    }
+
+    // Whether the recipient is one the trie holds: '+' and 1 to 14 digits.
+    static boolean indexable(String recipient) {
+        return Validators.checkRecipient(recipient);
+    }
+
+    // The node whose subtree holds exactly the numbers starting with prefix, or null if none do.
+    private Node find(String prefix) {
+        if (prefix.isEmpty() || prefix.charAt(0) != '+' || prefix.length() > MAX_LENGTH) return null;
+        Node node = root;
+        while (node.depth < prefix.length()) {
+            int digit = prefix.charAt(node.depth) - '0';
+            if (digit < 0 || digit > 9) return null;
+            Node child = node.child(digit);
+            if (child == null) return null;
+            int end = Math.min(child.depth, prefix.length());
+            if (!prefix.regionMatches(node.depth, child.key, node.depth, end - node.depth)) return null;
+            node = child;
+        }
+        return node;
+    }
+
+    private void add(String recipient) {
+        Node[] path = new Node[MAX_LENGTH + 1];
+        int length = 0;
+        Node node = root;
+        path[length++] = node;
+        while (node.depth < recipient.length()) {
+            int digit = recipient.charAt(node.depth) - '0';
+            Node child = node.child(digit);
+            if (child == null) {
+                child = new Node(recipient.length(), recipient);
+                node.setChild(digit, child);
+            } else {
+                int split = node.depth + 1;
+                int end = Math.min(child.depth, recipient.length());
+                while (split < end && recipient.charAt(split) == child.key.charAt(split)) split++;
+                if (split < child.depth) {
+                    // The number leaves the child's run of digits part way: a new node ends the shared part
+                    Node shared = new Node(split, child.key);
+                    shared.setChild(child.key.charAt(split) - '0', child);
+                    shared.messages = child.messages;
+                    shared.recipients = child.recipients;
+                    shared.busiest = child.busiest;
+                    node.setChild(digit, shared);
+                    child = shared;
+                }
+            }
+            path[length++] = child;
+            node = child;
+        }
+        node.own++;
+        for (int i = 0; i < length; i++) {
+            path[i].messages++;
+            if (node.own == 1) path[i].recipients++;
+            if (node.own > path[i].busiest) path[i].busiest = node.own;
+        }
+    }
+
+    private void remove(String recipient) {
+        Node[] path = new Node[MAX_LENGTH + 1];
+        int[] digits = new int[MAX_LENGTH + 1];
+        int length = 0;
+        Node node = root;
+        path[length++] = node;
+        while (node.depth < recipient.length()) {
+            int digit = recipient.charAt(node.depth) - '0';
+            Node child = node.child(digit);
+            if (child == null || child.depth > recipient.length()
+                    || !recipient.regionMatches(node.depth, child.key, node.depth, child.depth - node.depth)) return;
+            digits[length] = digit;
+            path[length++] = child;
+            node = child;
+        }
+        if (node.own == 0) return;
+        node.own--;
+        for (int i = 0; i < length; i++) {
+            path[i].messages--;
+            if (node.own == 0) path[i].recipients--;
+        }
+        if (node.own == 0 && node != root) {
+            // Drop a node no number ends at or passes through, and fold a node left with one child into it
+            Node parent = path[length - 2];
+            int children = node.childCount();
+            if (children == 0) {
+                parent.children[digits[length - 1]] = null;
+                length--;
+                if (parent != root && parent.own == 0 && parent.childCount() == 1) {
+                    path[length - 2].children[digits[length - 1]] = onlyChild(parent);
+                    length--;
+                }
+            } else if (children == 1) {
+                parent.children[digits[length - 1]] = onlyChild(node);
+                length--;
+            }
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            path[i].recomputeBusiest();
+        }
+    }
+
+    private static Node onlyChild(Node node) {
+        for (Node child : node.children) {
+            if (child != null) return child;
+        }
+        throw new IllegalStateException("No child");
+    }
+}
@@ -0,0 +1,268 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// Remembers recent sends by idempotency key, so a client retrying a send gets the message it already sent
+// instead of a second copy. Keys are 128-bit fingerprints: SHA-256 of the sender and either the client's own
+// key or the recipient and text, truncated. A fingerprint is 16 bytes whatever the key, so memory does not
+// depend on what clients send.
+//
+// The window is split into SLICES time slices plus the one being filled, each a fixed-size open-addressing
+// table of fingerprints and the messages they sent. When a slice's time is up, the oldest table is cleared and
+// reused, so a key is remembered for at least windowMillis and at most one slice longer, and nothing is ever
+// scanned to expire it. A slice that fills before its time is up is rotated early: under a flood the window
+// shrinks, memory never grows past maxEntries plus a slice. Tables are only allocated when first written.
+//
+// Most sends are not retries, so each table has a Bloom filter in front of it, about 10 bits per entry: a new
+// key is usually turned away by a few bits in a small array instead of probing every table.
+// claim() holds one lock, as MessageStore's write lock already serializes every send behind it.
+public final class SendDeduplicator {
+
+    public record Config(long windowMillis, int maxEntries) {
+
+        public Config {
+            if (windowMillis < SLICES || maxEntries < SLICES) {
+                throw new IllegalArgumentException("windowMillis and maxEntries must be at least " + SLICES);
+            }
+        }
+    }
+
+    // Ten minutes, a million keys: a retry window well past any client timeout at up to 6M sends an hour, in
+    // about 45 MB once full.
+    public static final Config DEFAULT = new Config(10 * 60_000, 1_000_000);
+
+    // A key for claim(); build one with clientKey() or contentKey().
+    public record Fingerprint(long high, long low) {
+    }
+
+    private static final int SLICES = 8;
+    private static final int BLOOM_BITS_PER_ENTRY = 10;
+    private static final int BLOOM_HASHES = 7;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    // One time slice of keys: linear probing on the fingerprint, which is already uniformly distributed.
+    private static final class Slice {
+        final long[] keys;
+        final Message[] messages;
+        final long[] bloom;
+        final int mask;
+        int size;
+
+        Slice(int capacity) {
+            int slots = Integer.highestOneBit(capacity * 2 - 1) << 1;
+            this.mask = slots - 1;
+            this.keys = new long[slots * 2];
+            this.messages = new Message[slots];
+            this.bloom = new long[Math.max(1, (int) ((long) capacity * BLOOM_BITS_PER_ENTRY / 64))];
+        }
+
+        boolean mightContain(long high, long low) {
+            long bits = (long) bloom.length * 64;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = Long.remainderUnsigned(low + i * high, bits);
+                if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        // A forgotten key may have been claimed again further along the probe sequence.
+        Message find(long high, long low) {
+            for (int slot = (int) low & mask; messages[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[2 * slot] == high && keys[2 * slot + 1] == low && messages[slot] != FORGOTTEN) return messages[slot];
+            }
+            return null;
+        }
+
+        void put(long high, long low, Message msg) {
+            int slot = (int) low & mask;
+            while (messages[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[2 * slot] = high;
+            keys[2 * slot + 1] = low;
+            messages[slot] = msg;
+            size++;
+            long bits = (long) bloom.length * 64;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = Long.remainderUnsigned(low + i * high, bits);
+                bloom[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        // Drops the message a key was claimed for, keeping the key so later probes still pass over it.
+        void forget(long high, long low, Message msg) {
+            for (int slot = (int) low & mask; messages[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[2 * slot] == high && keys[2 * slot + 1] == low && messages[slot] == msg) {
+                    messages[slot] = FORGOTTEN;
+                    return;
+                }
+            }
+        }
+
+        void clear() {
+            if (size == 0) return;
+            Arrays.fill(messages, null);
+            Arrays.fill(bloom, 0);
+            size = 0;
+        }
+    }
+
+    // Stands in for a message whose send failed after its key was claimed; never returned by claim()
+    private static final Message FORGOTTEN = new Message("", 0, "", "", "", "");
+
+    private final Config config;
+    private final LongSupplier clock;
+    private final long sliceNanos;
+    private final int sliceCapacity;
+    // Ring of SLICES + 1 tables; current is the one being filled, current - 1 the one before it
+    private final Slice[] slices = new Slice[SLICES + 1];
+    private int current;
+    private long currentStart;
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder earlyRotations = new LongAdder();
+
+    public SendDeduplicator() {
+        this(DEFAULT);
+    }
+
+    public SendDeduplicator(Config config) {
+        this(config, System::nanoTime);
+    }
+
+    SendDeduplicator(Config config, LongSupplier nanoClock) {
+        this.config = config;
+        this.clock = nanoClock;
+        this.sliceNanos = config.windowMillis() * 1_000_000 / SLICES;
+        this.sliceCapacity = config.maxEntries() / SLICES;
+        this.currentStart = nanoClock.getAsLong();
+    }
+
+    public Config config() {
+        return config;
+    }
+
+    // Key for a client-supplied idempotency key; keys are scoped to the sender.
+    public static Fingerprint clientKey(String sender, String key) {
+        return fingerprint('K', sender, key, "");
+    }
+
+    // Key for a send without one: the same text to the same recipient from the same sender.
+    public static Fingerprint contentKey(String sender, String recipient, String text) {
+        return fingerprint('C', sender, recipient, text);
+    }
+
+    // The message already sent under the key within the window, or else the one send makes, which is then
+    // remembered under the key. send runs under the lock, so it should only compose the message; storing it
+    // is up to the caller once claim() returns.
+    public synchronized Message claim(Fingerprint key, Supplier<Message> send) {
+        long now = clock.getAsLong();
+        rotate(now);
+        long high = key.high();
+        long low = key.low();
+        for (int age = 0; age <= SLICES; age++) {
+            Slice slice = slices[(current - age + slices.length) % slices.length];
+            if (slice == null || slice.size == 0 || !slice.mightContain(high, low)) continue;
+            Message msg = slice.find(high, low);
+            if (msg != null) {
+                replayed.increment();
+                return msg;
+            }
+            falsePositives.increment();
+        }
+        Slice slice = slices[current];
+        if (slice != null && slice.size >= sliceCapacity) {
+            earlyRotations.increment();
+            advance(now);
+            slice = slices[current];
+        }
+        if (slice == null) {
+            slice = slices[current] = new Slice(sliceCapacity);
+        }
+        Message msg = send.get();
+        slice.put(high, low, msg);
+        return msg;
+    }
+
+    // Releases a key whose message could not be stored, so a retry sends again instead of replaying it.
+    public synchronized void forget(Fingerprint key, Message msg) {
+        for (Slice slice : slices) {
+            if (slice != null) slice.forget(key.high(), key.low(), msg);
+        }
+    }
+
+    // Keys remembered; never more than maxEntries plus one slice's worth.
+    public synchronized int size() {
+        int size = 0;
+        for (Slice slice : slices) {
+            if (slice != null) size += slice.size;
+        }
+        return size;
+    }
+
+    public long replayed() {
+        return replayed.sum();
+    }
+
+    // Keys the Bloom filters let through that the tables did not hold.
+    public long falsePositives() {
+        return falsePositives.sum();
+    }
+
+    // Slices rotated because they filled before their time was up; each one shortened the window.
+    public long earlyRotations() {
+        return earlyRotations.sum();
+    }
+
+    // Moves to a fresh slice for every slice length since the current one started; after a long quiet spell
+    // that clears them all.
+    private void rotate(long now) {
+        long elapsed = (now - currentStart) / sliceNanos;
+        if (elapsed <= 0) return;
+        long start = currentStart + elapsed * sliceNanos;
+        for (long i = 0; i < Math.min(elapsed, slices.length); i++) {
+            advance(start);
+        }
+    }
+
+    // Makes the oldest slice the current one, emptied.
+    private void advance(long start) {
+        current = (current + 1) % slices.length;
+        currentStart = start;
+        if (slices[current] != null) slices[current].clear();
+    }
+
+    private static Fingerprint fingerprint(char kind, String a, String b, String c) {
+        MessageDigest digest = SHA256.get();
+        digest.update((byte) kind);
+        update(digest, a);
+        update(digest, b);
+        update(digest, c);
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+        return new Fingerprint(hash.getLong(), hash.getLong());
+    }
+
+    // Length-prefixed, so ("ab", "c") and ("a", "bc") differ.
+    private static void update(MessageDigest digest, String field) {
+        byte[] bytes = String.valueOf((Object) field).getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+}
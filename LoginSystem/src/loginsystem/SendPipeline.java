@@ -0,0 +1,288 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+import loginsystem.MessageService.OutgoingMessage;
+import loginsystem.MessageService.SendResult;
+import loginsystem.MessageService.Status;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Multi-core send path in two stages. Sends are sharded by recipient over partitions, each a bounded queue
+// drained by its own thread, which validates, numbers, identifies and hashes up to maxBatch messages at a time
+// (MessageService.composeBatch). Composed batches go through one bounded queue to a single appender, which
+// merges whatever is waiting into one store.addAll() and completes the callers' futures.
+//
+// Every message for a recipient goes through the same partition, so a recipient's messages are numbered and
+// stored in the order they were submitted, and their message numbers rise. Numbers come in one contiguous block
+// per batch from the service's counter, so they stay unique across partitions. Composing runs on every core;
+// the appender takes the store's write lock once per merged batch instead of once per message.
+// A full queue makes submit() block, so a fast producer is held back instead of queueing without bound.
+// Each send is counted in Metrics when composed and timed from submit() until its future completes, so the
+// send latency includes the time spent queued.
+public final class SendPipeline implements Closeable {
+
+    // partitions: composing threads, normally one per core; queueCapacity: sends each partition holds;
+    // maxBatch: sends composed together, kept under MessageService's parallel threshold.
+    public record Config(int partitions, int queueCapacity, int maxBatch) {
+        public Config {
+            if (partitions < 1) throw new IllegalArgumentException("partitions must be positive: " + partitions);
+            if (queueCapacity < 1) throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+            if (maxBatch < 1) throw new IllegalArgumentException("maxBatch must be positive: " + maxBatch);
+        }
+
+        public static Config defaults() {
+            return new Config(Runtime.getRuntime().availableProcessors(), 4096, 256);
+        }
+    }
+
+    // Current depth of one stage's queue: "partition-<n>" in sends, or "append" in composed batches.
+    public record Stage(String name, int depth, int capacity) {
+    }
+
+    public record Stats(long submitted, long completed, long appends, List<Stage> stages) {
+    }
+
+    // started: Metrics start time of the send, or UNTIMED
+    private record Task(OutgoingMessage item, CompletableFuture<SendResult> result, long started) {
+
+        void complete(SendResult sent) {
+            result.complete(sent);
+            Metrics.global().stop(Metrics.Operation.SEND, started);
+        }
+
+        void fail(RuntimeException e) {
+            result.completeExceptionally(e);
+            Metrics.global().stop(Metrics.Operation.SEND, started);
+        }
+    }
+
+    private record Composed(List<Task> tasks, Status[] statuses, Message[] messages) {
+    }
+
+    private static final Task END = new Task(null, null, Metrics.UNTIMED);
+    private static final Composed END_OF_BATCHES = new Composed(List.of(), new Status[0], new Message[0]);
+
+    private final MessageService service;
+    private final Config config;
+    private final Partition[] partitions;
+    private final BlockingQueue<Composed> appendQueue;
+    private final Thread appender;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder appends = new LongAdder();
+    private boolean closed;
+
+    private final class Partition {
+        final BlockingQueue<Task> queue = new ArrayBlockingQueue<>(config.queueCapacity());
+        final Thread thread;
+        // Held by submit() across the put, which can block on a full queue: a j.u.c. lock rather than a monitor,
+        // so a virtual thread waiting here unmounts instead of pinning its carrier
+        final Lock lock = new ReentrantLock();
+        // Guarded by lock; once set, nothing more is queued behind END
+        boolean closed;
+
+        Partition(int index) {
+            thread = daemon("send-partition-" + index, this::compose);
+        }
+
+        void compose() {
+            List<Task> tasks = new ArrayList<>(config.maxBatch());
+            boolean open = true;
+            while (open) {
+                try {
+                    tasks.add(queue.take());
+                } catch (InterruptedException e) {
+                    // close() never interrupts; keep draining so no caller is left waiting
+                    continue;
+                }
+                queue.drainTo(tasks, config.maxBatch() - 1);
+                if (tasks.get(tasks.size() - 1) == END) {
+                    tasks.remove(tasks.size() - 1);
+                    open = false;
+                }
+                if (tasks.isEmpty()) continue;
+                List<Task> batch = List.copyOf(tasks);
+                tasks.clear();
+                try {
+                    Status[] statuses = new Status[batch.size()];
+                    Message[] messages = service.composeBatch(itemsOf(batch), statuses);
+                    putUninterruptibly(appendQueue, new Composed(batch, statuses, messages));
+                } catch (RuntimeException e) {
+                    fail(batch, e);
+                }
+            }
+        }
+    }
+
+    public SendPipeline(MessageService service) {
+        this(service, Config.defaults());
+    }
+
+    public SendPipeline(MessageService service, Config config) {
+        this.service = service;
+        this.config = config;
+        this.appendQueue = new ArrayBlockingQueue<>(2 * config.partitions());
+        this.partitions = new Partition[config.partitions()];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition(i);
+        }
+        this.appender = daemon("send-appender", this::append);
+        for (Partition partition : partitions) {
+            partition.thread.start();
+        }
+        appender.start();
+    }
+
+    // Queues a send on its recipient's partition, blocking while that partition is full. The future completes
+    // on the appender thread once the message is stored (or rejected), so callers should not do slow work in
+    // its callbacks. After close() the future fails with RejectedExecutionException.
+    public CompletableFuture<SendResult> submit(String recipient, String text) throws InterruptedException {
+        CompletableFuture<SendResult> result = new CompletableFuture<>();
+        Partition partition = partitions[partitionOf(recipient)];
+        partition.lock.lockInterruptibly();
+        try {
+            if (partition.closed) {
+                result.completeExceptionally(new RejectedExecutionException("Send pipeline is closed"));
+                return result;
+            }
+            partition.queue.put(new Task(new OutgoingMessage(recipient, text), result, Metrics.global().time(Metrics.Operation.SEND)));
+        } finally {
+            partition.lock.unlock();
+        }
+        submitted.increment();
+        return result;
+    }
+
+    int partitionOf(String recipient) {
+        // Spread the hash so recipients differing only in their last digits do not cluster
+        int h = Objects.hashCode(recipient) * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), partitions.length);
+    }
+
+    public Stats stats() {
+        List<Stage> stages = new ArrayList<>(partitions.length + 1);
+        for (int i = 0; i < partitions.length; i++) {
+            stages.add(new Stage("partition-" + i, partitions[i].queue.size(), config.queueCapacity()));
+        }
+        stages.add(new Stage("append", appendQueue.size(), 2 * config.partitions()));
+        return new Stats(submitted.sum(), completed.sum(), appends.sum(), stages);
+    }
+
+    private void append() {
+        List<Composed> waiting = new ArrayList<>();
+        boolean open = true;
+        while (open) {
+            try {
+                waiting.add(appendQueue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            appendQueue.drainTo(waiting);
+            if (waiting.get(waiting.size() - 1) == END_OF_BATCHES) {
+                waiting.remove(waiting.size() - 1);
+                open = false;
+            }
+            List<Message> merged = new ArrayList<>();
+            for (Composed batch : waiting) {
+                merged.addAll(List.of(batch.messages()));
+            }
+            try {
+                boolean[] added = service.getStore().addAll(merged);
+                appends.increment();
+                int offset = 0;
+                for (Composed batch : waiting) {
+                    List<SendResult> results = MessageService.results(batch.statuses(), batch.messages(), added, offset);
+                    offset += batch.messages().length;
+                    completed.add(results.size());
+                    for (int i = 0; i < results.size(); i++) {
+                        batch.tasks().get(i).complete(results.get(i));
+                    }
+                }
+            } catch (RuntimeException e) {
+                for (Composed batch : waiting) {
+                    fail(batch.tasks(), e);
+                }
+            }
+            waiting.clear();
+        }
+    }
+
+    private void fail(List<Task> tasks, RuntimeException e) {
+        completed.add(tasks.size());
+        for (Task task : tasks) {
+            task.fail(e);
+        }
+    }
+
+    private static List<OutgoingMessage> itemsOf(List<Task> tasks) {
+        List<OutgoingMessage> items = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            items.add(task.item());
+        }
+        return items;
+    }
+
+    // Stops taking sends, finishes every one already queued and waits for the threads to exit.
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        for (Partition partition : partitions) {
+            partition.lock.lock();
+            try {
+                partition.closed = true;
+            } finally {
+                partition.lock.unlock();
+            }
+            putUninterruptibly(partition.queue, END);
+        }
+        boolean interrupted = false;
+        for (Partition partition : partitions) {
+            interrupted |= joinUninterruptibly(partition.thread);
+        }
+        putUninterruptibly(appendQueue, END_OF_BATCHES);
+        interrupted |= joinUninterruptibly(appender);
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private static <T> void putUninterruptibly(BlockingQueue<T> queue, T item) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(item);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private static boolean joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                return interrupted;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+    }
+
+    private static Thread daemon(String name, Runnable body) {
+        Thread t = new Thread(body, name);
+        t.setDaemon(true);
+        return t;
+    }
+}
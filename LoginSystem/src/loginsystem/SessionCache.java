@@ -0,0 +1,279 @@
+package loginsystem;
+
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// Login sessions, so a client that makes many requests logs in once: a successful login is exchanged for an
+// opaque token, and later requests present the token instead of the password. Checking a token is one
+// ConcurrentHashMap lookup and a clock comparison, without a lock, where checking a password is a PBKDF2 run.
+// Tokens are 32 bytes from SecureRandom, base64url encoded; they carry no data and cannot be guessed.
+//
+// A session ends idleMillis after it was last used or absoluteMillis after login, whichever comes first, or when
+// it is invalidated. Use is recorded at most once a tick (1/64 of the shorter limit), so concurrent checks of one
+// token do not all write to it, and idle expiry is accurate to a tick.
+//
+// Expiry is swept with a timer wheel rather than a scan: each session is filed under the tick its deadline falls
+// in, and a sweep only visits ticks that are due. Using a session does not move it; a sweep that finds it used
+// since it was filed files it again under its new deadline. Sweeps run on issue() and on the first validate()
+// after a tick falls due, so no thread is needed. At maxSessions, issue() evicts from the earliest ticks, which
+// hold the sessions closest to expiring, so the least recently used go first.
+// Each user's sessions are kept together, so invalidateUser() costs as much as that user has sessions.
+public final class SessionCache {
+
+    public record Config(long idleMillis, long absoluteMillis, int maxSessions) {
+
+        public Config {
+            if (idleMillis < 1 || absoluteMillis < 1 || maxSessions < 1) {
+                throw new IllegalArgumentException("Session limits must be positive");
+            }
+        }
+    }
+
+    // Half an hour idle, twelve hours in all, 100k sessions.
+    public static final Config DEFAULT = new Config(30 * 60_000, 12 * 60 * 60_000, 100_000);
+
+    private static final int TICKS_PER_LIMIT = 64;
+    private static final int TOKEN_BYTES = 32;
+
+    private static final class Session {
+        final String token;
+        final String username;
+        final long expires;
+        volatile long lastUsed;
+        // Guarded by the cache's lock
+        boolean live = true;
+
+        Session(String token, String username, long now, long absoluteNanos) {
+            this.token = token;
+            this.username = username;
+            this.expires = now + absoluteNanos;
+            this.lastUsed = now;
+        }
+
+        long deadline(long idleNanos) {
+            return Math.min(lastUsed + idleNanos, expires);
+        }
+    }
+
+    private final Config config;
+    private final LongSupplier clock;
+    private final long idleNanos;
+    private final long absoluteNanos;
+    private final long tickNanos;
+    private final SecureRandom random = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private final ConcurrentHashMap<String, Session> tokens = new ConcurrentHashMap<>();
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder invalidated = new LongAdder();
+
+    // Everything below is guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    // Tick number -> sessions whose deadline falls before it; entries for ended sessions are dropped when due
+    private final TreeMap<Long, ArrayDeque<Session>> wheel = new TreeMap<>();
+    private final Map<String, List<Session>> byUser = new HashMap<>();
+    private int live;
+    // Start of the earliest tick in the wheel, read without the lock by validate()
+    private volatile long nextSweep = Long.MAX_VALUE;
+
+    public SessionCache() {
+        this(DEFAULT);
+    }
+
+    public SessionCache(Config config) {
+        this(config, System::nanoTime);
+    }
+
+    SessionCache(Config config, LongSupplier nanoClock) {
+        this.config = config;
+        this.clock = nanoClock;
+        this.idleNanos = config.idleMillis() * 1_000_000;
+        this.absoluteNanos = config.absoluteMillis() * 1_000_000;
+        this.tickNanos = Math.max(1_000_000, Math.min(idleNanos, absoluteNanos) / TICKS_PER_LIMIT);
+    }
+
+    public Config config() {
+        return config;
+    }
+
+    // Starts a session for a user who has just proved who they are, and returns its token.
+    public String issue(String username) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = encoder.encodeToString(bytes);
+        long now = clock.getAsLong();
+        Session session = new Session(token, username, now, absoluteNanos);
+        lock.lock();
+        try {
+            sweep(now);
+            while (live >= config.maxSessions()) {
+                evictEarliest();
+            }
+            tokens.put(token, session);
+            byUser.computeIfAbsent(username, u -> new ArrayList<>(2)).add(session);
+            live++;
+            file(session, session.deadline(idleNanos));
+        } finally {
+            lock.unlock();
+        }
+        issued.increment();
+        return token;
+    }
+
+    // The user the token was issued to, or null if it is unknown, expired or invalidated. Counts as a use.
+    public String validate(String token) {
+        if (token == null) return null;
+        long now = clock.getAsLong();
+        if (now >= nextSweep && lock.tryLock()) {
+            try {
+                sweep(now);
+            } finally {
+                lock.unlock();
+            }
+        }
+        Session session = tokens.get(token);
+        // An expired session not yet swept is refused here and removed when its tick comes up
+        if (session == null || now >= session.deadline(idleNanos)) return null;
+        if (now - session.lastUsed >= tickNanos) session.lastUsed = now;
+        return session.username;
+    }
+
+    // Ends one session, as on logout. False if the token was not live.
+    public boolean invalidate(String token) {
+        if (token == null) return false;
+        lock.lock();
+        try {
+            Session session = tokens.get(token);
+            if (session == null) return false;
+            end(session);
+            invalidated.increment();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ends every session of the user, e.g. after a password change; returns how many there were.
+    public int invalidateUser(String username) {
+        lock.lock();
+        try {
+            List<Session> sessions = byUser.get(username);
+            if (sessions == null) return 0;
+            int ended = sessions.size();
+            for (Session session : List.copyOf(sessions)) {
+                end(session);
+            }
+            invalidated.add(ended);
+            return ended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ends every session whose deadline has passed, visiting only the ticks that are due.
+    public void sweep() {
+        long now = clock.getAsLong();
+        lock.lock();
+        try {
+            sweep(now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Live sessions, some of which may have expired since the last sweep; never more than maxSessions.
+    public int size() {
+        return tokens.size();
+    }
+
+    public long issued() {
+        return issued.sum();
+    }
+
+    public long expired() {
+        return expired.sum();
+    }
+
+    public long evicted() {
+        return evicted.sum();
+    }
+
+    public long invalidated() {
+        return invalidated.sum();
+    }
+
+    private void sweep(long now) {
+        long current = Math.floorDiv(now, tickNanos);
+        Map.Entry<Long, ArrayDeque<Session>> due;
+        while ((due = wheel.firstEntry()) != null && due.getKey() <= current) {
+            wheel.pollFirstEntry();
+            for (Session session : due.getValue()) {
+                if (!session.live) continue;
+                long deadline = session.deadline(idleNanos);
+                if (now >= deadline) {
+                    end(session);
+                    expired.increment();
+                } else {
+                    file(session, deadline);
+                }
+            }
+        }
+        updateNextSweep();
+    }
+
+    // Makes room for one session: the earliest filed session goes, unless it has been used since it was filed.
+    private void evictEarliest() {
+        Map.Entry<Long, ArrayDeque<Session>> first = wheel.firstEntry();
+        ArrayDeque<Session> bucket = first.getValue();
+        Session session = bucket.pollFirst();
+        if (bucket.isEmpty()) {
+            wheel.pollFirstEntry();
+            updateNextSweep();
+        }
+        if (session == null || !session.live) return;
+        long deadline = session.deadline(idleNanos);
+        if (tickOf(deadline) > first.getKey()) {
+            file(session, deadline);
+        } else {
+            end(session);
+            evicted.increment();
+        }
+    }
+
+    // A session is due in the first tick that starts after its deadline, so a due session has always expired
+    // unless it was used since.
+    private void file(Session session, long deadline) {
+        long tick = tickOf(deadline);
+        wheel.computeIfAbsent(tick, t -> new ArrayDeque<>()).add(session);
+        if (tick * tickNanos < nextSweep) nextSweep = tick * tickNanos;
+    }
+
+    private long tickOf(long deadline) {
+        return Math.floorDiv(deadline, tickNanos) + 1;
+    }
+
+    private void updateNextSweep() {
+        Map.Entry<Long, ArrayDeque<Session>> first = wheel.firstEntry();
+        nextSweep = first == null ? Long.MAX_VALUE : first.getKey() * tickNanos;
+    }
+
+    private void end(Session session) {
+        session.live = false;
+        tokens.remove(session.token);
+        List<Session> sessions = byUser.get(session.username);
+        sessions.remove(session);
+        if (sessions.isEmpty()) byUser.remove(session.username);
+        live--;
+    }
+}
@@ -0,0 +1,613 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+import loginsystem.ChatApp.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
+
+// Point-in-time copy of the users, every message (all flags), the message counter and the highest message ID,
+// in a versioned binary file that is read through memory maps.
+//
+// Layout, little-endian:
+//   header    magic "LSNP", version, directory offset and length, directory CRC32C, message counter,
+//             highest message ID, creation time; HEADER_BYTES in all
+//   blocks    up to BLOCK_RECORDS user or message records each, packed back to back
+//   directory the flag names, then per section (users, messages) its record count and, per block, the
+//             offset, length, record count and CRC32C
+// A user record is three short-prefixed UTF-8 strings. A message record is its number, a flag index, its
+// creation time, the ID, the hash (32 raw bytes when it is 64 lowercase hex digits, else a string), the
+// recipient and the text.
+//
+// write() does not stop senders. It registers a store listener, then copies each flag's messages a chunk at a
+// time under the store's read lock. Changes made after the listener was registered are undone on the fly:
+// added messages are skipped, and a message removed or moved before its chunk was copied is written from its
+// state at registration. The file therefore holds the store exactly as it was at that instant.
+// restore() maps the blocks, checks and decodes them on every core and feeds them to the store in file order.
+public final class StateSnapshot {
+
+    public static final int MAGIC = 0x504E534C;
+    public static final int VERSION = 1;
+
+    public record Stats(long users, long messages, int messageCounter, long maxMessageID, long bytes) {
+    }
+
+    static final int HEADER_BYTES = 64;
+    static final int BLOCK_RECORDS = 4096;
+    private static final int USERS = 0;
+    private static final int MESSAGES = 1;
+    private static final byte HASH_RAW = 1;
+    private static final byte HASH_TEXT = 0;
+
+    private StateSnapshot() {
+    }
+
+    public static Stats write(Path file, UserRegistry users, MessageStore store, MessageService service) throws IOException {
+        return write(file, users, store, service, BLOCK_RECORDS, () -> { });
+    }
+
+    // betweenChunks runs after each chunk of messages is copied, outside every lock; tests use it to change
+    // the store mid-snapshot.
+    static Stats write(Path file, UserRegistry users, MessageStore store, MessageService service, int chunk,
+                       Runnable betweenChunks) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Epoch epoch = new Epoch();
+        store.addListener(epoch);
+        try (FileChannel ch = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            List<String> flags = store.flags();
+            flags.sort(null);
+            epoch.start(flags);
+            // Newest number per flag once the listener is in place; anything past it was added or moved in later,
+            // so the scan stops there instead of chasing concurrent sends
+            int[] last = new int[flags.size()];
+            for (int f = 0; f < last.length; f++) {
+                List<Message> newest = store.page(flags.get(f), null, 1, true);
+                last[f] = newest.isEmpty() ? Integer.MIN_VALUE : newest.get(0).messageNumber;
+            }
+            Map<String, Integer> flagIndex = new LinkedHashMap<>();
+            BlockWriter writer = new BlockWriter(ch, HEADER_BYTES);
+
+            for (User user : users.users()) {
+                ByteBuffer buf = writer.beginRecord(6 + 3 * (user.username.length() + user.password.length() + user.phone.length()));
+                putString(buf, user.username);
+                putString(buf, user.password);
+                putString(buf, user.phone);
+            }
+            Section userSection = writer.finish();
+
+            long maxId = -1;
+            for (int f = 0; f < flags.size(); f++) {
+                String flag = flags.get(f);
+                Integer cursor = null;
+                while (cursor == null || cursor < last[f]) {
+                    List<Message> page = store.page(flag, cursor, chunk, false);
+                    if (page.isEmpty()) break;
+                    cursor = page.get(page.size() - 1).messageNumber;
+                    for (Message msg : epoch.copied(f, cursor, page)) {
+                        maxId = Math.max(maxId, writeMessage(writer, flagIndex, msg, flag));
+                    }
+                    betweenChunks.run();
+                }
+                epoch.finishFlag(f);
+            }
+            store.removeListener(epoch);
+            for (Image image : epoch.images()) {
+                maxId = Math.max(maxId, writeMessage(writer, flagIndex, image.msg(), image.flag()));
+            }
+            Section messageSection = writer.finish();
+            // Read last, so it covers every number and ID in the file
+            int counter = Math.max(service.getMessageCounter(), messageSection.maxNumber);
+
+            ByteBuffer dir = ByteBuffer.allocate(directoryBytes(flagIndex.keySet(), userSection, messageSection))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            dir.putInt(flagIndex.size());
+            for (String flag : flagIndex.keySet()) {
+                putString(dir, flag);
+            }
+            userSection.encode(dir);
+            messageSection.encode(dir);
+            dir.flip();
+            long dirOffset = writer.position;
+            CRC32C crc = new CRC32C();
+            crc.update(dir.duplicate());
+            writeFully(ch, dir, dirOffset);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(dirOffset).putInt(dir.limit()).putInt((int) crc.getValue())
+                    .putInt(counter).putLong(maxId).putLong(System.currentTimeMillis());
+            header.clear();
+            writeFully(ch, header, 0);
+            ch.force(true);
+            long bytes = dirOffset + dir.limit();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new Stats(userSection.records, messageSection.records, counter, maxId, bytes);
+        } finally {
+            store.removeListener(epoch);
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Returns the message's numeric ID, or -1 if it is not a regular 10-digit one.
+    private static long writeMessage(BlockWriter writer, Map<String, Integer> flagIndex, Message msg, String flag)
+            throws IOException {
+        Integer index = flagIndex.computeIfAbsent(flag, k -> flagIndex.size());
+        if (index > 0xFF) throw new IllegalStateException("Too many distinct flags for a snapshot");
+        byte[] text = msg.message.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = writer.beginRecord(
+                24 + 3 * (msg.messageID.length() + msg.messageHash.length() + msg.recipient.length()) + text.length);
+        buf.putInt(msg.messageNumber).put((byte) (int) index).putLong(msg.createdAt);
+        putString(buf, msg.messageID);
+        byte[] hash = MessageHasher.fromHex(msg.messageHash);
+        if (hash != null) {
+            buf.put(HASH_RAW).put(hash);
+        } else {
+            buf.put(HASH_TEXT);
+            putString(buf, msg.messageHash);
+        }
+        putString(buf, msg.recipient);
+        buf.putInt(text.length).put(text);
+        writer.maxNumber = Math.max(writer.maxNumber, msg.messageNumber);
+        return MessageIdGenerator.parse(msg.messageID);
+    }
+
+    // Loads a snapshot into empty users and store and moves the service's counter and ID generator past it.
+    public static Stats restore(Path file, UserRegistry users, MessageStore store, MessageService service,
+                                MessageIdGenerator ids) throws IOException {
+        try (Reader reader = open(file)) {
+            int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors());
+            ExecutorService decoders = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread t = new Thread(r, "snapshot-restore");
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                // Users go straight into the concurrent registry from every decoder
+                List<Future<?>> userBlocks = new ArrayList<>();
+                for (int b = 0; b < reader.userBlocks(); b++) {
+                    int block = b;
+                    userBlocks.add(decoders.submit(() -> {
+                        for (User user : reader.userBlock(block)) {
+                            users.register(user);
+                        }
+                        return null;
+                    }));
+                }
+                // Messages are decoded up to 2 x parallelism blocks ahead and added in file order
+                ArrayDeque<Future<List<Message>>> window = new ArrayDeque<>();
+                int next = 0;
+                for (int b = 0; b < reader.messageBlocks(); b++) {
+                    while (next < reader.messageBlocks() && window.size() < 2 * parallelism) {
+                        int block = next++;
+                        window.add(decoders.submit(() -> reader.messageBlock(block)));
+                    }
+                    store.addAll(await(window.poll()));
+                }
+                for (Future<?> block : userBlocks) {
+                    await(block);
+                }
+            } finally {
+                decoders.shutdownNow();
+            }
+            service.advanceMessageCounter(reader.messageCounter());
+            if (reader.maxMessageID() >= 0) ids.advancePast(reader.maxMessageID());
+            return new Stats(reader.userCount(), reader.messageCount(), reader.messageCounter(), reader.maxMessageID(),
+                    reader.bytes());
+        }
+    }
+
+    public static Reader open(Path file) throws IOException {
+        return new Reader(file);
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during restore", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException("Failed to decode snapshot", e.getCause());
+        }
+    }
+
+    // Read-only view of a snapshot file. Blocks are mapped on demand and decoded straight from the mapping, so
+    // opening costs only the header and directory, and any block can be read on its own from any thread.
+    public static final class Reader implements Closeable {
+
+        private final Path file;
+        private final FileChannel channel;
+        private final int messageCounter;
+        private final long maxMessageID;
+        private final long bytes;
+        private final String[] flags;
+        private final Section[] sections = new Section[2];
+
+        private Reader(Path file) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                bytes = channel.size();
+                if (bytes < HEADER_BYTES) throw corrupt("file too short");
+                ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                if (header.getInt() != MAGIC) throw corrupt("not a snapshot");
+                int version = header.getInt();
+                if (version != VERSION) throw new IOException("Unsupported snapshot version " + version + " in " + file);
+                long dirOffset = header.getLong();
+                int dirBytes = header.getInt();
+                int dirCrc = header.getInt();
+                messageCounter = header.getInt();
+                maxMessageID = header.getLong();
+                if (dirOffset < HEADER_BYTES || dirBytes < 0 || dirOffset + dirBytes != bytes) throw corrupt("bad directory bounds");
+
+                ByteBuffer dir = channel.map(FileChannel.MapMode.READ_ONLY, dirOffset, dirBytes).order(ByteOrder.LITTLE_ENDIAN);
+                CRC32C crc = new CRC32C();
+                crc.update(dir.duplicate());
+                if ((int) crc.getValue() != dirCrc) throw corrupt("directory checksum mismatch");
+                flags = new String[dir.getInt()];
+                for (int i = 0; i < flags.length; i++) {
+                    flags[i] = getString(dir);
+                }
+                sections[USERS] = Section.decode(dir, dirOffset);
+                sections[MESSAGES] = Section.decode(dir, dirOffset);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                if (e instanceof IOException io) throw io;
+                throw corrupt("malformed directory");
+            }
+        }
+
+        public long userCount() {
+            return sections[USERS].records;
+        }
+
+        public long messageCount() {
+            return sections[MESSAGES].records;
+        }
+
+        public int messageCounter() {
+            return messageCounter;
+        }
+
+        // Highest regular message ID in the file, or -1 if none.
+        public long maxMessageID() {
+            return maxMessageID;
+        }
+
+        public long bytes() {
+            return bytes;
+        }
+
+        public int userBlocks() {
+            return sections[USERS].blocks();
+        }
+
+        public int messageBlocks() {
+            return sections[MESSAGES].blocks();
+        }
+
+        public List<User> userBlock(int block) throws IOException {
+            ByteBuffer buf = map(USERS, block);
+            int records = sections[USERS].records(block);
+            List<User> users = new ArrayList<>(records);
+            for (int i = 0; i < records; i++) {
+                users.add(new User(getString(buf), getString(buf), getString(buf)));
+            }
+            return users;
+        }
+
+        public List<Message> messageBlock(int block) throws IOException {
+            ByteBuffer buf = map(MESSAGES, block);
+            int records = sections[MESSAGES].records(block);
+            List<Message> messages = new ArrayList<>(records);
+            byte[] hash = new byte[32];
+            for (int i = 0; i < records; i++) {
+                messages.add(readMessage(buf, hash));
+            }
+            return messages;
+        }
+
+        // The index-th message in file order; decodes only the records of its block up to it.
+        public Message message(long index) throws IOException {
+            Section section = sections[MESSAGES];
+            if (index < 0 || index >= section.records) throw new IndexOutOfBoundsException("No message " + index);
+            int block = (int) (index / BLOCK_RECORDS);
+            ByteBuffer buf = map(MESSAGES, block);
+            byte[] hash = new byte[32];
+            for (long i = (long) block * BLOCK_RECORDS; i < index; i++) {
+                skipMessage(buf);
+            }
+            return readMessage(buf, hash);
+        }
+
+        private Message readMessage(ByteBuffer buf, byte[] hash) throws IOException {
+            int number = buf.getInt();
+            int flag = buf.get() & 0xFF;
+            if (flag >= flags.length) throw corrupt("unknown flag index " + flag);
+            long created = buf.getLong();
+            String id = getString(buf);
+            String messageHash;
+            if (buf.get() == HASH_RAW) {
+                buf.get(hash);
+                messageHash = MessageHasher.toHex(hash);
+            } else {
+                messageHash = getString(buf);
+            }
+            String recipient = getString(buf);
+            int length = buf.getInt();
+            String text = decode(buf, length);
+            return new Message(id, number, recipient, text, messageHash, flags[flag], created);
+        }
+
+        private void skipMessage(ByteBuffer buf) {
+            buf.position(buf.position() + 13);
+            skipString(buf);
+            if (buf.get() == HASH_RAW) {
+                buf.position(buf.position() + 32);
+            } else {
+                skipString(buf);
+            }
+            skipString(buf);
+            buf.position(buf.position() + 4 + buf.getInt(buf.position()));
+        }
+
+        // Maps one block and checks it against its directory CRC.
+        private ByteBuffer map(int sectionIndex, int block) throws IOException {
+            Section section = sections[sectionIndex];
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, section.offsets[block], section.lengths[block]);
+            CRC32C crc = new CRC32C();
+            crc.update(mapped.duplicate());
+            if ((int) crc.getValue() != section.crcs[block]) throw corrupt("block " + block + " checksum mismatch");
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            return mapped;
+        }
+
+        private IOException corrupt(String reason) {
+            return new IOException("Corrupt snapshot " + file + ": " + reason);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // Block directory of one section, built by BlockWriter and read back by Reader.
+    private static final class Section {
+        long records;
+        int maxNumber;
+        long[] offsets = new long[16];
+        int[] lengths = new int[16];
+        int[] counts = new int[16];
+        int[] crcs = new int[16];
+        int size;
+
+        int blocks() {
+            return size;
+        }
+
+        int records(int block) {
+            return counts[block];
+        }
+
+        void add(long offset, int length, int count, int crc) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+                crcs = Arrays.copyOf(crcs, size * 2);
+            }
+            offsets[size] = offset;
+            lengths[size] = length;
+            counts[size] = count;
+            crcs[size] = crc;
+            size++;
+            records += count;
+        }
+
+        int bytes() {
+            return 8 + 4 + size * (8 + 4 + 4 + 4);
+        }
+
+        void encode(ByteBuffer buf) {
+            buf.putLong(records).putInt(size);
+            for (int b = 0; b < size; b++) {
+                buf.putLong(offsets[b]).putInt(lengths[b]).putInt(counts[b]).putInt(crcs[b]);
+            }
+        }
+
+        static Section decode(ByteBuffer buf, long limit) throws IOException {
+            Section section = new Section();
+            long records = buf.getLong();
+            int blocks = buf.getInt();
+            for (int b = 0; b < blocks; b++) {
+                long offset = buf.getLong();
+                int length = buf.getInt();
+                int count = buf.getInt();
+                int crc = buf.getInt();
+                if (offset < HEADER_BYTES || length < 0 || offset + length > limit || count < 0 || count > BLOCK_RECORDS) {
+                    throw new IOException("Corrupt snapshot block " + b);
+                }
+                section.add(offset, length, count, crc);
+            }
+            if (section.records != records) throw new IOException("Corrupt snapshot: record count mismatch");
+            return section;
+        }
+    }
+
+    // Packs records into blocks of up to BLOCK_RECORDS and writes each full block at the end of the file.
+    private static final class BlockWriter {
+        final FileChannel channel;
+        ByteBuffer buf = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        long position;
+        int inBlock;
+        int maxNumber;
+        Section section = new Section();
+
+        BlockWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        // Starts a record of at most maxBytes, flushing the current block first if it is full.
+        ByteBuffer beginRecord(int maxBytes) throws IOException {
+            if (inBlock == BLOCK_RECORDS) flushBlock();
+            if (buf.remaining() < maxBytes) {
+                int capacity = Math.max(buf.capacity() * 2, buf.position() + maxBytes);
+                buf = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN).put(buf.flip());
+            }
+            inBlock++;
+            return buf;
+        }
+
+        Section finish() throws IOException {
+            if (inBlock > 0) flushBlock();
+            Section done = section;
+            done.maxNumber = maxNumber;
+            section = new Section();
+            maxNumber = 0;
+            return done;
+        }
+
+        private void flushBlock() throws IOException {
+            buf.flip();
+            CRC32C crc = new CRC32C();
+            crc.update(buf.duplicate());
+            int length = buf.limit();
+            writeFully(channel, buf, position);
+            section.add(position, length, inBlock, (int) crc.getValue());
+            position += length;
+            buf.clear();
+            inBlock = 0;
+        }
+    }
+
+    // A message as it was at the snapshot's instant: the same object, with the flag it had then.
+    private record Image(Message msg, String flag) {
+    }
+
+    // Listener that records what changes after the snapshot's instant, so the copy can be corrected.
+    // Callbacks run under the store's write lock; copied() runs after a page was read under its read lock.
+    private static final class Epoch implements MessageStore.Listener {
+        private List<String> flags = List.of();
+        // Hashes the scan must skip: messages added after the instant, and scanned messages since moved
+        private final Set<String> settled = new HashSet<>();
+        // Messages removed or moved after the instant before the scan reached them, written from here instead
+        private final Map<String, Image> images = new HashMap<>();
+        private int flag;
+        private Integer cursor;
+
+        synchronized void start(List<String> flagsAtInstant) {
+            flags = flagsAtInstant;
+        }
+
+        @Override
+        public synchronized void onAdd(Message msg) {
+            settled.add(msg.messageHash);
+        }
+
+        @Override
+        public synchronized void onRemove(Message msg) {
+            changed(msg, msg.flag);
+        }
+
+        @Override
+        public synchronized void onFlagChange(Message msg, String from) {
+            changed(msg, from);
+        }
+
+        // Only the first change after the instant matters: it still sees the message as it was.
+        private void changed(Message msg, String flagAtInstant) {
+            String hash = msg.messageHash;
+            if (settled.contains(hash) || images.containsKey(hash)) return;
+            if (scanned(flagAtInstant, msg.messageNumber)) {
+                settled.add(hash);
+            } else {
+                images.put(hash, new Image(msg, flagAtInstant));
+            }
+        }
+
+        private boolean scanned(String flagAtInstant, int number) {
+            int f = flags.indexOf(flagAtInstant);
+            return f >= 0 && (f < flag || (f == flag && cursor != null && number <= cursor));
+        }
+
+        // Filters a page of flag f that ends at pageEnd, then marks it scanned.
+        synchronized List<Message> copied(int f, int pageEnd, List<Message> page) {
+            List<Message> kept = new ArrayList<>(page.size());
+            for (Message msg : page) {
+                if (!settled.contains(msg.messageHash) && !images.containsKey(msg.messageHash)) kept.add(msg);
+            }
+            flag = f;
+            cursor = pageEnd;
+            return kept;
+        }
+
+        synchronized void finishFlag(int f) {
+            flag = f + 1;
+            cursor = null;
+        }
+
+        synchronized List<Image> images() {
+            return new ArrayList<>(images.values());
+        }
+    }
+
+    private static int directoryBytes(Set<String> flags, Section users, Section messages) {
+        int bytes = 4 + users.bytes() + messages.bytes();
+        for (String flag : flags) {
+            bytes += 2 + flag.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return bytes;
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += ch.write(buf, position);
+        }
+    }
+
+    private static void putString(ByteBuffer buf, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) throw new IllegalArgumentException("Field too long for a snapshot: " + bytes.length + " bytes");
+        buf.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        return decode(buf, buf.getShort() & 0xFFFF);
+    }
+
+    private static void skipString(ByteBuffer buf) {
+        buf.position(buf.position() + 2 + (buf.getShort(buf.position()) & 0xFFFF));
+    }
+
+    private static String decode(ByteBuffer buf, int length) {
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,56 @@
+package loginsystem;
+
+import loginsystem.ChatApp.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Thread-safe user registry keyed by username.
+// Backed by a ConcurrentHashMap: lookups are lock-free and registration locks only the bin it lands in,
+// so register/login calls from many threads never serialize behind a single lock.
+public class UserRegistry {
+
+    private final ConcurrentMap<String, User> users;
+
+    public UserRegistry() {
+        this(16);
+    }
+
+    public UserRegistry(int expectedUsers) {
+        users = new ConcurrentHashMap<>(expectedUsers);
+    }
+
+    // Atomically registers the user. Returns false if the username is already taken.
+    public boolean register(User user) {
+        return users.putIfAbsent(user.username, user) == null;
+    }
+
+    // Swaps in an updated record (e.g. a rehashed credential) only if expected is still the current one.
+    public boolean replace(User expected, User updated) {
+        return users.replace(expected.username, expected, updated);
+    }
+
+    // O(1) lookup, or null if no user has that username.
+    public User find(String username) {
+        return username == null ? null : users.get(username);
+    }
+
+    public boolean contains(String username) {
+        return find(username) != null;
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    public boolean isEmpty() {
+        return users.isEmpty();
+    }
+
+    // Point-in-time copy of the registered users; changes to it do not affect the registry.
+    public List<User> users() {
+        return new ArrayList<>(users.values());
+    }
+}
@@ -0,0 +1,157 @@
+package loginsystem;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// Registration, login and send-path validation rules.
+// Every check is a single pass over the characters with no regex and no allocation: results are
+// preallocated per combination of failed rules, so validate*() only indexes into a table.
+public final class Validators {
+
+    public enum Rule {
+        USERNAME_UNDERSCORE("must contain '_'"),
+        USERNAME_LENGTH("must be ≤ 5 characters"),
+        PASSWORD_LENGTH("at least 8 characters"),
+        PASSWORD_UPPERCASE("an uppercase letter"),
+        PASSWORD_LOWERCASE("a lowercase letter"),
+        PASSWORD_DIGIT("a digit"),
+        PASSWORD_SPECIAL("a special character"),
+        PHONE_FORMAT("must be +27 followed by 9 digits, starting with 6, 7, or 8"),
+        RECIPIENT_FORMAT("must start with '+' followed by at most 14 digits");
+
+        private final String description;
+
+        Rule(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() { return description; }
+
+        private int bit() { return 1 << ordinal(); }
+    }
+
+    // Immutable outcome of a check: which rules, if any, failed.
+    public static final class Result {
+        private final int failures;
+
+        private Result(int failures) {
+            this.failures = failures;
+        }
+
+        public boolean isValid() { return failures == 0; }
+
+        public boolean failed(Rule rule) { return (failures & rule.bit()) != 0; }
+
+        public Set<Rule> failedRules() {
+            EnumSet<Rule> rules = EnumSet.noneOf(Rule.class);
+            for (Rule rule : Rule.values()) {
+                if (failed(rule)) rules.add(rule);
+            }
+            return rules;
+        }
+
+        @Override
+        public String toString() {
+            return isValid() ? "Valid" : "Failed " + failedRules();
+        }
+    }
+
+    private static final Result[] RESULTS = new Result[1 << Rule.values().length];
+    static {
+        for (int i = 0; i < RESULTS.length; i++) {
+            RESULTS[i] = new Result(i);
+        }
+    }
+
+    // Same character set as the original ".*[!@#$%^&*(),.?\":{}|<>].*" pattern
+    private static final String SPECIAL_CHARACTERS = "!@#$%^&*(),.?\":{}|<>";
+    private static final boolean[] SPECIAL = new boolean[128];
+    static {
+        for (int i = 0; i < SPECIAL_CHARACTERS.length(); i++) {
+            SPECIAL[SPECIAL_CHARACTERS.charAt(i)] = true;
+        }
+    }
+
+    private static final int PASSWORD_CLASSES = Rule.PASSWORD_UPPERCASE.bit() | Rule.PASSWORD_LOWERCASE.bit()
+            | Rule.PASSWORD_DIGIT.bit() | Rule.PASSWORD_SPECIAL.bit();
+
+    private Validators() {
+    }
+
+    public static Result validateUserName(String username) {
+        if (username == null) return RESULTS[Rule.USERNAME_UNDERSCORE.bit() | Rule.USERNAME_LENGTH.bit()];
+        int failures = 0;
+        if (username.indexOf('_') < 0) failures |= Rule.USERNAME_UNDERSCORE.bit();
+        if (username.length() > 5) failures |= Rule.USERNAME_LENGTH.bit();
+        return RESULTS[failures];
+    }
+
+    public static Result validatePassword(String password) {
+        if (password == null) return RESULTS[Rule.PASSWORD_LENGTH.bit() | PASSWORD_CLASSES];
+        int missing = PASSWORD_CLASSES;
+        for (int i = 0; i < password.length(); i++) {
+            char c = password.charAt(i);
+            if (c >= 'A' && c <= 'Z') missing &= ~Rule.PASSWORD_UPPERCASE.bit();
+            else if (c >= 'a' && c <= 'z') missing &= ~Rule.PASSWORD_LOWERCASE.bit();
+            else if (c >= '0' && c <= '9') missing &= ~Rule.PASSWORD_DIGIT.bit();
+            else if (c < 128 && SPECIAL[c]) missing &= ~Rule.PASSWORD_SPECIAL.bit();
+            else if (isLineTerminator(c)) {
+                // String.matches(".*X.*") never matched across a line terminator, so every class rule failed
+                missing = PASSWORD_CLASSES;
+                break;
+            }
+        }
+        if (password.length() < 8) missing |= Rule.PASSWORD_LENGTH.bit();
+        return RESULTS[missing];
+    }
+
+    public static Result validateCellPhoneNumber(String phone) {
+        return RESULTS[isCellPhoneNumber(phone) ? 0 : Rule.PHONE_FORMAT.bit()];
+    }
+
+    public static Result validateRecipient(String recipient) {
+        return RESULTS[isRecipient(recipient) ? 0 : Rule.RECIPIENT_FORMAT.bit()];
+    }
+
+    public static boolean checkUserName(String username) {
+        return validateUserName(username).isValid();
+    }
+
+    public static boolean checkPasswordComplexity(String password) {
+        return validatePassword(password).isValid();
+    }
+
+    public static boolean checkCellPhoneNumber(String phone) {
+        return isCellPhoneNumber(phone);
+    }
+
+    public static boolean checkRecipient(String recipient) {
+        return isRecipient(recipient);
+    }
+
+    // +27 followed by 9 digits, the first of which is 6, 7 or 8
+    private static boolean isCellPhoneNumber(String phone) {
+        if (phone == null || phone.length() != 12 || !phone.startsWith("+27")) return false;
+        char fourthDigit = phone.charAt(3);
+        if (fourthDigit < '6' || fourthDigit > '8') return false;
+        return allDigits(phone, 4);
+    }
+
+    // '+' followed by 1 to 14 digits
+    private static boolean isRecipient(String recipient) {
+        if (recipient == null || recipient.length() < 2 || recipient.length() > 15 || recipient.charAt(0) != '+') return false;
+        return allDigits(recipient, 1);
+    }
+
+    private static boolean allDigits(String s, int from) {
+        for (int i = from; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
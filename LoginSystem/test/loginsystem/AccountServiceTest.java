@@ -0,0 +1,122 @@
+package loginsystem;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+public class AccountServiceTest {
+
+    private UserRegistry registry;
+    private AccountService accounts;
+
+    @BeforeEach
+    void setUp() {
+        registry = new UserRegistry();
+        accounts = new AccountService(registry, new PasswordHasher(1_000), new CredentialVerifier(new CredentialVerifier.Config(2, 16)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        accounts.close();
+    }
+
+    @Test
+    void register_StoresHashNotPassword() {
+        assertEquals(AccountService.REGISTERED, accounts.register("user_", "Pass123!@", "+27612345678"));
+        String stored = registry.find("user_").getPassword();
+        assertTrue(PasswordHasher.isHashed(stored), "Registry should hold a PBKDF2 credential");
+        assertFalse(stored.contains("Pass123!@"), "Plaintext should not be stored");
+        assertTrue(accounts.login("user_", "Pass123!@"));
+        assertFalse(accounts.login("user_", "Wrong123!@"));
+        assertEquals(AccountService.LoginResult.FAILED, accounts.authenticate("nope_", "Pass123!@"), "Unknown users should fail");
+    }
+
+    @Test
+    void login_LegacyPlaintextRecord_IsRehashedOnSuccess() {
+        registry.register(new ChatApp.User("old_", "Pass123!@", "+27612345678"));
+        assertFalse(accounts.login("old_", "Wrong123!@"), "Wrong password should not match a plaintext record");
+        assertEquals("Pass123!@", registry.find("old_").getPassword(), "Failed login should leave the record alone");
+        assertTrue(accounts.login("old_", "Pass123!@"), "Plaintext record should still log in");
+        ChatApp.User upgraded = registry.find("old_");
+        assertTrue(PasswordHasher.isHashed(upgraded.getPassword()), "Successful login should rehash the record");
+        assertEquals("+27612345678", upgraded.getPhone(), "Rehash should keep the other fields");
+        assertTrue(accounts.login("old_", "Pass123!@"), "Rehashed record should log in");
+    }
+
+    @Test
+    void login_WeakerHash_IsUpgradedToCurrentCost() {
+        registry.register(new ChatApp.User("low_", new PasswordHasher(10).hash("Pass123!@"), "+27612345678"));
+        assertTrue(accounts.login("low_", "Pass123!@"));
+        assertTrue(registry.find("low_").getPassword().startsWith("pbkdf2-sha512$1000$"), "Record should move to the current cost");
+    }
+
+    @Test
+    void authenticate_QueueFull_ReportsBusyWithoutBlocking() throws Exception {
+        accounts.register("user_", "Pass123!@", "+27612345678");
+        CredentialVerifier verifier = new CredentialVerifier(new CredentialVerifier.Config(1, 1));
+        AccountService busy = new AccountService(registry, new PasswordHasher(1_000), verifier);
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Boolean>> blockers = new ArrayList<>();
+        try {
+            // One task running and one queued fill the pool
+            for (int i = 0; i < 2; i++) {
+                blockers.add(verifier.submit(() -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return true;
+                }));
+            }
+            assertEquals(AccountService.LoginResult.BUSY, busy.authenticate("user_", "Pass123!@"), "Full queue should answer busy");
+            assertEquals(AccountService.BUSY, busy.register("new__", "Pass123!@", "+27612345678"));
+            assertEquals(2, verifier.stats().rejected(), "Both rejections should be counted");
+        } finally {
+            release.countDown();
+            for (CompletableFuture<Boolean> blocker : blockers) blocker.join();
+        }
+        assertEquals(AccountService.LoginResult.SUCCESS, busy.authenticate("user_", "Pass123!@"), "Drained pool should accept again");
+        CredentialVerifier.Stats stats = verifier.stats();
+        assertEquals(3, stats.completed(), "Blockers and the final login should have completed");
+        assertTrue(stats.runMax() > 0 && stats.runP99() > 0, "Run times should be recorded");
+        busy.close();
+    }
+
+    @Test
+    void authenticate_Throttled_RejectsBeforeVerifying() {
+        LoginThrottle throttle = new LoginThrottle(new LoginThrottle.Config(3, 60_000, 100, 1_000, 1_000));
+        CredentialVerifier verifier = new CredentialVerifier(new CredentialVerifier.Config(1, 16));
+        AccountService throttled = new AccountService(registry, new PasswordHasher(1_000), verifier, throttle);
+        throttled.register("user_", "Pass123!@", "+27612345678");
+        for (int i = 0; i < 3; i++) {
+            assertEquals(AccountService.LoginResult.FAILED, throttled.authenticate("user_", "Wrong123!@", "10.0.0.1"));
+        }
+        long verified = verifier.stats().completed();
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(AccountService.LoginResult.THROTTLED, throttled.authenticate("user_", "Pass123!@", "10.0.0.1"));
+        }
+        assertEquals(verified, verifier.stats().completed(), "Throttled attempts must not reach the verifier");
+        assertEquals(AccountService.LoginResult.SUCCESS, throttled.authenticate("user_", "Pass123!@", "10.0.0.2"),
+                "Another source is not locked out");
+        throttled.close();
+    }
+
+    @Test
+    void authenticate_Success_ResetsTheAccountsFailures() {
+        LoginThrottle throttle = new LoginThrottle(new LoginThrottle.Config(2, 60_000, 100, 1_000, 1_000));
+        AccountService throttled = new AccountService(registry, new PasswordHasher(1_000), new CredentialVerifier(), throttle);
+        throttled.register("user_", "Pass123!@", "+27612345678");
+        assertEquals(AccountService.LoginResult.FAILED, throttled.authenticate("user_", "Wrong123!@"));
+        assertEquals(AccountService.LoginResult.SUCCESS, throttled.authenticate("user_", "Pass123!@"));
+        assertEquals(AccountService.LoginResult.FAILED, throttled.authenticate("user_", "Wrong123!@"));
+        assertEquals(AccountService.LoginResult.SUCCESS, throttled.authenticate("user_", "Pass123!@"),
+                "The earlier failure was forgiven by the successful login");
+        throttled.close();
+    }
+}
@@ -0,0 +1,129 @@
+package loginsystem;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ChatServerTest {
+
+    private MessageStore store;
+    private AccountService accounts;
+    private ChatServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new MessageStore();
+        // Queue deep enough for every test client to register and log in at once, and a throttle that lets
+        // them all in from the one loopback address
+        accounts = new AccountService(new UserRegistry(), new PasswordHasher(1_000),
+                new CredentialVerifier(new CredentialVerifier.Config(2, 1024)),
+                new LoginThrottle(new LoginThrottle.Config(5, 60_000, 1_000, 1, 10_000)));
+        server = ChatServer.start(new InetSocketAddress("127.0.0.1", 0), accounts, new MessageService(store, new MessageIdGenerator()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+        accounts.close();
+    }
+
+    private Socket connect() throws IOException {
+        return new Socket("127.0.0.1", server.getPort());
+    }
+
+    private static void write(Socket socket, String lines) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(lines.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    @Test
+    void session_PipelinedRequests_AnsweredInOrder() throws IOException {
+        try (Socket socket = connect()) {
+            write(socket, "REGISTER ky_1 Ch&&sec@ke99! +27838968976\r\nLOGIN ky_1 Ch&&sec@ke99!\nSEND +27834567896 Hi\nQUIT\n");
+            LineReader in = new LineReader(socket.getInputStream(), 64, 4096);
+            assertEquals("OK User is successfully registered.", in.readLine(), "CRLF line endings should be accepted");
+            assertEquals("OK Login successful!", in.readLine());
+            assertTrue(in.readLine().startsWith("OK 0000000001 1 "), "SEND should report the new message");
+            assertEquals("OK Goodbye!", in.readLine());
+            assertNull(in.readLine(), "Server should close the connection after QUIT");
+        }
+        assertEquals(1, store.size(), "Message sent over the socket should be stored");
+    }
+
+    @Test
+    void session_LineTooLong_IsRejectedAndClosed() throws IOException {
+        try (Socket socket = connect()) {
+            write(socket, "PING " + "x".repeat(ChatServer.MAX_LINE_BYTES) + "\n");
+            LineReader in = new LineReader(socket.getInputStream(), 64, 4096);
+            assertTrue(in.readLine().startsWith("ERR Line longer than"), "Oversized request should be refused");
+            assertNull(in.readLine(), "Connection should be closed");
+        }
+    }
+
+    @Test
+    void sessions_ManyConcurrentClients_AreIndependent() throws Exception {
+        int clients = 200;
+        List<Socket> sockets = new ArrayList<>();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> replies = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                Socket socket = connect();
+                sockets.add(socket);
+                String username = String.format("_%04d", c);
+                replies.add(pool.submit(() -> {
+                    write(socket, "REGISTER " + username + " Ch&&sec@ke99! +27838968976\nLOGIN " + username
+                            + " Ch&&sec@ke99!\nSEND +27834567896 from " + username + "\n");
+                    LineReader in = new LineReader(socket.getInputStream(), 256, 4096);
+                    return in.readLine() + "|" + in.readLine() + "|" + in.readLine();
+                }));
+            }
+            for (Future<String> reply : replies) {
+                String[] parts = reply.get().split("\\|");
+                assertEquals("OK User is successfully registered.", parts[0]);
+                assertEquals("OK Login successful!", parts[1]);
+                assertTrue(parts[2].startsWith("OK "), parts[2]);
+            }
+            assertEquals(clients, server.activeSessions(), "Every connection should still be open");
+        } finally {
+            for (Socket socket : sockets) socket.close();
+        }
+        assertEquals(clients, store.size(), "One message per client");
+    }
+
+    @Test
+    void lineReader_SplitsAcrossRefillsAndKeepsLastUnterminatedLine() throws IOException {
+        String text = "first line\r\n" + "é".repeat(40) + "\n\nlast";
+        InputStream in = new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+        LineReader reader = new LineReader(in, 7, 4096);
+        assertEquals("first line", reader.readLine());
+        assertEquals("é".repeat(40), reader.readLine(), "Multi-byte characters split across refills should decode");
+        assertEquals("", reader.readLine());
+        assertEquals("last", reader.readLine(), "Final line without a terminator should be returned");
+        assertNull(reader.readLine());
+    }
+
+    @Test
+    void close_DisconnectsOpenSessions() throws IOException {
+        try (Socket socket = connect()) {
+            write(socket, "PING\n");
+            LineReader in = new LineReader(socket.getInputStream(), 64, 4096);
+            assertEquals("OK PONG", in.readLine());
+            server.close();
+            assertNull(in.readLine(), "Closing the server should end the session");
+        }
+    }
+}
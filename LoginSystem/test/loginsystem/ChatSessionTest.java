@@ -0,0 +1,255 @@
+package loginsystem;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ChatSessionTest {
+
+    private MessageStore store;
+    private ChatSession session;
+
+    @BeforeEach
+    void setUp() {
+        store = new MessageStore();
+        session = new ChatSession(new AccountService(new UserRegistry(), new PasswordHasher(1_000), new CredentialVerifier()), new MessageService(store, new MessageIdGenerator()));
+    }
+
+    private String call(String line) throws IOException {
+        StringWriter out = new StringWriter();
+        session.handle(line, out);
+        return out.toString();
+    }
+
+    private void logIn() throws IOException {
+        assertEquals("OK User is successfully registered.\n", call("REGISTER ky_1 Ch&&sec@ke99! +27838968976"));
+        assertEquals("OK Login successful!\n", call("LOGIN ky_1 Ch&&sec@ke99!"));
+    }
+
+    @Test
+    void handle_QueriesBeforeLogin_AreRefused() throws IOException {
+        assertEquals("ERR You must be logged in.\n", call("SEND +27834567896 Hi"));
+        assertEquals("OK PONG\n", call("PING"), "PING should not need a login");
+        assertEquals(0, store.size(), "Nothing should be sent before login");
+    }
+
+    @Test
+    void handle_RegisterAndLogin_ReuseAppMessages() throws IOException {
+        logIn();
+        assertEquals("ERR Username already exists!\n", call("REGISTER ky_1 Ch&&sec@ke99! +27838968976"));
+        assertEquals("ERR User registration failed!\n", call("REGISTER kyl1 password +27838968976"));
+        assertEquals("ERR Login failed! Invalid credentials.\n", call("LOGIN ky_1 Wrong&pass1"));
+        assertEquals("ky_1", session.getUsername(), "A failed login should not log the session out");
+    }
+
+    @Test
+    void handle_RepeatedFailedLogins_AreThrottled() throws IOException {
+        AccountService accounts = new AccountService(new UserRegistry(), new PasswordHasher(1_000), new CredentialVerifier(),
+                new LoginThrottle(new LoginThrottle.Config(2, 60_000, 100, 1_000, 1_000)));
+        session = new ChatSession(accounts, new MessageService(store, new MessageIdGenerator()), null, "10.0.0.1");
+        assertEquals("OK User is successfully registered.\n", call("REGISTER ky_1 Ch&&sec@ke99! +27838968976"));
+        assertEquals("ERR Login failed! Invalid credentials.\n", call("LOGIN ky_1 Wrong&pass1"));
+        assertEquals("ERR Login failed! Invalid credentials.\n", call("LOGIN ky_1 Wrong&pass2"));
+        assertEquals("ERR " + AccountService.THROTTLED + "\n", call("LOGIN ky_1 Ch&&sec@ke99!"));
+        assertNull(session.getUsername());
+        accounts.close();
+    }
+
+    @Test
+    void handle_SendThenFind_ReturnsMessageLine() throws IOException {
+        logIn();
+        String reply = call("SEND +27834567896 Did you get the cake?");
+        assertTrue(reply.startsWith("OK "), reply);
+        String[] fields = reply.trim().split(" ");
+        assertEquals("OK 1\n" + fields[1] + "\t1\t+27834567896\t" + fields[3] + "\tDid you get the cake?\n.\n",
+                call("FIND " + fields[1]), "FIND should list the message the SEND created");
+        assertEquals("ERR Invalid recipient number.\n", call("SEND 0834567896 Hi"));
+        assertEquals("ERR Please enter a message of 250 characters or less.\n", call("SEND +2783 " + "x".repeat(251)));
+    }
+
+    @Test
+    void handle_SendOnce_RepeatGetsTheSameReply() throws IOException {
+        logIn();
+        String reply = call("SENDONCE abc +27834567896 Did you get the cake?");
+        assertTrue(reply.startsWith("OK "), reply);
+        assertEquals(reply, call("SENDONCE abc +27834567896 Did you get the cake?"));
+        assertEquals(reply, call("SENDONCE abc +27834567896 Something else"), "The first send under a key wins");
+        String content = call("SENDONCE - +27834567896 Did you get the cake?");
+        assertNotEquals(reply, content);
+        assertEquals(content, call("SENDONCE - +27834567896 Did you get the cake?"));
+        assertEquals("ERR Usage: SENDONCE <key|-> <recipient> <text>\n", call("SENDONCE abc"));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void handle_SendThroughPipeline_RepliesLikeADirectSend() throws IOException {
+        MessageService messages = new MessageService(store, new MessageIdGenerator());
+        try (SendPipeline pipeline = new SendPipeline(messages, new SendPipeline.Config(2, 16, 4))) {
+            session = new ChatSession(new AccountService(new UserRegistry(), new PasswordHasher(1_000), new CredentialVerifier()),
+                    messages, null, AccountService.LOCAL, pipeline);
+            logIn();
+            String reply = call("SEND +27834567896 Did you get the cake?");
+            assertTrue(reply.startsWith("OK "), reply);
+            assertEquals("Did you get the cake?", store.findById(reply.split(" ")[1]).message);
+            assertEquals("ERR Invalid recipient number.\n", call("SEND 0834567896 Hi"));
+            assertEquals(2, pipeline.stats().completed());
+        }
+    }
+
+    @Test
+    void handle_RecentAndLongest_ListSentMessages() throws IOException {
+        logIn();
+        call("SEND +27834567896 short");
+        call("SEND +27834567896 the longest one");
+        call("SEND +27838884567 mid length");
+        String recent = call("RECENT 2");
+        assertTrue(recent.startsWith("OK 2\n") && recent.endsWith(".\n"), recent);
+        assertTrue(recent.indexOf("mid length") < recent.indexOf("the longest one"), "Newest message should come first");
+        assertTrue(call("LONGEST").contains("\tthe longest one\n"), "LONGEST should return the longest text");
+        assertEquals("ERR Count must be between 1 and 1000.\n", call("RECENT 0"));
+    }
+
+    @Test
+    void handle_PrefixAndTop_ReportTrafficToANumberRange() throws IOException {
+        logIn();
+        call("SEND +27834567896 one");
+        call("SEND +27834567896 two");
+        call("SEND +27838884567 three");
+        call("SEND +27612345678 four");
+        String prefix = call("PREFIX +2783");
+        assertTrue(prefix.startsWith("OK 3\n") && prefix.endsWith(".\n"), prefix);
+        assertFalse(prefix.contains("four"));
+        assertTrue(call("PREFIX +2783 1").contains("\tone\n"));
+        assertEquals("OK messages=3 recipients=2\n+27834567896\t2\n.\n", call("TOP +2783 1"));
+        assertEquals("OK messages=0 recipients=0\n.\n", call("TOP +1"));
+        assertEquals("ERR Usage: PREFIX <prefix> [count]\n", call("PREFIX 2783"));
+        assertTrue(call("TOP +27 0").startsWith("ERR Count"));
+    }
+
+    @Test
+    void handle_Since_ListsRecentSentMessagesNewestFirst() throws IOException {
+        logIn();
+        call("SEND +27834567896 first");
+        call("SEND +27838884567 second");
+        String since = call("SINCE 5");
+        assertTrue(since.startsWith("OK 2\n") && since.endsWith(".\n"), since);
+        assertTrue(since.indexOf("second") < since.indexOf("first"), "Newest message should come first");
+        assertTrue(call("SINCE 5 1").startsWith("OK 1\n"));
+        assertTrue(call("SINCE").startsWith("ERR "));
+        assertTrue(call("SINCE 0").startsWith("ERR "));
+    }
+
+    @Test
+    void handle_Stats_ReportsAggregates() throws IOException {
+        logIn();
+        call("SEND +27834567896 short");
+        String longest = call("SEND +27838884567 the longest one").trim().split(" ")[1];
+        assertEquals("OK sent=2 stored=0 disregarded=0 characters=20 longest=" + longest + "\n", call("STATS"));
+        assertEquals("OK sent=1\n", call("STATS +27834567896"));
+    }
+
+    @Test
+    void handle_Delete_RemovesOnlySentMessages() throws IOException {
+        logIn();
+        String hash = call("SEND +27834567896 bye").trim().split(" ")[3];
+        assertEquals("OK Message with hash " + hash + " deleted successfully.\n", call("DELETE " + hash));
+        assertEquals("ERR Message hash not found.\n", call("DELETE " + hash));
+        assertEquals(0, store.size(), "Deleted message should be gone from the store");
+    }
+
+    @Test
+    void handle_DeleteByIdAndRecipient() throws IOException {
+        logIn();
+        String id = call("SEND +27834567896 first").trim().split(" ")[1];
+        call("SEND +27834567896 second");
+        call("SEND +27838884567 other");
+        assertEquals("OK Message " + id + " deleted successfully.\n", call("DELETE ID " + id));
+        assertEquals("ERR Message ID not found.\n", call("DELETE id " + id));
+        assertEquals("OK 1\n", call("DELETE RECIPIENT +27834567896"));
+        assertEquals("OK 0\n", call("DELETE RECIPIENT +27834567896"));
+        assertEquals(1, store.size());
+        assertEquals("OK 0\n.\n", call("RECIPIENT +27834567896"));
+    }
+
+    @Test
+    void handle_Report_StreamsEveryMessage() throws IOException {
+        logIn();
+        for (int i = 0; i < 2_500; i++) {
+            call("SEND +2783" + i + " message " + i);
+        }
+        String report = call("REPORT");
+        assertTrue(report.startsWith("OK\n") && report.endsWith(".\n"), "Report should be framed by OK and '.'");
+        assertEquals(2_502, report.split("\n").length, "One line per message plus the framing lines");
+    }
+
+    @Test
+    void handle_Search_ListsMatchingSentMessages() throws IOException {
+        session = new ChatSession(new AccountService(new UserRegistry(), new PasswordHasher(1_000), new CredentialVerifier()),
+                new MessageService(store, new MessageIdGenerator()), new MessageSearchIndex(store));
+        logIn();
+        call("SEND +27834567896 Did you get the cake?");
+        call("SEND +27834567896 It is dinner time!");
+        String reply = call("SEARCH cake OR din*");
+        assertTrue(reply.startsWith("OK 2\n"), reply);
+        assertTrue(reply.indexOf("dinner") < reply.indexOf("cake"), "Newest match should come first");
+        assertEquals("OK 0\n.\n", call("SEARCH pie"));
+        assertEquals("ERR Usage: SEARCH <query>\n", call("SEARCH "));
+    }
+
+    @Test
+    void handle_Search_DisabledWithoutIndex() throws IOException {
+        logIn();
+        assertEquals("ERR Search is not enabled.\n", call("SEARCH cake"));
+    }
+
+    @Test
+    void handle_Flush_SendsStoredMessages() throws IOException {
+        logIn();
+        MessageService service = new MessageService(store, new MessageIdGenerator(5_000, 16));
+        store.add(service.compose("+27834567896", "Stored for later", "Stored"));
+        assertEquals("OK 1\n", call("FLUSH +27834567896"));
+        assertEquals("OK 0\n", call("FLUSH +27834567896"));
+        assertEquals(1, store.size("Sent"));
+    }
+
+    @Test
+    void handle_TokenResumesOnAnotherConnection() throws IOException {
+        AtomicLong now = new AtomicLong();
+        AccountService accounts = new AccountService(new UserRegistry(), new PasswordHasher(1_000), new CredentialVerifier(),
+                null, new SessionCache(new SessionCache.Config(60_000, 600_000, 100), now::get));
+        MessageService messages = new MessageService(store, new MessageIdGenerator());
+        session = new ChatSession(accounts, messages);
+        logIn();
+        String token = call("TOKEN").trim().substring(3);
+
+        ChatSession other = new ChatSession(accounts, messages);
+        StringWriter out = new StringWriter();
+        other.handle("RESUME " + token, out);
+        other.handle("RESUME nonsense", out);
+        assertEquals("OK Session resumed.\nERR Session expired or unknown.\n", out.toString());
+        assertEquals("ky_1", other.getUsername(), "A failed resume leaves the session as it was");
+
+        assertEquals("OK 1\n", call("LOGOUT ALL"));
+        out.getBuffer().setLength(0);
+        other.handle("LONGEST", out);
+        assertEquals("ERR Session expired. Please log in again.\n", out.toString(), "LOGOUT ALL ends the other connection too");
+        assertNull(other.getUsername());
+
+        assertEquals("OK Login successful!\n", call("LOGIN ky_1 Ch&&sec@ke99!"));
+        now.addAndGet(61_000_000_000L);
+        assertEquals("ERR Session expired. Please log in again.\n", call("SEND +27834567896 Hi"));
+        assertEquals(0, store.size());
+        accounts.close();
+    }
+
+    @Test
+    void handle_QuitAndUnknown() throws IOException {
+        StringWriter out = new StringWriter();
+        assertFalse(session.handle("quit", out), "QUIT should end the session, case-insensitively");
+        assertEquals("OK Goodbye!\n", out.toString());
+        assertEquals("ERR Unknown command: FLY\n", call("FLY away"));
+    }
+}
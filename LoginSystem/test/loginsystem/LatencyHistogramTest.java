@@ -0,0 +1,49 @@
+package loginsystem;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.Arrays;
+import java.util.Random;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void percentile_WithinBucketPrecisionOfExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(42);
+        long[] samples = new long[100_000];
+        for (int i = 0; i < samples.length; i++) {
+            // Log-uniform from 1 ns to about 1 s
+            samples[i] = (long) Math.exp(random.nextDouble() * Math.log(1e9));
+            histogram.record(samples[i]);
+        }
+        Arrays.sort(samples);
+        for (double p : new double[] {0.5, 0.9, 0.99, 0.999}) {
+            long exact = samples[(int) Math.ceil(p * samples.length) - 1];
+            long reported = histogram.percentile(p);
+            assertTrue(reported >= exact && reported <= exact + exact / 8 + 1,
+                    "p" + p + " reported " + reported + " for exact " + exact);
+        }
+        assertEquals(samples.length, histogram.count());
+        assertEquals(samples[samples.length - 1], histogram.max());
+        assertEquals(histogram.max(), histogram.percentile(1.0), "p100 should be the maximum");
+    }
+
+    @Test
+    void bucket_BoundsCoverEveryValue() {
+        for (long value : new long[] {0, 1, 7, 8, 9, 15, 16, 1000, 1L << 40, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value <= LatencyHistogram.upperBound(bucket), "Value should not exceed its bucket: " + value);
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBound(bucket - 1), "Value should be above the previous bucket: " + value);
+        }
+    }
+
+    @Test
+    void empty_ReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(0.99));
+        assertEquals(0, histogram.count());
+        histogram.record(-5);
+        assertEquals(0, histogram.max(), "Negative durations should be clamped to zero");
+    }
+}
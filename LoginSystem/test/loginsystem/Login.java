@@ -4,42 +4,66 @@
  */
 package loginsystem;
 
-import java.util.function.BooleanSupplier;
+import java.util.ArrayList;
 
 /**
+ * Test facade over the registration and login rules used by ChatApp.
  *
  * @author RC_Student_lab
  */
 class Login {
 
-    BooleanSupplier checkUserName(String user_) {
-        throw new UnsupportedOperationException("Not supported yet."); // Generated from nbfs://nbhost/SystemFileSystem/Templates/Classes/Code/GeneratedMethodBody
+    private final UserRegistry registry = new UserRegistry();
+    // Low cost keeps the suite fast; the format and checks are the same as in production
+    private final PasswordHasher hasher = new PasswordHasher(1_000);
+
+    boolean checkUserName(String username) {
+        return Validators.checkUserName(username);
     }
 
-    BooleanSupplier checkPasswordComplexity(String ab156789) {
-        throw new UnsupportedOperationException("Not supported yet."); // Generated from nbfs://nbhost/SystemFileSystem/Templates/Classes/Code/GeneratedMethodBody
+    boolean checkPasswordComplexity(String password) {
+        return Validators.checkPasswordComplexity(password);
     }
 
-    BooleanSupplier checkCellPhoneNumber(String string) {
-        throw new UnsupportedOperationException("Not supported yet."); // Generated from nbfs://nbhost/SystemFileSystem/Templates/Classes/Code/GeneratedMethodBody
+    boolean checkCellPhoneNumber(String phone) {
+        return Validators.checkCellPhoneNumber(phone);
     }
 
-    String registerUser(String user_, String pass123, String string) {
-        throw new UnsupportedOperationException("Not supported yet."); // Generated from nbfs://nbhost/SystemFileSystem/Templates/Classes/Code/GeneratedMethodBody
+    String registerUser(String username, String password, String phone) {
+        if (!checkUserName(username) || !checkPasswordComplexity(password) || !checkCellPhoneNumber(phone)) {
+            return "User registration failed!";
+        }
+        if (!registry.register(new User(username, hasher.hash(password), phone))) {
+            return "Username already exists!";
+        }
+        return "User is successfully registered.";
     }
 
-    Object getUsers() {
-        throw new UnsupportedOperationException("Not supported yet."); // Generated from nbfs://nbhost/SystemFileSystem/Templates/Classes/Code/GeneratedMethodBody
+    boolean loginUser(String username, String password) {
+        if (!checkUserName(username) || !checkPasswordComplexity(password)) {
+            return false;
+        }
+        ChatApp.User user = registry.find(username);
+        return user != null && hasher.verify(password, user.getPassword());
     }
 
-    static class User {
+    String getLoginStatusMessage(String username, String password) {
+        return loginUser(username, password) ? "Login successful!" : "Login failed! Invalid credentials.";
+    }
 
-        public User() {
+    ArrayList<User> getUsers() {
+        ArrayList<User> users = new ArrayList<>();
+        for (ChatApp.User user : registry.users()) {
+            users.add((User) user);
         }
+        return users;
+    }
 
-        Object getUsername() {
-            throw new UnsupportedOperationException("Not supported yet."); // Generated from nbfs://nbhost/SystemFileSystem/Templates/Classes/Code/GeneratedMethodBody
+    static class User extends ChatApp.User {
+
+        public User(String username, String password, String phone) {
+            super(username, password, phone);
         }
     }
-    
+
 }
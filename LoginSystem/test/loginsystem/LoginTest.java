@@ -9,6 +9,10 @@ public class LoginTest {
 
     private Login login;
 
+    @BeforeEach
+    void setUp() {
+        login = new Login();
+    }
 
     // Tests for checkUserName
     @Test
@@ -0,0 +1,85 @@
+package loginsystem;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LoginThrottleTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    private final AtomicLong now = new AtomicLong(1_000 * MILLIS);
+
+    private LoginThrottle throttle(int perUser, int perSource, int maxEntries) {
+        return new LoginThrottle(new LoginThrottle.Config(perUser, 1_000, perSource, 10, maxEntries), now::get);
+    }
+
+    @Test
+    void tryAcquire_UserBurstThenOnePerRefill() {
+        LoginThrottle throttle = throttle(3, 1_000, 1_000);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(throttle.tryAcquire("user_", "10.0.0.1"), "attempt " + i);
+        }
+        assertFalse(throttle.tryAcquire("user_", "10.0.0.1"), "Burst spent");
+        assertTrue(throttle.tryAcquire("user_", "10.0.0.2"), "Other sources keep their own bucket");
+        assertTrue(throttle.tryAcquire("other", "10.0.0.1"), "Other accounts keep their own bucket");
+
+        now.addAndGet(999 * MILLIS);
+        assertFalse(throttle.tryAcquire("user_", "10.0.0.1"), "Not yet refilled");
+        now.addAndGet(MILLIS);
+        assertTrue(throttle.tryAcquire("user_", "10.0.0.1"), "One attempt per refill");
+        assertFalse(throttle.tryAcquire("user_", "10.0.0.1"));
+        assertEquals(3, throttle.rejected());
+    }
+
+    @Test
+    void tryAcquire_SourceLimitCoversManyUsernames() {
+        LoginThrottle throttle = throttle(5, 4, 1_000);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(throttle.tryAcquire("user" + i, "10.0.0.1"));
+        }
+        assertFalse(throttle.tryAcquire("user9", "10.0.0.1"), "Stuffing across usernames hits the source bucket");
+        int held = throttle.size();
+        for (int i = 0; i < 100; i++) {
+            assertFalse(throttle.tryAcquire("spray" + i, "10.0.0.1"));
+        }
+        assertEquals(held, throttle.size(), "Rejected usernames are not stored");
+        now.addAndGet(10 * MILLIS);
+        assertTrue(throttle.tryAcquire("user9", "10.0.0.1"));
+    }
+
+    @Test
+    void reset_ClearsTheAccountsFailures() {
+        LoginThrottle throttle = throttle(2, 1_000, 1_000);
+        assertTrue(throttle.tryAcquire("user_", "10.0.0.1"));
+        assertTrue(throttle.tryAcquire("user_", "10.0.0.1"));
+        assertFalse(throttle.tryAcquire("user_", "10.0.0.1"));
+        throttle.reset("user_", "10.0.0.1");
+        assertTrue(throttle.tryAcquire("user_", "10.0.0.1"));
+    }
+
+    @Test
+    void flood_StaysBoundedAndKeepsLockouts() {
+        LoginThrottle throttle = throttle(2, 1_000, 64 * 16);
+        assertTrue(throttle.tryAcquire("victim", "10.0.0.1"));
+        assertTrue(throttle.tryAcquire("victim", "10.0.0.1"));
+        assertFalse(throttle.tryAcquire("victim", "10.0.0.1"));
+        // Fresh keys from spoofed sources, far more than the map holds
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(throttle.tryAcquire("user" + i, "src" + i));
+        }
+        assertTrue(throttle.size() <= 64 * 16, "Map must stay within maxEntries");
+        assertTrue(throttle.evicted() >= 2 * 100_000 - 64 * 16);
+        assertFalse(throttle.tryAcquire("victim", "10.0.0.1"), "Buckets with attempts left are evicted before a lockout");
+    }
+
+    @Test
+    void config_RejectsNonPositiveLimits() {
+        try {
+            new LoginThrottle.Config(0, 1_000, 10, 10, 1_000);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Zero attempts would lock everyone out
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package loginsystem;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageCompactorTest {
+
+    private static MessageStore store(int messages) {
+        MessageStore store = new MessageStore();
+        for (int i = 0; i < messages; i++) {
+            String id = MessageIdGenerator.format(i + 1);
+            store.add(new ChatApp.Message(id, i, "+2783" + i % 10, "text " + i, MessageHasher.hash(id, i, "+2783" + i % 10, "text " + i), "Sent"));
+        }
+        return store;
+    }
+
+    @Test
+    void runOnce_WaitsForTheDeadFraction() {
+        MessageStore store = store(1_000);
+        MessageCompactor compactor = new MessageCompactor(store, new MessageCompactor.Config(64, 0.25, 1_000));
+        for (int i = 1; i < 250; i++) {
+            store.removeById(MessageIdGenerator.format(i));
+        }
+        assertEquals(0, compactor.runOnce(), "249 of 1000 dead is under a quarter");
+        store.removeById(MessageIdGenerator.format(250));
+        assertEquals(250, compactor.runOnce());
+        assertEquals(0, store.tombstones());
+        assertEquals(750, store.size());
+        assertEquals(1, compactor.passes());
+        assertEquals(4, compactor.slices(), "250 tombstones in slices of 64");
+        assertEquals(250, compactor.reclaimed());
+        assertEquals(0, compactor.runOnce());
+    }
+
+    @Test
+    void runOnce_LeavesQueriesUnchanged() {
+        MessageStore store = store(1_000);
+        store.removeByRecipient("+27830");
+        assertEquals(100, store.tombstones());
+        MessageCompactor compactor = new MessageCompactor(store, new MessageCompactor.Config(16, 0.1, 1_000));
+        assertEquals(100, compactor.runOnce());
+        assertTrue(store.findByRecipient("+27830").isEmpty());
+        assertEquals(100, store.findByRecipient("+27831").size());
+        assertEquals(900, store.size("Sent"));
+        assertEquals(900, store.messages("Sent").size());
+    }
+
+    @Test
+    void config_RejectsNonsense() {
+        assertThrows(IllegalArgumentException.class, () -> new MessageCompactor.Config(0, 0.25, 1_000));
+        assertThrows(IllegalArgumentException.class, () -> new MessageCompactor.Config(64, 0, 1_000));
+        assertThrows(IllegalArgumentException.class, () -> new MessageCompactor.Config(64, 1.5, 1_000));
+    }
+}
@@ -0,0 +1,75 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MessageExpiryTest {
+
+    private static final long DAY = 24 * 60 * 60_000L;
+
+    private final AtomicLong now = new AtomicLong(100 * DAY);
+    private final MessageStore store = new MessageStore();
+
+    private void add(int number, String flag, long ageMillis) {
+        store.add(new Message("E" + number, number, "+27834567896", "Hi " + number, "e" + number, flag, now.get() - ageMillis));
+    }
+
+    @Test
+    void sweep_RemovesOnlyExpiredMessagesOfFlagsWithATtl() {
+        for (int i = 1; i <= 25; i++) {
+            add(i, "Disregarded", i * DAY / 2);
+        }
+        add(26, "Sent", 365 * DAY);
+        MessageExpiry expiry = new MessageExpiry(store,
+                new MessageExpiry.Config(Map.of("Disregarded", 7 * DAY), 4, 60_000), now::get);
+        assertEquals(11, expiry.sweep(), "Ages 7.5 to 12.5 days are past a seven-day TTL, across several batches");
+        assertEquals(14, store.size("Disregarded"));
+        assertNotNull(store.findById("E14"), "Exactly seven days old is kept");
+        assertNull(store.findById("E15"));
+        assertEquals(1, store.size("Sent"), "Flags without a TTL are kept forever");
+
+        assertEquals(0, expiry.sweep());
+        now.addAndGet(DAY);
+        assertEquals(2, expiry.sweep(), "Messages expire as the clock moves");
+        assertEquals(13, expiry.expired());
+    }
+
+    @Test
+    void sweep_ReachesStoreListeners() {
+        List<String> removed = new ArrayList<>();
+        store.addListener(new MessageStore.Listener() {
+            @Override
+            public void onAdd(Message msg) {
+            }
+
+            @Override
+            public void onRemove(Message msg) {
+                removed.add(msg.messageID);
+            }
+
+            @Override
+            public void onFlagChange(Message msg, String from) {
+            }
+        });
+        add(1, "Stored", 2 * DAY);
+        add(2, "Stored", 0);
+        new MessageExpiry(store, MessageExpiry.Config.of(Map.of("Stored", DAY)), now::get).sweep();
+        assertEquals(List.of("E1"), removed);
+    }
+
+    @Test
+    void config_ParsesUnitsAndRejectsNonsense() {
+        MessageExpiry.Config config = MessageExpiry.Config.parse("Disregarded=7d, Stored=12h,Sent=90m");
+        assertEquals(Map.of("Disregarded", 7 * DAY, "Stored", 12 * 60 * 60_000L, "Sent", 90 * 60_000L), config.ttlMillis());
+        assertEquals(30_000, MessageExpiry.Config.parse("Sent=30s").ttlMillis().get("Sent").longValue());
+        assertThrows(IllegalArgumentException.class, () -> MessageExpiry.Config.parse("Sent"));
+        assertThrows(IllegalArgumentException.class, () -> MessageExpiry.Config.parse("Sent=7"));
+        assertThrows(IllegalArgumentException.class, () -> MessageExpiry.Config.parse("Sent=0d"));
+        assertThrows(IllegalArgumentException.class, () -> MessageExpiry.Config.parse("Sent=xd"));
+    }
+}
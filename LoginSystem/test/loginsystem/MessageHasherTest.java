@@ -0,0 +1,67 @@
+package loginsystem;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Random;
+
+public class MessageHasherTest {
+
+    // The concatenate, getBytes and String.format implementation MessageHasher replaced
+    private static String legacyHash(String messageID, int msgNumber, String recipient, String message) throws Exception {
+        String input = messageID + msgNumber + recipient + message;
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[] hashBytes = md.digest(input.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hexString = new StringBuilder();
+        for (byte b : hashBytes) {
+            hexString.append(String.format("%02x", b));
+        }
+        return hexString.toString();
+    }
+
+    @Test
+    void hash_SampleMessage_MatchesLegacyHash() throws Exception {
+        assertEquals(legacyHash("1234567890", 1, "+27834567896", "Did you get the cake?"),
+                MessageHasher.hash("1234567890", 1, "+27834567896", "Did you get the cake?"),
+                "Hash should be identical to the original implementation");
+    }
+
+    @Test
+    void hash_EdgeCases_MatchLegacyHash() throws Exception {
+        assertEquals(legacyHash("", Integer.MIN_VALUE, "", ""), MessageHasher.hash("", Integer.MIN_VALUE, "", ""), "Empty fields and MIN_VALUE");
+        assertEquals(legacyHash(null, -7, null, null), MessageHasher.hash(null, -7, null, null), "Null fields hash as \"null\"");
+        assertEquals(legacyHash("id", 0, "+27", "Café € 🎉 lone \ud83c x \udf89"),
+                MessageHasher.hash("id", 0, "+27", "Café € 🎉 lone \ud83c x \udf89"),
+                "Multi-byte characters and unpaired surrogates");
+        String longText = "xé🎉".repeat(400);
+        assertEquals(legacyHash("id", 42, "+27", longText), MessageHasher.hash("id", 42, "+27", longText),
+                "Input longer than the scratch buffer");
+    }
+
+    @Test
+    void hash_RandomInput_MatchesLegacyHash() throws Exception {
+        Random random = new Random(7);
+        char[] alphabet = {'a', 'Z', '7', '+', ' ', 'é', 'ࠀ', '￿', '\ud83c', '\udf89'};
+        for (int i = 0; i < 5_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(300);
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            int number = random.nextInt();
+            assertEquals(legacyHash("0123456789", number, "+2783", sb.toString()),
+                    MessageHasher.hash("0123456789", number, "+2783", sb.toString()), "Input: " + sb);
+        }
+    }
+
+    @Test
+    void fromHex_InvertsToHexOnlyForCanonicalHashes() {
+        String hash = MessageHasher.hash("1234567890", 3, "+27834567896", "It is dinner time!");
+        assertEquals(hash, MessageHasher.toHex(MessageHasher.fromHex(hash)));
+        assertNull(MessageHasher.fromHex(hash.toUpperCase()), "Upper case would not round-trip");
+        assertNull(MessageHasher.fromHex(hash.substring(1)), "Wrong length");
+        assertNull(MessageHasher.fromHex("g" + hash.substring(1)), "Not hex");
+        assertNull(MessageHasher.fromHex(null));
+    }
+}
@@ -0,0 +1,89 @@
+package loginsystem;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class MessageIdGeneratorTest {
+
+    @Test
+    void next_ReturnsTenDigitNumericIds() {
+        MessageIdGenerator generator = new MessageIdGenerator();
+        String id = generator.next();
+        assertEquals(10, id.length(), "Message ID should be 10 characters");
+        assertTrue(id.chars().allMatch(Character::isDigit), "Message ID should be numeric");
+    }
+
+    @Test
+    void formatAndParse_RoundTrip() {
+        assertEquals("0000000042", MessageIdGenerator.format(42), "IDs should be zero-padded");
+        assertEquals(9_999_999_999L, MessageIdGenerator.parse("9999999999"), "Largest ID should parse");
+        assertEquals(-1, MessageIdGenerator.parse("12345"), "Short IDs should not parse");
+        assertEquals(-1, MessageIdGenerator.parse("12345abcde"), "Non-numeric IDs should not parse");
+        assertThrows(IllegalArgumentException.class, () -> MessageIdGenerator.format(10_000_000_000L));
+    }
+
+    @Test
+    void nextLong_ManyThreads_NeverRepeats() throws InterruptedException {
+        MessageIdGenerator generator = new MessageIdGenerator(1, 64);
+        int threads = 16;
+        int perThread = 100_000;
+        long[][] issued = new long[threads][perThread];
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            long[] ids = issued[t];
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    ids[i] = generator.nextLong();
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS), "Generation should finish in time");
+
+        long[] all = Arrays.stream(issued).flatMapToLong(Arrays::stream).sorted().toArray();
+        for (int i = 1; i < all.length; i++) {
+            assertNotEquals(all[i - 1], all[i], "Duplicate message ID " + all[i]);
+        }
+        assertTrue(all[0] >= 1, "IDs should start at the first ID");
+    }
+
+    @Test
+    void nextLong_VirtualThreads_DoNotExhaustIdSpace() throws InterruptedException {
+        MessageIdGenerator generator = new MessageIdGenerator(1, 1024);
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 10_000; i++) {
+                pool.execute(generator::nextLong);
+            }
+        }
+        // Blocks are per stripe, not per thread, so 10k short-lived threads must not burn 10k blocks
+        assertTrue(generator.nextLong() < 1024L * 1024, "Short-lived threads should share blocks");
+    }
+
+    @Test
+    void advancePast_SkipsRecoveredIds() {
+        MessageIdGenerator generator = new MessageIdGenerator();
+        generator.next();
+        generator.advancePast(5_000_000_000L);
+        assertTrue(generator.nextLong() > 5_000_000_000L, "IDs after recovery should be above the highest recovered ID");
+    }
+
+    @Test
+    void nextLong_PastMaxId_Throws() {
+        MessageIdGenerator generator = new MessageIdGenerator(MessageIdGenerator.MAX_ID, 1);
+        assertEquals(MessageIdGenerator.MAX_ID, generator.nextLong(), "Last ID should still be issued");
+        assertThrows(IllegalStateException.class, generator::nextLong);
+    }
+}
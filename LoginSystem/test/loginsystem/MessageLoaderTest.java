@@ -0,0 +1,133 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import javax.swing.SwingUtilities;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+public class MessageLoaderTest {
+
+    private MessageStore store;
+    private MessageTableModel model;
+
+    @BeforeEach
+    void setUp() {
+        store = new MessageStore();
+        MessageService service = new MessageService(store, new MessageIdGenerator());
+        for (int i = 0; i < 5_000; i++) {
+            service.send("+2783" + (1000 + i % 40), "Message " + i);
+        }
+        model = new MessageTableModel();
+    }
+
+    @Test
+    void execute_StreamsEveryPageIntoTheModelInOrder() throws Exception {
+        AtomicInteger updates = new AtomicInteger();
+        MessageReport report = new MessageReport(store, "Sent", MessageReport.Order.OLDEST_FIRST, 100);
+        MessageLoader loader = MessageLoader.of(model, report, l -> {
+            assertTrue(SwingUtilities.isEventDispatchThread());
+            updates.incrementAndGet();
+        });
+        loader.execute();
+        assertEquals(5_000L, loader.get(10, TimeUnit.SECONDS).longValue());
+        awaitOnEdt(() -> model.getRowCount() == 5_000 ? 1 : 0);
+
+        List<Message> sent = store.messages("Sent");
+        onEdt(() -> {
+            assertEquals(5_000L, loader.shown());
+            for (int row : new int[] {0, 99, 100, 4_999}) {
+                assertSame(sent.get(row), model.messageAt(row));
+            }
+            return 0;
+        });
+        assertTrue(updates.get() >= 2, "Progress is reported while loading and at the end: " + updates.get());
+    }
+
+    @Test
+    void cancel_StopsBetweenPagesAndLeavesTheModelAlone() throws Exception {
+        CountDownLatch secondPage = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger fetches = new AtomicInteger();
+        MessageReport report = new MessageReport(store, "Sent", MessageReport.Order.NEWEST_FIRST, 100);
+        MessageLoader loader = new MessageLoader(model, cursor -> {
+            if (fetches.incrementAndGet() == 2) {
+                secondPage.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return report.page(cursor);
+        }, l -> { });
+        loader.execute();
+        assertTrue(secondPage.await(10, TimeUnit.SECONDS));
+        onEdt(() -> loader.cancel(false) ? 1 : 0);
+        release.countDown();
+        assertThrows(CancellationException.class, loader::get);
+
+        // Let any batch published before the cancel reach the event dispatch thread
+        Thread.sleep(200);
+        int rows = onEdt(model::getRowCount);
+        assertTrue(rows <= 100, "At most the page shown before cancelling: " + rows);
+        assertEquals(2, fetches.get(), "No page is fetched after cancel()");
+    }
+
+    @Test
+    void of_Supplier_ComputesOffTheEventDispatchThread() throws Exception {
+        AtomicBoolean onEdt = new AtomicBoolean(true);
+        MessageLoader loader = MessageLoader.of(model, () -> {
+            onEdt.set(SwingUtilities.isEventDispatchThread());
+            return store.findByRecipient("+27831000", "Sent");
+        }, l -> { });
+        loader.execute();
+        assertEquals(125L, loader.get(10, TimeUnit.SECONDS).longValue());
+        assertFalse(onEdt.get());
+        awaitOnEdt(() -> model.getRowCount() == 125 ? 1 : 0);
+    }
+
+    @Test
+    void model_ReadsCellsFromMessagesAndRemovesRows() throws Exception {
+        List<Message> some = store.messages("Sent").subList(0, 3);
+        onEdt(() -> {
+            model.append(some);
+            assertEquals(MessageTableModel.COLUMNS.length, model.getColumnCount());
+            assertEquals(some.get(1).messageID, model.getValueAt(1, 0));
+            assertEquals(some.get(1).messageNumber, model.getValueAt(1, 1));
+            assertEquals(Integer.class, model.getColumnClass(1));
+            assertEquals(some.get(1).messageHash, model.getValueAt(1, 4));
+            assertTrue(model.remove(some.get(2), 0), "A stale row index falls back to a search");
+            assertFalse(model.remove(some.get(2), 1));
+            assertEquals(2, model.getRowCount());
+            model.append(some.subList(2, 3));
+            assertEquals(2, model.removeAll(List.of(some.get(0), some.get(2))));
+            assertEquals(some.get(1), model.messageAt(0));
+            assertEquals(0, model.removeAll(List.of(some.get(0))));
+            model.clear();
+            assertEquals(0, model.getRowCount());
+            return 0;
+        });
+    }
+
+    private static int onEdt(IntSupplier body) throws Exception {
+        int[] result = new int[1];
+        SwingUtilities.invokeAndWait(() -> result[0] = body.getAsInt());
+        return result[0];
+    }
+
+    private static void awaitOnEdt(IntSupplier condition) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (onEdt(condition) == 0) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the model");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package loginsystem;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class MessageLogTest {
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("message-log-test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    private static ChatApp.Message message(int i, String flag) {
+        String id = MessageIdGenerator.format(i);
+        String recipient = "+2783" + (i % 7);
+        String text = "Message number " + i + " é🎉";
+        return new ChatApp.Message(id, i, recipient, text, MessageHasher.hash(id, i, recipient, text), flag);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    @Test
+    void reopen_RestoresAddsAndRemoves() throws IOException {
+        MessageStore store = new MessageStore();
+        try (MessageLog log = MessageLog.open(dir, MessageLog.Config.defaults(), store)) {
+            assertEquals(0, log.getRecoveryStats().records(), "A fresh log replays nothing");
+            for (int i = 1; i <= 100; i++) {
+                store.add(message(i, i % 3 == 0 ? "Stored" : "Sent"));
+            }
+            store.removeByHash(message(10, "Sent").messageHash);
+        }
+
+        MessageStore recovered = new MessageStore();
+        try (MessageLog log = MessageLog.open(dir, MessageLog.Config.defaults(), recovered)) {
+            MessageLog.RecoveryStats stats = log.getRecoveryStats();
+            assertEquals(101, stats.records(), "Every add and remove should be replayed");
+            assertEquals(100, stats.maxMessageNumber(), "Highest message number should be reported");
+            assertEquals(100, stats.maxMessageID(), "Highest numeric ID should be reported");
+        }
+        assertEquals(99, recovered.size(), "Removed message should stay removed");
+        assertNull(recovered.findById(MessageIdGenerator.format(10)), "Removed ID should not be recovered");
+        ChatApp.Message msg = recovered.findById(MessageIdGenerator.format(42));
+        assertEquals("Message number 42 é🎉", msg.message, "Message text should survive a restart");
+        assertEquals(message(42, "Sent").messageHash, msg.messageHash, "Hash should survive a restart");
+        assertEquals(store.findById(msg.messageID).createdAt, msg.createdAt, "Creation time should survive a restart");
+        assertEquals(33, recovered.size("Stored"), "Flags should survive a restart");
+    }
+
+    @Test
+    void reopen_RestoresFlagChanges() throws IOException {
+        MessageStore store = new MessageStore();
+        try (MessageLog log = MessageLog.open(dir, MessageLog.Config.defaults(), store)) {
+            assertEquals(0, log.getRecoveryStats().records(), "A fresh log replays nothing");
+            for (int i = 1; i <= 20; i++) {
+                store.add(message(i, "Stored"));
+            }
+            store.changeFlags("+27830", "Stored", "Sent");
+            store.changeFlag(message(1, "Stored").messageHash, "Stored", "Disregarded");
+        }
+
+        MessageStore recovered = new MessageStore();
+        try (MessageLog log = MessageLog.open(dir, MessageLog.Config.defaults(), recovered)) {
+            assertEquals(20 + 2 + 1, log.getRecoveryStats().records(), "Each moved message is one record");
+        }
+        assertEquals(2, recovered.size("Sent"), "Messages 7 and 14 go to +27830");
+        assertEquals("Disregarded", recovered.findById(MessageIdGenerator.format(1)).flag);
+        assertEquals(17, recovered.size("Stored"));
+    }
+
+    @Test
+    void append_SmallSegments_RollsAndRecoversInOrder() throws IOException {
+        MessageStore store = new MessageStore();
+        MessageLog.Config config = new MessageLog.Config(4096, -1, 16);
+        try (MessageLog log = MessageLog.open(dir, config, store)) {
+            assertEquals(0, log.getRecoveryStats().records(), "A fresh log replays nothing");
+            for (int i = 1; i <= 2_000; i++) {
+                store.add(message(i, "Sent"));
+            }
+        }
+        assertTrue(segments().size() > 10, "Log should roll into many segments");
+
+        MessageStore recovered = new MessageStore();
+        try (MessageLog log = MessageLog.open(dir, config, recovered)) {
+            assertEquals(2_000, log.getRecoveryStats().records());
+            assertEquals(2_000, recovered.size(), "All segments should be replayed");
+            assertEquals(1, recovered.messages("Sent").getFirst().messageNumber, "Segments should be replayed in order");
+            assertEquals(2_000, recovered.messages("Sent").getLast().messageNumber, "Segments should be replayed in order");
+            recovered.add(message(2_001, "Sent"));
+        }
+        MessageStore again = new MessageStore();
+        try (MessageLog log = MessageLog.open(dir, config, again)) {
+            assertEquals(2_001, log.getRecoveryStats().records());
+            assertEquals(2_001, again.size(), "Appends after recovery should continue the last segment");
+        }
+    }
+
+    @Test
+    void recover_TornTail_IsTruncated() throws IOException {
+        MessageStore store = new MessageStore();
+        try (MessageLog log = MessageLog.open(dir, MessageLog.Config.defaults(), store)) {
+            assertEquals(0, log.getRecoveryStats().records(), "A fresh log replays nothing");
+            for (int i = 1; i <= 10; i++) {
+                store.add(message(i, "Sent"));
+            }
+        }
+        Path segment = segments().get(0);
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // Half a record header, as a crash mid-write would leave behind
+            ch.write(ByteBuffer.wrap(new byte[]{0, 0, 1}), ch.size());
+        }
+
+        MessageStore recovered = new MessageStore();
+        try (MessageLog log = MessageLog.open(dir, MessageLog.Config.defaults(), recovered)) {
+            assertEquals(3, log.getRecoveryStats().truncatedBytes(), "Torn bytes should be reported");
+            recovered.add(message(11, "Sent"));
+        }
+        MessageStore again = new MessageStore();
+        try (MessageLog log = MessageLog.open(dir, MessageLog.Config.defaults(), again)) {
+            assertEquals(11, log.getRecoveryStats().records());
+            assertEquals(11, again.size(), "Records appended after truncation should be readable");
+        }
+    }
+
+    @Test
+    void recover_CorruptRecord_StopsAtLastGoodRecord() throws IOException {
+        MessageStore store = new MessageStore();
+        try (MessageLog log = MessageLog.open(dir, MessageLog.Config.defaults(), store)) {
+            assertEquals(0, log.getRecoveryStats().records(), "A fresh log replays nothing");
+            for (int i = 1; i <= 10; i++) {
+                store.add(message(i, "Sent"));
+            }
+        }
+        Path segment = segments().get(0);
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.wrap(new byte[]{(byte) 0xff}), ch.size() - 5);
+        }
+
+        MessageStore recovered = new MessageStore();
+        try (MessageLog log = MessageLog.open(dir, MessageLog.Config.defaults(), recovered)) {
+            assertEquals(9, log.getRecoveryStats().records(), "Replay should stop at the corrupt record");
+            assertEquals(9, recovered.size(), "Record failing its checksum should be dropped");
+        }
+    }
+
+    @Test
+    void sync_WithFsyncDisabled_StillForcesToDisk() throws IOException {
+        MessageStore store = new MessageStore();
+        try (MessageLog log = MessageLog.open(dir, new MessageLog.Config(1 << 20, -1, 1024), store)) {
+            store.add(message(1, "Sent"));
+            log.sync();
+            assertTrue(Files.size(segments().get(0)) > 0, "Synced record should be in the segment file");
+        }
+    }
+}
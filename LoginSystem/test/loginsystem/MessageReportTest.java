@@ -0,0 +1,111 @@
+package loginsystem;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MessageReportTest {
+
+    private MessageStore store;
+    private MessageService service;
+
+    @BeforeEach
+    void setUp() {
+        store = new MessageStore();
+        service = new MessageService(store, new MessageIdGenerator());
+        for (int i = 1; i <= 25; i++) {
+            service.send("+2783" + i, "Message " + i);
+        }
+    }
+
+    private static List<Integer> numbers(MessageReport report) {
+        List<Integer> numbers = new ArrayList<>();
+        MessageReport.Page page = report.first();
+        while (true) {
+            page.messages().forEach(m -> numbers.add(m.messageNumber));
+            if (!page.hasMore()) return numbers;
+            page = report.page(page.next());
+        }
+    }
+
+    @Test
+    void pages_OldestFirst_CoverEveryMessageOnce() {
+        MessageReport report = new MessageReport(store, "Sent", MessageReport.Order.OLDEST_FIRST, 10);
+        MessageReport.Page first = report.first();
+        assertEquals(10, first.messages().size(), "Pages should be full until the last one");
+        assertEquals(Integer.valueOf(10), first.next(), "Cursor should be the last message number on the page");
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 1; i <= 25; i++) expected.add(i);
+        assertEquals(expected, numbers(report), "Every message should appear once, oldest first");
+    }
+
+    @Test
+    void pages_NewestFirst_AreReversed() {
+        List<Integer> numbers = numbers(new MessageReport(store, "Sent", MessageReport.Order.NEWEST_FIRST, 7));
+        assertEquals(Integer.valueOf(25), numbers.get(0), "Newest message should come first");
+        assertEquals(Integer.valueOf(1), numbers.get(24), "Oldest message should come last");
+        assertEquals(25, numbers.size(), "Every message should appear once");
+    }
+
+    @Test
+    void page_ExactMultiple_HasNoEmptyTrailingPage() {
+        MessageReport report = new MessageReport(store, "Sent", MessageReport.Order.OLDEST_FIRST, 5);
+        MessageReport.Page page = report.page(20);
+        assertEquals(5, page.messages().size(), "Last page should hold the remaining messages");
+        assertFalse(page.hasMore(), "Last full page should not point at an empty page");
+    }
+
+    @Test
+    void page_ChangesBetweenPages_NeitherRepeatNorSkip() {
+        MessageReport report = new MessageReport(store, "Sent", MessageReport.Order.OLDEST_FIRST, 10);
+        MessageReport.Page first = report.first();
+        // Delete the cursor message itself and one on the next page, then send more
+        store.removeByHash(store.page("Sent", 9, 1, false).get(0).messageHash);
+        store.removeByHash(store.page("Sent", 11, 1, false).get(0).messageHash);
+        service.send("+2783", "Late message");
+        MessageReport.Page second = report.page(first.next());
+        assertEquals(List.of(11, 13, 14, 15, 16, 17, 18, 19, 20, 21),
+                second.messages().stream().map(m -> m.messageNumber).toList(), "Next page should resume after the cursor");
+    }
+
+    @Test
+    void page_UnknownFlag_IsEmpty() {
+        MessageReport.Page page = new MessageReport(store, "Disregarded", MessageReport.Order.NEWEST_FIRST).first();
+        assertTrue(page.messages().isEmpty(), "No messages carry the flag");
+        assertFalse(page.hasMore(), "Empty report has no further pages");
+    }
+
+    @Test
+    void writeTo_MatchesFormatOfEveryMessage() throws IOException {
+        StringWriter out = new StringWriter();
+        long written = new MessageReport(store, "Sent", MessageReport.Order.OLDEST_FIRST, 4).writeTo(out, MessageReport.FULL);
+        StringBuilder expected = new StringBuilder();
+        for (ChatApp.Message msg : store.messages("Sent")) {
+            expected.append("Message Hash: ").append(msg.messageHash).append("\n")
+                    .append("Recipient: ").append(msg.recipient).append("\n")
+                    .append("Message: ").append(msg.message).append("\n\n");
+        }
+        assertEquals(25, written, "Every message should be written");
+        assertEquals(expected.toString(), out.toString(), "Streamed report should match the old single-string report");
+    }
+
+    @Test
+    void writeTo_OutputStream_IsUtf8() throws IOException {
+        service.send("+27834567896", "Café 🍰");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new MessageReport(store, "Sent", MessageReport.Order.NEWEST_FIRST).writeTo(out, MessageReport.SUMMARY);
+        String text = out.toString(StandardCharsets.UTF_8);
+        assertTrue(text.startsWith("Message #26:\n  To: +27834567896\n  Text: Café 🍰\n"), "Newest message should be first and UTF-8 encoded");
+    }
+
+    @Test
+    void constructor_NonPositivePageSize_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> new MessageReport(store, "Sent", MessageReport.Order.OLDEST_FIRST, 0));
+    }
+}
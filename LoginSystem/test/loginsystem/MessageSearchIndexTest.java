@@ -0,0 +1,159 @@
+package loginsystem;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+public class MessageSearchIndexTest {
+
+    private static final String[] WORDS = {"cake", "call", "calling", "dinner", "din", "late", "time", "on", "you", "party"};
+
+    private static ChatApp.Message message(int number, String text, String flag) {
+        return new ChatApp.Message(String.format("%010d", number), number, "+27834567896", text, "hash" + number, flag);
+    }
+
+    private static List<Integer> numbers(List<ChatApp.Message> messages) {
+        return messages.stream().map(m -> m.messageNumber).toList();
+    }
+
+    @Test
+    void tokenize_SplitsOnNonAlphanumericsAndLowercases() {
+        assertEquals(List.of("where", "are", "you", "you", "are", "late", "8pm"),
+                MessageSearchIndex.tokenize("Where are you? You are LATE... 8pm"));
+        assertEquals(List.of(), MessageSearchIndex.tokenize(" ?! "));
+    }
+
+    @Test
+    void parse_SplitsClausesAndKeepsPrefixes() {
+        assertEquals(List.of(List.of("birthday", "cake"), List.of("part*")), MessageSearchIndex.parse("Birthday cake OR part*"));
+        assertEquals(List.of(List.of("you", "re")), MessageSearchIndex.parse("  you're  "));
+    }
+
+    @Test
+    void search_TermsPrefixesAndOr() {
+        MessageStore store = new MessageStore();
+        MessageSearchIndex index = new MessageSearchIndex(store);
+        store.add(message(1, "Did you get the cake?", "Sent"));
+        store.add(message(2, "Where are you? You are late!", "Stored"));
+        store.add(message(3, "It is dinner time!", "Sent"));
+        store.add(message(4, "Cake for dinner", "Sent"));
+
+        assertEquals(List.of(4, 1), numbers(index.search("CAKE", 10)), "Newest first");
+        assertEquals(List.of(4), numbers(index.search("cake dinner", 10)));
+        assertEquals(List.of(4, 3), numbers(index.search("din*", 10)));
+        assertEquals(List.of(4, 3, 2), numbers(index.search("dinner OR late", 10)));
+        assertEquals(List.of(4, 3), numbers(index.search("dinner OR late", "Sent", 10)), "Flag filter");
+        assertEquals(List.of(4), numbers(index.search("cake OR dinner", 1)), "Matching both clauses ranks first");
+        assertEquals(List.of(), index.search("pie", 10));
+        assertEquals(List.of(), index.search("", 10));
+
+        store.removeByHash("hash4");
+        assertEquals(List.of(1), numbers(index.search("cake", 10)), "Deleted message leaves the index");
+        assertEquals(0, index.count("cake dinner", null));
+        assertTrue(store.add(message(4, "Cake for dinner", "Sent")));
+        assertEquals(List.of(4), numbers(index.search("cake dinner", 10)), "Re-added message is found again");
+    }
+
+    @Test
+    void constructor_IndexesExistingMessages() {
+        MessageStore store = new MessageStore();
+        store.add(message(2, "It is dinner time!", "Sent"));
+        store.add(message(1, "Did you get the cake?", "Sent"));
+        MessageSearchIndex index = new MessageSearchIndex(store);
+        store.add(message(3, "Cake again", "Sent"));
+        assertEquals(List.of(3, 1), numbers(index.search("cake", 10)));
+        assertEquals(List.of(2), numbers(index.search("tim*", 10)));
+    }
+
+    @Test
+    void search_RandomSendsAndDeletes_MatchLinearScan() {
+        MessageStore store = new MessageStore();
+        MessageSearchIndex index = new MessageSearchIndex(store);
+        Random random = new Random(13);
+        List<ChatApp.Message> live = new ArrayList<>();
+        for (int op = 1; op <= 3_000; op++) {
+            if (live.isEmpty() || random.nextInt(4) > 0) {
+                StringBuilder text = new StringBuilder();
+                for (int w = random.nextInt(6); w >= 0; w--) {
+                    text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextBoolean() ? " " : ", ");
+                }
+                ChatApp.Message msg = message(op, text.toString(), random.nextBoolean() ? "Sent" : "Stored");
+                assertTrue(store.add(msg));
+                live.add(msg);
+            } else {
+                ChatApp.Message msg = live.remove(random.nextInt(live.size()));
+                assertSame(msg, store.removeByHash(msg.messageHash));
+            }
+        }
+        String[] queries = {"cake", "cake dinner", "cal*", "din*", "cake OR party", "late time OR din* on", "nothing", "you OR call*"};
+        for (String query : queries) {
+            List<Integer> expected = new ArrayList<>();
+            for (ChatApp.Message msg : live) {
+                if ("Sent".equals(msg.flag) && matches(msg.message, query)) expected.add(msg.messageNumber);
+            }
+            assertEquals(expected.size(), index.count(query, "Sent"), "count " + query);
+            List<Integer> found = new ArrayList<>(numbers(index.search(query, "Sent", Integer.MAX_VALUE)));
+            found.sort(null);
+            expected.sort(null);
+            assertEquals(expected, found, "search " + query);
+        }
+    }
+
+    // Reference semantics: any OR clause whose words each equal (or, with '*', start) some token.
+    private static boolean matches(String text, String query) {
+        List<String> tokens = MessageSearchIndex.tokenize(text);
+        for (List<String> clause : MessageSearchIndex.parse(query)) {
+            boolean all = true;
+            for (String operand : clause) {
+                boolean prefix = operand.endsWith("*");
+                String word = prefix ? operand.substring(0, operand.length() - 1) : operand;
+                all &= tokens.stream().anyMatch(t -> prefix ? t.startsWith(word) : t.equals(word));
+            }
+            if (all) return true;
+        }
+        return false;
+    }
+
+    @Test
+    void postingList_RandomAddsAndRemoves_MatchSortedSet() {
+        PostingList postings = new PostingList();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(5);
+        for (int op = 0; op < 20_000; op++) {
+            // Mostly ascending appends, as messages arrive, with out-of-order inserts, removes and huge gaps
+            int value = switch (random.nextInt(5)) {
+                case 0 -> random.nextInt(4_000);
+                case 1 -> random.nextInt();
+                default -> op;
+            };
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), postings.remove(value), "remove " + value);
+            } else {
+                assertEquals(expected.add(value), postings.add(value), "add " + value);
+            }
+            assertEquals(expected.contains(value), postings.contains(value), "contains " + value);
+        }
+        assertEquals(expected.size(), postings.size());
+        assertEquals(List.copyOf(expected), Arrays.stream(postings.toArray()).boxed().toList());
+        for (int value : expected) {
+            assertTrue(postings.contains(value));
+            assertFalse(postings.contains(value + 1) && !expected.contains(value + 1));
+        }
+        assertTrue(postings.bytes() < 16L * expected.size(), "Postings should stay compact");
+    }
+
+    @Test
+    void search_FlagChange_MovesMessageBetweenFilters() {
+        MessageStore store = new MessageStore();
+        MessageSearchIndex index = new MessageSearchIndex(store);
+        store.add(message(1, "Did you get the cake?", "Stored"));
+        assertEquals(List.of(), index.search("cake", "Sent", 10));
+        store.changeFlag("hash1", "Stored", "Sent");
+        assertEquals(List.of(1), numbers(index.search("cake", "Sent", 10)));
+        assertEquals(List.of(), index.search("cake", "Stored", 10));
+    }
+}
@@ -0,0 +1,132 @@
+package loginsystem;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class MessageServiceTest {
+
+    private MessageStore store;
+    private MessageService service;
+
+    @BeforeEach
+    void setUp() {
+        store = new MessageStore();
+        service = new MessageService(store, new MessageIdGenerator());
+    }
+
+    private static List<MessageService.OutgoingMessage> batch(int size) {
+        List<MessageService.OutgoingMessage> batch = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            batch.add(new MessageService.OutgoingMessage("+2783" + (i % 50), "Batch message " + i));
+        }
+        return batch;
+    }
+
+    @Test
+    void send_ValidMessage_IsStored() {
+        MessageService.SendResult result = service.send("+27834567896", "Did you get the cake?");
+        assertTrue(result.isSent(), "Valid message should be sent");
+        assertEquals(1, result.message().messageNumber, "First message should be number 1");
+        assertSame(result.message(), store.findById(result.message().messageID), "Sent message should be in the store");
+    }
+
+    @Test
+    void sendOnce_RetryReplaysTheOriginalWithoutStoring() {
+        MessageService.SendResult first = service.sendOnce("ky_1", "order-42", "+27834567896", "Did you get the cake?");
+        assertEquals(MessageService.Status.SENT, first.status());
+        MessageService.SendResult retry = service.sendOnce("ky_1", "order-42", "+27834567896", "Did you get the cake?");
+        assertEquals(MessageService.Status.REPLAYED, retry.status());
+        assertSame(first.message(), retry.message(), "The retry gets the original message ID back");
+        assertEquals(1, store.size());
+
+        MessageService.SendResult content = service.sendOnce("ky_1", null, "+27834567896", "Did you get the cake?");
+        assertEquals(MessageService.Status.SENT, content.status(), "A new key, the content fingerprint, sends");
+        assertEquals(MessageService.Status.REPLAYED, service.sendOnce("ky_1", null, "+27834567896", "Did you get the cake?").status());
+        assertEquals(MessageService.Status.SENT, service.sendOnce("ky_2", null, "+27834567896", "Did you get the cake?").status(),
+                "Fingerprints are per sender");
+        assertEquals(MessageService.Status.INVALID_RECIPIENT, service.sendOnce("ky_1", "bad", "0834567896", "Hi").status());
+        assertEquals(3, store.size());
+        assertEquals(3, service.getMessageCounter(), "Replays use up no message numbers");
+    }
+
+    @Test
+    void send_InvalidInput_IsRejectedWithReason() {
+        assertEquals(MessageService.Status.INVALID_RECIPIENT, service.send("Developer", "Hi").status(), "Recipient must start with '+'");
+        assertEquals(MessageService.Status.MESSAGE_TOO_LONG, service.send("+2783", "x".repeat(251)).status(), "Text over 250 characters");
+        assertEquals(0, store.size(), "Rejected messages should not be stored");
+        assertEquals(0, service.getMessageCounter(), "Rejected messages should not use a message number");
+    }
+
+    @Test
+    void sendBatch_MixedItems_ReturnsPerItemResultsInOrder() {
+        List<MessageService.SendResult> results = service.sendBatch(List.of(
+                new MessageService.OutgoingMessage("+27834567896", "first"),
+                new MessageService.OutgoingMessage("27834567896", "no plus"),
+                new MessageService.OutgoingMessage("+27834567896", "x".repeat(250)),
+                new MessageService.OutgoingMessage("+27834567896", "x".repeat(251))));
+        assertEquals(List.of(MessageService.Status.SENT, MessageService.Status.INVALID_RECIPIENT,
+                MessageService.Status.SENT, MessageService.Status.MESSAGE_TOO_LONG),
+                results.stream().map(MessageService.SendResult::status).toList(), "Each item should get its own status");
+        assertEquals(1, results.get(0).message().messageNumber, "Valid items should be numbered in batch order");
+        assertEquals(2, results.get(2).message().messageNumber, "Valid items should be numbered consecutively");
+        assertEquals(2, store.size("Sent"), "Only valid items should be stored");
+    }
+
+    @Test
+    void sendBatch_LargeBatch_HashesMatchSinglePath() {
+        List<MessageService.SendResult> results = service.sendBatch(batch(5_000).stream());
+        assertEquals(5_000, store.size(), "Every item should be stored");
+        for (MessageService.SendResult result : results) {
+            ChatApp.Message msg = result.message();
+            assertEquals(MessageHasher.hash(msg.messageID, msg.messageNumber, msg.recipient, msg.message), msg.messageHash,
+                    "Parallel hashing should give the same hash as the single send path");
+        }
+        assertEquals(5_000, service.getMessageCounter(), "Counter should advance by the batch size");
+    }
+
+    @Test
+    void sendBatch_ConcurrentBatches_AssignUniqueIdsAndNumbers() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<List<MessageService.SendResult>>> futures = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            futures.add(pool.submit(() -> service.sendBatch(batch(2_000))));
+        }
+        for (Future<List<MessageService.SendResult>> future : futures) {
+            assertTrue(future.get().stream().allMatch(MessageService.SendResult::isSent), "No item should collide");
+        }
+        pool.shutdown();
+        assertEquals(32_000, store.size(), "Every item of every batch should be stored");
+        assertEquals(32_000, store.messages("Sent").stream().mapToInt(m -> m.messageNumber).distinct().count(),
+                "Message numbers should be unique across batches");
+    }
+
+    @Test
+    void transition_FollowsLifecycle() {
+        ChatApp.Message msg = service.compose("+27834567896", "Later", "Stored");
+        store.add(msg);
+        assertEquals(MessageService.Transition.MOVED, service.transition(msg.messageHash, "Disregarded"));
+        assertEquals(MessageService.Transition.NOT_ALLOWED, service.transition(msg.messageHash, "Sent"), "Disregarded must be stored again first");
+        assertEquals(MessageService.Transition.MOVED, service.transition(msg.messageHash, "Stored"));
+        assertEquals(MessageService.Transition.MOVED, service.transition(msg.messageHash, "Sent"));
+        assertEquals(MessageService.Transition.NOT_ALLOWED, service.transition(msg.messageHash, "Stored"), "Sent is final");
+        assertEquals(MessageService.Transition.NOT_FOUND, service.transition("missing", "Sent"));
+    }
+
+    @Test
+    void flushStored_SendsOnlyThatRecipientsStoredMessages() {
+        for (int i = 0; i < 10; i++) {
+            store.add(service.compose(i < 6 ? "+27834567896" : "+27838884567", "Stored " + i, "Stored"));
+        }
+        service.send("+27834567896", "Already sent");
+        assertEquals(6, service.flushStored("+27834567896").size());
+        assertEquals(7, store.size("Sent"));
+        assertEquals(4, store.size("Stored"));
+        assertEquals(0, service.flushStored("+27834567896").size());
+    }
+}
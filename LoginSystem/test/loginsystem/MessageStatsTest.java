@@ -0,0 +1,112 @@
+package loginsystem;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class MessageStatsTest {
+
+    private static final String[] FLAGS = {"Sent", "Stored", "Disregarded"};
+
+    private static ChatApp.Message message(int number, String recipient, String text, String flag) {
+        return new ChatApp.Message(String.format("%010d", number), number, recipient, text, "hash" + number, flag);
+    }
+
+    // Full recompute from the store's contents, scanning in message number order.
+    private static void assertMatchesRecompute(MessageStore store) {
+        MessageStats stats = store.stats();
+        for (String flag : FLAGS) {
+            List<ChatApp.Message> all = store.messages(flag);
+            long characters = 0;
+            ChatApp.Message longest = null;
+            Map<String, Integer> recipients = new HashMap<>();
+            for (ChatApp.Message msg : all) {
+                characters += msg.message.length();
+                if (longest == null || msg.message.length() > longest.message.length()) longest = msg;
+                recipients.merge(msg.recipient, 1, Integer::sum);
+            }
+            assertEquals(all.size(), stats.count(flag), flag + " count");
+            assertEquals(characters, stats.characters(flag), flag + " characters");
+            assertSame(longest, stats.longest(flag), flag + " longest");
+            assertEquals(recipients, stats.recipientCounts(flag), flag + " recipient counts");
+            for (Map.Entry<String, Integer> e : recipients.entrySet()) {
+                assertEquals((int) e.getValue(), stats.count(flag, e.getKey()), flag + " count for " + e.getKey());
+            }
+        }
+    }
+
+    @Test
+    void longest_DeletedLongest_FallsBackToNextLongest() {
+        MessageStore store = new MessageStore();
+        store.add(message(1, "+27834567896", "Did you get the cake?", "Sent"));
+        store.add(message(2, "+27838884567", "Where are you? You are late! I have asked you to be on time.", "Sent"));
+        store.add(message(3, "+27834484567", "It is dinner time!", "Sent"));
+        store.add(message(4, "+27834484567", "Did you get the cake?", "Sent"));
+        assertEquals(2, store.longest("Sent").messageNumber);
+        store.removeByHash("hash2");
+        assertEquals(1, store.longest("Sent").messageNumber, "Earliest of the next longest length should take over");
+        store.removeByHash("hash1");
+        assertEquals(4, store.longest("Sent").messageNumber);
+        store.removeByHash("hash4");
+        store.removeByHash("hash3");
+        assertNull(store.longest("Sent"), "Empty flag has no longest message");
+        assertEquals(0, store.stats().count("Sent", "+27834484567"), "Recipient count should drop to zero");
+        assertTrue(store.stats().recipientCounts("Sent").isEmpty(), "Recipients with no messages should be dropped");
+    }
+
+    @Test
+    void stats_RandomAddsAndDeletes_MatchFullRecompute() {
+        MessageStore store = new MessageStore();
+        Random random = new Random(7);
+        List<ChatApp.Message> live = new ArrayList<>();
+        for (int op = 1; op <= 5_000; op++) {
+            if (live.isEmpty() || random.nextInt(3) > 0) {
+                // Few lengths and recipients, so ties and shared buckets are common
+                ChatApp.Message msg = message(op, "+2783" + random.nextInt(20), "x".repeat(random.nextInt(30)), FLAGS[random.nextInt(3)]);
+                assertTrue(store.add(msg));
+                live.add(msg);
+            } else {
+                ChatApp.Message msg = live.remove(random.nextInt(live.size()));
+                assertSame(msg, store.removeByHash(msg.messageHash));
+            }
+            if (op % 50 == 0) assertMatchesRecompute(store);
+        }
+        assertMatchesRecompute(store);
+    }
+
+    @Test
+    void stats_RejectedDuplicate_IsNotCounted() {
+        MessageStore store = new MessageStore();
+        store.add(message(1, "+27834567896", "Hi", "Sent"));
+        assertFalse(store.add(message(1, "+27834567896", "Hi again", "Sent")));
+        assertEquals(1, store.stats().count("Sent"));
+        assertEquals(2, store.stats().characters("Sent"));
+    }
+
+    @Test
+    void stats_RandomFlagChanges_MatchFullRecompute() {
+        MessageStore store = new MessageStore();
+        Random random = new Random(11);
+        List<ChatApp.Message> all = new ArrayList<>();
+        for (int i = 1; i <= 2_000; i++) {
+            ChatApp.Message msg = message(i, "+2783" + random.nextInt(10), "x".repeat(random.nextInt(30)), FLAGS[random.nextInt(3)]);
+            store.add(msg);
+            all.add(msg);
+        }
+        for (int op = 1; op <= 2_000; op++) {
+            String to = FLAGS[random.nextInt(3)];
+            if (random.nextInt(10) == 0) {
+                store.changeFlags("+2783" + random.nextInt(10), FLAGS[random.nextInt(3)], to);
+            } else {
+                ChatApp.Message msg = all.get(random.nextInt(all.size()));
+                assertTrue(store.changeFlag(msg.messageHash, msg.flag, to));
+            }
+            if (op % 100 == 0) assertMatchesRecompute(store);
+        }
+        assertMatchesRecompute(store);
+    }
+}
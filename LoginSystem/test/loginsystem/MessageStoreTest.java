@@ -0,0 +1,206 @@
+package loginsystem;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+
+public class MessageStoreTest {
+
+    private MessageStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new MessageStore();
+        store.add(new ChatApp.Message("0000000001", 1, "+27834567896", "Did you get the cake?", "hash1", "Sent"));
+        store.add(new ChatApp.Message("0000000002", 2, "+2783844567", "Where are you?", "hash2", "Stored"));
+        store.add(new ChatApp.Message("0000000003", 3, "+27834567896", "It is dinner time!", "hash3", "Sent"));
+    }
+
+    @Test
+    void findById_KnownId_ReturnsMessage() {
+        assertEquals("Where are you?", store.findById("0000000002").message, "Lookup by ID should return the stored message");
+        assertNull(store.findById("9999999999"), "Unknown ID should return null");
+    }
+
+    @Test
+    void findByHash_KnownHash_ReturnsMessage() {
+        assertEquals("0000000003", store.findByHash("hash3").messageID, "Lookup by hash should return the stored message");
+    }
+
+    @Test
+    void add_DuplicateIdOrHash_IsRejected() {
+        assertFalse(store.add(new ChatApp.Message("0000000001", 4, "+27111", "dup", "hash4", "Sent")), "Duplicate ID should be rejected");
+        assertFalse(store.add(new ChatApp.Message("0000000004", 4, "+27111", "dup", "hash1", "Sent")), "Duplicate hash should be rejected");
+        assertEquals(3, store.size(), "Store should not grow on rejected adds");
+    }
+
+    @Test
+    void add_DuplicateMessageNumber_IsRejected() {
+        assertFalse(store.add(new ChatApp.Message("0000000004", 3, "+27111", "dup", "hash4", "Sent")), "Duplicate message number should be rejected");
+        assertNull(store.findById("0000000004"), "Rejected message should not be indexed");
+        assertTrue(store.add(new ChatApp.Message("0000000004", 4, "+27111", "new", "hash4", "Sent")), "Next number should be accepted");
+    }
+
+    @Test
+    void findByRecipient_ReturnsMessagesInInsertionOrder() {
+        List<String> ids = store.findByRecipient("+27834567896").stream().map(m -> m.messageID).toList();
+        assertEquals(List.of("0000000001", "0000000003"), ids, "Recipient index should keep insertion order");
+        assertTrue(store.findByRecipient("+27000000000").isEmpty(), "Unknown recipient should have no messages");
+    }
+
+    @Test
+    void messages_GroupsByFlag() {
+        assertEquals(2, store.size("Sent"), "Two messages should be flagged Sent");
+        assertEquals(1, store.size("Stored"), "One message should be flagged Stored");
+        assertTrue(store.isEmpty("Disregarded"), "No message should be flagged Disregarded");
+    }
+
+    @Test
+    void removeByHash_RemovesFromEveryIndex() {
+        assertNotNull(store.removeByHash("hash1"), "Known hash should be removed");
+        assertNull(store.findByHash("hash1"), "Hash index should no longer contain the message");
+        assertNull(store.findById("0000000001"), "ID index should no longer contain the message");
+        assertEquals(1, store.findByRecipient("+27834567896").size(), "Recipient index should drop the message");
+        assertEquals(1, store.size("Sent"), "Flag index should drop the message");
+        assertNull(store.removeByHash("hash1"), "Removing twice should return null");
+    }
+
+    @Test
+    void changeFlag_MovesSameMessageBetweenStates() {
+        ChatApp.Message stored = store.findByHash("hash2");
+        assertFalse(store.changeFlag("hash2", "Sent", "Disregarded"), "Expected flag must match");
+        assertFalse(store.changeFlag("nope", "Stored", "Sent"), "Unknown hash");
+        assertTrue(store.changeFlag("hash2", "Stored", "Sent"));
+        assertEquals("Sent", stored.flag, "Flag changes in place");
+        assertSame(stored, store.findById("0000000002"), "ID index keeps the same object");
+        assertEquals(List.of(1, 2, 3), store.messages("Sent").stream().map(m -> m.messageNumber).toList(),
+                "Moved message joins the flag in number order");
+        assertTrue(store.isEmpty("Stored"));
+        assertEquals(List.of(stored), store.findByRecipient("+2783844567", "Sent"));
+        assertEquals(List.of(), store.findByRecipient("+2783844567", "Stored"));
+    }
+
+    @Test
+    void changeFlags_MovesRecipientsWholeStateInOnePass() {
+        for (int i = 10; i < 2_010; i++) {
+            store.add(new ChatApp.Message(String.format("%010d", i), i, i % 2 == 0 ? "+27830000000" : "+27831111111",
+                    "Stored " + i, "hash" + i, "Stored"));
+        }
+        List<ChatApp.Message> moved = store.changeFlags("+27830000000", "Stored", "Sent");
+        assertEquals(1_000, moved.size());
+        assertEquals(10, moved.get(0).messageNumber, "Moved in the order they were stored");
+        assertEquals(1_001, store.size("Stored"), "Other recipients stay Stored");
+        assertEquals(1_002, store.size("Sent"));
+        assertEquals(1_000, store.findByRecipient("+27830000000", "Sent").size());
+        assertEquals(List.of(), store.changeFlags("+27830000000", "Stored", "Sent"), "Nothing left to move");
+        assertEquals(1_000, store.stats().count("Sent", "+27830000000"), "Listeners see every move");
+        assertNotNull(store.removeByHash("hash10"), "Moved messages remain removable");
+        assertEquals(999, store.findByRecipient("+27830000000", "Sent").size());
+    }
+
+    private static ChatApp.Message at(int number, String flag, long createdAt) {
+        return new ChatApp.Message("T" + number, number, "+27830", "At " + createdAt, "t" + number, flag, createdAt);
+    }
+
+    @Test
+    void pageByTime_RangeAndCursor_WalkBothDirections() {
+        MessageStore timed = new MessageStore();
+        for (int i = 1; i <= 10; i++) {
+            timed.add(at(i, "Sent", 1_000 * (i / 2)));
+        }
+        timed.add(at(11, "Stored", 2_000));
+        List<ChatApp.Message> oldest = timed.pageByTime("Sent", 1_000, 4_000, null, 3, false);
+        assertEquals(List.of(2, 3, 4), oldest.stream().map(m -> m.messageNumber).toList(), "From is inclusive, ties by number");
+        List<ChatApp.Message> next = timed.pageByTime("Sent", 1_000, 4_000, oldest.getLast(), 3, false);
+        assertEquals(List.of(5, 6, 7), next.stream().map(m -> m.messageNumber).toList(), "To is exclusive");
+        assertTrue(timed.pageByTime("Sent", 1_000, 4_000, next.getLast(), 3, false).isEmpty());
+
+        List<ChatApp.Message> newest = timed.pageByTime("Sent", 0, Long.MAX_VALUE, null, 4, true);
+        assertEquals(List.of(10, 9, 8, 7), newest.stream().map(m -> m.messageNumber).toList());
+        assertEquals(List.of(6, 5), timed.pageByTime("Sent", 0, Long.MAX_VALUE, newest.getLast(), 2, true)
+                .stream().map(m -> m.messageNumber).toList());
+        assertEquals(1, timed.pageByTime("Stored", 0, 3_000, null, 10, true).size(), "Flags are indexed apart");
+        assertTrue(timed.pageByTime("Disregarded", 0, Long.MAX_VALUE, null, 10, true).isEmpty());
+    }
+
+    @Test
+    void removeOlderThan_RemovesOldestFirstFromEveryIndex() {
+        MessageStore timed = new MessageStore();
+        for (int i = 1; i <= 10; i++) {
+            timed.add(at(i, "Sent", 1_000L * i));
+        }
+        timed.add(at(11, "Stored", 0));
+        List<ChatApp.Message> removed = timed.removeOlderThan("Sent", 6_000, 3);
+        assertEquals(List.of(1, 2, 3), removed.stream().map(m -> m.messageNumber).toList(), "Limited batch, oldest first");
+        assertEquals(List.of(4, 5), timed.removeOlderThan("Sent", 6_000, 3).stream().map(m -> m.messageNumber).toList());
+        assertTrue(timed.removeOlderThan("Sent", 6_000, 3).isEmpty());
+        assertNull(timed.findById("T1"));
+        assertNull(timed.findByHash("t5"));
+        assertEquals(5, timed.size("Sent"));
+        assertEquals(1, timed.size("Stored"), "Other flags are untouched");
+        assertEquals(5, timed.pageByTime("Sent", 0, Long.MAX_VALUE, null, 10, false).size());
+    }
+
+    @Test
+    void removeByIdAndRecipient_LeaveNoIndexBehind() {
+        store.add(new ChatApp.Message("0000000004", 4, "+27834567896", "Stored for later", "hash4", "Stored"));
+        assertEquals("Where are you?", store.removeById("0000000002").message);
+        assertNull(store.removeById("0000000002"));
+        assertNull(store.findByHash("hash2"), "The hash goes with the ID");
+        assertTrue(store.findByRecipient("+2783844567").isEmpty());
+
+        List<ChatApp.Message> removed = store.removeByRecipient("+27834567896");
+        assertEquals(List.of("0000000001", "0000000003", "0000000004"), removed.stream().map(m -> m.messageID).toList());
+        assertTrue(store.removeByRecipient("+27834567896").isEmpty());
+        assertEquals(0, store.size());
+        assertEquals(0, store.size("Stored"), "Every flag is cleared");
+        assertNull(store.findByHash("hash3"));
+        assertTrue(store.pageByTime("Sent", 0, Long.MAX_VALUE, null, 10, false).isEmpty());
+        assertTrue(store.add(new ChatApp.Message("0000000001", 1, "+27834567896", "Again", "hash1", "Sent")), "Removed keys are free again");
+    }
+
+    @Test
+    void remove_LeavesTombstonesThatQueriesSkipUntilCompacted() {
+        store.removeByHash("hash1");
+        assertEquals(1, store.tombstones());
+        assertEquals(List.of("0000000003"), store.messages("Sent").stream().map(m -> m.messageID).toList());
+        assertEquals(List.of("0000000003"), store.page("Sent", null, 10, true).stream().map(m -> m.messageID).toList());
+        assertEquals(List.of("0000000003"), store.findByRecipient("+27834567896").stream().map(m -> m.messageID).toList());
+        assertEquals(1, store.findByRecipient("+27834567896", "Sent").size());
+        assertEquals(1, store.pageByTime("Sent", 0, Long.MAX_VALUE, null, 10, false).size());
+        assertEquals(1, store.size("Sent"));
+
+        assertEquals(1, store.changeFlags("+27834567896", "Sent", "Disregarded").size(), "Tombstones are not moved");
+        assertEquals(0, store.size("Sent"));
+        assertFalse(store.flags().contains("Sent"), "A flag holding only tombstones has no messages");
+        assertTrue(store.add(new ChatApp.Message("0000000009", 1, "+27834567896", "Reused number", "hash9", "Sent")),
+                "Adding over a tombstone's number replaces it");
+        assertEquals(0, store.tombstones());
+
+        store.removeById("0000000003");
+        assertEquals(1, store.tombstones());
+        assertEquals(1, store.compact(10));
+        assertEquals(0, store.compact(10));
+        assertEquals(List.of("0000000009"), store.findByRecipient("+27834567896").stream().map(m -> m.messageID).toList());
+        assertTrue(store.messages("Disregarded").isEmpty());
+        assertEquals(List.of("Sent", "Stored"), store.flags().stream().sorted().toList());
+    }
+
+    @Test
+    void findByRecipientPrefix_FollowsSendsAndDeletes() {
+        store.add(new ChatApp.Message("0000000004", 4, "+27834567800", "Stored for later", "hash4", "Stored"));
+        assertEquals(List.of("0000000004", "0000000001", "0000000003"),
+                store.findByRecipientPrefix("+278345678", null, 10).stream().map(m -> m.messageID).toList(),
+                "Recipients in number order, each one's messages in add order");
+        assertEquals(List.of("0000000001"), store.findByRecipientPrefix("+278", "Sent", 1).stream().map(m -> m.messageID).toList());
+        assertEquals(new RecipientIndex.PrefixCount(4, 3), store.recipients().count("+2783"));
+
+        store.removeByHash("hash1");
+        store.changeFlag("hash4", "Stored", "Sent");
+        assertEquals(List.of("0000000004", "0000000003"),
+                store.findByRecipientPrefix("+2783", "Sent", 10).stream().map(m -> m.messageID).toList());
+        assertEquals(new RecipientIndex.PrefixCount(3, 3), store.recipients().count("+2783"));
+        assertTrue(store.findByRecipientPrefix("+1", null, 10).isEmpty());
+    }
+}
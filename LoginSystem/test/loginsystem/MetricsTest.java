@@ -0,0 +1,159 @@
+package loginsystem;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class MetricsTest {
+
+    @Test
+    void startStop_CountsEveryCallAndTimesUnsampledOperations() {
+        Metrics metrics = new Metrics();
+        for (int i = 0; i < 10; i++) {
+            metrics.stop(Metrics.Operation.LOGIN, metrics.start(Metrics.Operation.LOGIN));
+        }
+        Metrics.Snapshot login = metrics.snapshot(Metrics.Operation.LOGIN);
+        assertEquals(10, login.calls());
+        assertEquals(10, login.timed(), "Slow operations time every call");
+        assertTrue(login.max() >= login.p50() && login.sumNanos() >= login.max());
+        assertEquals(0, metrics.snapshot(Metrics.Operation.REGISTER).calls());
+    }
+
+    @Test
+    void startStop_SampledOperations_TimeAFractionOfCalls() {
+        Metrics metrics = new Metrics();
+        int calls = 100_000;
+        for (int i = 0; i < calls; i++) {
+            metrics.stop(Metrics.Operation.MESSAGE_HASH, metrics.start(Metrics.Operation.MESSAGE_HASH));
+        }
+        Metrics.Snapshot hash = metrics.snapshot(Metrics.Operation.MESSAGE_HASH);
+        assertEquals(calls, hash.calls(), "Every call is counted");
+        long expected = calls / Metrics.SAMPLE_EVERY;
+        assertTrue(Math.abs(hash.timed() - expected) < expected / 5, "About one in SAMPLE_EVERY is timed: " + hash.timed());
+    }
+
+    @Test
+    void services_ReportToGlobalMetrics() {
+        Metrics.Snapshot before = Metrics.global().snapshot(Metrics.Operation.SEND);
+        long searchesBefore = Metrics.global().snapshot(Metrics.Operation.SEARCH).calls();
+        MessageStore store = new MessageStore();
+        MessageSearchIndex index = new MessageSearchIndex(store);
+        MessageService service = new MessageService(store, new MessageIdGenerator());
+        service.send("+27834567896", "Did you get the cake?");
+        service.send("bad", "Rejected sends count too");
+        index.search("cake", 10);
+        assertEquals(before.calls() + 2, Metrics.global().snapshot(Metrics.Operation.SEND).calls());
+        assertEquals(searchesBefore + 1, Metrics.global().snapshot(Metrics.Operation.SEARCH).calls());
+    }
+
+    @Test
+    void storeLookups_CountAsSearches() {
+        MessageStore store = new MessageStore();
+        MessageService service = new MessageService(store, new MessageIdGenerator());
+        String id = service.send("+27834567896", "Did you get the cake?").message().messageID;
+        Metrics.Snapshot before = Metrics.global().snapshot(Metrics.Operation.SEARCH);
+        store.findById(id);
+        store.findByRecipient("+27834567896");
+        store.findByRecipient("+27834567896", "Sent");
+        store.findByRecipientPrefix("+2783", "Sent", 10);
+        store.pageByTime("Sent", 0, Long.MAX_VALUE, null, 10, true);
+        Metrics.Snapshot after = Metrics.global().snapshot(Metrics.Operation.SEARCH);
+        assertEquals(before.calls() + 5, after.calls());
+        assertEquals(before.timed() + 5, after.timed(), "Searches are not sampled");
+    }
+
+    @Test
+    void sendBatch_CountsEveryItemAndTimesTheCallOnce() {
+        Metrics.Snapshot before = Metrics.global().snapshot(Metrics.Operation.SEND);
+        MessageService service = new MessageService(new MessageStore(), new MessageIdGenerator());
+        service.sendBatch(List.of(new MessageService.OutgoingMessage("+27834567896", "One"),
+                new MessageService.OutgoingMessage("+27834567897", "Two"),
+                new MessageService.OutgoingMessage("bad", "Rejected items count too")));
+        Metrics.Snapshot after = Metrics.global().snapshot(Metrics.Operation.SEND);
+        assertEquals(before.calls() + 3, after.calls());
+        assertTrue(after.timed() - before.timed() <= 1, "One timing for the whole batch");
+    }
+
+    @Test
+    void sendPipeline_CountsAndTimesEverySend() throws Exception {
+        Metrics.Snapshot before = Metrics.global().snapshot(Metrics.Operation.SEND);
+        MessageService service = new MessageService(new MessageStore(), new MessageIdGenerator());
+        int sends = 50 * Metrics.SAMPLE_EVERY;
+        List<CompletableFuture<MessageService.SendResult>> results = new ArrayList<>();
+        try (SendPipeline pipeline = new SendPipeline(service)) {
+            for (int i = 0; i < sends; i++) {
+                results.add(pipeline.submit("+2783" + (1000 + i % 37), "Pipelined " + i));
+            }
+            for (CompletableFuture<MessageService.SendResult> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        }
+        Metrics.Snapshot after = Metrics.global().snapshot(Metrics.Operation.SEND);
+        assertEquals(before.calls() + sends, after.calls(), "Each send is counted once");
+        assertTrue(after.timed() > before.timed(), "Sampled sends are timed from submit() to completion");
+    }
+
+    @Test
+    void writePrometheus_EmitsCounterAndSummaryPerOperation() throws IOException {
+        Metrics metrics = new Metrics();
+        metrics.stop(Metrics.Operation.REGISTER, metrics.start(Metrics.Operation.REGISTER));
+        StringWriter out = new StringWriter();
+        metrics.writePrometheus(out);
+        String text = out.toString();
+        assertTrue(text.contains("# TYPE loginsystem_operations_total counter\n"));
+        assertTrue(text.contains("loginsystem_operations_total{operation=\"register\"} 1\n"));
+        assertTrue(text.contains("loginsystem_operations_total{operation=\"send\"} 0\n"));
+        assertTrue(text.contains("# TYPE loginsystem_operation_duration_seconds summary\n"));
+        assertTrue(text.contains("loginsystem_operation_duration_seconds{operation=\"register\",quantile=\"0.99\"} 0."));
+        assertTrue(text.contains("loginsystem_operation_duration_seconds_count{operation=\"register\"} 1\n"));
+        for (String line : text.split("\n")) {
+            assertTrue(line.startsWith("#") || line.matches("[a-z_]+\\{[^}]*\\} [0-9.]+"), "Malformed sample: " + line);
+        }
+    }
+
+    @Test
+    void registerMBean_ExposesAttributesOverJmx() throws Exception {
+        Metrics.global().registerMBean();
+        assertFalse(Metrics.global().registerMBean(), "Registering twice is a no-op");
+        new MessageService(new MessageStore(), new MessageIdGenerator()).send("+27834567896", "Hi");
+        ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        TabularData calls = (TabularData) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Calls");
+        Object sends = calls.get(new Object[] {"send"}).get("value");
+        assertTrue((Long) sends >= 1, "send calls over JMX: " + sends);
+    }
+
+    @Test
+    void exporters_WriteFileAndServeHttp() throws Exception {
+        Metrics metrics = new Metrics();
+        metrics.stop(Metrics.Operation.LOGIN, metrics.start(Metrics.Operation.LOGIN));
+        Path dir = Files.createTempDirectory("metrics");
+        Path file = dir.resolve("loginsystem.prom");
+        try (MetricsExporter exporter = MetricsExporter.toFile(metrics, file, 60_000)) {
+            assertTrue(Files.readString(file).contains("loginsystem_operations_total{operation=\"login\"} 1\n"));
+            assertEquals(-1, exporter.port(), "A file exporter has no port");
+        }
+        try (MetricsExporter exporter = MetricsExporter.onPort(metrics, new InetSocketAddress("127.0.0.1", 0))) {
+            URI uri = URI.create("http://127.0.0.1:" + exporter.port() + "/metrics");
+            try (InputStream in = uri.toURL().openStream()) {
+                String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                assertEquals(metrics.prometheusText(), body);
+            }
+        }
+        Files.delete(file);
+        Files.delete(dir);
+    }
+}
@@ -0,0 +1,50 @@
+package loginsystem;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PasswordHasherTest {
+
+    private final PasswordHasher hasher = new PasswordHasher(1_000);
+
+    @Test
+    void hash_IsSaltedAndVerifies() {
+        String first = hasher.hash("Pass123!@");
+        String second = hasher.hash("Pass123!@");
+        assertTrue(first.startsWith("pbkdf2-sha512$1000$"), first);
+        assertNotEquals(first, second, "Each hash should use a fresh salt");
+        assertTrue(hasher.verify("Pass123!@", first), "Correct password should verify");
+        assertTrue(hasher.verify("Pass123!@", second), "Correct password should verify against either salt");
+        assertFalse(hasher.verify("Pass123!#", first), "Wrong password should not verify");
+    }
+
+    @Test
+    void verify_UsesCostStoredInRecord() {
+        String weak = new PasswordHasher(10).hash("Pass123!@");
+        assertTrue(hasher.verify("Pass123!@", weak), "Records made at another cost should still verify");
+        assertTrue(hasher.needsRehash(weak), "Weaker records should be rehashed");
+        assertFalse(hasher.needsRehash(hasher.hash("Pass123!@")), "Current-cost records should be kept");
+    }
+
+    @Test
+    void verify_LegacyPlaintext_MatchesExactlyAndNeedsRehash() {
+        assertTrue(hasher.verify("Pass123!@", "Pass123!@"), "Plaintext record should still log in");
+        assertFalse(hasher.verify("Pass123!", "Pass123!@"), "Prefix of a plaintext record should not match");
+        assertTrue(hasher.needsRehash("Pass123!@"), "Plaintext record should be rehashed");
+        assertFalse(PasswordHasher.isHashed("Pass123!@"));
+    }
+
+    @Test
+    void verify_MalformedRecordsOrNulls_ReturnFalse() {
+        assertFalse(hasher.verify("Pass123!@", "pbkdf2-sha512$1000$not base64!$x"));
+        assertFalse(hasher.verify("Pass123!@", "pbkdf2-sha512$1000$onlythree"));
+        assertFalse(hasher.verify(null, hasher.hash("Pass123!@")));
+        assertFalse(hasher.verify("Pass123!@", null));
+        assertTrue(hasher.needsRehash("pbkdf2-sha512$abc$x$y"), "Unreadable cost should be treated as weak");
+    }
+
+    @Test
+    void constructor_NonPositiveIterations_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> new PasswordHasher(0));
+    }
+}
@@ -0,0 +1,110 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class RecipientIndexTest {
+
+    private int next;
+
+    private Message to(String recipient) {
+        next++;
+        return new Message("R" + next, next, recipient, "Hi", "r" + next, "Sent");
+    }
+
+    @Test
+    void count_NestedNumbersAndShortPrefixes() {
+        RecipientIndex index = new RecipientIndex();
+        // "+2783" is itself a number as well as a prefix of the others
+        for (String recipient : List.of("+2783", "+27834567896", "+27834567896", "+27838884567", "+2784", "+1555")) {
+            index.onAdd(to(recipient));
+        }
+        assertEquals(new RecipientIndex.PrefixCount(6, 5), index.count("+"));
+        assertEquals(new RecipientIndex.PrefixCount(5, 4), index.count("+278"));
+        assertEquals(new RecipientIndex.PrefixCount(4, 3), index.count("+2783"));
+        assertEquals(new RecipientIndex.PrefixCount(2, 1), index.count("+2783456"));
+        assertEquals(new RecipientIndex.PrefixCount(2, 1), index.count("+27834567896"));
+        assertEquals(new RecipientIndex.PrefixCount(0, 0), index.count("+27834567897"));
+        assertEquals(new RecipientIndex.PrefixCount(0, 0), index.count("+2783456789612"));
+        assertEquals(new RecipientIndex.PrefixCount(0, 0), index.count("2783"));
+        assertEquals(new RecipientIndex.PrefixCount(0, 0), index.count("+27x"));
+        assertEquals(List.of("+2783", "+27834567896", "+27838884567"), index.recipients("+2783", 10));
+        assertEquals(List.of("+1555", "+2783"), index.recipients("+", 2));
+    }
+
+    @Test
+    void onRemove_UndoesAddsAndIgnoresUnknownNumbers() {
+        RecipientIndex index = new RecipientIndex();
+        Message a = to("+27834567896");
+        Message b = to("+27834567800");
+        index.onAdd(a);
+        index.onAdd(b);
+        index.onRemove(to("+2783456"));
+        index.onRemove(to("+27834567899"));
+        index.onAdd(to("not a number"));
+        assertEquals(new RecipientIndex.PrefixCount(2, 2), index.count("+"));
+        index.onRemove(b);
+        assertEquals(List.of("+27834567896"), index.recipients("+278345678", 10));
+        index.onRemove(a);
+        assertEquals(new RecipientIndex.PrefixCount(0, 0), index.count("+"));
+        assertTrue(index.top("+", 5).isEmpty());
+    }
+
+    @Test
+    void top_BusiestFirstTiesInNumberOrder() {
+        RecipientIndex index = new RecipientIndex();
+        Map<String, Integer> traffic = Map.of("+2783", 3, "+27831", 5, "+27832", 3, "+2784", 9, "+278311", 3);
+        traffic.forEach((recipient, count) -> {
+            for (int i = 0; i < count; i++) index.onAdd(to(recipient));
+        });
+        assertEquals(List.of(new RecipientIndex.RecipientCount("+2784", 9), new RecipientIndex.RecipientCount("+27831", 5),
+                new RecipientIndex.RecipientCount("+2783", 3), new RecipientIndex.RecipientCount("+278311", 3)),
+                index.top("+278", 4));
+        assertEquals(List.of(new RecipientIndex.RecipientCount("+27831", 5)), index.top("+2783", 1));
+    }
+
+    @Test
+    void randomAddsAndRemoves_MatchABruteForceCount() {
+        RecipientIndex index = new RecipientIndex();
+        TreeMap<String, Integer> model = new TreeMap<>();
+        List<Message> live = new ArrayList<>();
+        Random random = new Random(11);
+        for (int step = 0; step < 40_000; step++) {
+            if (live.isEmpty() || random.nextInt(3) > 0) {
+                // Short numbers from a small alphabet, so numbers are often prefixes of each other
+                StringBuilder recipient = new StringBuilder("+2");
+                for (int d = random.nextInt(8); d > 0; d--) recipient.append(random.nextInt(3));
+                Message msg = to(recipient.toString());
+                index.onAdd(msg);
+                live.add(msg);
+                model.merge(msg.recipient, 1, Integer::sum);
+            } else {
+                Message msg = live.remove(random.nextInt(live.size()));
+                index.onRemove(msg);
+                model.merge(msg.recipient, -1, Integer::sum);
+                if (model.get(msg.recipient) == 0) model.remove(msg.recipient);
+            }
+            if (step % 1_000 == 999) {
+                for (String prefix : List.of("+", "+2", "+20", "+212", "+2011", "+22221")) {
+                    Map<String, Integer> under = model.subMap(prefix, prefix + Character.MAX_VALUE);
+                    long messages = under.values().stream().mapToLong(Integer::longValue).sum();
+                    assertEquals(new RecipientIndex.PrefixCount(messages, under.size()), index.count(prefix), prefix);
+                    assertEquals(new ArrayList<>(under.keySet()), index.recipients(prefix, Integer.MAX_VALUE), prefix);
+                    List<RecipientIndex.RecipientCount> expected = under.entrySet().stream()
+                            .map(e -> new RecipientIndex.RecipientCount(e.getKey(), e.getValue()))
+                            .sorted(Comparator.comparingInt((RecipientIndex.RecipientCount c) -> -c.messages())
+                                    .thenComparing(RecipientIndex.RecipientCount::recipient))
+                            .limit(7).toList();
+                    assertEquals(expected, index.top(prefix, 7), prefix);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SendDeduplicatorTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    private final AtomicLong now = new AtomicLong(1_000 * MILLIS);
+    private final AtomicInteger composed = new AtomicInteger();
+
+    private SendDeduplicator deduplicator(long windowMillis, int maxEntries) {
+        return new SendDeduplicator(new SendDeduplicator.Config(windowMillis, maxEntries), now::get);
+    }
+
+    private Message message() {
+        int n = composed.incrementAndGet();
+        return new Message(String.valueOf(n), n, "+27834567896", "Hi", "hash" + n, "Sent");
+    }
+
+    @Test
+    void fingerprints_SeparateSendersKindsAndFieldBoundaries() {
+        assertEquals(SendDeduplicator.contentKey("ky_1", "+27834567896", "Hi"),
+                SendDeduplicator.contentKey("ky_1", "+27834567896", "Hi"));
+        assertNotEquals(SendDeduplicator.contentKey("ky_1", "+27834567896", "Hi"),
+                SendDeduplicator.contentKey("ky_2", "+27834567896", "Hi"));
+        assertNotEquals(SendDeduplicator.contentKey("ky_1", "+2783456789", "6Hi"),
+                SendDeduplicator.contentKey("ky_1", "+27834567896", "Hi"));
+        assertNotEquals(SendDeduplicator.clientKey("ky_1", "abc"), SendDeduplicator.contentKey("ky_1", "abc", ""));
+    }
+
+    @Test
+    void claim_RepeatReturnsTheFirstMessage() {
+        SendDeduplicator dedup = deduplicator(80_000, 1_000);
+        SendDeduplicator.Fingerprint key = SendDeduplicator.clientKey("ky_1", "retry-1");
+        Message first = dedup.claim(key, this::message);
+        assertSame(first, dedup.claim(key, this::message));
+        assertEquals(1, composed.get(), "A replay composes nothing");
+        assertNotSame(first, dedup.claim(SendDeduplicator.clientKey("ky_1", "retry-2"), this::message));
+        assertEquals(1, dedup.replayed());
+        assertEquals(2, dedup.size());
+    }
+
+    @Test
+    void claim_RemembersForTheWholeWindowThenForgets() {
+        SendDeduplicator dedup = deduplicator(80_000, 1_000);
+        SendDeduplicator.Fingerprint key = SendDeduplicator.clientKey("ky_1", "k");
+        Message first = dedup.claim(key, this::message);
+        // Slices are 10s; the key's slice started at 1000s, so it is kept until 1090s
+        now.addAndGet(89_999 * MILLIS);
+        assertSame(first, dedup.claim(key, this::message), "Still inside the window");
+        now.addAndGet(MILLIS);
+        assertNotSame(first, dedup.claim(key, this::message), "Past the window it sends again");
+
+        now.addAndGet(1_000_000 * MILLIS);
+        dedup.claim(SendDeduplicator.clientKey("ky_1", "other"), this::message);
+        assertEquals(1, dedup.size(), "A long quiet spell clears every slice");
+    }
+
+    @Test
+    void claim_MemoryStaysBoundedUnderAFlood() {
+        SendDeduplicator dedup = deduplicator(80_000, 800);
+        for (int i = 0; i < 100_000; i++) {
+            dedup.claim(SendDeduplicator.clientKey("ky_1", "k" + i), this::message);
+            assertTrue(dedup.size() <= 900, "maxEntries plus one slice");
+        }
+        assertTrue(dedup.earlyRotations() > 0);
+        assertEquals(100_000, composed.get(), "Every key was new");
+        Message recent = dedup.claim(SendDeduplicator.clientKey("ky_1", "k99999"), this::message);
+        assertEquals(100_000, recent.messageNumber, "The newest keys are still remembered");
+    }
+
+    @Test
+    void claim_BloomFiltersTurnAwayMostNewKeys() {
+        SendDeduplicator dedup = deduplicator(80_000, 80_000);
+        for (int i = 0; i < 10_000; i++) {
+            dedup.claim(SendDeduplicator.contentKey("ky_1", "+27834567896", "Message " + i), this::message);
+        }
+        for (int i = 10_000; i < 20_000; i++) {
+            dedup.claim(SendDeduplicator.contentKey("ky_1", "+27834567896", "Message " + i), this::message);
+        }
+        assertEquals(0, dedup.replayed());
+        assertTrue(dedup.falsePositives() < 200, "About 1% of new keys probe a table: " + dedup.falsePositives());
+    }
+
+    @Test
+    void forget_LetsTheKeySendAgain() {
+        SendDeduplicator dedup = deduplicator(80_000, 1_000);
+        SendDeduplicator.Fingerprint key = SendDeduplicator.clientKey("ky_1", "k");
+        Message failed = dedup.claim(key, this::message);
+        dedup.forget(key, failed);
+        Message second = dedup.claim(key, this::message);
+        assertNotSame(failed, second);
+        assertSame(second, dedup.claim(key, this::message));
+    }
+}
@@ -0,0 +1,196 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SendPipelineTest {
+
+    private MessageStore store;
+    private MessageService service;
+
+    @BeforeEach
+    void setUp() {
+        store = new MessageStore();
+        service = new MessageService(store, new MessageIdGenerator());
+    }
+
+    @Test
+    void submit_StoresValidSendsAndReportsInvalidOnes() throws Exception {
+        List<CompletableFuture<MessageService.SendResult>> results = new ArrayList<>();
+        try (SendPipeline pipeline = new SendPipeline(service, new SendPipeline.Config(4, 64, 16))) {
+            for (int i = 0; i < 1000; i++) {
+                results.add(pipeline.submit("+2783" + (1000 + i % 37), "Pipelined " + i));
+            }
+            results.add(pipeline.submit("0831234567", "No plus"));
+            results.add(pipeline.submit("+27834567896", "x".repeat(MessageService.MAX_MESSAGE_LENGTH + 1)));
+            for (int i = 0; i < 1000; i++) {
+                MessageService.SendResult result = results.get(i).get(10, TimeUnit.SECONDS);
+                assertTrue(result.isSent());
+                assertSame(result.message(), store.findById(result.message().messageID));
+            }
+            assertEquals(MessageService.Status.INVALID_RECIPIENT, results.get(1000).get(10, TimeUnit.SECONDS).status());
+            assertEquals(MessageService.Status.MESSAGE_TOO_LONG, results.get(1001).get(10, TimeUnit.SECONDS).status());
+        }
+        assertEquals(1000, store.size());
+        assertEquals(1000, service.getMessageCounter(), "Numbers are drawn only for valid sends");
+    }
+
+    @Test
+    void submit_ManyProducers_KeepsEachRecipientsOrderAndRisingNumbers() throws Exception {
+        int producers = 8;
+        int perProducer = 2_000;
+        try (SendPipeline pipeline = new SendPipeline(service, new SendPipeline.Config(3, 32, 8))) {
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                String recipient = "+2783900000" + p;
+                threads.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        for (int i = 0; i < perProducer; i++) {
+                            pipeline.submit(recipient, Integer.toString(i));
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        assertEquals(producers * perProducer, store.size(), "close() finishes everything queued");
+        Set<Integer> numbers = new HashSet<>();
+        for (int p = 0; p < producers; p++) {
+            List<Message> messages = store.findByRecipient("+2783900000" + p);
+            assertEquals(perProducer, messages.size());
+            int previous = 0;
+            for (int i = 0; i < perProducer; i++) {
+                Message msg = messages.get(i);
+                assertEquals(Integer.toString(i), msg.message, "Stored in submission order");
+                assertTrue(msg.messageNumber > previous, "Numbers rise per recipient");
+                previous = msg.messageNumber;
+                assertTrue(numbers.add(msg.messageNumber), "Numbers are unique across partitions");
+            }
+        }
+    }
+
+    @Test
+    void stats_ReportDepthPerStageAndFullQueuesBlock() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        holdAppender(release);
+        SendPipeline pipeline = new SendPipeline(service, new SendPipeline.Config(1, 4, 1));
+        // The appender holds the first send or two, two more wait to append, one composed send waits for room
+        // and four fill the partition; the producer then has to wait
+        AtomicInteger queued = new AtomicInteger();
+        Thread producer = Thread.ofPlatform().start(() -> {
+            try {
+                for (int i = 0; i < 20; i++) {
+                    pipeline.submit("+27834567896", "Queued " + i);
+                    queued.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        List<SendPipeline.Stage> full = List.of(new SendPipeline.Stage("partition-0", 4, 4),
+                new SendPipeline.Stage("append", 2, 2));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!(producer.getState() == Thread.State.WAITING && pipeline.stats().stages().equals(full))
+                && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(Thread.State.WAITING, producer.getState(), "A full partition makes submit() wait");
+        SendPipeline.Stats stats = pipeline.stats();
+        assertEquals(full, stats.stages());
+        assertTrue(queued.get() == 8 || queued.get() == 9, "Queued before blocking: " + queued.get());
+        assertEquals(queued.get(), stats.submitted());
+        assertEquals(0, stats.completed());
+
+        release.countDown();
+        producer.join();
+        pipeline.close();
+        assertEquals(20, store.size());
+        assertEquals(20, pipeline.stats().completed());
+        assertEquals(0, pipeline.stats().stages().get(0).depth());
+    }
+
+    @Test
+    void submit_FullPartitionFromVirtualThreads_LeavesOtherVirtualThreadsRunning() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        holdAppender(release);
+        SendPipeline pipeline = new SendPipeline(service, new SendPipeline.Config(1, 1, 1));
+        // The stalled stages take five sends; the rest block, more of them than there are carrier threads, as
+        // many chat sessions sending at once would
+        int senders = Runtime.getRuntime().availableProcessors() + 10;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < senders; i++) {
+            String text = "Blocked " + i;
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    pipeline.submit("+27834567896", text);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pipeline.stats().stages().get(0).depth() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(100);
+        CountDownLatch ran = new CountDownLatch(1);
+        Thread.ofVirtual().start(ran::countDown);
+        assertTrue(ran.await(5, TimeUnit.SECONDS), "Senders waiting on a full partition must not pin every carrier");
+
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        pipeline.close();
+        assertEquals(senders, store.size());
+    }
+
+    // Listeners run under the store's write lock, so this holds the appender inside its first addAll()
+    private void holdAppender(CountDownLatch release) {
+        store.addListener(new MessageStore.Listener() {
+            @Override
+            public void onAdd(Message msg) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onRemove(Message msg) {
+            }
+
+            @Override
+            public void onFlagChange(Message msg, String from) {
+            }
+        });
+    }
+
+    @Test
+    void submit_AfterClose_IsRejected() throws Exception {
+        SendPipeline pipeline = new SendPipeline(service, new SendPipeline.Config(2, 8, 4));
+        pipeline.close();
+        pipeline.close();
+        CompletableFuture<MessageService.SendResult> result = pipeline.submit("+27834567896", "Too late");
+        ExecutionException e = assertThrows(ExecutionException.class, result::get);
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        assertTrue(store.isEmpty("Sent"));
+    }
+}
@@ -0,0 +1,136 @@
+package loginsystem;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SessionCacheTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    private final AtomicLong now = new AtomicLong(1_000 * MILLIS);
+
+    private SessionCache cache(long idleMillis, long absoluteMillis, int maxSessions) {
+        return new SessionCache(new SessionCache.Config(idleMillis, absoluteMillis, maxSessions), now::get);
+    }
+
+    @Test
+    void issue_GivesDistinctOpaqueTokens() {
+        SessionCache cache = cache(60_000, 600_000, 1_000);
+        Set<String> tokens = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            String token = cache.issue("user_");
+            assertEquals(43, token.length(), "32 bytes, base64url without padding");
+            assertFalse(token.contains("user_"));
+            assertTrue(tokens.add(token));
+        }
+        for (String token : tokens) {
+            assertEquals("user_", cache.validate(token));
+        }
+        assertNull(cache.validate("not-a-token"));
+        assertNull(cache.validate(null));
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    void validate_IdleExpiryIsExtendedByUse() {
+        SessionCache cache = cache(64_000, 6_400_000, 1_000);
+        String used = cache.issue("user_");
+        String idle = cache.issue("other");
+        for (int i = 0; i < 4; i++) {
+            now.addAndGet(40_000 * MILLIS);
+            assertEquals("user_", cache.validate(used), "Used every 40s, within the 64s idle limit");
+        }
+        assertNull(cache.validate(idle), "Unused for 160s");
+        assertEquals(1, cache.size(), "The idle session was swept");
+        assertEquals(1, cache.expired());
+
+        now.addAndGet(65_000 * MILLIS);
+        assertNull(cache.validate(used));
+        cache.sweep();
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.expired());
+    }
+
+    @Test
+    void validate_AbsoluteExpiryEndsABusySession() {
+        SessionCache cache = cache(64_000, 200_000, 1_000);
+        String token = cache.issue("user_");
+        for (int i = 0; i < 6; i++) {
+            now.addAndGet(30_000 * MILLIS);
+            assertEquals("user_", cache.validate(token));
+        }
+        now.addAndGet(30_000 * MILLIS);
+        assertNull(cache.validate(token), "210s after login, however busy");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void sweep_OnlyVisitsDueSessions() {
+        SessionCache cache = cache(64_000, 6_400_000, 10_000);
+        for (int i = 0; i < 1_000; i++) {
+            cache.issue("early" + i);
+        }
+        now.addAndGet(32_000 * MILLIS);
+        String late = cache.issue("late");
+        now.addAndGet(33_000 * MILLIS);
+        cache.sweep();
+        assertEquals(1, cache.size(), "Only the session issued later is left");
+        assertEquals("late", cache.validate(late));
+        assertEquals(1_000, cache.expired());
+    }
+
+    @Test
+    void issue_AtCapacityEvictsTheLeastRecentlyUsed() {
+        SessionCache cache = cache(64_000, 6_400_000, 3);
+        String a = cache.issue("a");
+        now.addAndGet(10_000 * MILLIS);
+        String b = cache.issue("b");
+        now.addAndGet(10_000 * MILLIS);
+        String c = cache.issue("c");
+        now.addAndGet(10_000 * MILLIS);
+        assertEquals("a", cache.validate(a), "a is now the most recently used");
+
+        String d = cache.issue("d");
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.evicted());
+        assertNull(cache.validate(b), "b was the least recently used");
+        assertEquals("a", cache.validate(a));
+        assertEquals("c", cache.validate(c));
+        assertEquals("d", cache.validate(d));
+    }
+
+    @Test
+    void invalidate_EndsOneSessionOrAllOfAUsers() {
+        SessionCache cache = cache(60_000, 600_000, 1_000);
+        String first = cache.issue("user_");
+        String second = cache.issue("user_");
+        String third = cache.issue("user_");
+        String other = cache.issue("other");
+
+        assertTrue(cache.invalidate(first));
+        assertFalse(cache.invalidate(first), "Already ended");
+        assertNull(cache.validate(first));
+        assertEquals(2, cache.invalidateUser("user_"));
+        assertNull(cache.validate(second));
+        assertNull(cache.validate(third));
+        assertEquals(0, cache.invalidateUser("user_"));
+        assertEquals("other", cache.validate(other), "Other users keep their sessions");
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.invalidated());
+
+        // Ended sessions still filed in the wheel are skipped, not counted twice
+        now.addAndGet(120_000 * MILLIS);
+        cache.sweep();
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.expired());
+    }
+
+    @Test
+    void config_RejectsNonPositiveLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new SessionCache.Config(0, 1_000, 10));
+        assertThrows(IllegalArgumentException.class, () -> new SessionCache.Config(1_000, 1_000, 0));
+    }
+}
@@ -0,0 +1,208 @@
+package loginsystem;
+
+import loginsystem.ChatApp.Message;
+import loginsystem.ChatApp.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class StateSnapshotTest {
+
+    private Path dir;
+    private Path file;
+    private UserRegistry users;
+    private MessageStore store;
+    private MessageService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("snapshot");
+        file = dir.resolve("state.snap");
+        users = new UserRegistry();
+        users.register(new User("kyl_1", "pbkdf2$1$c2FsdA==$aGFzaA==", "+27838968976"));
+        users.register(new User("ann_2", "plain-legacy", "+27831234567"));
+        store = new MessageStore();
+        service = new MessageService(store, new MessageIdGenerator());
+        for (int i = 0; i < 9; i++) {
+            Message msg = service.compose("+2783456789" + (i % 3), "Message " + i + " héllo", switch (i % 3) {
+                case 0 -> "Sent";
+                case 1 -> "Stored";
+                default -> "Disregarded";
+            });
+            assertTrue(store.add(msg));
+        }
+        // Irregular IDs and hashes, as loaded from old JSON exports
+        store.add(new Message("legacy-1", 100, "+27111", "Old one", "hash1", "Sent"));
+        store.add(new Message("0000000042", 101, "+27111", "", "ABCDEF", "Stored"));
+        service.advanceMessageCounter(101);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+
+    @Test
+    void writeRestore_RoundTripsUsersMessagesAndCounters() throws IOException {
+        List<String> before = dump(store);
+        StateSnapshot.Stats written = StateSnapshot.write(file, users, store, service);
+        assertEquals(2, written.users());
+        assertEquals(11, written.messages());
+        assertEquals(101, written.messageCounter());
+        assertEquals(Files.size(file), written.bytes());
+
+        UserRegistry restoredUsers = new UserRegistry();
+        MessageStore restored = new MessageStore();
+        MessageService restoredService = new MessageService(restored, new MessageIdGenerator());
+        MessageIdGenerator ids = new MessageIdGenerator();
+        StateSnapshot.Stats read = StateSnapshot.restore(file, restoredUsers, restored, restoredService, ids);
+
+        assertEquals(written, read, "Restore reports what was written");
+        assertEquals(before, dump(restored), "Every message comes back with its flag");
+        assertEquals("plain-legacy", restoredUsers.find("ann_2").password);
+        assertEquals("+27838968976", restoredUsers.find("kyl_1").phone);
+        assertEquals(101, restoredService.getMessageCounter());
+        assertTrue(ids.nextLong() > written.maxMessageID(), "New IDs continue past the restored ones");
+        assertEquals(3, restored.findByRecipient("+27834567890").size(), "Recipient index is rebuilt");
+    }
+
+    @Test
+    void write_ChangesDuringTheScan_AreLeftOut() throws IOException {
+        List<String> before = dump(store);
+        List<Message> disregarded = store.messages("Disregarded");
+        List<Message> stored = store.messages("Stored");
+        List<Message> sent = store.messages("Sent");
+        AtomicBoolean changed = new AtomicBoolean();
+        // Flags are copied in name order two messages at a time; change the store after the first chunk
+        StateSnapshot.write(file, users, store, service, 2, () -> {
+            if (changed.getAndSet(true)) return;
+            store.removeByHash(disregarded.get(0).messageHash);                          // already copied
+            store.removeByHash(stored.get(0).messageHash);                               // not copied yet
+            assertTrue(store.changeFlag(stored.get(1).messageHash, "Stored", "Disregarded")); // back to a copied flag
+            assertTrue(store.changeFlag(disregarded.get(1).messageHash, "Disregarded", "Sent")); // copied, moved on
+            assertTrue(store.changeFlag(sent.get(0).messageHash, "Sent", "Stored"));     // ahead to a later flag
+            service.send("+27839999999", "Too late for the snapshot");
+        });
+        assertTrue(changed.get());
+
+        MessageStore restored = new MessageStore();
+        StateSnapshot.restore(file, new UserRegistry(), restored, new MessageService(restored, new MessageIdGenerator()),
+                new MessageIdGenerator());
+        assertEquals(before, dump(restored), "The file holds the store as it was when the snapshot started");
+    }
+
+    @Test
+    void write_WhileSending_KeepsEveryCopiedMessageIntact() throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        Thread sender = new Thread(() -> {
+            for (int i = 0; !done.get(); i++) {
+                service.send("+2783" + (1000000 + i % 5000), "Concurrent " + i);
+            }
+        });
+        sender.start();
+        StateSnapshot.Stats stats;
+        try {
+            stats = StateSnapshot.write(file, users, store, service, 2, Thread::yield);
+        } finally {
+            done.set(true);
+            sender.join();
+        }
+
+        MessageStore restored = new MessageStore();
+        MessageIdGenerator ids = new MessageIdGenerator();
+        MessageService restoredService = new MessageService(restored, ids);
+        StateSnapshot.restore(file, new UserRegistry(), restored, restoredService, ids);
+        assertEquals(stats.messages(), restored.size());
+        Set<String> live = new HashSet<>(dump(store));
+        for (String line : dump(restored)) {
+            assertTrue(live.contains(line), "Restored message matches the live one: " + line);
+        }
+        int maxNumber = 0;
+        for (String flag : restored.flags()) {
+            for (Message msg : restored.messages(flag)) {
+                maxNumber = Math.max(maxNumber, msg.messageNumber);
+            }
+        }
+        assertTrue(restoredService.getMessageCounter() >= maxNumber, "Counter covers every restored number");
+        assertTrue(restoredService.send("+27834567896", "After restore").isSent());
+    }
+
+    @Test
+    void reader_MessageByIndex_MatchesFileOrderAcrossBlocks() throws IOException {
+        MessageStore big = new MessageStore();
+        MessageService bigService = new MessageService(big, new MessageIdGenerator());
+        int count = StateSnapshot.BLOCK_RECORDS * 2 + 17;
+        for (int i = 0; i < count; i++) {
+            bigService.send("+2783" + (1000000 + i % 100), "Text " + i);
+        }
+        StateSnapshot.write(file, users, big, bigService);
+        try (StateSnapshot.Reader reader = StateSnapshot.open(file)) {
+            assertEquals(count, reader.messageCount());
+            assertEquals(3, reader.messageBlocks());
+            List<Message> sent = big.messages("Sent");
+            for (int i : new int[] {0, 1, StateSnapshot.BLOCK_RECORDS - 1, StateSnapshot.BLOCK_RECORDS, count - 1}) {
+                Message msg = reader.message(i);
+                assertEquals(sent.get(i).messageID, msg.messageID);
+                assertEquals(sent.get(i).messageHash, msg.messageHash);
+                assertEquals(sent.get(i).message, msg.message);
+                assertEquals("Sent", msg.flag);
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.message(count));
+        }
+    }
+
+    @Test
+    void open_CorruptBlock_IsDetected() throws IOException {
+        StateSnapshot.write(file, users, store, service);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            ch.read(one, StateSnapshot.HEADER_BYTES + 3);
+            one.flip();
+            one.put(0, (byte) (one.get(0) ^ 0x40));
+            ch.write(one, StateSnapshot.HEADER_BYTES + 3);
+        }
+        try (StateSnapshot.Reader reader = StateSnapshot.open(file)) {
+            assertThrows(IOException.class, () -> reader.userBlock(0));
+            assertEquals(11, reader.messageBlock(0).size(), "Other blocks still read");
+        }
+        MessageStore restored = new MessageStore();
+        assertThrows(IOException.class, () -> StateSnapshot.restore(file, new UserRegistry(), restored,
+                new MessageService(restored, new MessageIdGenerator()), new MessageIdGenerator()));
+    }
+
+    @Test
+    void open_NotASnapshot_IsRejected() throws IOException {
+        Files.write(file, new byte[StateSnapshot.HEADER_BYTES]);
+        assertThrows(IOException.class, () -> StateSnapshot.open(file).close());
+    }
+
+    // One line per message with every field, in number order.
+    private static List<String> dump(MessageStore store) {
+        List<Message> all = new ArrayList<>();
+        for (String flag : store.flags()) {
+            all.addAll(store.messages(flag));
+        }
+        all.sort((a, b) -> Integer.compare(a.messageNumber, b.messageNumber));
+        List<String> lines = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        for (Message msg : all) {
+            assertTrue(ids.add(msg.messageID), "Duplicate message " + msg.messageID);
+            lines.add(msg.messageNumber + "|" + msg.messageID + "|" + msg.messageHash + "|" + msg.recipient + "|"
+                    + msg.message + "|" + msg.flag + "|" + msg.createdAt);
+        }
+        return lines;
+    }
+}
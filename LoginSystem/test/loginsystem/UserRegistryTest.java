@@ -0,0 +1,84 @@
+package loginsystem;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class UserRegistryTest {
+
+    private UserRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new UserRegistry();
+    }
+
+    @Test
+    void register_NewUsername_Succeeds() {
+        assertTrue(registry.register(new ChatApp.User("user_", "Pass123!@", "+27612345678")), "New username should register");
+        assertEquals("+27612345678", registry.find("user_").getPhone(), "Registered user should be found by username");
+    }
+
+    @Test
+    void register_DuplicateUsername_Fails() {
+        registry.register(new ChatApp.User("user_", "Pass123!@", "+27612345678"));
+        assertFalse(registry.register(new ChatApp.User("user_", "Other123!@", "+27712345678")), "Duplicate username should fail");
+        assertEquals("+27612345678", registry.find("user_").getPhone(), "Original user should be kept");
+        assertEquals(1, registry.size(), "Registry should not grow on failed registration");
+    }
+
+    @Test
+    void find_UnknownOrNullUsername_ReturnsNull() {
+        assertNull(registry.find("nope_"), "Unknown username should return null");
+        assertNull(registry.find(null), "Null username should return null");
+    }
+
+    @Test
+    void users_ReturnsCopy() {
+        registry.register(new ChatApp.User("user_", "Pass123!@", "+27612345678"));
+        registry.users().clear();
+        assertEquals(1, registry.size(), "Modifying the returned list should not affect the registry");
+    }
+
+    @Test
+    void register_UnderContention_NeverRegistersDuplicates() throws InterruptedException {
+        int threads = 32;
+        int usernames = 2_000;
+        int attemptsPerThread = 20_000;
+        AtomicInteger successes = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        // Assertions fail on the test thread; a failure inside a pool task would only end that task
+        ConcurrentLinkedQueue<String> invisible = new ConcurrentLinkedQueue<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    String name = "u_" + ((i * 31 + seed) % usernames);
+                    if (registry.register(new ChatApp.User(name, "Pass123!@", "+2761234567" + seed % 10))) {
+                        successes.incrementAndGet();
+                    }
+                    if (registry.find(name) == null) invisible.add(name);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS), "Stress test should finish in time");
+        assertTrue(invisible.isEmpty(), "Username must be visible once any register call has returned: " + invisible);
+        assertEquals(usernames, successes.get(), "Each username should be registered exactly once");
+        assertEquals(usernames, registry.size(), "Registry should hold exactly one entry per username");
+    }
+}
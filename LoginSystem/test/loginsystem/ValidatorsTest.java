@@ -0,0 +1,64 @@
+package loginsystem;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.EnumSet;
+import java.util.Random;
+
+public class ValidatorsTest {
+
+    // The regex rules Validators replaced
+    private static boolean legacyPasswordComplexity(String password) {
+        return password.length() >= 8 &&
+                password.matches(".*[A-Z].*") &&
+                password.matches(".*[a-z].*") &&
+                password.matches(".*\\d.*") &&
+                password.matches(".*[!@#$%^&*(),.?\":{}|<>].*");
+    }
+
+    private static boolean legacyRecipient(String recipient) {
+        return recipient.startsWith("+") && recipient.length() <= 15 && recipient.length() > 1
+                && recipient.substring(1).matches("\\d+");
+    }
+
+    @Test
+    void validatePassword_ReportsEveryFailedRule() {
+        Validators.Result result = Validators.validatePassword("abc");
+        assertFalse(result.isValid(), "Weak password should be invalid");
+        assertEquals(EnumSet.of(Validators.Rule.PASSWORD_LENGTH, Validators.Rule.PASSWORD_UPPERCASE,
+                Validators.Rule.PASSWORD_DIGIT, Validators.Rule.PASSWORD_SPECIAL), result.failedRules(),
+                "Every missing character class should be reported");
+        assertTrue(Validators.validatePassword("Pass123!@").isValid(), "Strong password should be valid");
+    }
+
+    @Test
+    void validate_ReturnsSharedResultInstances() {
+        assertSame(Validators.validatePassword("Pass123!@"), Validators.validateRecipient("+27834567896"),
+                "Valid results should not be allocated per call");
+    }
+
+    @Test
+    void validateRecipient_MatchesOriginalRules() {
+        assertTrue(Validators.checkRecipient("+27834567896"), "Plus followed by digits should be valid");
+        assertFalse(Validators.checkRecipient("Developer"), "Recipient without '+' should be invalid");
+        assertFalse(Validators.checkRecipient("+"), "Recipient without digits should be invalid");
+        assertFalse(Validators.checkRecipient("+123456789012345"), "Recipient longer than 15 characters should be invalid");
+        assertFalse(Validators.checkRecipient(null), "Null recipient should be invalid");
+    }
+
+    @Test
+    void validate_AgreesWithRegexRulesOnRandomInput() {
+        Random random = new Random(42);
+        String alphabet = "aZ9!+_ \né@x0Q.";
+        for (int i = 0; i < 50_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(18);
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String candidate = sb.toString();
+            assertEquals(legacyPasswordComplexity(candidate), Validators.checkPasswordComplexity(candidate), "Password: " + candidate);
+            assertEquals(legacyRecipient(candidate), Validators.checkRecipient(candidate), "Recipient: " + candidate);
+        }
+    }
+}